@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * File AgendaBenchmark.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.bench;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import de.tuebingen.rparse.parser.CYKItem;
+import de.tuebingen.rparse.parser.CYKParser;
+import de.tuebingen.rparse.parser.ParserData;
+import de.tuebingen.rparse.parser.PriorityAgenda;
+import de.tuebingen.rparse.parser.PriorityAgendaFactory;
+import de.tuebingen.rparse.parser.PriorityAgendaTypes;
+import de.tuebingen.rparse.parser.YieldFunctionComposerFactory;
+import de.tuebingen.rparse.parser.YieldFunctionComposerTypes;
+import de.tuebingen.rparse.treebank.IncrementalTreebankProcessor;
+import de.tuebingen.rparse.treebank.lex.ParserInput;
+import de.tuebingen.rparse.treebank.lex.ParserInputReaderFactory;
+
+/**
+ * Compares the priority agendas on recorded parse traces. The test
+ * sentences are parsed once, and every push and poll on the agenda is
+ * recorded. The traces are then replayed on each agenda type, with fresh
+ * copies of the pushed items, such that only the agenda operations are
+ * measured.
+ * 
+ * Usage: AgendaBenchmark model.gz test.tagged [maxlen [repetitions]]
+ * 
+ * @author wmaier
+ */
+public class AgendaBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: AgendaBenchmark model.gz test.tagged "
+					+ "[maxlen [repetitions]]");
+			System.exit(1);
+		}
+		int maxlen = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+		int reps = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		ParserData pd = ParserData.unserializeModel(args[0]);
+		if (pd.yfcomp == null)
+			pd.yfcomp = YieldFunctionComposerFactory.getYieldFunctionComposer(
+					YieldFunctionComposerTypes.FAST, "");
+
+		// record
+		final List<AgendaTrace> traces = new ArrayList<AgendaTrace>();
+		CYKParser parser = new CYKParser(pd, PriorityAgendaTypes.FIBONACCI,
+				pd.nb) {
+			@Override
+			protected PriorityAgenda newAgenda()
+					throws NoSuchElementException {
+				AgendaTrace t = new AgendaTrace(super.newAgenda());
+				traces.add(t);
+				return t;
+			}
+		};
+		IncrementalTreebankProcessor<? extends ParserInput> reader = ParserInputReaderFactory
+				.getParserInputReader("rparse-tagged", pd.nb);
+		reader.initialize(new BufferedReader(new InputStreamReader(
+				new FileInputStream(args[1]), "UTF-8")));
+		int sentences = 0;
+		while (reader.hasNext()) {
+			ParserInput input = reader.next();
+			if (input.size() > maxlen)
+				continue;
+			parser.reset();
+			parser.parse(input);
+			++sentences;
+		}
+		long pushes = 0;
+		long polls = 0;
+		for (AgendaTrace t : traces) {
+			pushes += t.pushCount();
+			polls += t.pollCount();
+		}
+		System.err.println(sentences + " sentences, " + pushes + " pushes, "
+				+ polls + " polls");
+
+		// replay
+		String[] types = { PriorityAgendaTypes.FIBONACCI,
+				PriorityAgendaTypes.NAIVE, PriorityAgendaTypes.HEAP };
+		System.out.println("agenda\tpushes\tpolls\tms\tns/operation");
+		for (String type : types) {
+			long best = Long.MAX_VALUE;
+			for (int r = 0; r < reps; ++r) {
+				List<CYKItem[]> items = new ArrayList<CYKItem[]>();
+				for (AgendaTrace t : traces) {
+					items.add(t.copyItems());
+				}
+				long start = System.nanoTime();
+				for (int i = 0; i < traces.size(); ++i) {
+					traces.get(i).replay(
+							PriorityAgendaFactory.getPriorityAgenda(type,
+									pd.nb), items.get(i));
+				}
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.println(type + "\t" + pushes + "\t" + polls + "\t"
+					+ best / 1000000 + "\t" + best / Math.max(1, pushes + polls));
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * File AgendaCheck.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.bench;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.parser.CYKItem;
+import de.tuebingen.rparse.parser.CYKParser;
+import de.tuebingen.rparse.parser.ParserData;
+import de.tuebingen.rparse.parser.PriorityAgenda;
+import de.tuebingen.rparse.parser.PriorityAgendaFactory;
+import de.tuebingen.rparse.parser.PriorityAgendaTypes;
+import de.tuebingen.rparse.parser.YieldFunctionComposerFactory;
+import de.tuebingen.rparse.parser.YieldFunctionComposerTypes;
+import de.tuebingen.rparse.treebank.IncrementalTreebankProcessor;
+import de.tuebingen.rparse.treebank.constituent.Tree;
+import de.tuebingen.rparse.treebank.constituent.process.ConstituentInputFormats;
+import de.tuebingen.rparse.treebank.constituent.process.IncrementalConstituentProcessorFactory;
+
+/**
+ * Regression check for the agendas, exits with status 1 if something is
+ * wrong. First, many items with colliding labels and range vectors are pushed
+ * to every agenda type, some of them several times with better and worse
+ * scores, and it is checked that every item is polled exactly once, in the
+ * order of the scores. Second, the sentences of the sample are parsed one
+ * after the other with one parser per agenda type, i.e., every sentence
+ * after the first one runs on the agenda which the parser creates in
+ * {@link CYKParser#reset()}, and it is checked that all parsers find the same
+ * parses.
+ * 
+ * @author wmaier
+ */
+public class AgendaCheck {
+
+	private static final String[] TYPES = { PriorityAgendaTypes.FIBONACCI,
+			PriorityAgendaTypes.NAIVE, PriorityAgendaTypes.HEAP };
+
+	// sentence length for the items which are pushed
+	private static final int LENGTH = 20;
+
+	// longer sentences of the sample are not parsed
+	private static final int MAXLEN = 25;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: AgendaCheck model.gz sample.export");
+			System.exit(1);
+		}
+		int failures = 0;
+		for (String type : TYPES)
+			failures += checkPushes(type);
+
+		ParserData pd = ParserData.unserializeModel(args[0]);
+		if (pd.yfcomp == null)
+			pd.yfcomp = YieldFunctionComposerFactory.getYieldFunctionComposer(
+					YieldFunctionComposerTypes.FAST, "");
+		List<Tree> sentences = new ArrayList<Tree>();
+		IncrementalTreebankProcessor<Tree> reader = IncrementalConstituentProcessorFactory
+				.getTreebankProcessor(ConstituentInputFormats.EXPORT, pd.nb);
+		reader.initialize(new BufferedReader(new InputStreamReader(
+				new FileInputStream(args[1]), "UTF-8")));
+		while (reader.hasNext()) {
+			Tree t = reader.next();
+			if (t.size() <= MAXLEN)
+				sentences.add(t);
+		}
+		failures += checkParses(pd, sentences);
+
+		if (failures > 0) {
+			System.err.println(failures + " failures");
+			System.exit(1);
+		}
+		System.err.println("all agendas ok");
+	}
+
+	/*
+	 * Push items with every label below 100 and every range vector with one
+	 * or two terminals, such that labels and vectors overlap in many ways
+	 * (enough for many items to share buckets of a hash map if their hash
+	 * codes are not mixed). Every third item is pushed again with a better
+	 * score, every fifth with a worse one.
+	 */
+	private static int checkPushes(String type) throws Exception {
+		PriorityAgenda agenda = PriorityAgendaFactory.getPriorityAgenda(type,
+				new Numberer());
+		Random random = new Random(42);
+		List<CYKItem> best = new ArrayList<CYKItem>();
+		int n = 0;
+		for (int pl = 0; pl < 100; ++pl) {
+			for (int i = 0; i < LENGTH; ++i) {
+				for (int j = i; j < LENGTH; ++j) {
+					BitSet vec = new BitSet();
+					vec.set(i);
+					vec.set(j);
+					double score = 100 * random.nextDouble();
+					CYKItem it = new CYKItem(pl, score, vec, null, null,
+							LENGTH, false, i, j);
+					agenda.push(it);
+					if (n % 3 == 0) {
+						it = new CYKItem(pl, score / 2, (BitSet) vec.clone(),
+								null, null, LENGTH, false, i, j);
+						agenda.push(it);
+					}
+					if (n % 5 == 0)
+						agenda.push(new CYKItem(pl, score + 1,
+								(BitSet) vec.clone(), null, null, LENGTH,
+								false, i, j));
+					best.add(it);
+					++n;
+				}
+			}
+		}
+		int failures = 0;
+		Set<CYKItem> polled = new HashSet<CYKItem>();
+		double last = Double.NEGATIVE_INFINITY;
+		while (!agenda.isEmpty()) {
+			CYKItem it = agenda.poll();
+			if (!polled.add(it)) {
+				System.err.println(type + ": polled twice: " + it);
+				++failures;
+			}
+			if (it.iscore < last) {
+				System.err.println(type + ": polled out of order: " + it);
+				++failures;
+			}
+			last = it.iscore;
+		}
+		if (polled.size() != best.size()) {
+			System.err.println(type + ": polled " + polled.size()
+					+ " items instead of " + best.size());
+			++failures;
+		}
+		return failures;
+	}
+
+	/*
+	 * Parse all sentences with one parser per agenda type, such that the
+	 * agendas are also renewed between sentences, and compare the parses
+	 * with the ones of the first type.
+	 */
+	private static int checkParses(ParserData pd, List<Tree> sentences) {
+		List<String> expected = null;
+		int failures = 0;
+		for (String type : TYPES) {
+			CYKParser parser = new CYKParser(pd, type, pd.nb);
+			List<String> parses = new ArrayList<String>();
+			for (Tree t : sentences) {
+				parser.reset();
+				try {
+					parses.add(parser.parse(t) ? parser.getResult().toString()
+							: "");
+				} catch (RuntimeException e) {
+					System.err.println(type + ": parser failed on sentence "
+							+ (parses.size() + 1) + ": " + e);
+					parses.add(null);
+					++failures;
+				}
+			}
+			System.err.println(type + ": " + sentences.size()
+					+ " sentences parsed");
+			if (expected == null) {
+				expected = parses;
+				continue;
+			}
+			for (int i = 0; i < parses.size(); ++i) {
+				if (parses.get(i) != null
+						&& !parses.get(i).equals(expected.get(i))) {
+					System.err.println(type + ": different parse for sentence "
+							+ (i + 1));
+					++failures;
+				}
+			}
+		}
+		return failures;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * File AgendaTrace.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.bench;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import de.tuebingen.rparse.parser.CYKItem;
+import de.tuebingen.rparse.parser.PriorityAgenda;
+
+/**
+ * Records the operations on an agenda during a parse: the pushed items, how
+ * many polls come before each push, and the polled items. The items are
+ * copied, since the parser reuses its items. A trace can be replayed on
+ * another agenda.
+ * 
+ * @author wmaier
+ */
+public class AgendaTrace implements PriorityAgenda {
+
+	private PriorityAgenda agenda;
+
+	private List<CYKItem> pushes;
+
+	private List<Integer> pollsBefore;
+
+	private List<CYKItem> polled;
+
+	private int polls;
+
+	private int pending;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param agenda
+	 *            The agenda which does the actual work
+	 */
+	public AgendaTrace(PriorityAgenda agenda) {
+		this.agenda = agenda;
+		pushes = new ArrayList<CYKItem>();
+		pollsBefore = new ArrayList<Integer>();
+		polled = new ArrayList<CYKItem>();
+		polls = 0;
+		pending = 0;
+	}
+
+	@Override
+	public CYKItem poll() {
+		++polls;
+		++pending;
+		CYKItem it = agenda.poll();
+		polled.add(copy(it));
+		return it;
+	}
+
+	@Override
+	public void push(CYKItem it) {
+		pushes.add(copy(it));
+		pollsBefore.add(pending);
+		pending = 0;
+		agenda.push(it);
+	}
+
+	@Override
+	public long getDecreaseKeyCount() {
+		return agenda.getDecreaseKeyCount();
+	}
+
+	@Override
+	public String getStats() {
+		return agenda.getStats();
+	}
+
+	@Override
+	public int size() {
+		return agenda.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return agenda.isEmpty();
+	}
+
+	/**
+	 * The number of pushes.
+	 * 
+	 * @return The number of pushes
+	 */
+	public int pushCount() {
+		return pushes.size();
+	}
+
+	/**
+	 * The number of polls.
+	 * 
+	 * @return The number of polls
+	 */
+	public int pollCount() {
+		return polls;
+	}
+
+	/**
+	 * Copies of the pushed items, in the order of the pushes.
+	 * 
+	 * @return The items
+	 */
+	public List<CYKItem> pushed() {
+		return pushes;
+	}
+
+	/**
+	 * Copies of the polled items, in the order of the polls. These are the
+	 * items which have gone into the chart.
+	 * 
+	 * @return The items
+	 */
+	public List<CYKItem> polled() {
+		return polled;
+	}
+
+	/**
+	 * Fresh items for a replay, since agendas update items in place
+	 * 
+	 * @return Copies of the pushed items
+	 */
+	public CYKItem[] copyItems() {
+		CYKItem[] ret = new CYKItem[pushes.size()];
+		for (int i = 0; i < ret.length; ++i) {
+			ret[i] = copy(pushes.get(i));
+		}
+		return ret;
+	}
+
+	/**
+	 * Replay the trace on another agenda.
+	 * 
+	 * @param target
+	 *            The agenda
+	 * @param items
+	 *            Fresh items, see {@link #copyItems()}
+	 */
+	public void replay(PriorityAgenda target, CYKItem[] items) {
+		for (int i = 0; i < items.length; ++i) {
+			for (int p = pollsBefore.get(i); p > 0 && !target.isEmpty(); --p)
+				target.poll();
+			target.push(items[i]);
+		}
+		for (int p = pending; p > 0 && !target.isEmpty(); --p)
+			target.poll();
+	}
+
+	/**
+	 * Copy an item without its backpointers. The range vector is copied as
+	 * well, since the parser reuses range vectors from sentence to sentence.
+	 * 
+	 * @param it
+	 *            The item
+	 * @return The copy
+	 */
+	public static CYKItem copy(CYKItem it) {
+		CYKItem ret = new CYKItem(it.pl, it.iscore, (BitSet) it.rvec.clone(),
+				null, null,
+				it.length, it.iscf, it.start, it.end);
+		ret.oscore = it.oscore;
+		return ret;
+	}
+
+}
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * File BenchmarkSuite.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import de.tuebingen.rparse.grammar.BinaryClause;
+import de.tuebingen.rparse.misc.IntegerContainer;
+import de.tuebingen.rparse.parser.CYKChart;
+import de.tuebingen.rparse.parser.CYKItem;
+import de.tuebingen.rparse.parser.CYKParser;
+import de.tuebingen.rparse.parser.MappedModel;
+import de.tuebingen.rparse.parser.ParserData;
+import de.tuebingen.rparse.parser.PriorityAgenda;
+import de.tuebingen.rparse.parser.PriorityAgendaFactory;
+import de.tuebingen.rparse.parser.PriorityAgendaTypes;
+import de.tuebingen.rparse.parser.YieldFunctionComposer;
+import de.tuebingen.rparse.parser.YieldFunctionComposerFactory;
+import de.tuebingen.rparse.parser.YieldFunctionComposerTypes;
+import de.tuebingen.rparse.treebank.IncrementalTreebankProcessor;
+import de.tuebingen.rparse.treebank.constituent.Tree;
+import de.tuebingen.rparse.treebank.constituent.process.ConstituentInputFormats;
+import de.tuebingen.rparse.treebank.constituent.process.IncrementalConstituentProcessorFactory;
+
+/**
+ * Micro-benchmarks for the hot parts of the parser, run with {@link Harness}.
+ * The fixtures come from a trained model and an export sample (see the
+ * bench-run target in build.xml, which trains a model on the bundled sample
+ * bench/data/sample.export). The sentences of the sample are parsed once,
+ * and the agenda operations and yield compositions are recorded. The
+ * benchmarks, by name:
+ * <ul>
+ * <li>compose.[shape]: yield composition of recorded item pairs, per yield
+ * function shape (one digit per variable, 0 from the left and 1 from the
+ * right child, arguments separated by a dot)</li>
+ * <li>chart.add, chart.contains: chart operations with the items which went
+ * into the chart</li>
+ * <li>agenda.[type]: replay of the recorded push and poll operations
+ * (including decrease-key) per agenda type</li>
+ * <li>estimate.get: outside estimate lookup for the pushed items</li>
+ * <li>parse.len[from]-[to]: full parses, per sentence, by length bucket</li>
+ * <li>io.export: reading the export sample, per sentence</li>
+ * <li>load.serialized, load.mapped: loading the model, as serialized and
+ * as mapped model (see {@link MappedModel})</li>
+ * </ul>
+ * 
+ * Usage: BenchmarkSuite model.gz sample.export [filter [warmup
+ * [iterations]]]
+ * 
+ * @author wmaier
+ */
+public class BenchmarkSuite {
+
+	// longest sentence to parse
+	private static final int MAXLEN = 25;
+
+	// width of the length buckets of the parse benchmarks
+	private static final int BUCKET = 5;
+
+	// maximal number of recorded compositions per yield function shape
+	private static final int MAX_COMPOSITIONS = 50000;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkSuite model.gz sample.export "
+					+ "[filter [warmup [iterations]]]");
+			System.exit(1);
+		}
+		final String model = args[0];
+		final String sample = args[1];
+		String filter = args.length > 2 && !args[2].isEmpty() ? args[2]
+				: null;
+		int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+		Harness h = new Harness(warmup, iterations, filter);
+
+		final ParserData pd = ParserData.unserializeModel(model);
+		if (pd.yfcomp == null)
+			pd.yfcomp = YieldFunctionComposerFactory.getYieldFunctionComposer(
+					YieldFunctionComposerTypes.FAST, "");
+		final List<Tree> sentences = new ArrayList<Tree>();
+		for (Tree t : readExport(sample, pd)) {
+			if (t.size() <= MAXLEN)
+				sentences.add(t);
+		}
+
+		// record
+		final YieldFunctionComposer composer = pd.yfcomp;
+		RecordingComposer recorder = new RecordingComposer(composer);
+		pd.yfcomp = recorder;
+		final List<AgendaTrace> traces = new ArrayList<AgendaTrace>();
+		CYKParser parser = new CYKParser(pd, PriorityAgendaTypes.FIBONACCI,
+				pd.nb) {
+			@Override
+			protected PriorityAgenda newAgenda()
+					throws NoSuchElementException {
+				AgendaTrace t = new AgendaTrace(super.newAgenda());
+				traces.add(t);
+				return t;
+			}
+		};
+		for (Tree t : sentences) {
+			parser.reset();
+			parser.parse(t);
+		}
+		pd.yfcomp = composer;
+		// the parser gets an agenda in its constructor and a new one with
+		// every reset, i.e., before every sentence
+		final List<AgendaTrace> sentenceTraces = new ArrayList<AgendaTrace>(
+				traces.subList(1, traces.size()));
+		final List<int[]> sentenceTags = new ArrayList<int[]>();
+		for (Tree t : sentences)
+			sentenceTags.add(t.getTags());
+		System.err.println(sentences.size() + " sentences recorded");
+
+		// yield composition
+		if (h.selected("compose")) {
+			List<String> shapes = new ArrayList<String>(
+					recorder.pairs.keySet());
+			final Map<String, List<CYKItem[]>> pairs = recorder.pairs;
+			final Map<String, List<BinaryClause>> clauses = recorder.clauses;
+			Collections.sort(shapes, new Comparator<String>() {
+				@Override
+				public int compare(String a, String b) {
+					return pairs.get(b).size() - pairs.get(a).size();
+				}
+			});
+			for (final String shape : shapes) {
+				final List<CYKItem[]> p = pairs.get(shape);
+				final List<BinaryClause> c = clauses.get(shape);
+				h.measure("compose." + shape, p.size(), new Harness.Task() {
+					IntegerContainer start = new IntegerContainer(0);
+					IntegerContainer end = new IntegerContainer(0);
+
+					@Override
+					public long run() {
+						long ret = 0;
+						for (int i = 0; i < p.size(); ++i) {
+							BitSet yp = composer.composeYields(p.get(i)[0],
+									p.get(i)[1], c.get(i), start, end);
+							if (yp != null)
+								ret += yp.cardinality();
+						}
+						return ret;
+					}
+				});
+			}
+		}
+
+		// chart
+		long chartItems = 0;
+		for (AgendaTrace t : sentenceTraces)
+			chartItems += t.polled().size();
+		final List<CYKChart> charts = new ArrayList<CYKChart>();
+		h.measure("chart.add", chartItems, new Harness.Task() {
+			@Override
+			public void setup() {
+				charts.clear();
+			}
+
+			@Override
+			public long run() {
+				for (AgendaTrace t : sentenceTraces) {
+					CYKChart chart = new CYKChart();
+					for (CYKItem it : t.polled())
+						chart.add(it);
+					charts.add(chart);
+				}
+				return charts.size();
+			}
+		});
+		if (h.selected("chart.contains")) {
+			charts.clear();
+			for (AgendaTrace t : sentenceTraces) {
+				CYKChart chart = new CYKChart();
+				for (CYKItem it : t.polled())
+					chart.add(it);
+				charts.add(chart);
+			}
+		}
+		h.measure("chart.contains", chartItems, new Harness.Task() {
+			@Override
+			public long run() {
+				long ret = 0;
+				for (int i = 0; i < sentenceTraces.size(); ++i) {
+					CYKChart chart = charts.get(i);
+					for (CYKItem it : sentenceTraces.get(i).polled()) {
+						if (chart.contains(it))
+							++ret;
+					}
+				}
+				return ret;
+			}
+		});
+
+		// agendas
+		long agendaOps = 0;
+		long pushes = 0;
+		for (AgendaTrace t : sentenceTraces) {
+			agendaOps += t.pushCount() + t.pollCount();
+			pushes += t.pushCount();
+		}
+		String[] types = { PriorityAgendaTypes.FIBONACCI,
+				PriorityAgendaTypes.NAIVE, PriorityAgendaTypes.HEAP };
+		for (final String type : types) {
+			h.measure("agenda." + type, agendaOps, new Harness.Task() {
+				List<CYKItem[]> items = new ArrayList<CYKItem[]>();
+
+				@Override
+				public void setup() {
+					items.clear();
+					for (AgendaTrace t : sentenceTraces)
+						items.add(t.copyItems());
+				}
+
+				@Override
+				public long run() throws Exception {
+					long ret = 0;
+					for (int i = 0; i < sentenceTraces.size(); ++i) {
+						PriorityAgenda agenda = PriorityAgendaFactory
+								.getPriorityAgenda(type, pd.nb);
+						sentenceTraces.get(i).replay(agenda, items.get(i));
+						ret += agenda.size();
+					}
+					return ret;
+				}
+			});
+		}
+
+		// estimates
+		h.measure("estimate.get", pushes, new Harness.Task() {
+			@Override
+			public long run() {
+				double ret = 0;
+				for (int i = 0; i < sentenceTraces.size(); ++i) {
+					int[] tags = sentenceTags.get(i);
+					for (CYKItem it : sentenceTraces.get(i).pushed())
+						ret += pd.est.get(tags.length, it.pl, it.rvec, tags);
+				}
+				return (long) ret;
+			}
+		});
+
+		// full parses
+		final CYKParser plain = new CYKParser(pd,
+				PriorityAgendaTypes.FIBONACCI, pd.nb);
+		for (int from = 1; from <= MAXLEN; from += BUCKET) {
+			final List<Tree> bucket = new ArrayList<Tree>();
+			for (Tree t : sentences) {
+				if (t.size() >= from && t.size() < from + BUCKET)
+					bucket.add(t);
+			}
+			if (bucket.isEmpty())
+				continue;
+			h.measure(String.format("parse.len%02d-%02d", from, from + BUCKET
+					- 1), bucket.size(), new Harness.Task() {
+				@Override
+				public long run() {
+					long ret = 0;
+					for (Tree t : bucket) {
+						plain.reset();
+						if (plain.parse(t))
+							++ret;
+					}
+					return ret;
+				}
+			});
+		}
+
+		// treebank reading
+		h.measure("io.export", sentences.size(), new Harness.Task() {
+			@Override
+			public long run() throws Exception {
+				return readExport(sample, pd).size();
+			}
+		});
+
+		// model loading
+		h.measure("load.serialized", 1, new Harness.Task() {
+			@Override
+			public long run() throws Exception {
+				return ParserData.unserializeModel(model).bg.clauses.size();
+			}
+		});
+		if (h.selected("load.mapped")) {
+			final File mapped = File.createTempFile("rparse-bench", ".rpm");
+			mapped.deleteOnExit();
+			MappedModel.write(ParserData.unserializeModel(model),
+					mapped.getPath());
+			h.measure("load.mapped", 1, new Harness.Task() {
+				@Override
+				public long run() throws Exception {
+					return MappedModel.read(mapped.getPath()).bg.clauses
+							.size();
+				}
+			});
+		}
+
+		System.err.println("sink: " + h.sink());
+	}
+
+	private static List<Tree> readExport(String filename, ParserData pd)
+			throws Exception {
+		IncrementalTreebankProcessor<Tree> reader = IncrementalConstituentProcessorFactory
+				.getTreebankProcessor(ConstituentInputFormats.EXPORT, pd.nb);
+		reader.initialize(new BufferedReader(new InputStreamReader(
+				new FileInputStream(filename), "UTF-8")));
+		List<Tree> ret = new ArrayList<Tree>();
+		while (reader.hasNext())
+			ret.add(reader.next());
+		return ret;
+	}
+
+	/*
+	 * Records the item pairs and clauses which get composed, by yield
+	 * function shape, and lets another composer do the work.
+	 */
+	private static class RecordingComposer extends YieldFunctionComposer {
+
+		private static final long serialVersionUID = 1L;
+
+		private final YieldFunctionComposer composer;
+
+		private final Map<String, List<CYKItem[]>> pairs;
+
+		private final Map<String, List<BinaryClause>> clauses;
+
+		public RecordingComposer(YieldFunctionComposer composer) {
+			this.composer = composer;
+			pairs = new HashMap<String, List<CYKItem[]>>();
+			clauses = new HashMap<String, List<BinaryClause>>();
+		}
+
+		@Override
+		public BitSet doComposition(CYKItem lit, CYKItem rit,
+				BinaryClause bc, IntegerContainer s, IntegerContainer e) {
+			record(lit, rit, bc);
+			return composer.doComposition(lit, rit, bc, s, e);
+		}
+
+		@Override
+		public BitSet doComposition(CYKItem lit, CYKItem rit,
+				boolean[][] yf, IntegerContainer s, IntegerContainer e) {
+			return composer.doComposition(lit, rit, yf, s, e);
+		}
+
+		private void record(CYKItem lit, CYKItem rit, BinaryClause bc) {
+			String shape = shape(bc.yf);
+			if (!pairs.containsKey(shape)) {
+				pairs.put(shape, new ArrayList<CYKItem[]>());
+				clauses.put(shape, new ArrayList<BinaryClause>());
+			}
+			if (pairs.get(shape).size() >= MAX_COMPOSITIONS)
+				return;
+			pairs.get(shape).add(
+					new CYKItem[] { AgendaTrace.copy(lit),
+							AgendaTrace.copy(rit) });
+			clauses.get(shape).add(bc);
+		}
+
+		private static String shape(boolean[][] yf) {
+			StringBuilder sb = new StringBuilder();
+			for (int arg = 0; arg < yf.length; ++arg) {
+				if (arg > 0)
+					sb.append('.');
+				for (boolean b : yf[arg])
+					sb.append(b ? '1' : '0');
+			}
+			return sb.toString();
+		}
+
+	}
+
+}
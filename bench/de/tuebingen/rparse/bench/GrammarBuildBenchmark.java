@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * File GrammarBuildBenchmark.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import de.tuebingen.rparse.grammar.BinaryClause;
+import de.tuebingen.rparse.grammar.BinaryRCG;
+import de.tuebingen.rparse.grammar.GrammarException;
+import de.tuebingen.rparse.grammar.RCG;
+import de.tuebingen.rparse.parser.ParserData;
+
+/**
+ * Measures how the construction of a binary grammar scales with the size of
+ * the treebank. The binary clauses of a trained model are expanded into one
+ * occurrence per count and shuffled. Growing prefixes of this stream then
+ * stand for growing treebanks. For every prefix, the grammar is built by
+ * adding the occurrences one by one (as the binarizer does), the bin cutoff
+ * is applied and the parse-time view is frozen. If construction is linear,
+ * the time per occurrence stays constant over the prefixes.
+ * 
+ * Usage: GrammarBuildBenchmark model.gz [cutoff [repetitions]]
+ * 
+ * @author wmaier
+ */
+public class GrammarBuildBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: GrammarBuildBenchmark model.gz "
+					+ "[cutoff [repetitions]]");
+			System.exit(1);
+		}
+		int cutoff = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		int reps = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		ParserData pd = ParserData.unserializeModel(args[0]);
+		RCG g = pd.bg.getGrammar() != null ? pd.bg.getGrammar() : pd.g;
+
+		List<BinaryClause> occurrences = new ArrayList<BinaryClause>();
+		for (BinaryClause bc : pd.bg.clauses) {
+			int count = pd.bg.cnt.get(bc);
+			for (int i = 0; i < count; ++i) {
+				occurrences.add(bc);
+			}
+		}
+		Collections.shuffle(occurrences, new Random(42));
+
+		System.out.println("occurrences\tclauses\tbuild ms\tcutoff ms"
+				+ "\tfreeze ms\tns/occurrence");
+		for (int div = 16; div >= 1; div /= 2) {
+			List<BinaryClause> prefix = occurrences.subList(0,
+					occurrences.size() / div);
+			long build = Long.MAX_VALUE;
+			long cut = Long.MAX_VALUE;
+			long freeze = Long.MAX_VALUE;
+			int clauses = 0;
+			// best of the repetitions, the first one includes warmup
+			for (int r = 0; r < reps; ++r) {
+				long t0 = System.nanoTime();
+				BinaryRCG bg = build(g, prefix);
+				long t1 = System.nanoTime();
+				BinaryRCG cbg = bg.binCutoff(cutoff);
+				long t2 = System.nanoTime();
+				cbg.freeze();
+				long t3 = System.nanoTime();
+				build = Math.min(build, t1 - t0);
+				cut = Math.min(cut, t2 - t1);
+				freeze = Math.min(freeze, t3 - t2);
+				clauses = bg.clauses.size();
+			}
+			System.out.println(prefix.size() + "\t" + clauses + "\t"
+					+ ms(build) + "\t" + ms(cut) + "\t" + ms(freeze) + "\t"
+					+ (prefix.isEmpty() ? 0 : build / prefix.size()));
+		}
+	}
+
+	private static BinaryRCG build(RCG g, List<BinaryClause> occurrences)
+			throws GrammarException {
+		BinaryRCG bg = new BinaryRCG(g, null);
+		if (g.getStartPredLabel() != null)
+			bg.setStartPredLabel(g.getStartPredLabel());
+		for (BinaryClause bc : occurrences) {
+			bg.addClause(bc, 1);
+		}
+		return bg;
+	}
+
+	private static String ms(long nanos) {
+		return String.format("%.1f", nanos / 1e6);
+	}
+
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * File Harness.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.bench;
+
+/**
+ * A small micro-benchmark harness in the style of JMH. Every benchmark is a
+ * task which performs a known number of operations per run. The task is run
+ * a number of times for warmup, such that the JIT has compiled the code
+ * under test, and then a number of measured times. The harness reports the
+ * best and the mean time per operation over the measured runs. Every run
+ * returns a value which is accumulated in a sink, such that the JIT cannot
+ * eliminate the work as dead code.
+ * 
+ * @author wmaier
+ */
+public class Harness {
+
+	/**
+	 * A benchmark.
+	 */
+	public static abstract class Task {
+
+		/**
+		 * Prepare a run, not measured. Does nothing by default.
+		 * 
+		 * @throws Exception
+		 *             If something goes wrong
+		 */
+		public void setup() throws Exception {
+		}
+
+		/**
+		 * Do the operations once.
+		 * 
+		 * @return A value computed from the results of the operations
+		 * @throws Exception
+		 *             If something goes wrong
+		 */
+		public abstract long run() throws Exception;
+
+	}
+
+	private final int warmup;
+
+	private final int iterations;
+
+	private final String filter;
+
+	private long sink;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param warmup
+	 *            Number of runs before measuring
+	 * @param iterations
+	 *            Number of measured runs
+	 * @param filter
+	 *            Only benchmarks whose names start with the filter are run,
+	 *            all if null
+	 */
+	public Harness(int warmup, int iterations, String filter) {
+		this.warmup = warmup;
+		this.iterations = Math.max(1, iterations);
+		this.filter = filter;
+		sink = 0;
+		System.out.println("benchmark\tops\tbest ns/op\tmean ns/op");
+	}
+
+	/**
+	 * Check if a benchmark is selected by the filter.
+	 * 
+	 * @param name
+	 *            The name of the benchmark, or a prefix of names
+	 * @return True if the benchmark should run
+	 */
+	public boolean selected(String name) {
+		return filter == null || name.startsWith(filter)
+				|| filter.startsWith(name);
+	}
+
+	/**
+	 * Run a benchmark and print the result.
+	 * 
+	 * @param name
+	 *            The name of the benchmark
+	 * @param ops
+	 *            The number of operations per run
+	 * @param task
+	 *            The benchmark
+	 * @throws Exception
+	 *             If the task fails
+	 */
+	public void measure(String name, long ops, Task task) throws Exception {
+		if (filter != null && !name.startsWith(filter))
+			return;
+		if (ops <= 0) {
+			System.out.println(name + "\t0\t-\t-");
+			return;
+		}
+		for (int i = 0; i < warmup; ++i) {
+			task.setup();
+			sink += task.run();
+		}
+		long best = Long.MAX_VALUE;
+		long total = 0;
+		for (int i = 0; i < iterations; ++i) {
+			task.setup();
+			long start = System.nanoTime();
+			sink += task.run();
+			long time = System.nanoTime() - start;
+			best = Math.min(best, time);
+			total += time;
+		}
+		System.out.println(name + "\t" + ops + "\t"
+				+ String.format("%.1f", (double) best / ops) + "\t"
+				+ String.format("%.1f", (double) total / iterations / ops));
+	}
+
+	/**
+	 * The accumulated results of all runs.
+	 * 
+	 * @return The sink
+	 */
+	public long sink() {
+		return sink;
+	}
+
+}
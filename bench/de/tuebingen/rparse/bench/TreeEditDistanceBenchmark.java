@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * File TreeEditDistanceBenchmark.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.bench;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.tuebingen.rparse.eval.EditOperation;
+import de.tuebingen.rparse.eval.EditStats;
+import de.tuebingen.rparse.eval.TreeEditDistanceComputer;
+import de.tuebingen.rparse.misc.LinkedListNode;
+import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.treebank.IncrementalTreebankProcessor;
+import de.tuebingen.rparse.treebank.constituent.Tree;
+import de.tuebingen.rparse.treebank.constituent.process.ConstituentInputFormats;
+import de.tuebingen.rparse.treebank.constituent.process.IncrementalConstituentProcessorFactory;
+
+/**
+ * Compares the tree edit distance computation of the treedist evaluation
+ * ({@link TreeEditDistanceComputer}) with its former implementation
+ * ({@link MemoTreeEditDistance}). The sentences of the gold file are paired
+ * with the sentences of the parser output, in order. First, the results of
+ * both implementations are checked for equality (counts and edit script),
+ * then both are measured with {@link Harness}, for whole trees and for roof
+ * trees (as with treedistwhole and treedistroof), by sentence length bucket.
+ * The benchmarks are called treedist.[whole|roof].[memo|zs].len[from]-[to].
+ * 
+ * Usage: TreeEditDistanceBenchmark gold.export parsed.export [filter [warmup
+ * [iterations]]]
+ * 
+ * @author wmaier
+ */
+public class TreeEditDistanceBenchmark {
+
+	// width of the length buckets
+	private static final int BUCKET = 10;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: TreeEditDistanceBenchmark gold.export "
+					+ "parsed.export [filter [warmup [iterations]]]");
+			System.exit(1);
+		}
+		String filter = args.length > 2 && !args[2].isEmpty() ? args[2]
+				: null;
+		int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+		int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+		Numberer nb = new Numberer();
+		List<Tree> gold = readExport(args[0], nb);
+		List<Tree> parsed = readExport(args[1], nb);
+		int size = Math.min(gold.size(), parsed.size());
+		System.err.println(size + " sentence pairs");
+
+		Harness h = new Harness(warmup, iterations, filter);
+		run(h, "whole", gold.subList(0, size), parsed.subList(0, size));
+		for (int i = 0; i < size; ++i) {
+			gold.get(i).reduceToRoof();
+			parsed.get(i).reduceToRoof();
+		}
+		run(h, "roof", gold.subList(0, size), parsed.subList(0, size));
+		System.err.println("sink: " + h.sink());
+	}
+
+	private static void run(Harness h, String name, List<Tree> gold,
+			List<Tree> parsed) throws Exception {
+		int differences = 0;
+		int maxlen = 0;
+		for (int i = 0; i < gold.size(); ++i) {
+			if (!same(memo(gold.get(i), parsed.get(i)),
+					zs(gold.get(i), parsed.get(i))))
+				++differences;
+			maxlen = Math.max(maxlen, gold.get(i).size());
+		}
+		System.err.println(name + ": " + differences
+				+ " sentences with differing results");
+		if (differences > 0)
+			System.exit(1);
+
+		for (int from = 1; from <= maxlen; from += BUCKET) {
+			final List<Tree> g = new ArrayList<Tree>();
+			final List<Tree> p = new ArrayList<Tree>();
+			for (int i = 0; i < gold.size(); ++i) {
+				int len = gold.get(i).size();
+				if (len >= from && len < from + BUCKET) {
+					g.add(gold.get(i));
+					p.add(parsed.get(i));
+				}
+			}
+			String bucket = ".len" + from + "-" + (from + BUCKET - 1);
+			h.measure("treedist." + name + ".memo" + bucket, g.size(),
+					new Harness.Task() {
+						@Override
+						public long run() {
+							long ret = 0;
+							for (int i = 0; i < g.size(); ++i)
+								ret += memo(g.get(i), p.get(i)).matched;
+							return ret;
+						}
+					});
+			h.measure("treedist." + name + ".zs" + bucket, g.size(),
+					new Harness.Task() {
+						@Override
+						public long run() {
+							long ret = 0;
+							for (int i = 0; i < g.size(); ++i)
+								ret += zs(g.get(i), p.get(i)).matched;
+							return ret;
+						}
+					});
+		}
+	}
+
+	private static EditStats memo(Tree gold, Tree parsed) {
+		return new MemoTreeEditDistance(Collections.singletonList(gold
+				.getRoot()), Collections.singletonList(parsed.getRoot()))
+				.editStats();
+	}
+
+	private static EditStats zs(Tree gold, Tree parsed) {
+		return new TreeEditDistanceComputer(Collections.singletonList(gold
+				.getRoot()), Collections.singletonList(parsed.getRoot()))
+				.editStats();
+	}
+
+	private static boolean same(EditStats a, EditStats b) {
+		if (a.deleted != b.deleted || a.inserted != b.inserted
+				|| a.swapped != b.swapped || a.matched != b.matched)
+			return false;
+		LinkedListNode<EditOperation> x = a.editScript;
+		LinkedListNode<EditOperation> y = b.editScript;
+		for (; x != null && y != null; x = x.getNext(), y = y.getNext()) {
+			if (x.getData().type != y.getData().type
+					|| x.getData().before != y.getData().before
+					|| x.getData().after != y.getData().after)
+				return false;
+		}
+		return x == null && y == null;
+	}
+
+	private static List<Tree> readExport(String filename, Numberer nb)
+			throws Exception {
+		IncrementalTreebankProcessor<Tree> reader = IncrementalConstituentProcessorFactory
+				.getTreebankProcessor(ConstituentInputFormats.EXPORT, nb);
+		reader.initialize(new BufferedReader(new InputStreamReader(
+				new FileInputStream(filename), "UTF-8")));
+		List<Tree> ret = new ArrayList<Tree>();
+		while (reader.hasNext())
+			ret.add(reader.next());
+		return ret;
+	}
+
+}
@@ -41,21 +41,39 @@ import de.tuebingen.rparse.treebank.dep.DependencyForestNodeLabel;
  */
 public class DepComparator
         extends
-            IncrementalComparator<DependencyForest<DependencyForestNodeLabel, String>> {
+            IncrementalComparator<DependencyForest<DependencyForestNodeLabel, String>, DepComparator.Stats> {
 
-    private int cc;
+    /**
+     * Counts of the dependencies and of the completely correct sentences
+     */
+    public static class Stats implements EvalStats<Stats> {
+
+        public int cc;
+
+        public int ccU;
+
+        public int totalMatch;
 
-    private int ccU;
+        public int totalMatchU;
 
-    private int totalMatch;
+        public int totalKey;
 
-    private int totalMatchU;
+        public int totalAnswer;
 
-    private int totalKey;
+        public int totalSentences;
 
-    private int totalAnswer;
+        @Override
+        public void add(Stats other) {
+            cc += other.cc;
+            ccU += other.ccU;
+            totalMatch += other.totalMatch;
+            totalMatchU += other.totalMatchU;
+            totalKey += other.totalKey;
+            totalAnswer += other.totalAnswer;
+            totalSentences += other.totalSentences;
+        }
 
-    private int totalSentences;
+    }
 
     /**
      * Gets a new comparator for dependencies.
@@ -65,21 +83,20 @@ public class DepComparator
      */
     protected DepComparator(int highGapBlock, int lowGapBlock) {
         super(true, highGapBlock, lowGapBlock);
-        cc = 0;
-        ccU = 0;
-        totalMatch = 0;
-        totalMatchU = 0;
-        totalKey = 0;
-        totalAnswer = 0;
-        totalSentences = 0;
     }
 
     @Override
-    protected void compare(
+    protected Stats newStats() {
+        return new Stats();
+    }
+
+    @Override
+    protected Stats compare(
             DependencyForest<DependencyForestNodeLabel, String> key,
             DependencyForest<DependencyForestNodeLabel, String> answer, int id)
             throws EvalException {
-        totalSentences++;
+        Stats ret = new Stats();
+        ret.totalSentences++;
         List<DepBracket> keyBrackets = new ArrayList<DepBracket>();
         for (DependencyForestNode<DependencyForestNodeLabel, String> n : key
                 .nodes()) {
@@ -131,20 +148,21 @@ public class DepComparator
 
         if (keyBrackets.size() == answerBrackets.size()
                 && sentMatch == keyBrackets.size()) {
-            cc++;
+            ret.cc++;
         }
         if (keyBrackets.size() == answerBrackets.size()
                 && sentMatchU == keyBrackets.size()) {
-            ccU++;
+            ret.ccU++;
         }
-        totalMatch += sentMatch;
-        totalMatchU += sentMatchU;
-        totalKey += keyBrackets.size();
-        totalAnswer += answerBrackets.size();
+        ret.totalMatch += sentMatch;
+        ret.totalMatchU += sentMatchU;
+        ret.totalKey += keyBrackets.size();
+        ret.totalAnswer += answerBrackets.size();
+        return ret;
     }
 
     @Override
-    protected void missingAnswer(
+    protected Stats missingAnswer(
             DependencyForest<DependencyForestNodeLabel, String> key, int id)
             throws EvalException {
         throw new EvalException(
@@ -152,8 +170,15 @@ public class DepComparator
     }
 
     @Override
-    protected void done(int tooLong, int missing, int highGapBlocked,
-            int lowGapBlocked) {
+    protected void done(Stats total, int tooLong, int missing,
+            int highGapBlocked, int lowGapBlocked) {
+        int cc = total.cc;
+        int ccU = total.ccU;
+        int totalMatch = total.totalMatch;
+        int totalMatchU = total.totalMatchU;
+        int totalKey = total.totalKey;
+        int totalAnswer = total.totalAnswer;
+        int totalSentences = total.totalSentences;
         if (missing > 0) {
             logger.severe("Missing sentences was > 0 for dependencies, even though this is not supported");
         }
@@ -74,6 +74,9 @@ public class EvalConnector implements HasParameters {
         evalParams
                 .add("gf",
                         "Evaluate with grammatical functions (not available for all measures)");
+        evalParams
+                .add("threads",
+                        "Number of threads comparing the sentences, the result does not change [1*, 2-...]");
     }
 
     @Override
@@ -114,6 +117,8 @@ public class EvalConnector implements HasParameters {
      *            Include grammatical functions (edge labels)
      * @param ranges
      *            Sentences to be considered in range notation (cf. {@link Ranges.java})
+     * @param threads
+     *            Number of threads doing the comparisons
      * @throws EvalException
      *             Thrown if there is an error with the evaluation itself.
      * @throws UnknownFormatException
@@ -132,13 +137,13 @@ public class EvalConnector implements HasParameters {
             String answer, String ansformat, String answerEncoding,
             ProcessingTask<Tree> answerTask, int maxlen, boolean ignoreMissing,
             String model, int highGapBlock, int lowGapBlock, boolean gf,
-            Ranges ranges) throws EvalException, UnknownFormatException,
+            Ranges ranges, int threads) throws EvalException, UnknownFormatException,
             UnsupportedEncodingException, FileNotFoundException,
             TreebankException, UnknownTaskException {
 
         IncrementalTreebankProcessor<Tree> answerProcessor = null;
         IncrementalTreebankProcessor<Tree> keyProcessor = null;
-        IncrementalComparator<Tree> comparator = null;
+        IncrementalComparator<Tree, ?> comparator = null;
         Numberer nb = new Numberer();
 
         comparator = IncrementalComparatorFactory.getConstituentComparator(
@@ -156,6 +161,7 @@ public class EvalConnector implements HasParameters {
         answerProcessor.initialize(new BufferedReader(new InputStreamReader(
                 new FileInputStream(answer), answerEncoding)));
 
+        comparator.setThreads(threads);
         comparator.evaluate(keyProcessor, keyTask, answerProcessor, answerTask,
                 ranges, maxlen);
     }
@@ -189,6 +195,8 @@ public class EvalConnector implements HasParameters {
      *            Block sentence with less than {@code lowGapBlock} gaps
      * @param ranges
      *            Sentences to be considered in range notation (cf. {@link Range.java})
+     * @param threads
+     *            Number of threads doing the comparisons
      * @throws EvalException
      *             Thrown if there is an error with the evaluation itself. Anything else is fatal anyway and caught
      *             directly here.
@@ -210,13 +218,13 @@ public class EvalConnector implements HasParameters {
             String ansformat,
             String answerEncoding,
             ProcessingTask<DependencyForest<DependencyForestNodeLabel, String>> answerTask,
-            int maxlen, int highGapBlock, int lowGapBlock, Ranges ranges)
-            throws EvalException, TreebankException, UnknownFormatException,
+            int maxlen, int highGapBlock, int lowGapBlock, Ranges ranges,
+            int threads) throws EvalException, TreebankException, UnknownFormatException,
             UnsupportedEncodingException, FileNotFoundException {
 
         IncrementalTreebankProcessor<DependencyForest<DependencyForestNodeLabel, String>> answerProcessor = null;
         IncrementalTreebankProcessor<DependencyForest<DependencyForestNodeLabel, String>> keyProcessor = null;
-        IncrementalComparator<DependencyForest<DependencyForestNodeLabel, String>> comparator = null;
+        IncrementalComparator<DependencyForest<DependencyForestNodeLabel, String>, ?> comparator = null;
 
         Numberer nb = new Numberer();
 
@@ -235,6 +243,7 @@ public class EvalConnector implements HasParameters {
         answerProcessor.initialize(new BufferedReader(new InputStreamReader(
                 new FileInputStream(answer), answerEncoding)));
 
+        comparator.setThreads(threads);
         comparator.evaluate(keyProcessor, keyTask, answerProcessor, answerTask,
                 ranges, maxlen);
     }
@@ -321,6 +330,13 @@ public class EvalConnector implements HasParameters {
         if (evalParams.check("gf")) {
             gf = true;
         }
+        int threads = 1;
+        if (evalParams.check("threads")) {
+            try {
+                threads = Integer.parseInt(evalParams.getVal("threads"));
+            } catch (NumberFormatException e) {
+            }
+        }
 
         if (Constants.DEPENDENCIES.equals(mode)) {
             if (ignoreMissing) {
@@ -349,7 +365,7 @@ public class EvalConnector implements HasParameters {
 
             evaluateIncrementallyDependencies(key, keyformat, keyEncoding,
                     keyTask, answer, answerformat, answerEncoding, answerTask,
-                    maxlen, highGapblock, lowGapblock, ranges);
+                    maxlen, highGapblock, lowGapblock, ranges, threads);
         } else {
             ProcessingTask<Tree> keyTask = null;
             ProcessingTask<Tree> answerTask = null;
@@ -372,7 +388,7 @@ public class EvalConnector implements HasParameters {
             evaluateIncrementallyConstituents(key, keyformat, keyEncoding,
                     keyTask, answer, answerformat, answerEncoding, answerTask,
                     maxlen, ignoreMissing, metric, highGapblock, lowGapblock,
-                    gf, ranges);
+                    gf, ranges, threads);
         }
     }
 }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * File EvalStats.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.eval;
+
+/**
+ * Evaluation statistics of a part of the data, e.g., of a single sentence, as delivered by
+ * {@link IncrementalComparator}. Statistics of consecutive parts can be added up.
+ * 
+ * @author wmaier
+ * @param <S>
+ *            The type of the statistics
+ */
+public interface EvalStats<S extends EvalStats<S>> {
+
+    /**
+     * Add the statistics of the part of the data which follows the part of this object.
+     * 
+     * @param other
+     *            The statistics to add, remain unchanged
+     */
+    public void add(S other);
+
+}
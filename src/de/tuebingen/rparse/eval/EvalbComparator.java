@@ -25,12 +25,14 @@
 package de.tuebingen.rparse.eval;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.IllegalFormatException;
 import java.util.List;
+import java.util.Map;
 
 import de.tuebingen.rparse.misc.Numberer;
-import de.tuebingen.rparse.misc.Utilities;
 import de.tuebingen.rparse.treebank.constituent.Node;
 import de.tuebingen.rparse.treebank.constituent.NodeLabel;
 import de.tuebingen.rparse.treebank.constituent.Tree;
@@ -43,17 +45,34 @@ import de.tuebingen.rparse.treebank.constituent.Tree;
  * 
  * @author wmaier
  */
-public class EvalbComparator extends IncrementalComparator<Tree> {
+public class EvalbComparator
+        extends
+            IncrementalComparator<Tree, EvalbComparator.Stats> {
 
     private boolean gf;
 
-    private int     totalMatch;
+    /**
+     * Bracket counts
+     */
+    public static class Stats implements EvalStats<Stats> {
+
+        public int match;
+
+        public int matchU;
 
-    private int     totalMatchU;
+        public int key;
 
-    private int     totalKey;
+        public int answer;
 
-    private int     totalAnswer;
+        @Override
+        public void add(Stats other) {
+            match += other.match;
+            matchU += other.matchU;
+            key += other.key;
+            answer += other.answer;
+        }
+
+    }
 
     protected EvalbComparator(boolean ignoreMissing, int highGapBlock,
             int lowGapBlock, boolean gf, Numberer nb) {
@@ -64,166 +83,172 @@ public class EvalbComparator extends IncrementalComparator<Tree> {
                 .println("sent. prec.  rec.   fb1     uprec.  urec. ufb1    match umatch  gold  test");
         System.out
                 .println("============================================================================");
-        totalMatch = 0;
-        totalMatchU = 0;
-        totalKey = 0;
-        totalAnswer = 0;
+    }
+
+    @Override
+    protected Stats newStats() {
+        return new Stats();
     }
 
     /*
-     * Represents a single bracketing, with methods for labeled and unlabeled comparison, and fields for marking the
-     * bracketing as "used" (when it matches), just as in evalb.
+     * Represents a single bracketing: A label and the set of the numbers of the terminals dominated by a certain
+     * non-terminal. Brackets are equal if label and terminals are equal, such that they can be counted in hash tables.
      */
-    private class Bracket {
-
-        String  label;
-
-        int[]   terminals;
+    private static class Bracket {
 
-        boolean used;
+        final String label;
 
-        boolean usedU;
+        final BitSet terminals;
 
-        Bracket(NodeLabel nlabel, int[] terminals) {
-            label = nlabel.getTag();
-            if (gf) {
-                label += "-" + nlabel.getEdge();
-            }
+        Bracket(String label, BitSet terminals) {
+            this.label = label;
             this.terminals = terminals;
-            used = false;
-            usedU = false;
         }
 
-        boolean labeledEquals(Bracket b) throws EvalException {
-            if (b == null) {
-                throw new EvalException("Bracket to be compared was null");
-            }
-            if (label == null || b.label == null) {
-                throw new EvalException(
-                        "Trying to do labeled comparison, but label was null");
-            }
-            if (!b.label.equals(this.label)) {
-                return false;
-            }
-            if (!unlabeledEquals(b)) {
-                return false;
-            }
-            return true;
+        @Override
+        public int hashCode() {
+            return 31 * (label == null ? 0 : label.hashCode())
+                    + terminals.hashCode();
         }
 
-        boolean unlabeledEquals(Bracket b) throws EvalException {
-            if (b == null) {
-                throw new EvalException("Bracket to be compared was null");
-            }
-            if (b.terminals.length != this.terminals.length) {
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Bracket)) {
                 return false;
             }
-            for (int i = 0; i < this.terminals.length; ++i) {
-                if (b.terminals[i] != this.terminals[i]) {
-                    return false;
-                }
-            }
-            return true;
+            Bracket b = (Bracket) o;
+            return (label == null ? b.label == null : label.equals(b.label))
+                    && terminals.equals(b.terminals);
         }
 
     }
 
     @Override
-    protected void compare(Tree key, Tree answer, int id) throws EvalException {
+    protected Stats compare(Tree key, Tree answer, int id) throws EvalException {
         if (key == null || answer == null) {
             throw new EvalException("Tree passed to evaluation was null: " + id);
         }
 
         List<Bracket> keyBrackets = new ArrayList<Bracket>();
-        for (Node n : key.getRoot().getNodes()) {
-            if (n.hasChildren()) {
-                List<Integer> termdom = n.calcTermdom();
-                Collections.sort(termdom);
-                keyBrackets.add(new Bracket(n.getLabel(), Utilities
-                        .asIntArray(termdom)));
-            }
-        }
+        brackets(key.getRoot(), keyBrackets);
 
         List<Bracket> answerBrackets = new ArrayList<Bracket>();
-        for (Node n : answer.getRoot().getNodes()) {
-            if (n.hasChildren()) {
-                List<Integer> termdom = n.calcTermdom();
-                Collections.sort(termdom);
-                answerBrackets.add(new Bracket(n.getLabel(), Utilities
-                        .asIntArray(termdom)));
-            }
-        }
+        brackets(answer.getRoot(), answerBrackets);
 
-        evaluateSentence(keyBrackets, answerBrackets, id);
+        return evaluateSentence(keyBrackets, answerBrackets);
     }
 
     @Override
-    protected void missingAnswer(Tree key, int id) throws EvalException {
+    protected Stats missingAnswer(Tree key, int id) throws EvalException {
         if (key == null) {
             throw new EvalException("Tree passed to evaluation was null: " + id);
         }
 
         List<Bracket> keyBrackets = new ArrayList<Bracket>();
-        for (Node n : key.getRoot().getNodes()) {
-            if (n.hasChildren()) {
-                List<Integer> termdom = n.calcTermdom();
-                Collections.sort(termdom);
-                keyBrackets.add(new Bracket(n.getLabel(), Utilities
-                        .asIntArray(termdom)));
+        brackets(key.getRoot(), keyBrackets);
+
+        return evaluateSentence(keyBrackets, new ArrayList<Bracket>());
+    }
+
+    /*
+     * Collect the brackets of all non-terminals below a node, bottom-up, and return the terminals dominated by the node
+     */
+    private BitSet brackets(Node n, List<Bracket> brackets)
+            throws EvalException {
+        BitSet ret = new BitSet();
+        if (!n.hasChildren()) {
+            int num = n.getLabel().getNum();
+            if (num < 0) {
+                throw new EvalException("Terminal without number: "
+                        + n.getLabel().getWord());
             }
+            ret.set(num);
+            return ret;
         }
-
-        evaluateSentence(keyBrackets, new ArrayList<Bracket>(), id);
+        for (Node child : n.getChildren()) {
+            ret.or(brackets(child, brackets));
+        }
+        NodeLabel nlabel = n.getLabel();
+        String label = nlabel.getTag();
+        if (gf) {
+            label += "-" + nlabel.getEdge();
+        }
+        brackets.add(new Bracket(label, ret));
+        return ret;
     }
 
     /*
-     * Evaluate two lists of bracketings against each other
+     * Evaluate two lists of bracketings against each other. As in evalb, every bracket can be matched at most once,
+     * i.e., the brackets are compared as multisets.
      */
-    private void evaluateSentence(List<Bracket> keyBrackets,
-            List<Bracket> answerBrackets, int id) throws EvalException {
+    private Stats evaluateSentence(List<Bracket> keyBrackets,
+            List<Bracket> answerBrackets) throws EvalException {
+        if (!keyBrackets.isEmpty() && !answerBrackets.isEmpty()) {
+            for (List<Bracket> brackets : Arrays.asList(keyBrackets,
+                    answerBrackets)) {
+                for (Bracket b : brackets) {
+                    if (b.label == null) {
+                        throw new EvalException(
+                                "Trying to do labeled comparison, but label was null");
+                    }
+                }
+            }
+        }
+        Map<Bracket, Integer> keyCount = new HashMap<Bracket, Integer>();
+        Map<BitSet, Integer> keyCountU = new HashMap<BitSet, Integer>();
+        for (Bracket b : keyBrackets) {
+            Integer c = keyCount.get(b);
+            keyCount.put(b, c == null ? 1 : c + 1);
+            c = keyCountU.get(b.terminals);
+            keyCountU.put(b.terminals, c == null ? 1 : c + 1);
+        }
         int sentMatch = 0;
         int sentMatchU = 0;
-        for (int i = 0; i < keyBrackets.size(); ++i) {
-            Bracket keyBracket = keyBrackets.get(i);
-            for (int j = 0; j < answerBrackets.size(); ++j) {
-                Bracket answerBracket = answerBrackets.get(j);
-                // labeled
-                if (keyBracket.labeledEquals(answerBracket) && !keyBracket.used
-                        && !answerBracket.used) {
-                    // set used marks if brackets match
-                    keyBracket.used = true;
-                    answerBracket.used = true;
-                    ++sentMatch;
-                }
-                // unlabeled
-                if (keyBracket.unlabeledEquals(answerBracket)
-                        && !keyBracket.usedU && !answerBracket.usedU) {
-                    // set used marks if brackets match
-                    keyBracket.usedU = true;
-                    answerBracket.usedU = true;
-                    ++sentMatchU;
-                }
+        for (Bracket b : answerBrackets) {
+            // labeled
+            Integer c = keyCount.get(b);
+            if (c != null && c > 0) {
+                keyCount.put(b, c - 1);
+                ++sentMatch;
+            }
+            // unlabeled
+            c = keyCountU.get(b.terminals);
+            if (c != null && c > 0) {
+                keyCountU.put(b.terminals, c - 1);
+                ++sentMatchU;
             }
         }
+        Stats ret = new Stats();
+        ret.match = sentMatch;
+        ret.matchU = sentMatchU;
+        ret.key = keyBrackets.size();
+        ret.answer = answerBrackets.size();
+        return ret;
+    }
+
+    @Override
+    protected void sentenceDone(Stats stats, int id) {
+        int sentMatch = stats.match;
+        int sentMatchU = stats.matchU;
         Double sentPrec = 0.0;
-        if (answerBrackets.size() > 0) {
-            sentPrec = 100 * (sentMatch / new Double(answerBrackets.size()));
+        if (stats.answer > 0) {
+            sentPrec = 100 * (sentMatch / new Double(stats.answer));
         }
         Double sentRec = 0.0;
-        if (keyBrackets.size() > 0) {
-            sentRec = 100 * (sentMatch / new Double(keyBrackets.size()));
+        if (stats.key > 0) {
+            sentRec = 100 * (sentMatch / new Double(stats.key));
         }
         Double sentFb1 = 0.0;
         if (sentPrec + sentRec > 0) {
             sentFb1 = 2 * sentPrec * sentRec / (sentPrec + sentRec);
         }
         Double sentUprec = 0.0;
-        if (answerBrackets.size() > 0) {
-            sentUprec = 100 * (sentMatchU / new Double(answerBrackets.size()));
+        if (stats.answer > 0) {
+            sentUprec = 100 * (sentMatchU / new Double(stats.answer));
         }
         Double sentUrec = 0.0;
-        if (keyBrackets.size() > 0) {
-            sentUrec = 100 * (sentMatchU / new Double(keyBrackets.size()));
+        if (stats.key > 0) {
+            sentUrec = 100 * (sentMatchU / new Double(stats.key));
         }
         Double sentUFb1 = 0.0;
         if (sentUprec + sentUrec > 0) {
@@ -235,21 +260,21 @@ public class EvalbComparator extends IncrementalComparator<Tree> {
                     .format("%4d %6.2f %6.2f %6.2f   %6.2f %6.2f %6.2f    %3d    %3d    %3d  %3d",
                             id, sentPrec, sentRec, sentFb1, sentUprec,
                             sentUrec, sentUFb1, sentMatch, sentMatchU,
-                            keyBrackets.size(), answerBrackets.size());
+                            stats.key, stats.answer);
             System.out.println(s);
         } catch (IllegalFormatException e) {
             logger.warning("Could not format results: " + e.getMessage());
         }
-        totalMatch += sentMatch;
-        totalMatchU += sentMatchU;
-        totalKey += keyBrackets.size();
-        totalAnswer += answerBrackets.size();
     }
 
     @Override
-    protected void done(int tooLong, int missing, int highGapBlocked,
-            int lowGapBlocked) {
+    protected void done(Stats total, int tooLong, int missing,
+            int highGapBlocked, int lowGapBlocked) {
         logger.info("Finished evaluation.");
+        int totalMatch = total.match;
+        int totalMatchU = total.matchU;
+        int totalKey = total.key;
+        int totalAnswer = total.answer;
 
         Double totalPrec = 0.0;
         if (totalAnswer > 0) {
@@ -24,7 +24,14 @@
  ******************************************************************************/
 package de.tuebingen.rparse.eval;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import de.tuebingen.rparse.misc.Ranges;
@@ -45,13 +52,19 @@ import de.tuebingen.rparse.treebank.TreebankException;
  * numbering, such as export, sentences without a parse can just be left out since the corresponding processors will
  * provide the explicit numbering to the comparator.
  * 
+ * Every comparison yields statistics for a single sentence. They are reported and added up in the order of the
+ * sentences. The treebanks are always read on the calling thread, the comparisons can be done by several threads (see
+ * {@link #setThreads(int)}), the result is the same.
+ * 
  * @author wmaier
  * @param <T>
  *            The type of trees in the treebank, either constituency trees or dependencies. {@code HasSize},
  *            {@code HasID} and {@code HasGapDegree} must be implemented in order to manage the exclusion of sentences
  *            by length, ranges or gaps, respectively.
+ * @param <S>
+ *            The type of the statistics
  */
-public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDegree> {
+public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDegree, S extends EvalStats<S>> {
 
     /**
      * Ignore missing sentences or make them influence the result.
@@ -73,6 +86,17 @@ public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDe
      */
     protected Logger        logger;
 
+    // number of threads doing the comparisons
+    private int             threads;
+
+    // comparisons in progress, in the order of the sentences, with the sentence ids
+    private Deque<Future<S>> pending;
+
+    private Deque<Integer>  pendingIds;
+
+    // the statistics of the sentences reported so far
+    private S               total;
+
     protected IncrementalComparator(int highGapBlock, int lowGapBlock) {
         this(false, highGapBlock, lowGapBlock);
     }
@@ -84,6 +108,7 @@ public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDe
         this.ignoreMissing = ignoreMissing;
         this.highGapBlock = highGapBlock;
         this.lowGapBlock = lowGapBlock;
+        threads = 1;
         if (highGapBlock < Integer.MAX_VALUE) {
             logger.info("Ignore sentences which have constituents with more than "
                     + highGapBlock + " gaps in the gold data.");
@@ -94,6 +119,16 @@ public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDe
         }
     }
 
+    /**
+     * Set the number of threads doing the comparisons. The results do not depend on it.
+     * 
+     * @param threads
+     *            The number of threads, 1 (the default) means that the comparisons are done on the calling thread
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
     /**
      * Run the actual evaluation. This method calls the subclass implementations of the abstract methods in this class.
      * 
@@ -128,84 +163,161 @@ public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDe
         T answerTree = null;
         int answerID = -1;
 
-        for (int i : ranges) {
-            while (i > next) {
-                try {
-                    keyProcessor.skipNext();
-                } catch (NoSuchElementException e) {
+        total = newStats();
+        pending = new ArrayDeque<Future<S>>();
+        pendingIds = new ArrayDeque<Integer>();
+        ExecutorService executor = threads > 1 ? Executors
+                .newFixedThreadPool(threads) : null;
+        try {
+            for (int i : ranges) {
+                while (i > next) {
+                    try {
+                        keyProcessor.skipNext();
+                    } catch (NoSuchElementException e) {
+                        break;
+                    }
+
+                    next++;
+                }
+
+                if (!keyProcessor.hasNext()) {
                     break;
                 }
 
+                T keyTree = keyProcessor.next();
                 next++;
-            }
-
-            if (!keyProcessor.hasNext()) {
-                break;
-            }
 
-            T keyTree = keyProcessor.next();
-            next++;
+                if (keyTree.size() <= maxlen) {
 
-            if (keyTree.size() <= maxlen) {
+                    if (keyTree.getGapDegree() <= highGapBlock) {
 
-                if (keyTree.getGapDegree() <= highGapBlock) {
+                        if (keyTree.getGapDegree() >= lowGapBlock) {
 
-                    if (keyTree.getGapDegree() >= lowGapBlock) {
+                            int keyID = keyTree.getId();
 
-                        int keyID = keyTree.getId();
+                            if (answerTree == null) {
+                                if (!answerProcessor.hasNext()) {
+                                    missing++;
 
-                        if (answerTree == null) {
-                            if (!answerProcessor.hasNext()) {
-                                missing++;
+                                    if (!ignoreMissing) {
+                                        submit(executor, keyTree, null, keyID);
+                                    }
 
-                                if (!ignoreMissing) {
-                                    missingAnswer(keyTree, keyID);
+                                    continue;
                                 }
 
-                                continue;
+                                answerTree = answerProcessor.next();
+                                answerID = answerTree.getId();
                             }
 
-                            answerTree = answerProcessor.next();
-                            answerID = answerTree.getId();
-                        }
-
-                        while (answerID < keyID && answerProcessor.hasNext()) {
-                            answerTree = answerProcessor.next();
-                            answerID = answerTree.getId();
-                        }
+                            while (answerID < keyID && answerProcessor.hasNext()) {
+                                answerTree = answerProcessor.next();
+                                answerID = answerTree.getId();
+                            }
 
-                        if (answerID == keyID) {
-                            keyTask.processSentence(keyTree);
-                            answerTask.processSentence(answerTree);
-                            compare(keyTree, answerTree, keyID);
-                            answerTree = null;
-                        } else {
-                            missing++;
+                            if (answerID == keyID) {
+                                keyTask.processSentence(keyTree);
+                                answerTask.processSentence(answerTree);
+                                submit(executor, keyTree, answerTree, keyID);
+                                answerTree = null;
+                            } else {
+                                missing++;
 
-                            if (!ignoreMissing) {
-                                missingAnswer(keyTree, keyID);
+                                if (!ignoreMissing) {
+                                    submit(executor, keyTree, null, keyID);
+                                }
                             }
+
+                        } else {
+                            lowGapBlocked++;
                         }
 
                     } else {
-                        lowGapBlocked++;
+                        highGapBlocked++;
                     }
 
                 } else {
-                    highGapBlocked++;
+                    tooLong++;
                 }
+            }
 
-            } else {
-                tooLong++;
+            while (!pending.isEmpty()) {
+                reportNext();
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
             }
         }
 
         // Evaluation finished, compute final result now
-        done(tooLong, missing, highGapBlocked, lowGapBlocked);
+        done(total, tooLong, missing, highGapBlocked, lowGapBlocked);
+    }
+
+    /*
+     * Compare a pair of sentences, or handle a missing answer if the answer is null. Without executor, this happens
+     * right away, otherwise the result is reported when the results of all earlier sentences are there.
+     */
+    private void submit(ExecutorService executor, final T keyTree,
+            final T answerTree, final int id) throws EvalException {
+        if (executor == null) {
+            report(answerTree == null ? missingAnswer(keyTree, id) : compare(
+                    keyTree, answerTree, id), id);
+            return;
+        }
+        pending.add(executor.submit(new Callable<S>() {
+            @Override
+            public S call() throws EvalException {
+                return answerTree == null ? missingAnswer(keyTree, id)
+                        : compare(keyTree, answerTree, id);
+            }
+        }));
+        pendingIds.add(id);
+        // do not read too far ahead
+        if (pending.size() > 2 * threads) {
+            reportNext();
+        }
+    }
+
+    /*
+     * Wait for the oldest comparison in progress and report its result
+     */
+    private void reportNext() throws EvalException {
+        S stats;
+        try {
+            stats = pending.poll().get();
+        } catch (InterruptedException e) {
+            throw new EvalException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EvalException) {
+                throw (EvalException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EvalException(e.getCause());
+        }
+        report(stats, pendingIds.poll());
+    }
+
+    /*
+     * Report the statistics of a sentence and add them to the total
+     */
+    private void report(S stats, int id) {
+        sentenceDone(stats, id);
+        total.add(stats);
     }
 
     /**
-     * Subclass method must perform the actual evaluation in this method.
+     * Get empty statistics, to which the statistics of the sentences are added.
+     * 
+     * @return The statistics
+     */
+    protected abstract S newStats();
+
+    /**
+     * Subclass method must perform the actual evaluation in this method. It may be called by several threads at once
+     * and must not change the state of the comparator.
      * 
      * @param key
      *            The gold tree
@@ -213,28 +325,45 @@ public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDe
      *            The parser output tree
      * @param id
      *            The id of the trees
+     * @return The statistics of the sentence
      * @throws EvalException
      *             Thrown on problems.
      */
-    protected abstract void compare(T sentence1, T sentence2, int id)
+    protected abstract S compare(T sentence1, T sentence2, int id)
             throws EvalException;
 
     /**
-     * Called when there is a tree in the gold data which has no corresponding tree in the parser output.
+     * Called when there is a tree in the gold data which has no corresponding tree in the parser output. As
+     * {@link #compare}, it may be called by several threads at once.
      * 
      * @param keyTree
      *            The gold tree
      * @param id
      *            The id of the gold tree
+     * @return The statistics of the sentence
      * @throws EvalException
      *             Thrown on problems.
      */
-    protected abstract void missingAnswer(T keyTree, int id)
+    protected abstract S missingAnswer(T keyTree, int id)
             throws EvalException;
 
+    /**
+     * Called with the statistics of every sentence, in the order of the sentences, before they are added to the
+     * total. Does nothing by default, subclasses can print sentence-wise results here.
+     * 
+     * @param stats
+     *            The statistics of the sentence
+     * @param id
+     *            The id of the sentence
+     */
+    protected void sentenceDone(S stats, int id) {
+    }
+
     /**
      * Called after all sentences are read.
      * 
+     * @param total
+     *            The statistics of all sentences
      * @param tooLong
      *            Sentences which have been excluded for being too long
      * @param missing
@@ -244,8 +373,8 @@ public abstract class IncrementalComparator<T extends HasSize & HasID & HasGapDe
      * @param lowGapBlocked
      *            Sentences excluded because they have less gaps than this threshold
      */
-    protected abstract void done(int tooLong, int missing, int highGapBlocked,
-            int lowGapBlocked);
+    protected abstract void done(S total, int tooLong, int missing,
+            int highGapBlocked, int lowGapBlocked);
 
     /**
      * Convenience method to be used within the subclasses
@@ -59,7 +59,7 @@ public class IncrementalComparatorFactory {
      *             Thrown if there is any problem
      * @throws UnknownTaskException
      */
-    public static IncrementalComparator<Tree> getConstituentComparator(
+    public static IncrementalComparator<Tree, ?> getConstituentComparator(
             String model, boolean ignoreMissing, int highGapBlock,
             int lowGapBlock, boolean gf, Numberer nb) throws EvalException,
             UnknownTaskException {
@@ -102,7 +102,7 @@ public class IncrementalComparatorFactory {
      * @throws EvalException
      *             If something goes wrong
      */
-    public static IncrementalComparator<DependencyForest<DependencyForestNodeLabel, String>> getDependencyComparator(
+    public static IncrementalComparator<DependencyForest<DependencyForestNodeLabel, String>, ?> getDependencyComparator(
             int highGapBlock, int lowGapBlock) {
 
         return new DepComparator(highGapBlock, lowGapBlock);
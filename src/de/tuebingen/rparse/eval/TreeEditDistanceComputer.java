@@ -25,132 +25,264 @@
 package de.tuebingen.rparse.eval;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import de.tuebingen.rparse.misc.LinkedListNode;
 import de.tuebingen.rparse.treebank.constituent.Node;
 
 /**
- * An implementation of the simple tree edit distance described in Bille (2005), section 3.2.1, using top-down dynamic
- * programming (i.e. caching of results).
+ * An implementation of the simple tree edit distance described in Bille (2005), section 3.2.1, computed with the
+ * algorithm of Zhang and Shasha (1989): The nodes are numbered in postorder, the forest distances are computed
+ * bottom-up in dense tables, one per pair of keyroots, and the distance of every pair of subtrees is kept. The edit
+ * script is then recovered by going back through the tables of the subtrees it matches.
+ * 
+ * Among several optimal edit scripts, the one of the top-down formulation of the recursion is returned, i.e., deleting
+ * the rightmost root is preferred over inserting it, and inserting over matching resp. swapping the rightmost roots.
  * 
  * @author ke
  */
 public class TreeEditDistanceComputer {
 
-    private static final List<Node>                     EMPTY_FOREST = Collections
-                                                                             .emptyList();
+    // the nodes of the forests, in postorder
+    private final Node[] nodes1;
+
+    private final Node[] nodes2;
+
+    // the tags of the nodes, as integers
+    private final int[]  tags1;
+
+    private final int[]  tags2;
+
+    // the leftmost leaf below a node, as position in postorder
+    private final int[]  leftmost1;
+
+    private final int[]  leftmost2;
 
-    private List<Node>                                  forest1;
+    // the distance of the subtrees below every pair of nodes
+    private int[][]      treeDist;
 
-    private List<Node>                                  forest2;
+    // the counts for the edit script under construction
+    private int          deleted;
 
-    private Map<List<Node>, Map<List<Node>, EditStats>> cache;
+    private int          inserted;
+
+    private int          swapped;
+
+    private int          matched;
+
+    private EditStats    result;
 
     public TreeEditDistanceComputer(List<Node> forest1, List<Node> forest2) {
-        this.forest1 = forest1;
-        this.forest2 = forest2;
-        cache = new HashMap<List<Node>, Map<List<Node>, EditStats>>();
+        Map<String, Integer> tagIds = new HashMap<String, Integer>();
+        List<Node> nodes = new ArrayList<Node>();
+        List<Integer> leftmost = new ArrayList<Integer>();
+        for (Node root : forest1) {
+            postorder(root, nodes, leftmost);
+        }
+        nodes1 = nodes.toArray(new Node[nodes.size()]);
+        leftmost1 = toArray(leftmost);
+        tags1 = tagIds(nodes1, tagIds);
+        nodes.clear();
+        leftmost.clear();
+        for (Node root : forest2) {
+            postorder(root, nodes, leftmost);
+        }
+        nodes2 = nodes.toArray(new Node[nodes.size()]);
+        leftmost2 = toArray(leftmost);
+        tags2 = tagIds(nodes2, tagIds);
     }
 
     public EditStats editStats() {
-        return editStats(forest1, forest2);
+        if (result == null) {
+            computeTreeDistances();
+            LinkedListNode<EditOperation> editScript = editScript(0, 0,
+                    nodes1.length - 1, nodes2.length - 1, null);
+            result = new EditStats(deleted, inserted, swapped, matched,
+                    editScript);
+            treeDist = null;
+        }
+        return result;
     }
 
-    /**
-     * This method looks biggish, but all it does is handle caching. computeEditStats does the real work.
-     * 
-     * @param forest1
-     *            Gold data
-     * @param forest2
-     *            Parser output
-     * @return The edit script
+    /*
+     * Add the nodes below a node in postorder, together with the leftmost leaf below each of them
      */
-    private EditStats editStats(List<Node> forest1, List<Node> forest2) {
-        if (cache.containsKey(forest1)) {
-            Map<List<Node>, EditStats> statsByForest2 = cache.get(forest1);
-
-            if (statsByForest2.containsKey(forest2)) {
-                return statsByForest2.get(forest2);
+    private static int postorder(Node node, List<Node> nodes,
+            List<Integer> leftmost) {
+        int ret = -1;
+        for (Node child : node.getChildren()) {
+            int l = postorder(child, nodes, leftmost);
+            if (ret == -1) {
+                ret = l;
             }
-
-            EditStats result = computeEditStats(forest1, forest2);
-            statsByForest2.put(forest2, result);
-            return result;
-        } else {
-            Map<List<Node>, EditStats> statsByForest2 = new HashMap<List<Node>, EditStats>();
-            cache.put(forest1, statsByForest2);
-            EditStats result = computeEditStats(forest1, forest2);
-            statsByForest2.put(forest2, result);
-            return result;
         }
+        if (ret == -1) {
+            ret = nodes.size();
+        }
+        nodes.add(node);
+        leftmost.add(ret);
+        return ret;
     }
 
-    private EditStats computeEditStats(List<Node> forest1, List<Node> forest2) {
-        if (forest2.isEmpty()) {
-            if (forest1.isEmpty()) {
-                return new EditStats();
-            }
+    private static int[] toArray(List<Integer> list) {
+        int[] ret = new int[list.size()];
+        for (int i = 0; i < ret.length; ++i) {
+            ret[i] = list.get(i);
+        }
+        return ret;
+    }
 
-            return editStats(deleteRightmostRoot(forest1), EMPTY_FOREST)
-                    .delete(rightmostRoot(forest1));
-        } else {
-            if (forest1.isEmpty()) {
-                return editStats(EMPTY_FOREST, deleteRightmostRoot(forest2))
-                        .insert(rightmostRoot(forest2));
+    private static int[] tagIds(Node[] nodes, Map<String, Integer> tagIds) {
+        int[] ret = new int[nodes.length];
+        for (int i = 0; i < nodes.length; ++i) {
+            String tag = nodes[i].getLabel().getTag();
+            Integer id = tagIds.get(tag);
+            if (id == null) {
+                id = tagIds.size();
+                tagIds.put(tag, id);
             }
+            ret[i] = id;
+        }
+        return ret;
+    }
 
-            Node v = rightmostRoot(forest1);
-            Node w = rightmostRoot(forest2);
-
-            EditStats deleteStats = editStats(deleteRightmostRoot(forest1),
-                    forest2).delete(v);
-            EditStats insertStats = editStats(forest1,
-                    deleteRightmostRoot(forest2)).insert(w);
-            EditStats matchOrSwapStats = editStats(v.getChildren(),
-                    w.getChildren()).add(
-                    editStats(deleteRightmostTree(forest1),
-                            deleteRightmostTree(forest2)));
-
-            if (v.getLabel().getTag().equals(w.getLabel().getTag())) {
-                matchOrSwapStats = matchOrSwapStats.match(v, w);
-            } else {
-                matchOrSwapStats = matchOrSwapStats.swap(v, w);
+    /*
+     * Fill the subtree distances. Every pair of keyroots (nodes which are not the leftmost child of their parent)
+     * gets a table of forest distances; the subtrees sharing the leftmost leaf with the keyroots are done along the
+     * way.
+     */
+    private void computeTreeDistances() {
+        treeDist = new int[nodes1.length][nodes2.length];
+        int[] keyroots1 = keyroots(leftmost1);
+        int[] keyroots2 = keyroots(leftmost2);
+        int[][] forestDist = new int[nodes1.length + 1][nodes2.length + 1];
+        for (int k1 : keyroots1) {
+            for (int k2 : keyroots2) {
+                forestDistances(leftmost1[k1], leftmost2[k2], k1, k2,
+                        forestDist);
             }
-
-            return EditStats.min(deleteStats, insertStats, matchOrSwapStats);
         }
     }
 
-    private Node rightmostRoot(List<Node> forest) {
-        return forest.get(forest.size() - 1);
+    /*
+     * The keyroots in increasing order: For every leftmost leaf, the highest node above it
+     */
+    private static int[] keyroots(int[] leftmost) {
+        // postorder: the last node with a certain leftmost leaf is the highest
+        int[] highest = new int[leftmost.length];
+        int count = 0;
+        for (int i = 0; i < leftmost.length; ++i) {
+            if (highest[leftmost[i]] == 0) {
+                ++count;
+            }
+            highest[leftmost[i]] = i + 1;
+        }
+        int[] ret = new int[count];
+        count = 0;
+        for (int i = 0; i < leftmost.length; ++i) {
+            if (highest[leftmost[i]] == i + 1) {
+                ret[count++] = i;
+            }
+        }
+        return ret;
     }
 
-    private List<Node> deleteRightmostRoot(List<Node> forest) {
-        int limit = forest.size() - 1;
-        Node rightmostRoot = forest.get(limit);
-        List<Node> children = rightmostRoot.getChildren();
-        List<Node> result = new ArrayList<Node>(limit + children.size());
-
-        for (int i = 0; i < limit; i++) {
-            result.add(forest.get(i));
+    /*
+     * Compute the distances between the forests from1..i and from2..j, for all i up to to1 and j up to to2. The
+     * distance of the forests up to i and j is found at forestDist[i - from1 + 1][j - from2 + 1], the row and the
+     * column 0 stand for the empty forest. The distances of the subtrees starting at from1 and from2 are stored in
+     * treeDist. The distances of all other subtrees must be there already.
+     */
+    private void forestDistances(int from1, int from2, int to1, int to2,
+            int[][] forestDist) {
+        forestDist[0][0] = 0;
+        for (int i = from1; i <= to1; ++i) {
+            forestDist[i - from1 + 1][0] = forestDist[i - from1][0] + 1;
+        }
+        for (int j = from2; j <= to2; ++j) {
+            forestDist[0][j - from2 + 1] = forestDist[0][j - from2] + 1;
+        }
+        for (int i = from1; i <= to1; ++i) {
+            int[] row = forestDist[i - from1 + 1];
+            int[] prev = forestDist[i - from1];
+            for (int j = from2; j <= to2; ++j) {
+                int y = j - from2 + 1;
+                int dist = Math.min(prev[y] + 1, row[y - 1] + 1);
+                if (leftmost1[i] == from1 && leftmost2[j] == from2) {
+                    dist = Math.min(dist, prev[y - 1]
+                            + (tags1[i] == tags2[j] ? 0 : 1));
+                    treeDist[i][j] = dist;
+                } else {
+                    dist = Math.min(dist, forestDist[leftmost1[i] - from1][leftmost2[j]
+                            - from2]
+                            + treeDist[i][j]);
+                }
+                row[y] = dist;
+            }
         }
-
-        result.addAll(children);
-        return result;
     }
 
-    private List<Node> deleteRightmostTree(List<Node> forest) {
-        int limit = forest.size() - 1;
-        List<Node> result = new ArrayList<Node>(limit);
-
-        for (int i = 0; i < limit; i++) {
-            result.add(forest.get(i));
+    /*
+     * Build the edit script which turns the forest from1..to1 into the forest from2..to2, followed by the given tail.
+     * The tables are computed again, for the matched pairs of subtrees recursively.
+     */
+    private LinkedListNode<EditOperation> editScript(int from1, int from2,
+            int to1, int to2, LinkedListNode<EditOperation> tail) {
+        int[][] forestDist = new int[to1 - from1 + 2][to2 - from2 + 2];
+        forestDistances(from1, from2, to1, to2, forestDist);
+        // the operations are appended to last, the script continues with tail
+        LinkedListNode<EditOperation> head = new LinkedListNode<EditOperation>(
+                null);
+        LinkedListNode<EditOperation> last = head;
+        int i = to1;
+        int j = to2;
+        while (i >= from1 || j >= from2) {
+            int x = i - from1 + 1;
+            int y = j - from2 + 1;
+            int dist = forestDist[x][y];
+            if (i >= from1 && forestDist[x - 1][y] + 1 == dist) {
+                ++deleted;
+                last = append(last, EditOperation.delete(nodes1[i]));
+                --i;
+            } else if (j >= from2 && forestDist[x][y - 1] + 1 == dist) {
+                ++inserted;
+                last = append(last, EditOperation.insert(nodes2[j]));
+                --j;
+            } else {
+                if (tags1[i] == tags2[j]) {
+                    ++matched;
+                    last = append(last, EditOperation.match(nodes1[i],
+                            nodes2[j]));
+                } else {
+                    ++swapped;
+                    last = append(last, EditOperation.swap(nodes1[i],
+                            nodes2[j]));
+                }
+                if (leftmost1[i] == from1 && leftmost2[j] == from2) {
+                    // whole trees, continue with the children
+                    --i;
+                    --j;
+                } else {
+                    // the children come after the rest of the forests
+                    tail = editScript(leftmost1[i], leftmost2[j], i - 1,
+                            j - 1, tail);
+                    i = leftmost1[i] - 1;
+                    j = leftmost2[j] - 1;
+                }
+            }
         }
+        last.setNext(tail);
+        return head.getNext();
+    }
 
-        return result;
+    private static LinkedListNode<EditOperation> append(
+            LinkedListNode<EditOperation> last, EditOperation op) {
+        LinkedListNode<EditOperation> ret = new LinkedListNode<EditOperation>(
+                op);
+        last.setNext(ret);
+        return ret;
     }
 
 }
@@ -34,23 +34,46 @@ import de.tuebingen.rparse.treebank.constituent.Tree;
  * 
  * @author ke
  */
-public class TreedistComparator extends IncrementalComparator<Tree> {
+public class TreedistComparator
+        extends
+            IncrementalComparator<Tree, TreedistComparator.Stats> {
 
-    int     count                 = 0;
+    boolean doRoof;
 
-    double  diceSum               = 0;
+    /**
+     * Sums of the distances and the normalized scores. For a single sentence, the sums are the values of the sentence.
+     */
+    public static class Stats implements EvalStats<Stats> {
 
-    double  jaccardSum            = 0;
+        int    count                 = 0;
 
-    long    diceNumeratorSum      = 0;
+        int    length                = 0;
 
-    long    diceDenominatorSum    = 0;
+        double diceSum               = 0;
 
-    long    jaccardNumeratorSum   = 0;
+        double jaccardSum            = 0;
 
-    long    jaccardDenominatorSum = 0;
+        long   diceNumeratorSum      = 0;
 
-    boolean doRoof;
+        long   diceDenominatorSum    = 0;
+
+        long   jaccardNumeratorSum   = 0;
+
+        long   jaccardDenominatorSum = 0;
+
+        @Override
+        public void add(Stats other) {
+            count += other.count;
+            length += other.length;
+            diceSum += other.diceSum;
+            jaccardSum += other.jaccardSum;
+            diceNumeratorSum += other.diceNumeratorSum;
+            diceDenominatorSum += other.diceDenominatorSum;
+            jaccardNumeratorSum += other.jaccardNumeratorSum;
+            jaccardDenominatorSum += other.jaccardDenominatorSum;
+        }
+
+    }
 
     protected TreedistComparator(boolean doRoof, boolean ignoreMissing,
             int gapblock, int lowGapBlock) throws EvalException {
@@ -65,7 +88,12 @@ public class TreedistComparator extends IncrementalComparator<Tree> {
     }
 
     @Override
-    protected void compare(Tree sentence1, Tree sentence2, int id)
+    protected Stats newStats() {
+        return new Stats();
+    }
+
+    @Override
+    protected Stats compare(Tree sentence1, Tree sentence2, int id)
             throws EvalException {
         if (doRoof) {
             sentence1.reduceToRoof();
@@ -76,45 +104,47 @@ public class TreedistComparator extends IncrementalComparator<Tree> {
                 Collections.singletonList(sentence1.getRoot()),
                 Collections.singletonList(sentence2.getRoot()));
         EditStats stats = computer.editStats();
-        doCompare(sentence1, sentence2, id, stats);
+        return doCompare(sentence1, sentence2, stats);
     }
 
-    protected void doCompare(Tree sentence1, Tree sentence2, int id,
-            EditStats stats) {
+    protected Stats doCompare(Tree sentence1, Tree sentence2, EditStats stats) {
         double diceNumerator = diceNumerator(stats);
         double diceDenominator = diceDenominator(stats, sentence1, sentence2);
         double jaccardNumerator = jaccardNumerator(stats);
         double jaccardDenominator = jaccardDenominator(stats);
         double dice = 1 - (diceNumerator / diceDenominator);
         double jaccard = 1 - (jaccardNumerator / jaccardDenominator);
-        diceNumeratorSum += diceNumerator;
-        diceDenominatorSum += diceDenominator;
-        jaccardNumeratorSum += jaccardNumerator;
-        jaccardDenominatorSum += jaccardDenominator;
-        diceSum += dice;
-        jaccardSum += jaccard;
-        count++;
+        Stats ret = new Stats();
+        ret.diceNumeratorSum += diceNumerator;
+        ret.diceDenominatorSum += diceDenominator;
+        ret.jaccardNumeratorSum += jaccardNumerator;
+        ret.jaccardDenominatorSum += jaccardDenominator;
+        ret.diceSum += dice;
+        ret.jaccardSum += jaccard;
+        ret.count++;
+        ret.length = sentence1.size();
+        return ret;
+    }
+
+    @Override
+    protected void sentenceDone(Stats stats, int id) {
         System.out.print(id);
         System.out.print("\t");
-        System.out.print("Length: " + sentence1.size());
+        System.out.print("Length: " + stats.length);
         System.out.print("\t");
-        System.out.print("TED: " + distance(stats));
+        System.out.print("TED: " + stats.diceNumeratorSum);
         System.out.print("\t");
-        System.out.print("Dice: " + dice);
+        System.out.print("Dice: " + stats.diceSum);
         System.out.print("\t");
-        System.out.println("Jaccard: " + jaccard);
+        System.out.println("Jaccard: " + stats.jaccardSum);
     }
 
     @Override
-    protected void missingAnswer(Tree keyTree, int id) throws EvalException {
+    protected Stats missingAnswer(Tree keyTree, int id) throws EvalException {
         throw new EvalException(
                 "Treedist comparator cannot handle missing answers, use ignore option.");
     }
 
-    private int distance(EditStats stats) {
-        return stats.deleted + stats.inserted + stats.swapped;
-    }
-
     private long jaccardNumerator(EditStats stats) {
         return stats.deleted + stats.inserted + stats.swapped;
     }
@@ -132,7 +162,15 @@ public class TreedistComparator extends IncrementalComparator<Tree> {
     }
 
     @Override
-    protected void done(int tooLong, int missing, int blocked, int lblock) {
+    protected void done(Stats total, int tooLong, int missing, int blocked,
+            int lblock) {
+        int count = total.count;
+        double diceSum = total.diceSum;
+        double jaccardSum = total.jaccardSum;
+        long diceNumeratorSum = total.diceNumeratorSum;
+        long diceDenominatorSum = total.diceDenominatorSum;
+        long jaccardNumeratorSum = total.jaccardNumeratorSum;
+        long jaccardDenominatorSum = total.jaccardDenominatorSum;
         System.out.println();
         printTooLong(tooLong);
         printMissing(missing);
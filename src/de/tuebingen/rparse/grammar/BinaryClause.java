@@ -24,6 +24,10 @@
  ******************************************************************************/
 package de.tuebingen.rparse.grammar;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -83,6 +87,41 @@ public class BinaryClause implements Serializable {
      */
     public boolean            rcPt             = false;
 
+    /**
+     * Candidate retrieval: If the first block of the right child directly follows a block of the left child in the
+     * same argument, this is the index of that block of the left child, otherwise -1. See {@link #computeBoundaries()}.
+     */
+    public int                lcBlockBeforeRc;
+
+    /**
+     * Candidate retrieval: If the last block of the right child is directly followed by a block of the left child in
+     * the same argument, this is the index of that block of the left child, otherwise -1.
+     */
+    public int                lcBlockAfterRc;
+
+    /**
+     * Candidate retrieval: If the last block of the left child is directly followed by a block of the right child in
+     * the same argument, this is the index of that block of the right child, otherwise -1.
+     */
+    public int                rcBlockAfterLc;
+
+    /**
+     * The yield function packed for bit-parallel composition: Bit i is set iff the i-th element of the yield function
+     * (counting through all arguments) comes from the right child. See {@link #computeBoundaries()}.
+     */
+    public long               yfRight;
+
+    /**
+     * The yield function packed for bit-parallel composition: Bit i is set iff the i-th element of the yield function
+     * is the first one of an argument.
+     */
+    public long               yfArgStart;
+
+    /**
+     * The number of elements of the yield function. The packed yield function is only valid if this is <= 64.
+     */
+    public int                yfElements;
+
     /**
      * The probability of this clause
      */
@@ -185,6 +224,152 @@ public class BinaryClause implements Serializable {
         this.score = clause.getScore();
         // the numberer
         this.n = n;
+        computeBoundaries();
+    }
+
+    /*
+     * Read a clause written with writeTables(), see there.
+     */
+    private BinaryClause(DataInput in, Numberer n) throws IOException {
+        lhs = in.readInt();
+        lc = in.readInt();
+        rc = in.readInt();
+        lcPt = in.readBoolean();
+        rcPt = in.readBoolean();
+        iscf = in.readBoolean();
+        lhsfanout = in.readInt();
+        score = in.readDouble();
+        yf = new boolean[in.readInt()][];
+        for (int i = 0; i < yf.length; ++i) {
+            yf[i] = new boolean[in.readInt()];
+            for (int j = 0; j < yf[i].length; ++j) {
+                yf[i][j] = in.readBoolean();
+            }
+        }
+        int top = in.readInt();
+        if (top >= 0) {
+            unbinarizedTopRhspterm = new boolean[top];
+            unbinarizedTopRhsnames = new int[top];
+            for (int i = 0; i < top; ++i) {
+                unbinarizedTopRhspterm[i] = in.readBoolean();
+                unbinarizedTopRhsnames[i] = in.readInt();
+            }
+        }
+        this.n = n;
+        computeBoundaries();
+    }
+
+    /**
+     * Write the fields of this clause which are needed for parsing (everything except the count).
+     * 
+     * @param out
+     *            Where to write the clause
+     * @throws IOException
+     *             If something goes wrong during writing
+     */
+    public void writeTables(DataOutput out) throws IOException {
+        out.writeInt(lhs);
+        out.writeInt(lc);
+        out.writeInt(rc);
+        out.writeBoolean(lcPt);
+        out.writeBoolean(rcPt);
+        out.writeBoolean(iscf);
+        out.writeInt(lhsfanout);
+        out.writeDouble(score);
+        out.writeInt(yf.length);
+        for (int i = 0; i < yf.length; ++i) {
+            out.writeInt(yf[i].length);
+            for (int j = 0; j < yf[i].length; ++j) {
+                out.writeBoolean(yf[i][j]);
+            }
+        }
+        if (unbinarizedTopRhspterm == null || unbinarizedTopRhsnames == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(unbinarizedTopRhspterm.length);
+            for (int i = 0; i < unbinarizedTopRhspterm.length; ++i) {
+                out.writeBoolean(unbinarizedTopRhspterm[i]);
+                out.writeInt(unbinarizedTopRhsnames[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a clause written with {@link #writeTables(DataOutput)}.
+     * 
+     * @param in
+     *            Where to read the clause from
+     * @param nb
+     *            The numberer for the clause
+     * @return The clause
+     * @throws IOException
+     *             If something goes wrong during reading
+     */
+    public static BinaryClause readTables(DataInput in, Numberer nb)
+            throws IOException {
+        return new BinaryClause(in, nb);
+    }
+
+    /*
+     * Models serialized before the boundary fields existed don't have them.
+     */
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        computeBoundaries();
+    }
+
+    /**
+     * Compute the fields used for candidate retrieval and the packed yield function. Blocks of a child are numbered from
+     * left to right, i.e., in the order in which the corresponding variables occur in the yield function. Since the
+     * left child always contributes the first element of the yield, the leftmost terminal of the left child is the
+     * leftmost terminal of the result.
+     */
+    private void computeBoundaries() {
+        lcBlockBeforeRc = -1;
+        lcBlockAfterRc = -1;
+        rcBlockAfterLc = -1;
+        yfRight = 0L;
+        yfArgStart = 0L;
+        yfElements = 0;
+        for (int i = 0; i < yf.length; ++i) {
+            for (int j = 0; j < yf[i].length; ++j) {
+                if (yfElements < Long.SIZE) {
+                    if (yf[i][j])
+                        yfRight |= 1L << yfElements;
+                    if (j == 0)
+                        yfArgStart |= 1L << yfElements;
+                }
+                ++yfElements;
+            }
+        }
+        if (rc == -1)
+            return;
+        // number the blocks of both children
+        int[][] block = new int[yf.length][];
+        int lcfanout = 0;
+        int rcfanout = 0;
+        for (int i = 0; i < yf.length; ++i) {
+            block[i] = new int[yf[i].length];
+            for (int j = 0; j < yf[i].length; ++j) {
+                block[i][j] = yf[i][j] ? rcfanout++ : lcfanout++;
+            }
+        }
+        for (int i = 0; i < yf.length; ++i) {
+            for (int j = 0; j < yf[i].length; ++j) {
+                if (yf[i][j]) {
+                    if (block[i][j] == 0 && j > 0 && !yf[i][j - 1])
+                        lcBlockBeforeRc = block[i][j - 1];
+                    if (block[i][j] == rcfanout - 1 && j < yf[i].length - 1
+                            && !yf[i][j + 1])
+                        lcBlockAfterRc = block[i][j + 1];
+                } else {
+                    if (block[i][j] == lcfanout - 1 && j < yf[i].length - 1
+                            && yf[i][j + 1])
+                        rcBlockAfterLc = block[i][j + 1];
+                }
+            }
+        }
     }
 
     /**
@@ -24,6 +24,9 @@
  ******************************************************************************/
 package de.tuebingen.rparse.grammar;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -93,6 +96,9 @@ public class BinaryRCG extends RCG {
     // The underlying unbinarized grammar
     private RCG                             grammar;
 
+    // The parse-time view, built on demand, see freeze()
+    private transient volatile FrozenBinaryRCG frozen;
+
     /**
      * Construct a new BinaryRCG from an underlying RCG instance
      * 
@@ -138,7 +144,7 @@ public class BinaryRCG extends RCG {
     }
 
     /**
-     * Add a clause to this grammar
+     * Add a clause to this grammar. Its count is taken from {@link BinaryClause#cnt}.
      * 
      * @param bc
      *            The clause to add
@@ -146,35 +152,65 @@ public class BinaryRCG extends RCG {
      *             If clause cannot be added
      */
     public void addClause(BinaryClause bc) throws GrammarException {
-        // Add clause, indexed by parent
-        if (!clByParent.keySet().contains(bc.lhs)) {
-            clByParent.put(bc.lhs, new ArrayList<BinaryClause>());
-        }
-        if (!clByParent.get(bc.lhs).contains(bc)) {
-            clByParent.get(bc.lhs).add(bc);
-        }
+        addClause(bc, bc.cnt);
+    }
 
-        // Add clause, indexed by left RHS pred
-        if (!clByLc.keySet().contains(bc.lc)) {
-            clByLc.put(bc.lc, new ArrayList<BinaryClause>());
-        }
-        if (!clByLc.get(bc.lc).contains(bc)) {
-            clByLc.get(bc.lc).add(bc);
+    /**
+     * Add a clause with a given count to this grammar. If an equal clause is already present, only its count is
+     * increased, otherwise the clause is added to all indices. Both cases take constant time, since the check for an
+     * equal clause goes through the hashed clause counts instead of the clause lists.
+     * 
+     * @param bc
+     *            The clause to add
+     * @param count
+     *            The number of times the clause has been seen
+     * @throws GrammarException
+     *             If clause cannot be added
+     */
+    public void addClause(BinaryClause bc, int count) throws GrammarException {
+        frozen = null;
+
+        // Clause count. A clause is in the indices iff it has a count.
+        Integer oldCount = cnt.get(bc);
+        if (oldCount == null) {
+            cnt.put(bc, count);
+
+            // Add clause, unhashed
+            clauses.add(bc);
+
+            // Add clause, indexed by parent
+            List<BinaryClause> l = clByParent.get(bc.lhs);
+            if (l == null) {
+                l = new ArrayList<BinaryClause>();
+                clByParent.put(bc.lhs, l);
+            }
+            l.add(bc);
+
+            // Add clause, indexed by left RHS pred
+            l = clByLc.get(bc.lc);
+            if (l == null) {
+                l = new ArrayList<BinaryClause>();
+                clByLc.put(bc.lc, l);
+            }
+            l.add(bc);
+
+            // Add clause, indexed by right RHS pred, if not unary
+            if (bc.rc != -1) {
+                l = clByRc.get(bc.rc);
+                if (l == null) {
+                    l = new ArrayList<BinaryClause>();
+                    clByRc.put(bc.rc, l);
+                }
+                l.add(bc);
+            }
+        } else {
+            cnt.put(bc, oldCount + count);
         }
+
         // LHS preterminal?
         if (bc.lcPt) {
             getPreterminals().add(bc.lc);
         }
-
-        // Add clause, indexed by right RHS pred, if not unary
-        if (bc.rc != -1) {
-            if (!clByRc.keySet().contains(bc.rc)) {
-                clByRc.put(bc.rc, new ArrayList<BinaryClause>());
-            }
-            if (!clByRc.get(bc.rc).contains(bc)) {
-                clByRc.get(bc.rc).add(bc);
-            }
-        }
         // RHS preterminal
         if (bc.rcPt) {
             getPreterminals().add(bc.rc);
@@ -183,24 +219,14 @@ public class BinaryRCG extends RCG {
         // Add the LHS label
         labels.add(bc.lhs);
 
-        // Add clause, unhashed
-        if (!clauses.contains(bc)) {
-            clauses.add(bc);
-        }
-
-        // Clause count
-        if (!cnt.containsKey(bc)) {
-            cnt.put(bc, 0);
-        }
-        cnt.put(bc, cnt.get(bc) + bc.cnt);
-
         // Add clause arity
         stateToArity.put(bc.lhs, (short) bc.lhsfanout);
     }
 
     /**
      * Returns a version of this grammar where every clause with a count equal to or lower than the specified cutoff
-     * value is removed. Specifying 0 returns an identical grammar.
+     * value is removed. Specifying 0 returns an identical grammar. The remaining clauses keep their counts and their
+     * order.
      * 
      * @param cutoff
      *            The cutoff threshold
@@ -216,15 +242,115 @@ public class BinaryRCG extends RCG {
         for (BinaryClause clause : clauses) {
             int count = cnt.get(clause);
             if (count > cutoff) {
-                for (int i = 0; i < count; i++) {
-                    result.addClause(clause);
-                }
+                result.addClause(clause, count);
             }
         }
 
         return result;
     }
 
+    /**
+     * Write the clauses of this grammar together with their counts, the start symbol and the binarizer type, i.e.,
+     * everything which is needed to rebuild the grammar for parsing with {@link #readTables(DataInput, Numberer)}.
+     * The underlying unbinarized grammar is not written.
+     * 
+     * @param out
+     *            Where to write the grammar
+     * @throws IOException
+     *             If something goes wrong during writing
+     */
+    public void writeTables(DataOutput out) throws IOException {
+        out.writeInt(startSymbol);
+        out.writeInt(startPredicateDefined() ? getStartPredLabel() : -1);
+        out.writeUTF(binarizationType == null ? "" : binarizationType
+                .getName());
+        out.writeInt(clauses.size());
+        for (BinaryClause bc : clauses) {
+            bc.writeTables(out);
+            out.writeInt(cnt.get(bc));
+        }
+        out.writeInt(preterminals.size());
+        for (int pt : preterminals) {
+            out.writeInt(pt);
+        }
+    }
+
+    /**
+     * Rebuild a grammar written with {@link #writeTables(DataOutput)}. The clauses are added in their original
+     * order, such that the indices come out as before. The underlying unbinarized grammar is an empty grammar which
+     * only has the start predicate.
+     * 
+     * @param in
+     *            Where to read the grammar from
+     * @param nb
+     *            The numberer of the grammar
+     * @return The grammar
+     * @throws IOException
+     *             If something goes wrong during reading
+     */
+    public static BinaryRCG readTables(DataInput in, Numberer nb)
+            throws IOException {
+        int startSymbol = in.readInt();
+        int startPredLabel = in.readInt();
+        String binarizer = in.readUTF();
+        Class<? extends Binarizer> binarizationType = null;
+        if (!binarizer.isEmpty()) {
+            try {
+                binarizationType = Class.forName(binarizer).asSubclass(
+                        Binarizer.class);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown binarizer " + binarizer);
+            }
+        }
+        RCG g = new RCG(nb);
+        g.setStartPredLabel(startSymbol);
+        BinaryRCG ret = new BinaryRCG(g, binarizationType);
+        if (startPredLabel != -1)
+            ret.setStartPredLabel(startPredLabel);
+        int size = in.readInt();
+        try {
+            for (int i = 0; i < size; ++i) {
+                BinaryClause bc = BinaryClause.readTables(in, nb);
+                ret.addClause(bc, in.readInt());
+            }
+        } catch (GrammarException e) {
+            throw new IOException(e.getMessage());
+        }
+        size = in.readInt();
+        for (int i = 0; i < size; ++i) {
+            ret.preterminals.add(in.readInt());
+        }
+        return ret;
+    }
+
+    /**
+     * Get the read-only parse-time view of this grammar. It is built on the first call and cached; adding a clause
+     * discards it. Since the view copies the clause scores, {@link #thaw()} must be called after scores have been
+     * modified.
+     * 
+     * @return The frozen view of this grammar
+     */
+    public FrozenBinaryRCG freeze() {
+        FrozenBinaryRCG ret = frozen;
+        if (ret == null) {
+            synchronized (this) {
+                ret = frozen;
+                if (ret == null) {
+                    ret = new FrozenBinaryRCG(this);
+                    frozen = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Discard the frozen view of this grammar, such that the next call to {@link #freeze()} rebuilds it.
+     */
+    public void thaw() {
+        frozen = null;
+    }
+
     /**
      * Get the arity of a state in the grammar.
      * 
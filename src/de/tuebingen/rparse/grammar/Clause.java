@@ -193,6 +193,31 @@ public class Clause implements Serializable {
                         .getOrigRhsnames(), c.id);
     }
 
+    /**
+     * A copy of this clause with all predicate names and gorn addresses mapped to new numbers, e.g., in order to move
+     * the clause from a grammar with a different numberer. The copy has no id.
+     * 
+     * @param map
+     *            Maps old numbers to new numbers, see {@link Numberer#addAll(Numberer)}
+     * @return The copy
+     */
+    public Clause renumber(int[] map) {
+        Clause ret = new Clause(lhsname, lhsargs, rhsnames, rhsargs, headpos,
+                score, null, null, rhspterm, origRhspterm, origRhsnames, -1);
+        ret.lhsname = map[lhsname];
+        for (int i = 0; i < ret.rhsnames.length; ++i)
+            ret.rhsnames[i] = map[ret.rhsnames[i]];
+        if (ret.origRhsnames != null)
+            for (int i = 0; i < ret.origRhsnames.length; ++i)
+                ret.origRhsnames[i] = map[ret.origRhsnames[i]];
+        ret.origins = new ArrayList<Integer>(origins);
+        ret.gorn = new ArrayList<Integer>(gorn.size());
+        for (int address : gorn)
+            ret.gorn.add(map[address]);
+        ret.verticalContext = verticalContext;
+        return ret;
+    }
+
     /**
      * Set the id of this clause
      * 
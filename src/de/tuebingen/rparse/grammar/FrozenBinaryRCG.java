@@ -0,0 +1,613 @@
+/*******************************************************************************
+ * File FrozenBinaryRCG.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A read-only, parse-time view of a {@link BinaryRCG}. Labels are mapped to dense ids, the clauses are stored as
+ * parallel arrays (one entry per clause id) and the clauses of a label are found through offset tables, such that
+ * iterating over the clauses with a given left child, right child or parent needs neither hashing nor boxing. Clause
+ * ids are assigned in the order of the left child, i.e., the clauses with a certain left child are the ids from
+ * {@link #lcBegin(int)} (inclusive) to {@link #lcEnd(int)} (exclusive). For the right child and the parent, the range
+ * delivers positions in {@link #byRc} and {@link #byParent}, respectively, which hold the clause ids. Within a label,
+ * the order of the clauses is the order of the corresponding lists in the binary grammar.
+ *
+ * The view also holds the closure of the unary clauses: For every label, the labels which can be reached from it by a
+ * chain of unary clauses, with the score of the best chain, see {@link #unaryBegin(int)}. Scores must not be
+ * negative, cycles are harmless.
+ *
+ * Instances are obtained with {@link BinaryRCG#freeze()}. The view is immutable and can be shared between threads. It
+ * reflects the scores at the time it was built, see {@link BinaryRCG#thaw()}.
+ *
+ * @author wmaier
+ */
+public final class FrozenBinaryRCG {
+
+    /**
+     * The number of clauses
+     */
+    public final int            size;
+
+    /**
+     * Clause data: The LHS label
+     */
+    public final int[]          lhs;
+
+    /**
+     * Clause data: The left RHS label
+     */
+    public final int[]          lc;
+
+    /**
+     * Clause data: The right RHS label, -1 for unary clauses
+     */
+    public final int[]          rc;
+
+    /**
+     * Clause data: The score
+     */
+    public final double[]       score;
+
+    /**
+     * Clause data: True if the clause is context-free
+     */
+    public final boolean[]      iscf;
+
+    /**
+     * Clause data: The id of the yield function in {@link #yfs}
+     */
+    public final int[]          yfId;
+
+    /**
+     * Clause data: The clause itself, for everything not in the arrays above (needed for yield function composition)
+     */
+    public final BinaryClause[] clause;
+
+    /**
+     * The distinct yield functions of the grammar
+     */
+    public final boolean[][][]  yfs;
+
+    /**
+     * Clause ids, ordered by right child
+     */
+    public final int[]          byRc;
+
+    /**
+     * Clause ids, ordered by parent
+     */
+    public final int[]          byParent;
+
+    /**
+     * Unary closure: The label at the top of a chain of unary clauses, see {@link #unaryBegin(int)}
+     */
+    public final int[]          unaryLhs;
+
+    /**
+     * Unary closure: The score of the best chain
+     */
+    public final double[]       unaryScore;
+
+    // unary closure: the position of the same chain without its last clause, -1 if the chain has only one clause
+    private final int[]         unaryPrev;
+
+    // unary closure: the positions of the chains starting at a label, indexed by dense id, one more entry than labels
+    private final int[]         unaryOffset;
+
+    // label to dense id, -1 if the label does not occur in the grammar
+    private final int[]         denseId;
+
+    // dense id to label
+    private final int[]         labelOf;
+
+    // dense id to arity, -1 if unknown
+    private final int[]         arity;
+
+    // offsets into the clause ids (lc) resp. byRc and byParent, indexed by dense id, one more entry than labels
+    private final int[]         lcOffset;
+    private final int[]         rcOffset;
+    private final int[]         parentOffset;
+
+    /*
+     * Build the view, see BinaryRCG#freeze()
+     */
+    FrozenBinaryRCG(BinaryRCG bg) {
+        // dense label ids
+        int maxLabel = -1;
+        for (BinaryClause bc : bg.clauses) {
+            maxLabel = Math.max(maxLabel,
+                    Math.max(bc.lhs, Math.max(bc.lc, bc.rc)));
+        }
+        for (int pt : bg.getPreterminals()) {
+            maxLabel = Math.max(maxLabel, pt);
+        }
+        denseId = new int[maxLabel + 1];
+        Arrays.fill(denseId, -1);
+        int labels = 0;
+        for (int label = 0; label <= maxLabel; ++label) {
+            if (bg.getArity(label) != -1 || bg.clByLc.containsKey(label)
+                    || bg.clByRc.containsKey(label)) {
+                denseId[label] = labels++;
+            }
+        }
+        labelOf = new int[labels];
+        arity = new int[labels];
+        for (int label = 0; label <= maxLabel; ++label) {
+            if (denseId[label] != -1) {
+                labelOf[denseId[label]] = label;
+                arity[denseId[label]] = bg.getArity(label);
+            }
+        }
+
+        // clause ids, in the order of the left child
+        List<BinaryClause> ordered = new ArrayList<BinaryClause>();
+        lcOffset = new int[labels + 1];
+        for (int id = 0; id < labels; ++id) {
+            lcOffset[id] = ordered.size();
+            List<BinaryClause> l = bg.clByLc.get(labelOf[id]);
+            if (l != null)
+                ordered.addAll(l);
+        }
+        lcOffset[labels] = ordered.size();
+        size = ordered.size();
+
+        lhs = new int[size];
+        lc = new int[size];
+        rc = new int[size];
+        score = new double[size];
+        iscf = new boolean[size];
+        yfId = new int[size];
+        clause = new BinaryClause[size];
+        Map<BinaryClause, Integer> clauseId = new HashMap<BinaryClause, Integer>();
+        Map<String, Integer> yfIds = new HashMap<String, Integer>();
+        List<boolean[][]> yfList = new ArrayList<boolean[][]>();
+        for (int c = 0; c < size; ++c) {
+            BinaryClause bc = ordered.get(c);
+            lhs[c] = bc.lhs;
+            lc[c] = bc.lc;
+            rc[c] = bc.rc;
+            score[c] = bc.score;
+            iscf[c] = bc.iscf;
+            clause[c] = bc;
+            String yfKey = Arrays.deepToString(bc.yf);
+            if (!yfIds.containsKey(yfKey)) {
+                yfIds.put(yfKey, yfList.size());
+                yfList.add(bc.yf);
+            }
+            yfId[c] = yfIds.get(yfKey);
+            clauseId.put(bc, c);
+        }
+        yfs = yfList.toArray(new boolean[yfList.size()][][]);
+
+        rcOffset = new int[labels + 1];
+        byRc = index(bg.clByRc, clauseId, rcOffset);
+        parentOffset = new int[labels + 1];
+        byParent = index(bg.clByParent, clauseId, parentOffset);
+
+        // unary closure
+        unaryOffset = new int[labels + 1];
+        List<double[]> chains = new ArrayList<double[]>();
+        for (int id = 0; id < labels; ++id) {
+            unaryOffset[id] = chains.size();
+            closeUnaries(id, chains);
+        }
+        unaryOffset[labels] = chains.size();
+        unaryLhs = new int[chains.size()];
+        unaryScore = new double[chains.size()];
+        unaryPrev = new int[chains.size()];
+        for (int u = 0; u < chains.size(); ++u) {
+            double[] chain = chains.get(u);
+            unaryLhs[u] = (int) chain[1];
+            unaryScore[u] = chain[0];
+            unaryPrev[u] = (int) chain[2];
+        }
+    }
+
+    /*
+     * Find the best chains of unary clauses starting at a label (Dijkstra) and add them to the list as {score, label,
+     * position of the chain without its last clause}, in the order of their scores.
+     */
+    private void closeUnaries(int id, List<double[]> chains) {
+        PriorityQueue<double[]> queue = new PriorityQueue<double[]>(11,
+                new Comparator<double[]>() {
+                    @Override
+                    public int compare(double[] a, double[] b) {
+                        // by score, then first come first served
+                        int ret = Double.compare(a[0], b[0]);
+                        return ret != 0 ? ret : Double.compare(a[3], b[3]);
+                    }
+                });
+        int seq = 0;
+        for (int c = lcOffset[id]; c < lcOffset[id + 1]; ++c) {
+            if (rc[c] == -1)
+                queue.add(new double[] { score[c], lhs[c], -1, seq++ });
+        }
+        Set<Integer> done = new HashSet<Integer>();
+        done.add(labelOf[id]);
+        while (!queue.isEmpty()) {
+            double[] chain = queue.poll();
+            int label = (int) chain[1];
+            if (!done.add(label))
+                continue;
+            int pos = chains.size();
+            chains.add(chain);
+            int next = denseId(label);
+            if (next == -1)
+                continue;
+            for (int c = lcOffset[next]; c < lcOffset[next + 1]; ++c) {
+                if (rc[c] == -1 && !done.contains(lhs[c]))
+                    queue.add(new double[] { chain[0] + score[c], lhs[c],
+                            pos, seq++ });
+            }
+        }
+    }
+
+    /*
+     * Lay out the clause lists of the map one after the other, ordered by dense label id, and fill in the offsets.
+     */
+    private int[] index(Map<Integer, List<BinaryClause>> byLabel,
+            Map<BinaryClause, Integer> clauseId, int[] offset) {
+        int total = 0;
+        for (List<BinaryClause> l : byLabel.values()) {
+            total += l.size();
+        }
+        int[] ret = new int[total];
+        int pos = 0;
+        for (int id = 0; id < labelOf.length; ++id) {
+            offset[id] = pos;
+            List<BinaryClause> l = byLabel.get(labelOf[id]);
+            if (l != null) {
+                for (BinaryClause bc : l) {
+                    ret[pos++] = clauseId.get(bc);
+                }
+            }
+        }
+        offset[labelOf.length] = pos;
+        return ret;
+    }
+
+    /**
+     * Get the dense id of a label
+     *
+     * @param label
+     *            The label
+     * @return The dense id, or -1 if the label does not occur in the grammar
+     */
+    public int denseId(int label) {
+        return label >= 0 && label < denseId.length ? denseId[label] : -1;
+    }
+
+    /**
+     * Get the label with a certain dense id
+     *
+     * @param id
+     *            The dense id
+     * @return The label
+     */
+    public int labelOf(int id) {
+        return labelOf[id];
+    }
+
+    /**
+     * The number of labels of the grammar, i.e., the number of dense ids
+     *
+     * @return The number of labels
+     */
+    public int labelCount() {
+        return labelOf.length;
+    }
+
+    /**
+     * Get the arity of a label, as in {@link BinaryRCG#getArity(int)}.
+     *
+     * @param label
+     *            The label
+     * @return The arity, or -1 if not known
+     */
+    public int getArity(int label) {
+        int id = denseId(label);
+        return id == -1 ? -1 : arity[id];
+    }
+
+    /**
+     * First clause id with the given left child
+     *
+     * @param label
+     *            The label of the left child
+     * @return The first clause id
+     */
+    public int lcBegin(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : lcOffset[id];
+    }
+
+    /**
+     * End (exclusive) of the clause ids with the given left child
+     *
+     * @param label
+     *            The label of the left child
+     * @return The end of the range
+     */
+    public int lcEnd(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : lcOffset[id + 1];
+    }
+
+    /**
+     * First position in {@link #byRc} of the clauses with the given right child
+     *
+     * @param label
+     *            The label of the right child
+     * @return The first position
+     */
+    public int rcBegin(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : rcOffset[id];
+    }
+
+    /**
+     * End (exclusive) of the positions in {@link #byRc} of the clauses with the given right child
+     *
+     * @param label
+     *            The label of the right child
+     * @return The end of the range
+     */
+    public int rcEnd(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : rcOffset[id + 1];
+    }
+
+    /**
+     * First position in {@link #byParent} of the clauses with the given LHS
+     *
+     * @param label
+     *            The label of the LHS
+     * @return The first position
+     */
+    public int parentBegin(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : parentOffset[id];
+    }
+
+    /**
+     * End (exclusive) of the positions in {@link #byParent} of the clauses with the given LHS
+     *
+     * @param label
+     *            The label of the LHS
+     * @return The end of the range
+     */
+    public int parentEnd(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : parentOffset[id + 1];
+    }
+
+    /**
+     * Restrict the grammar to a sentence. A clause is kept if it can be part of a derivation of the goal label from the
+     * tags of the sentence, i.e., if all of its children can be reached bottom-up from the tags and its LHS can be
+     * reached top-down from the goal. The counts of the tags are not taken into account.
+     *
+     * @param tags
+     *            The tags of the sentence
+     * @param goal
+     *            The goal label
+     * @param allowed
+     *            The clauses which may be used at all, indexed by clause id, or null if there is no such restriction
+     * @return The restriction
+     */
+    public Restriction restrict(int[] tags, int goal, boolean[] allowed) {
+        int labels = labelOf.length;
+        // bottom-up: clauses whose children are reachable from the tags
+        boolean[] bottomUp = new boolean[labels];
+        boolean[] clauses = new boolean[size];
+        int[] queue = new int[labels];
+        int head = 0;
+        int tail = 0;
+        for (int tag : tags) {
+            int id = denseId(tag);
+            if (id != -1 && !bottomUp[id]) {
+                bottomUp[id] = true;
+                queue[tail++] = id;
+            }
+        }
+        while (head < tail) {
+            int id = queue[head++];
+            for (int c = lcOffset[id]; c < lcOffset[id + 1]; ++c) {
+                if (!clauses[c] && (allowed == null || allowed[c])
+                        && (rc[c] == -1 || bottomUp[denseId(rc[c])])) {
+                    clauses[c] = true;
+                    int lhsId = denseId(lhs[c]);
+                    if (lhsId != -1 && !bottomUp[lhsId]) {
+                        bottomUp[lhsId] = true;
+                        queue[tail++] = lhsId;
+                    }
+                }
+            }
+            for (int p = rcOffset[id]; p < rcOffset[id + 1]; ++p) {
+                int c = byRc[p];
+                if (!clauses[c] && (allowed == null || allowed[c])
+                        && bottomUp[denseId(lc[c])]) {
+                    clauses[c] = true;
+                    int lhsId = denseId(lhs[c]);
+                    if (lhsId != -1 && !bottomUp[lhsId]) {
+                        bottomUp[lhsId] = true;
+                        queue[tail++] = lhsId;
+                    }
+                }
+            }
+        }
+
+        // top-down: of those, the clauses whose LHS is reachable from the goal
+        boolean[] topDown = new boolean[labels];
+        boolean[] used = new boolean[size];
+        int count = 0;
+        head = 0;
+        tail = 0;
+        int goalId = denseId(goal);
+        if (goalId != -1 && bottomUp[goalId]) {
+            topDown[goalId] = true;
+            queue[tail++] = goalId;
+        }
+        while (head < tail) {
+            int id = queue[head++];
+            for (int p = parentOffset[id]; p < parentOffset[id + 1]; ++p) {
+                int c = byParent[p];
+                if (!clauses[c])
+                    continue;
+                used[c] = true;
+                ++count;
+                for (int child = 0; child < 2; ++child) {
+                    int label = child == 0 ? lc[c] : rc[c];
+                    if (label == -1)
+                        continue;
+                    int childId = denseId(label);
+                    if (!topDown[childId]) {
+                        topDown[childId] = true;
+                        queue[tail++] = childId;
+                    }
+                }
+            }
+        }
+        return new Restriction(used, topDown, count);
+    }
+
+    /**
+     * The part of the grammar which is usable for a certain sentence, see {@link FrozenBinaryRCG#restrict}.
+     *
+     * @author wmaier
+     */
+    public final class Restriction {
+
+        // by clause id
+        private final boolean[] clauses;
+
+        // by dense id
+        private final boolean[] labels;
+
+        // number of usable clauses
+        private final int       count;
+
+        private Restriction(boolean[] clauses, boolean[] labels, int count) {
+            this.clauses = clauses;
+            this.labels = labels;
+            this.count = count;
+        }
+
+        /**
+         * Check if a clause is usable
+         *
+         * @param c
+         *            The clause id
+         * @return true if the clause can be part of a derivation of the goal from the tags
+         */
+        public boolean usesClause(int c) {
+            return clauses[c];
+        }
+
+        /**
+         * Check if a label is usable
+         *
+         * @param label
+         *            The label
+         * @return true if the label can be part of a derivation of the goal from the tags
+         */
+        public boolean usesLabel(int label) {
+            int id = denseId(label);
+            return id != -1 && labels[id];
+        }
+
+        /**
+         * The number of usable clauses
+         *
+         * @return The number of usable clauses
+         */
+        public int clauseCount() {
+            return count;
+        }
+
+    }
+
+    /**
+     * First position in {@link #unaryLhs} and {@link #unaryScore} of the best chains of unary clauses starting at the
+     * given label. A chain consists of at least one clause and never leads back to the label. The chains of a label
+     * are ordered by score.
+     *
+     * @param label
+     *            The label at the bottom of the chains
+     * @return The first position
+     */
+    public int unaryBegin(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : unaryOffset[id];
+    }
+
+    /**
+     * End (exclusive) of the positions of the best chains of unary clauses starting at the given label
+     *
+     * @param label
+     *            The label at the bottom of the chains
+     * @return The end of the range
+     */
+    public int unaryEnd(int label) {
+        int id = denseId(label);
+        return id == -1 ? 0 : unaryOffset[id + 1];
+    }
+
+    /**
+     * Get the labels in between the bottom and the top of the best chain of unary clauses between two labels.
+     *
+     * @param bottom
+     *            The label at the bottom of the chain
+     * @param top
+     *            The label at the top of the chain
+     * @return The intermediate labels, from top to bottom, empty if the chain consists of a single clause, or null if
+     *         there is no chain
+     */
+    public int[] unaryPath(int bottom, int top) {
+        int end = unaryEnd(bottom);
+        for (int u = unaryBegin(bottom); u < end; ++u) {
+            if (unaryLhs[u] == top) {
+                int len = 0;
+                for (int p = unaryPrev[u]; p != -1; p = unaryPrev[p])
+                    ++len;
+                int[] ret = new int[len];
+                len = 0;
+                for (int p = unaryPrev[u]; p != -1; p = unaryPrev[p])
+                    ret[len++] = unaryLhs[p];
+                return ret;
+            }
+        }
+        return null;
+    }
+
+}
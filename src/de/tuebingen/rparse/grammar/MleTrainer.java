@@ -76,6 +76,7 @@ public class MleTrainer extends TrainingMethod {
                     ++count;
                 }
             }
+            bg.thaw();
         }
         logger.info("MLE estimate of " + count + " clauses.");
     }
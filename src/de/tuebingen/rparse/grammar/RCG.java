@@ -224,6 +224,27 @@ public class RCG implements Serializable {
 
     }
 
+    /**
+     * Add all clauses of another grammar together with their occurrences, as if they had been added to this grammar
+     * directly after the clauses which are already there. Clauses are added in the order in which they have been
+     * added to the other grammar, such that the clause ids are the same as if they had been added directly.
+     * 
+     * @param other
+     *            The other grammar
+     * @param map
+     *            Maps the numbers of the numberer of the other grammar to the numbers of this one, see
+     *            {@link Numberer#addAll(Numberer)}
+     * @throws GrammarException
+     *             If a predicate has different arities in the two grammars
+     */
+    public void addAll(RCG other, int[] map) throws GrammarException {
+        for (Clause oc : other.clauses) {
+            Clause c = oc.renumber(map);
+            addClause(c, null);
+            occurrencesByClause.get(c).addAll(other.occurrencesByClause.get(oc));
+        }
+    }
+
     /**
      * Get the clauses
      * 
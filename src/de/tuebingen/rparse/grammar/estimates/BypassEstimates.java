@@ -61,4 +61,10 @@ public class BypassEstimates extends Estimate {
         return 0.0;
     }
 
+    @Override
+    public boolean isConsistent() {
+        // the zero estimate is trivially consistent
+        return true;
+    }
+
 }
@@ -24,6 +24,8 @@
  ******************************************************************************/
 package de.tuebingen.rparse.grammar.estimates;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -150,6 +152,80 @@ public abstract class Estimate implements GrammarProcessingTask, Serializable {
 
     }
 
+    /**
+     * Constructor for estimates read from a flat model file, see {@link #writeTables(DataOutput, DataOutput)}. Reads
+     * the maximal sentence length and the label mapping written by {@link #writeLabels(DataOutput)}. There is no
+     * grammar, the estimate can only be used for lookup.
+     * 
+     * @param header
+     *            Where to read from
+     * @param nb
+     *            The numberer of the grammar
+     * @throws IOException
+     *             If something goes wrong during reading
+     */
+    protected Estimate(DataInput header, Numberer nb) throws IOException {
+        logger = Logger.getLogger(Estimate.class.getPackage().getName());
+        this.bg = null;
+        this.nb = nb;
+        this.maxlen = header.readInt();
+        int preterminalsSize = header.readInt();
+        int labelcnt = header.readInt();
+        nonterminalsOnly = new HashSet<Integer>();
+        preterminals = new HashSet<Integer>();
+        nonterminalsAndPreterminals = new HashSet<Integer>();
+        cntToLabel = new HashMap<Integer, Integer>();
+        labelToCnt = new HashMap<Integer, Integer>();
+        for (int cnt = 0; cnt < labelcnt; ++cnt) {
+            int label = header.readInt();
+            if (cnt < preterminalsSize)
+                preterminals.add(label);
+            else
+                nonterminalsOnly.add(label);
+            nonterminalsAndPreterminals.add(label);
+            cntToLabel.put(cnt, label);
+            labelToCnt.put(label, cnt);
+        }
+    }
+
+    /**
+     * Write the maximal sentence length and the label mapping such that it can be read by
+     * {@link #Estimate(DataInput, Numberer)}.
+     * 
+     * @param header
+     *            Where to write
+     * @throws IOException
+     *             If something goes wrong during writing
+     */
+    protected void writeLabels(DataOutput header) throws IOException {
+        header.writeInt(maxlen);
+        header.writeInt(preterminals.size());
+        header.writeInt(cntToLabel.size());
+        for (int cnt = 0; cnt < cntToLabel.size(); ++cnt) {
+            header.writeInt(cntToLabel.get(cnt));
+        }
+    }
+
+    /**
+     * Write this estimate for a flat model file. The header gets the small data (see
+     * {@link #writeLabels(DataOutput)}), the tables get the scores, which are later mapped into memory and used in
+     * place. Estimates which support this override this method, read the result in a constructor, and are registered
+     * in {@link EstimatesFactory#readTables}. The default implementation writes nothing and returns false; such
+     * estimates are stored serialized.
+     * 
+     * @param header
+     *            Where to write the small data
+     * @param tables
+     *            Where to write the score tables
+     * @return true if the estimate has been written
+     * @throws IOException
+     *             If something goes wrong during writing
+     */
+    public boolean writeTables(DataOutput header, DataOutput tables)
+            throws IOException {
+        return false;
+    }
+
     /**
      * Get a label for a chart index number.
      * 
@@ -223,7 +299,59 @@ public abstract class Estimate implements GrammarProcessingTask, Serializable {
      */
     abstract public double get(int slen, int state, BitSet vechc, int[] tags);
 
+    /**
+     * Get the outside estimate for an item of the parser for fan-out two, see
+     * {@link de.tuebingen.rparse.parser.fanouttwo.CYKParserTwo}. The spans are given by their boundaries, the right
+     * boundaries are exclusive. Must give the same estimate as {@link #get(int, int, BitSet, int[])} for the
+     * corresponding range vector.
+     * 
+     * @param slen
+     *            The sentence length of the sentence which is currently parsed
+     * @param state
+     *            The label for which to get the estimate.
+     * @param ll
+     *            Left boundary of the first span
+     * @param lr
+     *            Right boundary of the first span
+     * @param rl
+     *            Left boundary of the second span, -1 if there is only one span
+     * @param rr
+     *            Right boundary of the second span, -1 if there is only one span
+     * @return The outside estimate for the provided data
+     */
     abstract public double get(int slen, int state, int ll, int lr, int rl, int rr);
+
+    /**
+     * Whether the estimate is consistent, i.e., whether the estimate of an item plus its inside score never decreases
+     * along a derivation. Only then the order in which the parser derives items of equal priority does not change the
+     * result. The default is false, subclasses override it if they can guarantee it.
+     * 
+     * @return true if the estimate is consistent
+     */
+    public boolean isConsistent() {
+        return false;
+    }
+
+    /**
+     * The range vector of an item of the parser for fan-out two, for estimates which are stored by range vector.
+     * 
+     * @param ll
+     *            Left boundary of the first span
+     * @param lr
+     *            Right boundary of the first span
+     * @param rl
+     *            Left boundary of the second span, -1 if there is only one span
+     * @param rr
+     *            Right boundary of the second span, -1 if there is only one span
+     * @return The range vector
+     */
+    protected static BitSet toVector(int ll, int lr, int rl, int rr) {
+        BitSet ret = new BitSet(rl == -1 ? lr : rr);
+        ret.set(ll, lr);
+        if (rl != -1)
+            ret.set(rl, rr);
+        return ret;
+    }
     
     
     /**
@@ -24,9 +24,14 @@
  ******************************************************************************/
 package de.tuebingen.rparse.grammar.estimates;
 
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
 import de.tuebingen.rparse.grammar.BinaryRCG;
 import de.tuebingen.rparse.grammar.GrammarException;
 import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.misc.ParameterException;
 import de.tuebingen.rparse.treebank.UnknownTaskException;
 
 /**
@@ -89,4 +94,76 @@ public class EstimatesFactory {
 
     }
 
+    /**
+     * Get an estimate with parameters. Only {@link EstimateTypes#SXSIMPLE} takes parameters, see
+     * {@link SXSimple#SXSimple(BinaryRCG, Numberer, int, String)}.
+     * 
+     * @param type
+     *            The desired type
+     * @param bg
+     *            The binary grammar on which to compute the estimate
+     * @param nb
+     *            The numberer of the grammar
+     * @param sentlen
+     *            The maximum sentence length up to which to compute the estimate
+     * @param params
+     *            The parameter string, may be empty
+     * @return The actual estimate
+     * @throws UnknownTaskException
+     *             If there is no such estimate
+     * @throws GrammarException
+     *             If there was a problem with constructing the estimate
+     * @throws ParameterException
+     *             If something is wrong with the parameters
+     */
+    public final static Estimate getEstimates(String type, BinaryRCG bg,
+            Numberer nb, int sentlen, String params)
+            throws UnknownTaskException, GrammarException, ParameterException {
+
+        if (EstimateTypes.SXSIMPLE.equals(type)) {
+            return new SXSimple(bg, nb, sentlen, params);
+        }
+
+        if (params != null && !params.isEmpty()) {
+            throw new ParameterException("Outside estimation method " + type
+                    + " takes no parameters.");
+        }
+
+        return getEstimates(type, bg, nb, sentlen);
+
+    }
+
+    /**
+     * Get an estimate which has been written to a flat model file with
+     * {@link Estimate#writeTables(java.io.DataOutput, java.io.DataOutput)}.
+     * 
+     * @param className
+     *            The class name of the estimate
+     * @param header
+     *            Where to read the small data from
+     * @param ch
+     *            The model file, the tables are mapped from there
+     * @param offset
+     *            The position of the tables in the file
+     * @param nb
+     *            The numberer of the grammar
+     * @return The estimate
+     * @throws UnknownTaskException
+     *             If the estimate cannot be read from a flat model file
+     * @throws IOException
+     *             If something goes wrong during reading
+     */
+    public final static Estimate readTables(String className,
+            DataInput header, FileChannel ch, long offset, Numberer nb)
+            throws UnknownTaskException, IOException {
+
+        if (SXSimple.class.getName().equals(className)) {
+            return new SXSimple(header, ch, offset, nb);
+        }
+
+        throw new UnknownTaskException("Outside estimate " + className
+                + " cannot be read from tables.");
+
+    }
+
 }
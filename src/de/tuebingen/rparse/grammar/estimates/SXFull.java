@@ -74,7 +74,7 @@ public class SXFull extends Estimate {
     
     @Override
     public double get(int slen, int state, int ll, int lr, int rl, int rr) {
-        throw new UnsupportedOperationException("Use SXFullTwo instead");
+        return get(slen, state, toVector(ll, lr, rl, rr), null);
     }
 
     @Override
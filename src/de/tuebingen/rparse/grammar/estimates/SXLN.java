@@ -29,8 +29,8 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.PriorityQueue;
 
-import de.tuebingen.rparse.grammar.BinaryClause;
 import de.tuebingen.rparse.grammar.BinaryRCG;
+import de.tuebingen.rparse.grammar.FrozenBinaryRCG;
 import de.tuebingen.rparse.grammar.GrammarException;
 import de.tuebingen.rparse.grammar.estimates.inside.SimpleInsideEstimates;
 import de.tuebingen.rparse.grammar.estimates.inside.SimpleInsideScoreStore;
@@ -97,6 +97,8 @@ public class SXLN extends Estimate {
             outsidescores.updateScore(nit.state, nit.slen, nit.len, nit.score);
         }
 
+        FrozenBinaryRCG fg = bg.freeze();
+
         while (!agenda.isEmpty()) {
             SXLNItem it = agenda.poll();
             // double oscore = outsidescores.updateScore(it.state, it.len, it.left, it.right, it.gaps, it.score);
@@ -104,64 +106,64 @@ public class SXLN extends Estimate {
                 if (agenda.size() % 1000 == 0)
                     System.err.print("\r agenda size: "
                             + (agenda.size() / 1000) + "k     ");
-                if (bg.clByParent.containsKey(it.state)) {
-                    for (BinaryClause bc : bg.clByParent.get(it.state)) {
-                        if (bc.rc == -1) {
-                            // X --> A
-                            if (outsidescores.getScore(bc.lc, it.slen, it.len) > it.score
-                                    + bc.score) {
-                                SXLNItem nit = new SXLNItem(bc.lc, it.slen,
-                                        it.len, it.score + bc.score);
+                int pend = fg.parentEnd(it.state);
+                for (int p = fg.parentBegin(it.state); p < pend; ++p) {
+                    int ci = fg.byParent[p];
+                    if (fg.rc[ci] == -1) {
+                        // X --> A
+                        if (outsidescores.getScore(fg.lc[ci], it.slen, it.len) > it.score
+                                + fg.score[ci]) {
+                            SXLNItem nit = new SXLNItem(fg.lc[ci], it.slen,
+                                    it.len, it.score + fg.score[ci]);
+                            agenda.add(nit);
+                            outsidescores.updateScore(nit.state, nit.slen,
+                                    nit.len, nit.score);
+                        }
+                    } else {
+                        int lcarity = fg.getArity(fg.lc[ci]);
+                        if (lcarity == -1)
+                            throw new GrammarException(
+                                    "Couldn't determine arity of state "
+                                            + fg.lc[ci]);
+                        int rcarity = fg.getArity(fg.rc[ci]);
+                        if (rcarity == -1)
+                            throw new GrammarException(
+                                    "Couldn't determine arity of state "
+                                            + fg.rc[ci]);
+
+                        // X --> A B
+                        // binary-left
+                        for (int lenA = lcarity; lenA <= it.len - rcarity; ++lenA) {
+                            int lenB = it.len - lenA;
+                            double insidescore = insidescores.getScore(
+                                    fg.rc[ci], lenB);
+                            if (outsidescores
+                                    .getScore(fg.lc[ci], it.slen, lenA) > it.score
+                                    + insidescore + fg.score[ci]) {
+                                SXLNItem nit = new SXLNItem(fg.lc[ci], it.slen,
+                                        lenA, it.score + insidescore
+                                                + fg.score[ci]);
                                 agenda.add(nit);
-                                outsidescores.updateScore(nit.state, nit.slen,
-                                        nit.len, nit.score);
-                            }
-                        } else {
-                            int lcarity = bg.getArity(bc.lc);
-                            if (lcarity == -1)
-                                throw new GrammarException(
-                                        "Couldn't determine arity of state "
-                                                + bc.lc);
-                            int rcarity = bg.getArity(bc.rc);
-                            if (rcarity == -1)
-                                throw new GrammarException(
-                                        "Couldn't determine arity of state "
-                                                + bc.rc);
-
-                            // X --> A B
-                            // binary-left
-                            for (int lenA = lcarity; lenA <= it.len - rcarity; ++lenA) {
-                                int lenB = it.len - lenA;
-                                double insidescore = insidescores.getScore(
-                                        bc.rc, lenB);
-                                if (outsidescores
-                                        .getScore(bc.lc, it.slen, lenA) > it.score
-                                        + insidescore + bc.score) {
-                                    SXLNItem nit = new SXLNItem(bc.lc, it.slen,
-                                            lenA, it.score + insidescore
-                                                    + bc.score);
-                                    agenda.add(nit);
-                                    outsidescores.updateScore(nit.state,
-                                            nit.slen, nit.len, nit.score);
-                                }
+                                outsidescores.updateScore(nit.state,
+                                        nit.slen, nit.len, nit.score);
                             }
+                        }
 
-                            // X --> B A
-                            // binary-right (A is right)
-                            for (int lenA = rcarity; lenA <= it.len - lcarity; ++lenA) {
-                                int lenB = it.len - lenA;
-                                double insidescore = insidescores.getScore(
-                                        bc.lc, lenB);
-                                if (outsidescores
-                                        .getScore(bc.rc, it.slen, lenA) > it.score
-                                        + insidescore + bc.score) {
-                                    SXLNItem nit = new SXLNItem(bc.rc, it.slen,
-                                            lenA, it.score + insidescore
-                                                    + bc.score);
-                                    agenda.add(nit);
-                                    outsidescores.updateScore(nit.state,
-                                            nit.slen, nit.len, nit.score);
-                                }
+                        // X --> B A
+                        // binary-right (A is right)
+                        for (int lenA = rcarity; lenA <= it.len - lcarity; ++lenA) {
+                            int lenB = it.len - lenA;
+                            double insidescore = insidescores.getScore(
+                                    fg.lc[ci], lenB);
+                            if (outsidescores
+                                    .getScore(fg.rc[ci], it.slen, lenA) > it.score
+                                    + insidescore + fg.score[ci]) {
+                                SXLNItem nit = new SXLNItem(fg.rc[ci], it.slen,
+                                        lenA, it.score + insidescore
+                                                + fg.score[ci]);
+                                agenda.add(nit);
+                                outsidescores.updateScore(nit.state,
+                                        nit.slen, nit.len, nit.score);
                             }
                         }
                     }
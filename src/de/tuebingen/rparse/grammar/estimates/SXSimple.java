@@ -24,17 +24,39 @@
  ******************************************************************************/
 package de.tuebingen.rparse.grammar.estimates;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
-import de.tuebingen.rparse.grammar.BinaryClause;
 import de.tuebingen.rparse.grammar.BinaryRCG;
+import de.tuebingen.rparse.grammar.FrozenBinaryRCG;
 import de.tuebingen.rparse.grammar.GrammarException;
 import de.tuebingen.rparse.grammar.estimates.inside.SimpleInsideEstimates;
 import de.tuebingen.rparse.grammar.estimates.inside.SimpleInsideScoreStore;
+import de.tuebingen.rparse.misc.ClassParameters;
 import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.misc.ParameterException;
 
 /**
  * SXSimple estimate from Kallmeyer & Maier (2011), sec. 4.2
@@ -51,18 +73,133 @@ public class SXSimple extends Estimate {
 
     private SXSimpleChart                    outsidescores;
 
+    // label -> index of the state in the chart, replaces countForLabel() on lookup
+    transient private int[]                  stateOf;
+
+    // store the scores in single precision after computing them
+    transient private boolean                single;
+
+    // number of threads for computing the outside scores
+    transient private int                    threads;
+
+    // number of items which have been taken from the agenda and expanded
+    transient private long                   expanded;
+
     public SXSimple(BinaryRCG bg, Numberer nb, int sentlen) {
+        this(bg, nb, sentlen, (ClassParameters) null);
+    }
+
+    /**
+     * Constructor with parameters. Understands "float", which stores the scores in single precision (rounded down,
+     * such that the estimate stays optimistic), "offheap", which keeps the scores outside of the Java heap, and
+     * "threads" with an integer value, the number of threads used to compute the scores (the result does not depend
+     * on it).
+     * 
+     * @param bg
+     *            A binary grammar on which we compute the estimate
+     * @param nb
+     *            The numberer of the grammar
+     * @param sentlen
+     *            The maximum sentence length up to which to compute the estimate.
+     * @param paramstring
+     *            The parameter string
+     * @throws ParameterException
+     *             If there is an error in the parameter string.
+     */
+    public SXSimple(BinaryRCG bg, Numberer nb, int sentlen, String paramstring)
+            throws ParameterException {
+        this(bg, nb, sentlen, parameters(paramstring));
+    }
+
+    private SXSimple(BinaryRCG bg, Numberer nb, int sentlen,
+            ClassParameters params) {
         super(bg, nb, sentlen);
         insidescores = new SimpleInsideScoreStore(nb);
         agenda = new SXSimpleAgenda();
+        single = params != null && params.check("float");
+        threads = 1;
+        if (params != null && params.check("threads")) {
+            try {
+                threads = Integer.valueOf(params.getVal("threads"));
+            } catch (NumberFormatException e) {
+                logger.warning("Ignoring non-integer value for threads: "
+                        + params.getVal("threads"));
+            }
+        }
         this.outsidescores = new SXSimpleChart(sentlen, bg.getPreterminals()
-                .size() + bg.clByParent.keySet().size());
+                .size() + bg.clByParent.keySet().size(), params != null
+                && params.check("offheap"));
+        buildStateIndex();
         logger.info("Computing SX Simple estimate...");
     }
 
+    /**
+     * Read an estimate written with {@link #writeTables(DataOutput, DataOutput)}. The score tables are mapped from
+     * the file and used in place.
+     * 
+     * @param header
+     *            Where to read the small data from
+     * @param ch
+     *            The file with the tables
+     * @param offset
+     *            The position of the tables in the file
+     * @param nb
+     *            The numberer of the grammar
+     * @throws IOException
+     *             If something goes wrong during reading or mapping
+     */
+    public SXSimple(DataInput header, FileChannel ch, long offset, Numberer nb)
+            throws IOException {
+        super(header, nb);
+        int statecnt = header.readInt();
+        boolean single = header.readBoolean();
+        outsidescores = new SXSimpleChart(maxlen, statecnt, single, ch, offset);
+        buildStateIndex();
+    }
+
+    private static ClassParameters parameters(String paramstring)
+            throws ParameterException {
+        ClassParameters params = new ClassParameters();
+        params.add("float", "Store the scores in single precision");
+        params.add("offheap", "Store the scores outside of the Java heap");
+        params.add("threads", "Number of threads for computing the scores");
+        params.parse(paramstring);
+        return params;
+    }
+
+    private void buildStateIndex() {
+        int maxLabel = -1;
+        for (int label : labelToCnt.keySet()) {
+            maxLabel = Math.max(maxLabel, label);
+        }
+        stateOf = new int[maxLabel + 1];
+        Arrays.fill(stateOf, -1);
+        for (int label : labelToCnt.keySet()) {
+            stateOf[label] = labelToCnt.get(label);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        buildStateIndex();
+    }
+
+    @Override
+    public boolean writeTables(DataOutput header, DataOutput tables)
+            throws IOException {
+        writeLabels(header);
+        header.writeInt(outsidescores.statecnt);
+        header.writeBoolean(outsidescores.isSingle());
+        outsidescores.write(tables);
+        return true;
+    }
+
     @Override
     public String getStats() {
-        return "";
+        return outsidescores.size() + " scores in "
+                + (outsidescores.isSingle() ? "single" : "double")
+                + " precision, " + expanded + " items expanded";
     }
 
     @Override
@@ -73,15 +210,26 @@ public class SXSimple extends Estimate {
         int left = vechc.nextSetBit(0);
         int gaps = vechc.length() - len - left;
         int right = slen - len - left - gaps;
-        logger.finest("slen: " + slen + ", len: " + len + ", left: " + left
-                + ", right: " + right + ", gaps: " + gaps);
-        // return outsidescores.store[countForLabel(state)][len][left][right][gaps];
-        return outsidescores.getScore(state, len, left, right, gaps);
+        if (logger.isLoggable(Level.FINEST))
+            logger.finest("slen: " + slen + ", len: " + len + ", left: "
+                    + left + ", right: " + right + ", gaps: " + gaps);
+        return outsidescores.getScore(stateOf[state], len, left, right, gaps);
     }
 
     @Override
     public double get(int slen, int state, int ll, int lr, int rl, int rr) {
-        throw new UnsupportedOperationException("SXSimple not supported for Arity-Two-Parser");
+        if (slen > maxlen)
+            return 0.0;
+        int len = lr - ll;
+        int gaps = 0;
+        int end = lr;
+        if (rl != -1) {
+            len += rr - rl;
+            gaps = rl - lr;
+            end = rr;
+        }
+        return outsidescores.getScore(stateOf[state], len, ll, slen - end,
+                gaps);
     }
 
     @Override
@@ -89,51 +237,270 @@ public class SXSimple extends Estimate {
         SimpleInsideEstimates ie = new SimpleInsideEstimates();
         ie.doInside(bg, insidescores, maxlen);
         logger.info("computing outside probabilities...");
-        doOutside();
+        if (threads > 1)
+            doOutsideParallel();
+        else
+            doOutside();
+        if (single)
+            outsidescores.toSingle();
         logger.info("finished.");
     }
 
-    // state -> len -> left -> right -> gaps -> cost
-    private class SXSimpleChart implements Serializable {
-
-        private static final long serialVersionUID = -5971206204723017708L;
-
-        private double[][][][][]  store;
-
-        public SXSimpleChart(int maxlen, int statecnt) {
-            store = new double[statecnt][][][][];
-            for (int i = 0; i < statecnt; ++i) {
-                store[i] = new double[maxlen + 1][][][];
-                for (int j = 0; j <= maxlen; ++j) {
-                    store[i][j] = new double[maxlen + 1][][];
-                    for (int k = 0; k <= maxlen - j; ++k) {
-                        store[i][j][k] = new double[maxlen + 1][];
-                        for (int l = 0; l <= maxlen - j - k; ++l) {
-                            store[i][j][k][l] = new double[maxlen + 1];
-                            Arrays.fill(store[i][j][k][l],
-                                    Double.POSITIVE_INFINITY);
-                        }
-                    }
+    private double getScore(int state, int length, int left, int right,
+            int gaps) {
+        return outsidescores.getScore(stateOf[state], length, left, right,
+                gaps);
+    }
+
+    private double updateScore(int state, int length, int left, int right,
+            int gaps, double score) {
+        return outsidescores.updateScore(stateOf[state], length, left, right,
+                gaps, score);
+    }
+
+    // state -> len -> left -> right -> gaps -> cost. Only the tuples with len + left + right + gaps <= maxlen can
+    // occur, the scores of a state are a contiguous block of them in which the scores for a length and a left
+    // context form a triangle over right context and gaps. The blocks are spread over buffers of at most 2G bytes,
+    // which are on the heap, off-heap or mapped from a flat model file. The scores are computed in double
+    // precision, they can be shrunk to single precision afterwards.
+    private static class SXSimpleChart implements Serializable {
+
+        private static final long                serialVersionUID       = -5971206204723017708L;
+
+        // the buffers get serialized as arrays, old models have the scores in a ragged array (store)
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("store", double[][][][][].class),
+                new ObjectStreamField("maxlen", Integer.TYPE),
+                new ObjectStreamField("statecnt", Integer.TYPE),
+                new ObjectStreamField("doubles", double[][].class),
+                new ObjectStreamField("floats", float[][].class) };
+
+        private int                              maxlen;
+
+        private int                              statecnt;
+
+        private boolean                          offheap;
+
+        // length -> left -> offset of the triangle in the block of a state
+        private int[][]                          base;
+
+        // size of the block of a state
+        private int                              stateSize;
+
+        // number of states per buffer
+        private int                              statesPerChunk;
+
+        // the scores, exactly one of both is not null
+        private DoubleBuffer[]                   doubles;
+
+        private FloatBuffer[]                    floats;
+
+        public SXSimpleChart(int maxlen, int statecnt, boolean offheap) {
+            this.offheap = offheap;
+            init(maxlen, statecnt, Double.SIZE / 8);
+            doubles = new DoubleBuffer[chunks()];
+            for (int c = 0; c < doubles.length; ++c) {
+                doubles[c] = allocate(states(c) * stateSize * (Double.SIZE / 8))
+                        .asDoubleBuffer();
+                for (int i = 0; i < doubles[c].capacity(); ++i) {
+                    doubles[c].put(i, Double.POSITIVE_INFINITY);
                 }
             }
         }
 
-        public double updateScore(int state, int length, int left, int right,
+        public SXSimpleChart(int maxlen, int statecnt, boolean single,
+                FileChannel ch, long offset) throws IOException {
+            int width = single ? Float.SIZE / 8 : Double.SIZE / 8;
+            init(maxlen, statecnt, width);
+            if (single)
+                floats = new FloatBuffer[chunks()];
+            else
+                doubles = new DoubleBuffer[chunks()];
+            for (int c = 0; c < chunks(); ++c) {
+                long bytes = (long) states(c) * stateSize * width;
+                ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, offset,
+                        bytes);
+                if (single)
+                    floats[c] = b.asFloatBuffer();
+                else
+                    doubles[c] = b.asDoubleBuffer();
+                offset += bytes;
+            }
+        }
+
+        private void init(int maxlen, int statecnt, int width) {
+            this.maxlen = maxlen;
+            this.statecnt = statecnt;
+            base = new int[maxlen + 1][];
+            stateSize = 0;
+            for (int j = 0; j <= maxlen; ++j) {
+                base[j] = new int[maxlen + 1 - j];
+                for (int k = 0; k <= maxlen - j; ++k) {
+                    base[j][k] = stateSize;
+                    int m = maxlen - j - k;
+                    stateSize += (m + 1) * (m + 2) / 2;
+                }
+            }
+            statesPerChunk = Integer.MAX_VALUE / width / stateSize;
+            if (statesPerChunk == 0)
+                throw new IllegalArgumentException("SX estimate for length "
+                        + maxlen + " too large");
+        }
+
+        private int chunks() {
+            return (statecnt + statesPerChunk - 1) / statesPerChunk;
+        }
+
+        // number of states in a buffer
+        private int states(int chunk) {
+            return Math.min(statesPerChunk, statecnt - chunk * statesPerChunk);
+        }
+
+        private ByteBuffer allocate(int bytes) {
+            if (offheap)
+                return ByteBuffer.allocateDirect(bytes).order(
+                        ByteOrder.nativeOrder());
+            return ByteBuffer.allocate(bytes);
+        }
+
+        // position of a score in the buffer of its state
+        private int index(int cnt, int length, int left, int right, int gaps) {
+            int m = maxlen - length - left;
+            return (cnt % statesPerChunk) * stateSize + base[length][left]
+                    + right * (m + 1) - right * (right - 1) / 2 + gaps;
+        }
+
+        public double updateScore(int cnt, int length, int left, int right,
                 int gaps, double score) {
-            score = Math.min(
-                    store[countForLabel(state)][length][left][right][gaps],
-                    score);
-            store[countForLabel(state)][length][left][right][gaps] = score;
+            if (length + left + right + gaps > maxlen)
+                return score;
+            DoubleBuffer b = doubles[cnt / statesPerChunk];
+            int i = index(cnt, length, left, right, gaps);
+            score = Math.min(b.get(i), score);
+            b.put(i, score);
             return score;
         }
 
-        public double getScore(int state, int length, int left, int right,
+        public double getScore(int cnt, int length, int left, int right,
                 int gaps) {
-            logger.finest("len: " + length + ", l: " + left + ", r " + right
-                    + ", gaps " + gaps);
             if (length + left + right + gaps > maxlen)
                 return 0.0;
-            return store[countForLabel(state)][length][left][right][gaps];
+            if (doubles != null)
+                return doubles[cnt / statesPerChunk].get(index(cnt, length,
+                        left, right, gaps));
+            return floats[cnt / statesPerChunk].get(index(cnt, length, left,
+                    right, gaps));
+        }
+
+        public boolean isSingle() {
+            return floats != null;
+        }
+
+        public long size() {
+            return (long) statecnt * stateSize;
+        }
+
+        // shrink the scores to single precision, rounding down such that the estimate stays optimistic
+        public void toSingle() {
+            if (floats != null)
+                return;
+            floats = new FloatBuffer[doubles.length];
+            for (int c = 0; c < doubles.length; ++c) {
+                floats[c] = allocate(states(c) * stateSize * (Float.SIZE / 8))
+                        .asFloatBuffer();
+                for (int i = 0; i < floats[c].capacity(); ++i) {
+                    double d = doubles[c].get(i);
+                    float f = (float) d;
+                    if (f > d)
+                        f = Math.nextAfter(f, Double.NEGATIVE_INFINITY);
+                    floats[c].put(i, f);
+                }
+            }
+            doubles = null;
+        }
+
+        // write the scores in the layout of the buffers
+        public void write(DataOutput out) throws IOException {
+            for (int c = 0; c < chunks(); ++c) {
+                int n = states(c) * stateSize;
+                for (int i = 0; i < n; ++i) {
+                    if (doubles != null)
+                        out.writeDouble(doubles[c].get(i));
+                    else
+                        out.writeFloat(floats[c].get(i));
+                }
+            }
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            ObjectOutputStream.PutField fields = out.putFields();
+            fields.put("maxlen", maxlen);
+            fields.put("statecnt", statecnt);
+            if (doubles != null) {
+                double[][] a = new double[doubles.length][];
+                for (int c = 0; c < a.length; ++c) {
+                    a[c] = new double[doubles[c].capacity()];
+                    DoubleBuffer b = doubles[c].duplicate();
+                    b.rewind();
+                    b.get(a[c]);
+                }
+                fields.put("doubles", a);
+            } else {
+                float[][] a = new float[floats.length][];
+                for (int c = 0; c < a.length; ++c) {
+                    a[c] = new float[floats[c].capacity()];
+                    FloatBuffer b = floats[c].duplicate();
+                    b.rewind();
+                    b.get(a[c]);
+                }
+                fields.put("floats", a);
+            }
+            out.writeFields();
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException,
+                ClassNotFoundException {
+            ObjectInputStream.GetField fields = in.readFields();
+            double[][][][][] store = (double[][][][][]) fields.get("store",
+                    null);
+            if (store != null) {
+                // old model, copy the ragged array
+                init(store.length > 0 ? store[0].length - 1 : 0, store.length,
+                        Double.SIZE / 8);
+                doubles = new DoubleBuffer[chunks()];
+                for (int c = 0; c < doubles.length; ++c) {
+                    doubles[c] = DoubleBuffer.allocate(states(c) * stateSize);
+                }
+                for (int i = 0; i < statecnt; ++i) {
+                    for (int j = 0; j <= maxlen; ++j) {
+                        for (int k = 0; k <= maxlen - j; ++k) {
+                            for (int l = 0; l <= maxlen - j - k; ++l) {
+                                for (int m = 0; m <= maxlen - j - k - l; ++m) {
+                                    doubles[i / statesPerChunk].put(
+                                            index(i, j, k, l, m),
+                                            store[i][j][k][l][m]);
+                                }
+                            }
+                        }
+                    }
+                }
+                return;
+            }
+            double[][] d = (double[][]) fields.get("doubles", null);
+            float[][] f = (float[][]) fields.get("floats", null);
+            init(fields.get("maxlen", 0), fields.get("statecnt", 0),
+                    d != null ? Double.SIZE / 8 : Float.SIZE / 8);
+            if (d != null) {
+                doubles = new DoubleBuffer[d.length];
+                for (int c = 0; c < d.length; ++c) {
+                    doubles[c] = DoubleBuffer.wrap(d[c]);
+                }
+            } else {
+                floats = new FloatBuffer[f.length];
+                for (int c = 0; c < f.length; ++c) {
+                    floats[c] = FloatBuffer.wrap(f[c]);
+                }
+            }
         }
 
     }
@@ -218,168 +585,222 @@ public class SXSimple extends Estimate {
             SXSimpleItem nit = new SXSimpleItem(bg.startSymbol, len, 0, 0, 0,
                     0.0);
             agenda.add(nit);
-            outsidescores.updateScore(nit.state, nit.len, nit.left, nit.right,
+            updateScore(nit.state, nit.len, nit.left, nit.right,
                     nit.gaps, nit.score);
         }
 
+        FrozenBinaryRCG fg = bg.freeze();
+
         while (!agenda.isEmpty()) {
             SXSimpleItem it = agenda.poll();
-            // double oscore = outsidescores.updateScore(it.state, it.len, it.left, it.right, it.gaps, it.score);
-            if (it.score == outsidescores.getScore(it.state, it.len, it.left,
-                    it.right, it.gaps)) {
+            if (expand(it, fg, agenda)) {
+                ++expanded;
                 if (agenda.size() % 1000 == 0)
                     System.err.print("\r agenda size: "
                             + (agenda.size() / 1000) + "k     ");
-                int totlen = it.len + it.left + it.right + it.gaps;
-                if (bg.clByParent.containsKey(it.state)) {
-                    for (BinaryClause bc : bg.clByParent.get(it.state)) {
-                        if (bc.rc == -1) {
-                            // X --> A
-                            if (outsidescores.getScore(bc.lc, it.len, it.left,
-                                    it.right, it.gaps) < it.score + bc.score) {
-                                SXSimpleItem nit = new SXSimpleItem(bc.lc,
-                                        it.len, it.left, it.right, it.gaps,
-                                        it.score + bc.score);
-                                agenda.add(nit);
-                                outsidescores.updateScore(nit.state, nit.len,
-                                        nit.left, nit.right, nit.gaps,
-                                        nit.score);
-                            }
-                        } else {
-                            // X --> A B
-                            int addGaps = 0;
-                            int addRight = 0;
-                            boolean stopAddRight = false;
-                            for (int i = bc.yf.length - 1; i >= 0; --i) {
-                                for (int j = bc.yf[i].length - 1; j >= 0; --j) {
-                                    if (!stopAddRight && !bc.yf[i][j])
-                                        stopAddRight = true;
-                                    if (bc.yf[i][j]) {
-                                        if (!stopAddRight)
-                                            ++addRight;
-                                        else
-                                            ++addGaps;
-                                    }
-                                }
-                            }
-                            int arity = bg.getArity(bc.lc);
-                            if (arity == -1)
-                                throw new GrammarException(
-                                        "Couldn't determine arity of state "
-                                                + bc.lc);
-                            for (int lenA = arity; lenA < it.len; ++lenA) {
-                                int lenB = it.len - lenA;
-                                // System.err.println("len " + (lenA + lenB) + ", lena: " + lenA + ", lenb: " + lenB);
-                                double insidescore = insidescores.getScore(
-                                        bc.rc, lenB);
-                                int la = it.left;
-                                for (int ga = arity - 1; ga <= totlen; ++ga) {
-                                    for (int ra = it.right + addRight; ra <= totlen
-                                            - ga; ++ra) {
-                                        if (lenA + la + ra + ga == it.len
-                                                + it.left + it.right + it.gaps
-                                                && la == it.left
-                                                && ((addRight > 0 && ra >= it.right
-                                                        + addRight) || (addRight == 0 && ra == it.right))
-                                                && ga >= addGaps) {
-                                            if (outsidescores.getScore(bc.lc,
-                                                    lenA, la, ra, ga) < it.score
-                                                    + insidescore + bc.score) {
-                                                SXSimpleItem nit = new SXSimpleItem(
-                                                        bc.lc, lenA, la, ra,
-                                                        ga, it.score
-                                                                + insidescore
-                                                                + bc.score);
-                                                agenda.add(nit);
-                                                outsidescores.updateScore(
-                                                        nit.state, nit.len,
-                                                        nit.left, nit.right,
-                                                        nit.gaps, nit.score);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
+            }
+        }
+    }
 
-                            // X --> B A
-                            int addLeft = 0;
-                            addRight = 0;
-                            addGaps = 0;
-                            boolean stopAddLeft = false;
-                            for (int i = 0; i < bc.yf.length; ++i) {
-                                for (int j = 0; j < bc.yf[i].length; ++j) {
-                                    if (!stopAddLeft && bc.yf[i][j])
-                                        stopAddLeft = true;
-                                    if (!bc.yf[i][j]) {
-                                        if (stopAddLeft) {
-                                            ++addGaps;
-                                        } else {
-                                            ++addLeft;
-                                        }
-                                    }
+    /*
+     * Items only lead to items with the same len + left + right + gaps, and the scores for different sums are
+     * disjoint parts of the chart. Therefore, the computation can be split by this sum, without any synchronization
+     * on the chart. Each length has its own agenda, which processes the same items as the common agenda of the
+     * sequential computation, such that the scores are the same.
+     */
+    private void doOutsideParallel() throws GrammarException {
+        final FrozenBinaryRCG fg = bg.freeze();
+        final AtomicInteger done = new AtomicInteger(0);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> results = new ArrayList<Future<Long>>();
+        // longest first, they take longest
+        for (int len = maxlen; len >= 1; --len) {
+            final int totlen = len;
+            results.add(pool.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws GrammarException {
+                    SXSimpleAgenda lenagenda = new SXSimpleAgenda();
+                    SXSimpleItem nit = new SXSimpleItem(bg.startSymbol,
+                            totlen, 0, 0, 0, 0.0);
+                    lenagenda.add(nit);
+                    updateScore(nit.state, nit.len, nit.left, nit.right,
+                            nit.gaps, nit.score);
+                    long cnt = 0;
+                    while (!lenagenda.isEmpty()) {
+                        if (expand(lenagenda.poll(), fg, lenagenda))
+                            ++cnt;
+                    }
+                    logger.info("length " + totlen + " finished, " + cnt
+                            + " items expanded (" + done.incrementAndGet()
+                            + "/" + maxlen + ")");
+                    return cnt;
+                }
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<Long> result : results) {
+                expanded += result.get();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            throw new GrammarException("Interrupted while computing estimate");
+        } catch (ExecutionException e) {
+            pool.shutdownNow();
+            if (e.getCause() instanceof GrammarException)
+                throw (GrammarException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // process an item from an agenda, returns false if the item has been superseded
+    private boolean expand(SXSimpleItem it, FrozenBinaryRCG fg,
+            SXSimpleAgenda agenda) throws GrammarException {
+        // double oscore = outsidescores.updateScore(it.state, it.len, it.left, it.right, it.gaps, it.score);
+        if (it.score != getScore(it.state, it.len, it.left, it.right, it.gaps))
+            return false;
+        int totlen = it.len + it.left + it.right + it.gaps;
+        int pend = fg.parentEnd(it.state);
+        for (int p = fg.parentBegin(it.state); p < pend; ++p) {
+            int ci = fg.byParent[p];
+            if (fg.rc[ci] == -1) {
+                // X --> A
+                if (getScore(fg.lc[ci], it.len, it.left,
+                        it.right, it.gaps) < it.score + fg.score[ci]) {
+                    SXSimpleItem nit = new SXSimpleItem(fg.lc[ci],
+                            it.len, it.left, it.right, it.gaps,
+                            it.score + fg.score[ci]);
+                    agenda.add(nit);
+                    updateScore(nit.state, nit.len,
+                            nit.left, nit.right, nit.gaps,
+                            nit.score);
+                }
+            } else {
+                // X --> A B
+                int addGaps = 0;
+                int addRight = 0;
+                boolean stopAddRight = false;
+                for (int i = fg.yfs[fg.yfId[ci]].length - 1; i >= 0; --i) {
+                    for (int j = fg.yfs[fg.yfId[ci]][i].length - 1; j >= 0; --j) {
+                        if (!stopAddRight && !fg.yfs[fg.yfId[ci]][i][j])
+                            stopAddRight = true;
+                        if (fg.yfs[fg.yfId[ci]][i][j]) {
+                            if (!stopAddRight)
+                                ++addRight;
+                            else
+                                ++addGaps;
+                        }
+                    }
+                }
+                int arity = fg.getArity(fg.lc[ci]);
+                if (arity == -1)
+                    throw new GrammarException(
+                            "Couldn't determine arity of state "
+                                    + fg.lc[ci]);
+                for (int lenA = arity; lenA < it.len; ++lenA) {
+                    int lenB = it.len - lenA;
+                    // System.err.println("len " + (lenA + lenB) + ", lena: " + lenA + ", lenb: " + lenB);
+                    double insidescore = insidescores.getScore(
+                            fg.rc[ci], lenB);
+                    int la = it.left;
+                    for (int ga = arity - 1; ga <= totlen; ++ga) {
+                        for (int ra = it.right + addRight; ra <= totlen
+                                - ga; ++ra) {
+                            if (lenA + la + ra + ga == it.len
+                                    + it.left + it.right + it.gaps
+                                    && la == it.left
+                                    && ((addRight > 0 && ra >= it.right
+                                            + addRight) || (addRight == 0 && ra == it.right))
+                                    && ga >= addGaps) {
+                                if (getScore(fg.lc[ci],
+                                        lenA, la, ra, ga) < it.score
+                                        + insidescore + fg.score[ci]) {
+                                    SXSimpleItem nit = new SXSimpleItem(
+                                            fg.lc[ci], lenA, la, ra,
+                                            ga, it.score
+                                                    + insidescore
+                                                    + fg.score[ci]);
+                                    agenda.add(nit);
+                                    updateScore(
+                                            nit.state, nit.len,
+                                            nit.left, nit.right,
+                                            nit.gaps, nit.score);
                                 }
                             }
-                            stopAddRight = false;
-                            for (int i = bc.yf.length - 1; i >= 0; --i) {
-                                for (int j = bc.yf[i].length - 1; j >= 0; --j) {
-                                    if (!stopAddRight && bc.yf[i][j])
-                                        stopAddRight = true;
-                                    if (!bc.yf[i][j]) {
-                                        if (!stopAddRight)
-                                            ++addRight;
-                                    }
-                                }
+                        }
+                    }
+                }
+
+                // X --> B A
+                int addLeft = 0;
+                addRight = 0;
+                addGaps = 0;
+                boolean stopAddLeft = false;
+                for (int i = 0; i < fg.yfs[fg.yfId[ci]].length; ++i) {
+                    for (int j = 0; j < fg.yfs[fg.yfId[ci]][i].length; ++j) {
+                        if (!stopAddLeft && fg.yfs[fg.yfId[ci]][i][j])
+                            stopAddLeft = true;
+                        if (!fg.yfs[fg.yfId[ci]][i][j]) {
+                            if (stopAddLeft) {
+                                ++addGaps;
+                            } else {
+                                ++addLeft;
                             }
-                            addGaps -= addRight;
-
-                            arity = bg.getArity(bc.rc);
-                            if (arity == -1)
-                                throw new GrammarException(
-                                        "Couldn't determine arity of state "
-                                                + bc.lc);
-                            for (int lenA = arity; lenA < it.len; ++lenA) {
-                                int lenB = it.len - lenA;
-                                double insidescore = insidescores.getScore(
-                                        bc.lc, lenB);
-                                // int ra = it.right;
-                                for (int ga = arity - 1; ga <= totlen; ++ga) {
-                                    for (int la = it.left + addLeft; la <= totlen
-                                            - ga; ++la) {
-                                        for (int ra = it.right + addRight; ra <= totlen
-                                                - la - ga; ++ra) {
-                                            if (lenA + la + ra + ga == it.len
-                                                    + it.left + it.right
-                                                    + it.gaps
-                                                    && la >= it.left + addLeft
-                                                    && ((addRight > 0 && ra >= it.right
-                                                            + addRight) || (addRight == 0 && ra == it.right))
-                                                    && ga >= addGaps) {
-                                                if (outsidescores
-                                                        .getScore(bc.rc, lenA,
-                                                                la, ra, ga) < it.score
+                        }
+                    }
+                }
+                stopAddRight = false;
+                for (int i = fg.yfs[fg.yfId[ci]].length - 1; i >= 0; --i) {
+                    for (int j = fg.yfs[fg.yfId[ci]][i].length - 1; j >= 0; --j) {
+                        if (!stopAddRight && fg.yfs[fg.yfId[ci]][i][j])
+                            stopAddRight = true;
+                        if (!fg.yfs[fg.yfId[ci]][i][j]) {
+                            if (!stopAddRight)
+                                ++addRight;
+                        }
+                    }
+                }
+                addGaps -= addRight;
+
+                arity = fg.getArity(fg.rc[ci]);
+                if (arity == -1)
+                    throw new GrammarException(
+                            "Couldn't determine arity of state "
+                                    + fg.lc[ci]);
+                for (int lenA = arity; lenA < it.len; ++lenA) {
+                    int lenB = it.len - lenA;
+                    double insidescore = insidescores.getScore(
+                            fg.lc[ci], lenB);
+                    // int ra = it.right;
+                    for (int ga = arity - 1; ga <= totlen; ++ga) {
+                        for (int la = it.left + addLeft; la <= totlen
+                                - ga; ++la) {
+                            for (int ra = it.right + addRight; ra <= totlen
+                                    - la - ga; ++ra) {
+                                if (lenA + la + ra + ga == it.len
+                                        + it.left + it.right
+                                        + it.gaps
+                                        && la >= it.left + addLeft
+                                        && ((addRight > 0 && ra >= it.right
+                                                + addRight) || (addRight == 0 && ra == it.right))
+                                        && ga >= addGaps) {
+                                    if (getScore(fg.rc[ci], lenA,
+                                                    la, ra, ga) < it.score
+                                            + insidescore
+                                            + fg.score[ci]) {
+                                        SXSimpleItem nit = new SXSimpleItem(
+                                                fg.rc[ci],
+                                                lenA,
+                                                la,
+                                                ra,
+                                                ga,
+                                                it.score
                                                         + insidescore
-                                                        + bc.score) {
-                                                    SXSimpleItem nit = new SXSimpleItem(
-                                                            bc.rc,
-                                                            lenA,
-                                                            la,
-                                                            ra,
-                                                            ga,
-                                                            it.score
-                                                                    + insidescore
-                                                                    + bc.score);
-                                                    agenda.add(nit);
-                                                    outsidescores
-                                                            .updateScore(
-                                                                    nit.state,
-                                                                    nit.len,
-                                                                    nit.left,
-                                                                    nit.right,
-                                                                    nit.gaps,
-                                                                    nit.score);
-                                                }
-                                            }
-                                        }
+                                                        + fg.score[ci]);
+                                        agenda.add(nit);
+                                        updateScore(nit.state, nit.len,
+                                                nit.left, nit.right, nit.gaps,
+                                                nit.score);
                                     }
                                 }
                             }
@@ -388,6 +809,7 @@ public class SXSimple extends Estimate {
                 }
             }
         }
+        return true;
     }
 
 }
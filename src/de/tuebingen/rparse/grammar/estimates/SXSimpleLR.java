@@ -29,8 +29,8 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.PriorityQueue;
 
-import de.tuebingen.rparse.grammar.BinaryClause;
 import de.tuebingen.rparse.grammar.BinaryRCG;
+import de.tuebingen.rparse.grammar.FrozenBinaryRCG;
 import de.tuebingen.rparse.grammar.GrammarConstants;
 import de.tuebingen.rparse.grammar.GrammarException;
 import de.tuebingen.rparse.grammar.estimates.inside.SimpleInsideEstimates;
@@ -83,7 +83,17 @@ public class SXSimpleLR extends Estimate {
 
     @Override
     public double get(int slen, int state, int ll, int lr, int rl, int rr) {
-        throw new UnsupportedOperationException("SXSimpleLR not supported for arity-two-parser");
+        if (slen > maxlen)
+            return 0.0;
+        int len = lr - ll;
+        int gaps = 0;
+        int end = lr;
+        if (rl != -1) {
+            len += rr - rl;
+            gaps = rl - lr;
+            end = rr;
+        }
+        return outsidescores.getScore(state, len, ll + slen - end, gaps);
     }
 
     @Override
@@ -212,6 +222,8 @@ public class SXSimpleLR extends Estimate {
                     nit.score);
         }
 
+        FrozenBinaryRCG fg = bg.freeze();
+
         while (!agenda.isEmpty()) {
             SXSimpleLRItem it = agenda.poll();
             // double oscore = outsidescores.updateScore(it.state, it.len, it.left, it.right, it.gaps, it.score);
@@ -220,136 +232,136 @@ public class SXSimpleLR extends Estimate {
                 logger.finer("\r agenda size: " + (agenda.size() / 1000)
                         + "k     ");
                 int totlen = it.len + it.lr + it.gaps;
-                if (bg.clByParent.containsKey(it.state)) {
-                    for (BinaryClause bc : bg.clByParent.get(it.state)) {
-                        if (bc.rc == -1) {
-                            // X --> A
-                            if (outsidescores.getScore(bc.lc, it.len, it.lr,
-                                    it.gaps) > it.score + bc.score) {
-                                SXSimpleLRItem nit = new SXSimpleLRItem(bc.lc, it.len, it.lr,
-                                        it.gaps, it.score + bc.score);
-                                agenda.add(nit);
-                                outsidescores.updateScore(nit.state, nit.len,
-                                        nit.lr, nit.gaps, nit.score);
-                            }
-                        } else {
-                            // X --> A B
-                            int addGaps = 0;
-                            int addRight = 0;
-                            boolean stopAddRight = false;
-                            for (int i = bc.yf.length - 1; i >= 0; --i) {
-                                for (int j = bc.yf[i].length - 1; j >= 0; --j) {
-                                    if (!stopAddRight && !bc.yf[i][j])
-                                        stopAddRight = true;
-                                    if (bc.yf[i][j]) {
-                                        if (!stopAddRight)
-                                            ++addRight;
-                                        else
-                                            ++addGaps;
-                                    }
+                int pend = fg.parentEnd(it.state);
+                for (int p = fg.parentBegin(it.state); p < pend; ++p) {
+                    int ci = fg.byParent[p];
+                    if (fg.rc[ci] == -1) {
+                        // X --> A
+                        if (outsidescores.getScore(fg.lc[ci], it.len, it.lr,
+                                it.gaps) > it.score + fg.score[ci]) {
+                            SXSimpleLRItem nit = new SXSimpleLRItem(fg.lc[ci], it.len, it.lr,
+                                    it.gaps, it.score + fg.score[ci]);
+                            agenda.add(nit);
+                            outsidescores.updateScore(nit.state, nit.len,
+                                    nit.lr, nit.gaps, nit.score);
+                        }
+                    } else {
+                        // X --> A B
+                        int addGaps = 0;
+                        int addRight = 0;
+                        boolean stopAddRight = false;
+                        for (int i = fg.yfs[fg.yfId[ci]].length - 1; i >= 0; --i) {
+                            for (int j = fg.yfs[fg.yfId[ci]][i].length - 1; j >= 0; --j) {
+                                if (!stopAddRight && !fg.yfs[fg.yfId[ci]][i][j])
+                                    stopAddRight = true;
+                                if (fg.yfs[fg.yfId[ci]][i][j]) {
+                                    if (!stopAddRight)
+                                        ++addRight;
+                                    else
+                                        ++addGaps;
                                 }
                             }
+                        }
 
-                            int lcarity = bg.getArity(bc.lc);
-                            if (lcarity == -1)
-                                throw new GrammarException(
-                                        "Couldn't determine arity of state "
-                                                + nb.getObjectWithId(
-                                                        GrammarConstants.PREDLABEL,
-                                                        bc.lc));
-                            int rcarity = bg.getArity(bc.rc);
-                            if (rcarity == -1)
-                                throw new GrammarException(
-                                        "Couldn't determine arity of state "
-                                                + nb.getObjectWithId(
-                                                        GrammarConstants.PREDLABEL,
-                                                        bc.rc));
-
-                            for (int lenA = lcarity; lenA <= it.len - rcarity; ++lenA) {
-                                int lenB = it.len - lenA;
-
-                                // binary-left
-                                double insidescore = insidescores.getScore(
-                                        bc.rc, lenB);
-                                for (int lr = it.lr; lr <= it.lr + lenB; ++lr) {
-                                    if (addRight == 0 && !(lr == it.lr))
-                                        continue;
-                                    for (int ga = lcarity - 1; ga <= totlen; ++ga) {
-                                        if (lenA + lr + ga == it.len + it.lr
-                                                + it.gaps
-                                                && ga >= addGaps) {
-                                            if (outsidescores.getScore(bc.lc,
-                                                    lenA, lr, ga) > it.score
-                                                    + insidescore + bc.score) {
-                                                SXSimpleLRItem nit = new SXSimpleLRItem(bc.lc,
-                                                        lenA, lr, ga, it.score
-                                                                + insidescore
-                                                                + bc.score);
-                                                agenda.add(nit);
-                                                outsidescores.updateScore(
-                                                        nit.state, nit.len,
-                                                        nit.lr, nit.gaps,
-                                                        nit.score);
-                                            }
+                        int lcarity = fg.getArity(fg.lc[ci]);
+                        if (lcarity == -1)
+                            throw new GrammarException(
+                                    "Couldn't determine arity of state "
+                                            + nb.getObjectWithId(
+                                                    GrammarConstants.PREDLABEL,
+                                                    fg.lc[ci]));
+                        int rcarity = fg.getArity(fg.rc[ci]);
+                        if (rcarity == -1)
+                            throw new GrammarException(
+                                    "Couldn't determine arity of state "
+                                            + nb.getObjectWithId(
+                                                    GrammarConstants.PREDLABEL,
+                                                    fg.rc[ci]));
+
+                        for (int lenA = lcarity; lenA <= it.len - rcarity; ++lenA) {
+                            int lenB = it.len - lenA;
+
+                            // binary-left
+                            double insidescore = insidescores.getScore(
+                                    fg.rc[ci], lenB);
+                            for (int lr = it.lr; lr <= it.lr + lenB; ++lr) {
+                                if (addRight == 0 && !(lr == it.lr))
+                                    continue;
+                                for (int ga = lcarity - 1; ga <= totlen; ++ga) {
+                                    if (lenA + lr + ga == it.len + it.lr
+                                            + it.gaps
+                                            && ga >= addGaps) {
+                                        if (outsidescores.getScore(fg.lc[ci],
+                                                lenA, lr, ga) > it.score
+                                                + insidescore + fg.score[ci]) {
+                                            SXSimpleLRItem nit = new SXSimpleLRItem(fg.lc[ci],
+                                                    lenA, lr, ga, it.score
+                                                            + insidescore
+                                                            + fg.score[ci]);
+                                            agenda.add(nit);
+                                            outsidescores.updateScore(
+                                                    nit.state, nit.len,
+                                                    nit.lr, nit.gaps,
+                                                    nit.score);
                                         }
                                     }
                                 }
                             }
+                        }
 
-                            // X --> B A
-                            // int addLeft = 0;
-                            addRight = 0;
-                            addGaps = 0;
-                            boolean stopAddLeft = false;
-                            for (int i = 0; i < bc.yf.length; ++i) {
-                                for (int j = 0; j < bc.yf[i].length; ++j) {
-                                    if (!stopAddLeft && bc.yf[i][j])
-                                        stopAddLeft = true;
-                                    if (!bc.yf[i][j]) {
-                                        if (stopAddLeft) {
-                                            ++addGaps;
-                                        } else {
-                                            // ++addLeft;
-                                        }
+                        // X --> B A
+                        // int addLeft = 0;
+                        addRight = 0;
+                        addGaps = 0;
+                        boolean stopAddLeft = false;
+                        for (int i = 0; i < fg.yfs[fg.yfId[ci]].length; ++i) {
+                            for (int j = 0; j < fg.yfs[fg.yfId[ci]][i].length; ++j) {
+                                if (!stopAddLeft && fg.yfs[fg.yfId[ci]][i][j])
+                                    stopAddLeft = true;
+                                if (!fg.yfs[fg.yfId[ci]][i][j]) {
+                                    if (stopAddLeft) {
+                                        ++addGaps;
+                                    } else {
+                                        // ++addLeft;
                                     }
                                 }
                             }
-                            stopAddRight = false;
-                            for (int i = bc.yf.length - 1; i >= 0; --i) {
-                                for (int j = bc.yf[i].length - 1; j >= 0; --j) {
-                                    if (!stopAddRight && bc.yf[i][j])
-                                        stopAddRight = true;
-                                    if (!bc.yf[i][j]) {
-                                        if (!stopAddRight)
-                                            ++addRight;
-                                    }
+                        }
+                        stopAddRight = false;
+                        for (int i = fg.yfs[fg.yfId[ci]].length - 1; i >= 0; --i) {
+                            for (int j = fg.yfs[fg.yfId[ci]][i].length - 1; j >= 0; --j) {
+                                if (!stopAddRight && fg.yfs[fg.yfId[ci]][i][j])
+                                    stopAddRight = true;
+                                if (!fg.yfs[fg.yfId[ci]][i][j]) {
+                                    if (!stopAddRight)
+                                        ++addRight;
                                 }
                             }
-                            addGaps -= addRight;
-
-                            // binary-right (A is right)
-                            for (int lenA = rcarity; lenA <= it.len - lcarity; ++lenA) {
-                                int lenB = it.len - lenA;
-                                double insidescore = insidescores.getScore(
-                                        bc.lc, lenB);
-                                for (int lr = it.lr; lr <= it.lr + lenB; ++lr) {
-                                    for (int ga = rcarity - 1; ga <= totlen; ++ga) {
-                                        if (lenA + lr + ga == it.len + it.lr
-                                                + it.gaps
-                                                && ga >= addGaps) {
-                                            if (outsidescores.getScore(bc.rc,
-                                                    lenA, lr, ga) > it.score
-                                                    + insidescore + bc.score) {
-                                                SXSimpleLRItem nit = new SXSimpleLRItem(bc.rc,
-                                                        lenA, lr, ga, it.score
-                                                                + insidescore
-                                                                + bc.score);
-                                                agenda.add(nit);
-                                                outsidescores.updateScore(
-                                                        nit.state, nit.len,
-                                                        nit.lr, nit.gaps,
-                                                        nit.score);
-                                            }
+                        }
+                        addGaps -= addRight;
+
+                        // binary-right (A is right)
+                        for (int lenA = rcarity; lenA <= it.len - lcarity; ++lenA) {
+                            int lenB = it.len - lenA;
+                            double insidescore = insidescores.getScore(
+                                    fg.lc[ci], lenB);
+                            for (int lr = it.lr; lr <= it.lr + lenB; ++lr) {
+                                for (int ga = rcarity - 1; ga <= totlen; ++ga) {
+                                    if (lenA + lr + ga == it.len + it.lr
+                                            + it.gaps
+                                            && ga >= addGaps) {
+                                        if (outsidescores.getScore(fg.rc[ci],
+                                                lenA, lr, ga) > it.score
+                                                + insidescore + fg.score[ci]) {
+                                            SXSimpleLRItem nit = new SXSimpleLRItem(fg.rc[ci],
+                                                    lenA, lr, ga, it.score
+                                                            + insidescore
+                                                            + fg.score[ci]);
+                                            agenda.add(nit);
+                                            outsidescores.updateScore(
+                                                    nit.state, nit.len,
+                                                    nit.lr, nit.gaps,
+                                                    nit.score);
                                         }
                                     }
                                 }
@@ -29,8 +29,8 @@ import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
 
-import de.tuebingen.rparse.grammar.BinaryClause;
 import de.tuebingen.rparse.grammar.BinaryRCG;
+import de.tuebingen.rparse.grammar.FrozenBinaryRCG;
 import de.tuebingen.rparse.grammar.GrammarException;
 
 /**
@@ -73,54 +73,52 @@ public class InsideEstimates {
             agenda.add(it);
         }
         List<InsideItem> transport = new ArrayList<InsideItem>();
+        FrozenBinaryRCG fg = bg.freeze();
         while (!agenda.isEmpty()) {
             it = agenda.poll();
             if (agenda.size() % 1000 == 0)
                 logger.finer("\r Agenda size: " + agenda.size() / 1000 + "k   ");
             insidescores.updateScore(it.label, it.vec, it.score);
             // left child
-            if (bg.clByLc.containsKey(it.label)) {
-                if (bg.clByLc.containsKey(it.label)) {
-                    for (BinaryClause bc : bg.clByLc.get(it.label)) {
-                        double lcscore = it.score;
-                        if (bc.rc != -1) {
-                            // non-unary
-                            if (insidescores.containsKey(bc.rc)) {
-                                for (BitSet rcvechc : insidescores.get(bc.rc)
-                                        .keySet()) {
-                                    double rcscore = insidescores.getScore(
-                                            bc.rc, rcvechc);
-                                    BitSet pvec = insideComposeLengthVec(
-                                            it.vec, rcvechc, bc.yf);
-                                    if (pvec != null)
-                                        transport.add(new InsideItem(bc.lhs,
-                                                pvec, lcscore + rcscore
-                                                        + bc.score));
-                                }
-                            }
-                        } else {
-                            // unary
-                            transport.add(new InsideItem(bc.lhs,
-                                    (BitSet) it.vec.clone(), it.score
-                                            + bc.score));
+            int lend = fg.lcEnd(it.label);
+            for (int ci = fg.lcBegin(it.label); ci < lend; ++ci) {
+                double lcscore = it.score;
+                if (fg.rc[ci] != -1) {
+                    // non-unary
+                    if (insidescores.containsKey(fg.rc[ci])) {
+                        for (BitSet rcvechc : insidescores.get(fg.rc[ci])
+                                .keySet()) {
+                            double rcscore = insidescores.getScore(
+                                    fg.rc[ci], rcvechc);
+                            BitSet pvec = insideComposeLengthVec(
+                                    it.vec, rcvechc, fg.yfs[fg.yfId[ci]]);
+                            if (pvec != null)
+                                transport.add(new InsideItem(fg.lhs[ci],
+                                        pvec, lcscore + rcscore
+                                                + fg.score[ci]));
                         }
                     }
+                } else {
+                    // unary
+                    transport.add(new InsideItem(fg.lhs[ci],
+                            (BitSet) it.vec.clone(), it.score
+                                    + fg.score[ci]));
                 }
             }
             // right child
-            if (bg.clByRc.containsKey(it.label)) {
-                for (BinaryClause bc : bg.clByRc.get(it.label)) {
-                    double rcscore = it.score;
-                    if (insidescores.containsKey(bc.lc)) {
-                        for (BitSet lcvechc : insidescores.get(bc.lc).keySet()) {
-                            double lcscore = insidescores.getScore(bc.lc,
-                                    lcvechc);
-                            BitSet pvec = insideComposeLengthVec(lcvechc,
-                                    it.vec, bc.yf);
-                            if (pvec != null)
-                                transport.add(new InsideItem(bc.lhs, pvec,
-                                        lcscore + rcscore + bc.score));
-                        }
+            int rend = fg.rcEnd(it.label);
+            for (int r = fg.rcBegin(it.label); r < rend; ++r) {
+                int ci = fg.byRc[r];
+                double rcscore = it.score;
+                if (insidescores.containsKey(fg.lc[ci])) {
+                    for (BitSet lcvechc : insidescores.get(fg.lc[ci]).keySet()) {
+                        double lcscore = insidescores.getScore(fg.lc[ci],
+                                lcvechc);
+                        BitSet pvec = insideComposeLengthVec(lcvechc,
+                                it.vec, fg.yfs[fg.yfId[ci]]);
+                        if (pvec != null)
+                            transport.add(new InsideItem(fg.lhs[ci], pvec,
+                                    lcscore + rcscore + fg.score[ci]));
                     }
                 }
             }
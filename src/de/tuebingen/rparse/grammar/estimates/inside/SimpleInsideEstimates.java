@@ -29,8 +29,8 @@ import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
 
-import de.tuebingen.rparse.grammar.BinaryClause;
 import de.tuebingen.rparse.grammar.BinaryRCG;
+import de.tuebingen.rparse.grammar.FrozenBinaryRCG;
 import de.tuebingen.rparse.grammar.GrammarException;
 
 /**
@@ -77,48 +77,46 @@ public class SimpleInsideEstimates {
         }
         System.err.println();
         List<SimpleInsideItem> transport = new ArrayList<SimpleInsideItem>();
+        FrozenBinaryRCG fg = bg.freeze();
         while (!agenda.isEmpty()) {
             it = agenda.poll();
             logger.fine("\r inside agenda size: " + agenda.size());
             insidescores.updateScore(it.label, it.len, it.score);
             // left child
-            if (bg.clByLc.containsKey(it.label)) {
-                if (bg.clByLc.containsKey(it.label)) {
-                    for (BinaryClause bc : bg.clByLc.get(it.label)) {
-                        double lcscore = it.score;
-                        if (bc.rc != -1) {
-                            // non-unary
-                            if (insidescores.hasLabel(bc.rc))
-                                for (int rclen : insidescores
-                                        .getLengthsForLabel(bc.rc))
-                                    if (it.len + rclen <= maxlen)
-                                        transport.add(new SimpleInsideItem(
-                                                bc.lhs, it.len + rclen, lcscore
-                                                        + insidescores
-                                                                .getScore(
-                                                                        bc.rc,
-                                                                        rclen)
-                                                        + bc.score));
-                        } else
-                            // unary
-                            transport.add(new SimpleInsideItem(bc.lhs, it.len,
-                                    it.score + bc.score));
-                    }
-                }
+            int lend = fg.lcEnd(it.label);
+            for (int ci = fg.lcBegin(it.label); ci < lend; ++ci) {
+                double lcscore = it.score;
+                if (fg.rc[ci] != -1) {
+                    // non-unary
+                    if (insidescores.hasLabel(fg.rc[ci]))
+                        for (int rclen : insidescores
+                                .getLengthsForLabel(fg.rc[ci]))
+                            if (it.len + rclen <= maxlen)
+                                transport.add(new SimpleInsideItem(
+                                        fg.lhs[ci], it.len + rclen, lcscore
+                                                + insidescores
+                                                        .getScore(
+                                                                fg.rc[ci],
+                                                                rclen)
+                                                + fg.score[ci]));
+                } else
+                    // unary
+                    transport.add(new SimpleInsideItem(fg.lhs[ci], it.len,
+                            it.score + fg.score[ci]));
             }
             // right child
-            if (bg.clByRc.containsKey(it.label)) {
-                for (BinaryClause bc : bg.clByRc.get(it.label)) {
-                    double rcscore = it.score;
-                    if (insidescores.hasLabel(bc.lc)) {
-                        for (int lclen : insidescores.getLengthsForLabel(bc.lc))
-                            if (lclen + it.len <= maxlen)
-                                transport.add(new SimpleInsideItem(bc.lhs,
-                                        lclen + it.len, insidescores.getScore(
-                                                bc.lc, lclen)
-                                                + rcscore
-                                                + bc.score));
-                    }
+            int rend = fg.rcEnd(it.label);
+            for (int r = fg.rcBegin(it.label); r < rend; ++r) {
+                int ci = fg.byRc[r];
+                double rcscore = it.score;
+                if (insidescores.hasLabel(fg.lc[ci])) {
+                    for (int lclen : insidescores.getLengthsForLabel(fg.lc[ci]))
+                        if (lclen + it.len <= maxlen)
+                            transport.add(new SimpleInsideItem(fg.lhs[ci],
+                                    lclen + it.len, insidescores.getScore(
+                                            fg.lc[ci], lclen)
+                                            + rcscore
+                                            + fg.score[ci]));
                 }
             }
             for (SimpleInsideItem sitem : transport) {
@@ -26,8 +26,10 @@ package de.tuebingen.rparse.grammar.fanouttwo;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import de.tuebingen.rparse.grammar.BinaryClause;
 import de.tuebingen.rparse.grammar.BinaryRCG;
@@ -75,6 +77,7 @@ public class BinaryRCGTwo extends BinaryRCG {
         }
         BinaryRCGTwo ret = new BinaryRCGTwo(bg.getGrammar(),
                 bg.getBinarizerType());
+        Set<BinaryClauseTwo> seen = new HashSet<BinaryClauseTwo>();
         for (BinaryClause bc : bg.clauses) {
             BinaryClauseTwo bct;
             try {
@@ -86,7 +89,7 @@ public class BinaryRCGTwo extends BinaryRCG {
                 typeCount.put(bct.type, 0);
             }
             typeCount.put(bct.type, typeCount.get(bct.type) + 1);
-            if (!(ret.twoCl.contains(bct))) {
+            if (seen.add(bct)) {
                 ret.twoCl.add(bct);
                 if (!ret.twoClByLc.containsKey(bct.lc))
                     ret.twoClByLc.put(bct.lc, new ArrayList<BinaryClauseTwo>());
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * File ParallelRCGExtractor.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2011
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.grammar.read;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.tuebingen.rparse.grammar.GrammarException;
+import de.tuebingen.rparse.misc.ParameterException;
+import de.tuebingen.rparse.parser.ParserData;
+import de.tuebingen.rparse.treebank.HasID;
+import de.tuebingen.rparse.treebank.HasSize;
+import de.tuebingen.rparse.treebank.TreebankException;
+
+/**
+ * Extracts an RCG like {@link RCGExtractor}, but on several threads. The trees are collected in batches of
+ * consecutive trees, every batch is extracted by its own {@link RCGExtractor} with its own grammar, lexicon and
+ * numberer. The batches are merged in input order, therefore the result (numbering, clause ids, counts) is the same as
+ * with a single {@link RCGExtractor}. Writing the result is not supported, this is only for training.
+ * 
+ * @author wmaier
+ * @param <T>
+ *            Specifies if we extract from constituents or dependencies
+ */
+public class ParallelRCGExtractor<T extends HasID & HasSize>
+        extends
+            GrammarExtractionTask<T> {
+
+    /**
+     * Number of trees per batch
+     */
+    public static final int                      BATCH_SIZE = 256;
+
+    // receives the merged result
+    private final RCGExtractor<T>                target;
+
+    // options for the extractors of the batches
+    private final String                         options;
+
+    // the threads
+    private final ExecutorService                executor;
+
+    // batches which have not been merged yet, in input order
+    private final Deque<Future<RCGExtractor<T>>> pending;
+
+    // maximal number of pending batches before we merge the oldest one
+    private final int                            window;
+
+    // the batch which is being filled
+    private List<T>                              batch;
+
+    /**
+     * Constructor. Starts the threads.
+     * 
+     * @param pd
+     *            Receives the extracted grammar and lexicon
+     * @param threads
+     *            The number of threads
+     * @param options
+     *            Options for the extraction, see {@link RCGExtractor}
+     * @throws IOException
+     * @throws ParameterException
+     *             If the options cannot be parsed
+     */
+    public ParallelRCGExtractor(ParserData pd, int threads, String options)
+            throws IOException, ParameterException {
+        target = new RCGExtractor<T>(pd, options);
+        this.options = options;
+        executor = Executors.newFixedThreadPool(threads);
+        pending = new ArrayDeque<Future<RCGExtractor<T>>>();
+        window = 2 * threads;
+        batch = new ArrayList<T>(BATCH_SIZE);
+    }
+
+    @Override
+    public void extract(T t) throws GrammarException {
+        if (t == null || t.size() == 0) {
+            throw new GrammarException("Cannot extract grammar from empty tree");
+        }
+        batch.add(t);
+        if (batch.size() == BATCH_SIZE) {
+            submit();
+        }
+    }
+
+    @Override
+    public void done() throws TreebankException {
+        try {
+            if (!batch.isEmpty()) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                mergeNext();
+            }
+        } catch (GrammarException e) {
+            throw new TreebankException("Could not extract Grammar", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        target.done();
+    }
+
+    /*
+     * Hand the current batch to a thread. If too many batches are pending, merge the oldest ones first.
+     */
+    private void submit() throws GrammarException {
+        final List<T> trees = batch;
+        batch = new ArrayList<T>(BATCH_SIZE);
+        pending.add(executor.submit(new Callable<RCGExtractor<T>>() {
+            @Override
+            public RCGExtractor<T> call() throws Exception {
+                RCGExtractor<T> extractor = new RCGExtractor<T>(null, options);
+                for (T t : trees) {
+                    extractor.extract(t);
+                }
+                return extractor;
+            }
+        }));
+        while (pending.size() > window) {
+            mergeNext();
+        }
+    }
+
+    /*
+     * Wait for the oldest pending batch and merge it.
+     */
+    private void mergeNext() throws GrammarException {
+        Future<RCGExtractor<T>> result = pending.poll();
+        try {
+            target.merge(result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrammarException("Interrupted while waiting for extraction");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GrammarException)
+                throw (GrammarException) e.getCause();
+            throw new GrammarException("Extraction thread failed: " + e.getCause());
+        }
+    }
+
+}
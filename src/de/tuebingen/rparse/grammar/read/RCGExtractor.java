@@ -661,6 +661,24 @@ public class RCGExtractor<T extends HasID & HasSize>
         rootClauses.clear();
     }
 
+    /**
+     * Add everything another extractor has extracted, as if its trees had been given to this extractor directly after
+     * the trees it has already seen. Used to merge the results of extractors which have run in parallel on
+     * consecutive parts of a treebank, see {@link ParallelRCGExtractor}.
+     * 
+     * @param other
+     *            The other extractor, must not be used anymore afterwards
+     * @throws GrammarException
+     *             If the grammars cannot be merged
+     */
+    public void merge(RCGExtractor<T> other) throws GrammarException {
+        int[] map = pd.nb.addAll(other.pd.nb);
+        pd.g.addAll(other.pd.g, map);
+        pd.l.addAll(other.pd.l, map);
+        if (startPredicate == -1 && other.startPredicate != -1)
+            startPredicate = map[other.startPredicate];
+    }
+
     @Override
     public void done() throws TreebankException {
         for (Clause c : pd.g.getClauses()) {
@@ -24,48 +24,101 @@
  ******************************************************************************/
 package de.tuebingen.rparse.misc;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A numberer which maps objects to integers. Useful everywhere.
+ * A numberer which maps objects to integers. Useful everywhere. Objects are numbered within categories, the numbers
+ * are unique over all categories. Numbers are looked up in an array, objects in a hash map per category.
+ * <p>
+ * Lookups do not lock, numbering new objects locks the numberer, therefore a numberer can be shared between threads
+ * (extraction, parsing). After training, {@link #freeze(String...)} compacts the numberer and forbids new objects in
+ * all categories except the ones which must grow during parsing (e.g. unknown tags).
  * 
  * @author wmaier
  */
 public class Numberer implements Serializable {
 
-    private static final long     serialVersionUID = -437863810328700734L;
+    private static final long                serialVersionUID       = -437863810328700734L;
 
-    private Map<String, Numberer> nmap;
+    // the numberer gets serialized as arrays, old models have a map-based numberer (nmap, objmap, intmap) with one
+    // sub-numberer per category
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("nmap", Map.class),
+            new ObjectStreamField("objmap", Map.class),
+            new ObjectStreamField("intmap", Map.class),
+            new ObjectStreamField("tnum", Integer.TYPE),
+            new ObjectStreamField("names", String[].class),
+            new ObjectStreamField("categoryOf", int[].class),
+            new ObjectStreamField("objects", Object[].class) };
 
-    private Map<Object, Integer>  objmap;
+    // a category: the numbers of its objects
+    private static class Category {
 
-    private Map<Integer, Object>  intmap;
+        private final String                 name;
 
-    private int                   tnum             = 0;
+        private final int                    index;
+
+        // replaced by a plain map when the category is frozen
+        private volatile Map<Object, Integer> ids;
+
+        private volatile boolean             open;
+
+        private Category(String name, int index) {
+            this.name = name;
+            this.index = index;
+            ids = new ConcurrentHashMap<Object, Integer>();
+            open = true;
+        }
+
+    }
+
+    // the categories by name
+    private transient ConcurrentHashMap<String, Category> categories;
+
+    // the categories by index
+    private transient Category[]                          byIndex;
+
+    // number -> object
+    private transient volatile Object[]                   objects;
+
+    // number -> category
+    private transient volatile Category[]                 categoryOf;
+
+    // the next number, i.e., the number of numbered objects. Written after the arrays, read before them.
+    private transient volatile int                        tnum;
+
+    // true if no more categories can be added
+    private transient boolean                             frozen;
+
+    // the objects of a category of an old serialized model, see readObject
+    private transient Map<Integer, Object>                legacyIntmap;
 
     /**
      * Constructs a new Numberer
      */
     public Numberer() {
-        nmap = new HashMap<String, Numberer>();
-        objmap = new HashMap<Object, Integer>();
-        intmap = new HashMap<Integer, Object>();
-        tnum = 0;
+        init(16);
     }
 
-    /**
-     * Get the numberer for a certain category
-     * 
-     * @param id
-     *            The category ID string
-     * @return The numberer for the ID string.
-     */
-    public Numberer getNumberer(String id) {
-        if (nmap.get(id) == null)
-            nmap.put(id, new Numberer());
-        return nmap.get(id);
+    private void init(int capacity) {
+        categories = new ConcurrentHashMap<String, Category>();
+        byIndex = new Category[0];
+        objects = new Object[capacity];
+        categoryOf = new Category[capacity];
+        tnum = 0;
+        frozen = false;
     }
 
     /**
@@ -75,12 +128,13 @@ public class Numberer implements Serializable {
      *            The category ID string
      * @param num
      *            The object number
-     * @return The object
+     * @return The object, null if there is no object with this number in the category
      */
     public Object getObjectWithId(String id, int num) {
-        if (nmap.containsKey(id))
-            return nmap.get(id).getObject(num);
-        return null;
+        Category c = categories.get(id);
+        if (c == null || num < 0 || num >= tnum)
+            return null;
+        return categoryOf[num] == c ? objects[num] : null;
     }
 
     /**
@@ -90,33 +144,22 @@ public class Numberer implements Serializable {
      *            The ID string of the object
      * @param obj
      *            The object
-     * @return The id of the object
+     * @return The id of the object, null if the object has no number
      */
     public Integer getIntWithId(String id, Object obj) {
-        if (nmap.containsKey(id))
-            return nmap.get(id).getInt(obj);
-        return null;
-    }
-
-    private Object getObject(int num) {
-        if (intmap.containsKey(num))
-            return intmap.get(num);
-        return null;
-    }
-
-    private Integer getInt(Object obj) {
-        if (objmap.containsKey(obj))
-            return objmap.get(obj);
-        return null;
+        Category c = categories.get(id);
+        if (c == null)
+            return null;
+        return c.ids.get(obj);
     }
 
     /**
-     * The size of the numberer
+     * The number of numbered objects
      * 
      * @return The corresponding value
      */
     public int size() {
-        return objmap.size();
+        return tnum;
     }
 
     /**
@@ -127,30 +170,252 @@ public class Numberer implements Serializable {
      * @param obj
      *            The object
      * @return A new ID number for the object, or the existing object ID if applicable
+     * @throws IllegalStateException
+     *             If the object is new and the category has been frozen
      */
     public Integer number(String id, Object obj) {
-        Numberer n = getNumberer(id);
-        Integer ret = n.getInt(obj);
-        if (ret == null) {
-            n.objmap.put(obj, tnum);
-            n.intmap.put(tnum, obj);
-            tnum++;
-            ret = number(id, obj);
+        Category c = categories.get(id);
+        if (c != null) {
+            Integer ret = c.ids.get(obj);
+            if (ret != null)
+                return ret;
+        }
+        return add(id, obj);
+    }
+
+    // numbers a new object, unless another thread has been faster
+    private synchronized Integer add(String id, Object obj) {
+        Category c = category(id);
+        Integer ret = c.ids.get(obj);
+        if (ret != null)
+            return ret;
+        if (!c.open)
+            throw new IllegalStateException("Cannot number " + obj
+                    + ", category " + id + " is frozen");
+        ret = tnum;
+        put(c, ret, obj);
+        return ret;
+    }
+
+    // get a category, create it if necessary. Only called when locked.
+    private Category category(String id) {
+        Category c = categories.get(id);
+        if (c == null) {
+            if (frozen)
+                throw new IllegalStateException("Cannot add category " + id
+                        + ", numberer is frozen");
+            c = new Category(id, byIndex.length);
+            byIndex = Arrays.copyOf(byIndex, byIndex.length + 1);
+            byIndex[c.index] = c;
+            categories.put(id, c);
+        }
+        return c;
+    }
+
+    // number an object with a given number. Only called when locked.
+    private void put(Category c, int num, Object obj) {
+        if (num >= objects.length) {
+            int capacity = Math.max(num + 1, objects.length * 2);
+            categoryOf = Arrays.copyOf(categoryOf, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        objects[num] = obj;
+        categoryOf[num] = c;
+        if (num >= tnum)
+            tnum = num + 1;
+        c.ids.put(obj, num);
+    }
+
+    /**
+     * Forbid new objects in all categories except the given ones, and compact the numberer. Lookups and numbering
+     * objects which already have a number stay possible. Used after training, when the grammar must not change
+     * anymore, but unknown tags still get numbers.
+     * 
+     * @param open
+     *            The categories which can still grow, they are created if necessary
+     */
+    public synchronized void freeze(String... open) {
+        Set<String> keep = new HashSet<String>(Arrays.asList(open));
+        for (String id : keep)
+            category(id);
+        for (Category c : byIndex) {
+            if (c.open && !keep.contains(c.name)) {
+                c.ids = new HashMap<Object, Integer>(c.ids);
+                c.open = false;
+            }
+        }
+        frozen = true;
+        if (objects.length > tnum) {
+            categoryOf = Arrays.copyOf(categoryOf, tnum);
+            objects = Arrays.copyOf(objects, tnum);
+        }
+    }
+
+    /**
+     * True if the numberer has been frozen, see {@link #freeze(String...)}.
+     * 
+     * @return The corresponding value
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * True if new objects can be numbered in a category, i.e., if the category has not been frozen, see
+     * {@link #freeze(String...)}. A category which does not exist yet is open unless the numberer is frozen.
+     *
+     * @param id
+     *            The category ID string
+     * @return The corresponding value
+     */
+    public boolean isOpen(String id) {
+        Category c = categories.get(id);
+        return c == null ? !frozen : c.open;
+    }
+
+    /**
+     * Number all objects of another numberer in this one, in the order in which they have been numbered there. If the
+     * other numberer has been filled by the same sequence of {@link #number(String, Object)} calls which would
+     * otherwise have been made on this one, this gives the same numbers as making these calls directly.
+     * 
+     * @param other
+     *            The other numberer, must not change during the call
+     * @return Maps the numbers of the other numberer to the numbers in this one
+     */
+    public int[] addAll(Numberer other) {
+        int size = other.tnum;
+        Category[] cats = other.categoryOf;
+        Object[] objs = other.objects;
+        int[] ret = new int[size];
+        for (int i = 0; i < size; ++i) {
+            if (cats[i] != null)
+                ret[i] = number(cats[i].name, objs[i]);
         }
         return ret;
     }
 
+    /**
+     * Write the string tables of this numberer, i.e., for every category the objects together with their numbers.
+     * Only strings can be written.
+     * 
+     * @param out
+     *            Where to write the tables
+     * @throws IOException
+     *             If something goes wrong during writing, or if an object is not a string
+     */
+    public synchronized void writeTables(DataOutput out) throws IOException {
+        out.writeInt(tnum);
+        out.writeInt(byIndex.length);
+        int[] counts = new int[byIndex.length];
+        for (int i = 0; i < tnum; ++i) {
+            if (categoryOf[i] != null)
+                ++counts[categoryOf[i].index];
+        }
+        for (Category c : byIndex) {
+            out.writeUTF(c.name);
+            out.writeInt(counts[c.index]);
+            for (int i = 0; i < tnum; ++i) {
+                if (categoryOf[i] != c)
+                    continue;
+                if (!(objects[i] instanceof String))
+                    throw new IOException("Cannot write object of type "
+                            + objects[i].getClass().getName()
+                            + " in category " + c.name);
+                out.writeInt(i);
+                out.writeUTF((String) objects[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a numberer from string tables written with {@link #writeTables(DataOutput)}. All objects get the numbers
+     * they had before.
+     * 
+     * @param in
+     *            Where to read the tables from
+     * @return The numberer
+     * @throws IOException
+     *             If something goes wrong during reading
+     */
+    public static Numberer readTables(DataInput in) throws IOException {
+        Numberer ret = new Numberer();
+        int tnum = in.readInt();
+        ret.init(tnum);
+        int categories = in.readInt();
+        for (int i = 0; i < categories; ++i) {
+            Category c = ret.category(in.readUTF());
+            int size = in.readInt();
+            for (int j = 0; j < size; ++j) {
+                int num = in.readInt();
+                ret.put(c, num, in.readUTF());
+            }
+        }
+        ret.tnum = tnum;
+        return ret;
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out)
+            throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        String[] names = new String[byIndex.length];
+        for (Category c : byIndex)
+            names[c.index] = c.name;
+        int[] cats = new int[tnum];
+        for (int i = 0; i < tnum; ++i)
+            cats[i] = categoryOf[i] != null ? categoryOf[i].index : -1;
+        fields.put("tnum", tnum);
+        fields.put("names", names);
+        fields.put("categoryOf", cats);
+        fields.put("objects", Arrays.copyOf(objects, tnum));
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        int size = fields.get("tnum", 0);
+        init(size);
+        Object[] objs = (Object[]) fields.get("objects", null);
+        if (objs != null) {
+            String[] names = (String[]) fields.get("names", null);
+            int[] cats = (int[]) fields.get("categoryOf", null);
+            for (String name : names)
+                category(name);
+            for (int i = 0; i < objs.length; ++i) {
+                if (cats[i] >= 0)
+                    put(byIndex[cats[i]], i, objs[i]);
+            }
+        } else {
+            // old model. The sub-numberers of the categories have been read
+            // already, they only keep their objects.
+            legacyIntmap = (Map<Integer, Object>) fields.get("intmap", null);
+            Map<String, Numberer> nmap = (Map<String, Numberer>) fields.get(
+                    "nmap", null);
+            if (nmap != null) {
+                for (Map.Entry<String, Numberer> e : nmap.entrySet()) {
+                    Category c = category(e.getKey());
+                    for (Map.Entry<Integer, Object> o : e.getValue().legacyIntmap
+                            .entrySet())
+                        put(c, o.getKey(), o.getValue());
+                }
+            }
+        }
+        tnum = size;
+    }
+
     /**
      * Return a human-readable representation of the numberer
      */
     @Override
-    public String toString() {
+    public synchronized String toString() {
         String ret = "";
-        for (String id : nmap.keySet()) {
-            ret += "type: " + id + "\n";
-            Numberer nb = getNumberer(id);
-            for (Integer i : nb.intmap.keySet())
-                ret += "    " + i + " -> " + getObjectWithId(id, i) + "\n";
+        for (Category c : byIndex) {
+            ret += "type: " + c.name + "\n";
+            for (int i = 0; i < tnum; ++i) {
+                if (categoryOf[i] == c)
+                    ret += "    " + i + " -> " + objects[i] + "\n";
+            }
             ret += "\n";
         }
         return ret;
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * File BitParallelYFComposer.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.util.BitSet;
+
+import de.tuebingen.rparse.grammar.BinaryClause;
+import de.tuebingen.rparse.misc.IntegerContainer;
+
+/**
+ * Checks the compatibility of range vectors with a few bitwise operations on the packed range vectors of the items
+ * (see {@link CYKItem#pack(BitSet)}) and the packed yield function of the clause (see {@link BinaryClause#yfRight}).
+ * The vectors are compatible iff they are disjoint and, reading the blocks of both vectors from left to right, the
+ * i-th block comes from the child which the i-th element of the yield function designates, and starts a block of the
+ * union of the vectors iff the i-th element of the yield function starts an argument. For sentences longer than 64
+ * words, the packed vectors are not exact and we fall back to the "fast" composer.
+ * 
+ * @author wmaier
+ */
+public class BitParallelYFComposer extends FastYFComposer {
+
+    private static final long serialVersionUID = -1638227000561353431L;
+
+    @Override
+    public BitSet doComposition(CYKItem lit, CYKItem rit, BinaryClause bc,
+            IntegerContainer s, IntegerContainer e) {
+        if (lit.length > Long.SIZE || bc.yfElements > Long.SIZE)
+            return doComposition(lit, rit, bc.yf, s, e);
+
+        long lvec = lit.packed;
+        long rvec = rit.packed;
+        // overlap
+        if ((lvec & rvec) != 0L)
+            return null;
+        // first positions of the blocks of both vectors and of their union
+        long starts = (lvec & ~(lvec << 1)) | (rvec & ~(rvec << 1));
+        long union = lvec | rvec;
+        long unionStarts = union & ~(union << 1);
+        // one block per element of the yield function
+        if (Long.bitCount(starts) != bc.yfElements)
+            return null;
+        // collect for every block (from left to right) where it comes from and if it starts an argument
+        long right = 0L;
+        long argStart = 0L;
+        for (int i = 0; starts != 0L; ++i) {
+            long block = starts & -starts;
+            if ((rvec & block) != 0L)
+                right |= 1L << i;
+            if ((unionStarts & block) != 0L)
+                argStart |= 1L << i;
+            starts ^= block;
+        }
+        if (right != bc.yfRight || argStart != bc.yfArgStart)
+            return null;
+
+        // everything ok: return xored vectors
+        BitSet yp = (BitSet) lit.rvec.clone();
+        yp.xor(rit.rvec);
+        return yp;
+    }
+
+}
@@ -25,27 +25,34 @@
 package de.tuebingen.rparse.parser;
 
 import java.util.BitSet;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Logger;
 
 /**
- * The chart for the CYK parser. It's just an HashMap extended with some convenience methods.
+ * The chart of the CYK parser. Items are stored per label in an open-addressing hash table which is keyed by the
+ * packed range vector of the items (see {@link CYKItem#pack(BitSet)}), so lookups do neither box the label nor hash
+ * a {@link BitSet}. For every label, the items can be iterated directly in the order in which they were added, either
+ * all of them, or only those starting resp. ending at a certain position, so that the parser only needs to look at
+ * neighbours which can be compatible.
  * 
  * @author wmaier
  */
-public class CYKChart extends HashMap<Integer, Map<BitSet, CYKItem>> {
+public class CYKChart {
 
-    // just because of the hashmap, this one does not get serialized.
-    private static final long serialVersionUID = 1L;
+    private Logger       logger;
 
-    private Logger            logger;
+    // the item tables, indexed by label
+    private ItemTable[]  tables;
+
+    // total number of items
+    private int          size;
 
     /**
      * Constructor which just gets a logger.
      */
     public CYKChart() {
         logger = Logger.getLogger(CYKChart.class.getPackage().getName());
+        tables = new ItemTable[64];
+        size = 0;
     }
 
     /**
@@ -55,17 +62,24 @@ public class CYKChart extends HashMap<Integer, Map<BitSet, CYKItem>> {
      *            The item.
      */
     public void add(CYKItem it) {
-        if (!super.containsKey(it.pl))
-            super.put(it.pl, new HashMap<BitSet, CYKItem>());
-        if (super.get(it.pl).containsKey(it.rvec)) {
+        if (it.pl >= tables.length) {
+            ItemTable[] ntables = new ItemTable[Math.max(it.pl + 1,
+                    2 * tables.length)];
+            System.arraycopy(tables, 0, ntables, 0, tables.length);
+            tables = ntables;
+        }
+        if (tables[it.pl] == null)
+            tables[it.pl] = new ItemTable();
+        CYKItem oit = tables[it.pl].find(it.packed, it.rvec, it.length);
+        if (oit != null) {
             logger.finer("new item: " + it.toString() + "  + " + it.olc + " + "
                     + it.orc);
-            CYKItem oit = super.get(it.pl).get(it.rvec);
             logger.finer("old item: " + oit + " + " + oit.olc + " + " + oit.orc);
             throw new IllegalStateException(
                     "Trying to add an item to the chart which is already in there (there's a bug somewhere)");
         }
-        super.get(it.pl).put(it.rvec, it);
+        tables[it.pl].add(it);
+        ++size;
     }
 
     /**
@@ -78,7 +92,19 @@ public class CYKChart extends HashMap<Integer, Map<BitSet, CYKItem>> {
      * @return True iff there is a score for the input values.
      */
     public boolean hasScore(int lhs, BitSet yp) {
-        return super.containsKey(lhs) && super.get(lhs).containsKey(yp);
+        return find(lhs, CYKItem.pack(yp), yp, yp.length()) != null;
+    }
+
+    /**
+     * Ask if there is an item in the chart with the same label and range vector as the given one. Faster than
+     * {@link #hasScore(int, BitSet)}, since the packed range vector of the item is used.
+     * 
+     * @param it
+     *            The item
+     * @return True iff there is such an item.
+     */
+    public boolean contains(CYKItem it) {
+        return find(it.pl, it.packed, it.rvec, it.length) != null;
     }
 
     /**
@@ -91,8 +117,9 @@ public class CYKChart extends HashMap<Integer, Map<BitSet, CYKItem>> {
      * @return The score from the chart, -\infty if there is no such score in the chart.
      */
     public double getScore(int lhs, BitSet yp) {
-        if (super.containsKey(lhs) && super.get(lhs).containsKey(yp))
-            return super.get(lhs).get(yp).iscore;
+        CYKItem it = find(lhs, CYKItem.pack(yp), yp, yp.length());
+        if (it != null)
+            return it.iscore;
         return Double.NEGATIVE_INFINITY;
     }
 
@@ -104,9 +131,207 @@ public class CYKChart extends HashMap<Integer, Map<BitSet, CYKItem>> {
      * @return The item, {@code null} if it is not in the chart.
      */
     public CYKItem getItem(CYKItem it) {
-        if (super.containsKey(it.pl) && super.get(it.pl).containsKey(it.rvec))
-            return super.get(it.pl).get(it.rvec);
-        return null;
+        return find(it.pl, it.packed, it.rvec, it.length);
+    }
+
+    /**
+     * Get all items with a certain label.
+     * 
+     * @param label
+     *            The label
+     * @return The items, {@code null} if there are none.
+     */
+    public ItemTable getItems(int label) {
+        if (label < 0 || label >= tables.length)
+            return null;
+        return tables[label];
+    }
+
+    /**
+     * The number of items in the chart.
+     * 
+     * @return The corresponding value.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Look up an item
+     */
+    private CYKItem find(int label, long packed, BitSet vec, int length) {
+        if (label < 0 || label >= tables.length || tables[label] == null)
+            return null;
+        return tables[label].find(packed, vec, length);
+    }
+
+    /**
+     * A list of items which can be iterated by index without allocation.
+     */
+    public static class ItemList {
+
+        private CYKItem[] items;
+
+        private int       size;
+
+        private ItemList() {
+            items = new CYKItem[4];
+            size = 0;
+        }
+
+        /**
+         * The number of items in this list.
+         * 
+         * @return The corresponding value.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Get an item by its insertion index.
+         * 
+         * @param i
+         *            The index, must be smaller than {@link #size()}.
+         * @return The item.
+         */
+        public CYKItem get(int i) {
+            return items[i];
+        }
+
+        void append(CYKItem it) {
+            if (size == items.length) {
+                CYKItem[] nitems = new CYKItem[2 * items.length];
+                System.arraycopy(items, 0, nitems, 0, size);
+                items = nitems;
+            }
+            items[size++] = it;
+        }
+
+    }
+
+    /**
+     * The items of a single label. Open addressing with linear probing on the packed range vectors, plus the items in
+     * insertion order for iteration, and secondary indexes by the position of the first and the last terminal.
+     */
+    public static class ItemTable extends ItemList {
+
+        // hash slots
+        private long[]     keys;
+
+        private CYKItem[]  slots;
+
+        // items by start position and by end position
+        private ItemList[] byStart;
+
+        private ItemList[] byEnd;
+
+        private ItemTable() {
+            keys = new long[16];
+            slots = new CYKItem[16];
+            byStart = new ItemList[0];
+            byEnd = new ItemList[0];
+        }
+
+        /**
+         * Get the items whose first terminal is at a certain position.
+         * 
+         * @param pos
+         *            The position
+         * @return The items, {@code null} if there are none.
+         */
+        public ItemList getStartingAt(int pos) {
+            if (pos < 0 || pos >= byStart.length)
+                return null;
+            return byStart[pos];
+        }
+
+        /**
+         * Get the items whose last terminal is at a certain position.
+         * 
+         * @param pos
+         *            The position
+         * @return The items, {@code null} if there are none.
+         */
+        public ItemList getEndingAt(int pos) {
+            if (pos < 0 || pos >= byEnd.length)
+                return null;
+            return byEnd[pos];
+        }
+
+        /*
+         * Find an item. If the sentence is not longer than 64, the packed vector is exact and we don't need to compare
+         * the bit sets.
+         */
+        private CYKItem find(long packed, BitSet vec, int length) {
+            int mask = slots.length - 1;
+            int i = hash(packed) & mask;
+            while (slots[i] != null) {
+                if (keys[i] == packed
+                        && (length <= Long.SIZE || slots[i].rvec.equals(vec)))
+                    return slots[i];
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        /*
+         * Add an item which is not in the table yet
+         */
+        private void add(CYKItem it) {
+            append(it);
+            byStart = index(byStart, it.start, it);
+            byEnd = index(byEnd, it.end, it);
+            // keep the load factor below 1/2
+            if (2 * size() > slots.length) {
+                keys = new long[2 * slots.length];
+                slots = new CYKItem[2 * slots.length];
+                for (int j = 0; j < size() - 1; ++j)
+                    insert(get(j));
+            }
+            insert(it);
+        }
+
+        private static ItemList[] index(ItemList[] lists, int pos, CYKItem it) {
+            if (pos >= lists.length) {
+                ItemList[] nlists = new ItemList[Math.max(pos + 1,
+                        2 * lists.length)];
+                System.arraycopy(lists, 0, nlists, 0, lists.length);
+                lists = nlists;
+            }
+            if (lists[pos] == null)
+                lists[pos] = new ItemList();
+            lists[pos].append(it);
+            return lists;
+        }
+
+        private void insert(CYKItem it) {
+            int mask = slots.length - 1;
+            int i = hash(it.packed) & mask;
+            while (slots[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = it.packed;
+            slots[i] = it;
+        }
+
+    }
+
+    /**
+     * Hash a packed range vector (finalizer of MurmurHash3, every bit of the vector affects the low bits). Also used by
+     * the item index of {@link PriorityAgendaHeap} and by the chart of the parser for fan-out two.
+     * 
+     * @param packed
+     *            The packed range vector, or any other key
+     * @return The hash
+     */
+    public static int hash(long packed) {
+        long h = packed;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
     }
 
 }
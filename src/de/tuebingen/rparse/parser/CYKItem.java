@@ -40,6 +40,10 @@ public class CYKItem implements Comparable<CYKItem> {
     public int     pl;
     public BitSet  rvec;
 
+    // the range vector packed into a long: exact for sentences of up to 64
+    // words, a hash otherwise (see pack())
+    public long    packed;
+
     // backpointers and scores
     public CYKItem olc;
     public CYKItem orc;
@@ -52,35 +56,103 @@ public class CYKItem implements Comparable<CYKItem> {
     // indicates if this item is of arity one
     public boolean iscf;
 
-    // the first terminal of the span if CF
+    // the first terminal of the span (the leftmost one if not CF)
     public int     start;
 
-    // the last terminal of the span if CF
+    // the last terminal of the span (the rightmost one if not CF)
     public int     end;
 
     // the length of the span if CF.
     public int     length;
 
+    // position on the heap of PriorityAgendaHeap, -1 if not on it
+    public int     heapPos = -1;
+
     public CYKItem(int pl, double iscore, BitSet rvec, CYKItem olc,
             CYKItem orc, int length, boolean iscf, int start, int end) {
-        this.pl = pl;
         this.rvec = rvec;
+        init(pl, iscore, olc, orc, length, iscf, start, end);
+    }
+
+    /**
+     * (Re-)initialize all fields except the range vector, which must already hold the right bits. Used for items from
+     * a {@link CYKItemArena}.
+     */
+    void init(int pl, double iscore, CYKItem olc, CYKItem orc, int length,
+            boolean iscf, int start, int end) {
+        this.pl = pl;
         this.length = length;
         this.iscore = iscore;
         oscore = 0.0;
+        ascore = 0.0;
         this.iscf = iscf;
         this.start = start;
         this.end = end;
         this.olc = olc;
         this.orc = orc;
-        // System.err.println("item: " + this + ":%" + summary);
+        heapPos = -1;
+        // the range vector of a derived item is the xor of the range vectors
+        // of its children, and so is its packed form
+        if (olc == null)
+            packed = pack(rvec);
+        else if (orc == null)
+            packed = olc.packed;
+        else
+            packed = olc.packed ^ orc.packed;
+    }
+
+    /**
+     * Pack a range vector into a long. Bit i of the vector is mapped to bit i of the result if i < 64, the remaining
+     * bits are mixed in. The result is therefore exact for vectors of length <= 64. Since every bit is mapped
+     * independently and xored, the packed form of the xor of two vectors is the xor of their packed forms.
+     * 
+     * @param vec
+     *            The range vector
+     * @return The packed vector
+     */
+    public static long pack(BitSet vec) {
+        long ret = 0L;
+        for (int i = vec.nextSetBit(0); i >= 0; i = vec.nextSetBit(i + 1)) {
+            if (i < Long.SIZE)
+                ret ^= 1L << i;
+            else
+                ret ^= (i + 1) * 0x9E3779B97F4A7C15L;
+        }
+        return ret;
+    }
+
+    /**
+     * Get the position of the first terminal of a block of the range vector.
+     * 
+     * @param k
+     *            The block index, counted from the left, starting at 0.
+     * @return The corresponding position.
+     */
+    public int blockStart(int k) {
+        if (k == 0)
+            return start;
+        int pos = start;
+        for (int i = 0; i < k; ++i)
+            pos = rvec.nextSetBit(rvec.nextClearBit(pos));
+        return pos;
+    }
+
+    /**
+     * Get the position of the last terminal of a block of the range vector.
+     * 
+     * @param k
+     *            The block index, counted from the left, starting at 0.
+     * @return The corresponding position.
+     */
+    public int blockEnd(int k) {
+        if (iscf)
+            return end;
+        return rvec.nextClearBit(blockStart(k)) - 1;
     }
 
     public int hashCode() {
-        int hc = 5381;
-        hc = ((hc << 5) + hc) + rvec.hashCode();
-        hc = ((hc << 5) + hc) + pl;
-        return hc;
+        // mixed, such that items with different labels and range vectors rarely share a bucket
+        return CYKChart.hash(CYKItemIndex.key(this));
     }
 
     @Override
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * File CYKItemArena.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.util.BitSet;
+
+/**
+ * Per-parser storage for items. Items and their range vectors are handed out from a slab which grows to the size
+ * needed by the largest sentence and is reused for all following sentences, so that parsing does not allocate items
+ * once the slab is large enough. Items which have been created but are not needed (because they are already in the
+ * chart) can be given back and are handed out again for the same sentence. {@link #reset()} makes all items
+ * available again in constant time; it must only be called when no item of the current sentence is used anymore.
+ * 
+ * @author wmaier
+ */
+public class CYKItemArena {
+
+    // the slab, items[0..top) are in use for the current sentence
+    private CYKItem[] items;
+
+    private int       top;
+
+    // items given back during the current sentence
+    private CYKItem[] free;
+
+    private int       freeSize;
+
+    // items handed out resp. given back for the current sentence
+    private long      obtained;
+
+    private long      released;
+
+    // items allocated in total
+    private long      allocated;
+
+    /**
+     * Constructor.
+     */
+    public CYKItemArena() {
+        items = new CYKItem[1024];
+        top = 0;
+        free = new CYKItem[64];
+        freeSize = 0;
+        obtained = 0;
+        released = 0;
+        allocated = 0;
+    }
+
+    /**
+     * Get an item. Its range vector is empty, it has to be filled before the item gets initialized with
+     * {@link CYKItem#init}.
+     * 
+     * @return The item
+     */
+    public CYKItem obtain() {
+        ++obtained;
+        CYKItem it;
+        if (freeSize > 0) {
+            it = free[--freeSize];
+            free[freeSize] = null;
+        } else {
+            if (top == items.length) {
+                CYKItem[] nitems = new CYKItem[2 * items.length];
+                System.arraycopy(items, 0, nitems, 0, top);
+                items = nitems;
+            }
+            it = items[top];
+            if (it == null) {
+                it = new CYKItem(-1, 0.0, new BitSet(), null, null, 0, false,
+                        -1, -1);
+                items[top] = it;
+                ++allocated;
+            }
+            ++top;
+        }
+        it.rvec.clear();
+        return it;
+    }
+
+    /**
+     * Give back an item which has been obtained for the current sentence and which is not referenced anywhere.
+     * 
+     * @param it
+     *            The item
+     */
+    public void release(CYKItem it) {
+        ++released;
+        if (freeSize == free.length) {
+            CYKItem[] nfree = new CYKItem[2 * free.length];
+            System.arraycopy(free, 0, nfree, 0, freeSize);
+            free = nfree;
+        }
+        free[freeSize++] = it;
+    }
+
+    /**
+     * Make all items available again.
+     */
+    public void reset() {
+        top = 0;
+        freeSize = 0;
+        obtained = 0;
+        released = 0;
+    }
+
+    /**
+     * Statistics about the current sentence and the slab.
+     * 
+     * @return The statistics as a string.
+     */
+    public String getStats() {
+        return "Arena stats: items obtained: " + obtained + ", given back: "
+                + released + ", allocated in total: " + allocated
+                + ", slab size: " + items.length;
+    }
+
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * File CYKItemIndex.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.util.Arrays;
+
+/**
+ * An index of the items which are currently on an agenda, keyed by label and packed range vector. Open addressing with
+ * linear probing, in the same way as in the item tables of {@link CYKChart}, but with removal. The range vectors are
+ * only compared if the sentence is longer than 64. The items' natural ordering (by score) is never used, so two items
+ * are the same key exactly if they are equal.
+ * 
+ * @author wmaier
+ */
+class CYKItemIndex {
+
+    // label and packed range vector -> item
+    private long[]    keys;
+
+    private CYKItem[] slots;
+
+    private int       size;
+
+    /**
+     * Constructor.
+     * 
+     * @param capacity
+     *            The initial number of slots, must be a power of two
+     */
+    CYKItemIndex(int capacity) {
+        keys = new long[capacity];
+        slots = new CYKItem[capacity];
+        size = 0;
+    }
+
+    /**
+     * Find the item which is equal to the given one.
+     * 
+     * @param it
+     *            The item
+     * @return The item in the index, {@code null} if there is none
+     */
+    CYKItem find(CYKItem it) {
+        long key = key(it);
+        int mask = slots.length - 1;
+        int i = CYKChart.hash(key) & mask;
+        while (slots[i] != null) {
+            if (keys[i] == key && slots[i].pl == it.pl
+                    && (it.length <= Long.SIZE || slots[i].rvec.equals(it.rvec)))
+                return slots[i];
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Add an item for which there is no equal item in the index yet.
+     * 
+     * @param it
+     *            The item
+     */
+    void insert(CYKItem it) {
+        ++size;
+        // keep the load factor below 1/2
+        if (2 * size > slots.length) {
+            CYKItem[] oslots = slots;
+            keys = new long[2 * oslots.length];
+            slots = new CYKItem[2 * oslots.length];
+            for (CYKItem oit : oslots) {
+                if (oit != null)
+                    place(oit);
+            }
+        }
+        place(it);
+    }
+
+    /**
+     * Remove an item instance which is in the index. Backward shift, such that no probe sequence gets interrupted.
+     * 
+     * @param it
+     *            The item
+     */
+    void remove(CYKItem it) {
+        int mask = slots.length - 1;
+        int i = CYKChart.hash(key(it)) & mask;
+        while (slots[i] != it)
+            i = (i + 1) & mask;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == null)
+                break;
+            int k = CYKChart.hash(keys[j]) & mask;
+            // move the entry at j to i unless its home slot k lies cyclically in (i, j]
+            if (i <= j ? (i < k && k <= j) : (i < k || k <= j))
+                continue;
+            keys[i] = keys[j];
+            slots[i] = slots[j];
+            i = j;
+        }
+        slots[i] = null;
+        --size;
+    }
+
+    /**
+     * Remove all items.
+     */
+    void clear() {
+        Arrays.fill(slots, null);
+        size = 0;
+    }
+
+    /**
+     * The key of an item, combines label and packed range vector.
+     * 
+     * @param it
+     *            The item
+     * @return The key
+     */
+    static long key(CYKItem it) {
+        return it.packed ^ (it.pl * 0x9E3779B97F4A7C15L);
+    }
+
+    private void place(CYKItem it) {
+        long key = key(it);
+        int mask = slots.length - 1;
+        int i = CYKChart.hash(key) & mask;
+        while (slots[i] != null)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        slots[i] = it;
+    }
+
+}
@@ -36,11 +36,13 @@ import java.util.logging.Logger;
 import java.util.concurrent.TimeoutException;
 
 import de.tuebingen.rparse.grammar.BinaryClause;
+import de.tuebingen.rparse.grammar.FrozenBinaryRCG;
 import de.tuebingen.rparse.grammar.GrammarConstants;
 import de.tuebingen.rparse.grammar.binarize.Debinarizer;
 import de.tuebingen.rparse.grammar.binarize.DeterministicBinarizer;
 import de.tuebingen.rparse.misc.IntegerContainer;
 import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.misc.ParameterException;
 import de.tuebingen.rparse.misc.Utilities;
 import de.tuebingen.rparse.treebank.ProcessingTask;
 import de.tuebingen.rparse.treebank.SentenceWriter;
@@ -56,7 +58,6 @@ import de.tuebingen.rparse.treebank.dep.DependencyForest;
 import de.tuebingen.rparse.treebank.dep.DependencyForestNodeLabel;
 import de.tuebingen.rparse.treebank.dep.DependencyInputFormats;
 import de.tuebingen.rparse.treebank.dep.DependencySentenceWriterFactory;
-import de.tuebingen.rparse.treebank.lex.LexiconConstants;
 import de.tuebingen.rparse.treebank.lex.ParserInput;
 
 /**
@@ -65,7 +66,7 @@ import de.tuebingen.rparse.treebank.lex.ParserInput;
  * 
  * @author wmaier
  */
-public class CYKParser implements RCGParser {
+public class CYKParser implements RCGParser, HasParseMetrics {
 
 	// parser data which contains all necessary information for parsing
 	private ParserData pd;
@@ -79,12 +80,31 @@ public class CYKParser implements RCGParser {
 	// the agenda
 	private PriorityAgenda agenda;
 
+	// the items and their range vectors, reused from sentence to sentence
+	private CYKItemArena arena;
+
+	// the items created from the item taken from the agenda, before they
+	// get pushed
+	private ArrayList<CYKItem> transport;
+
+	// prunes items before they get pushed, null if there is no pruning
+	private CoarseToFinePruner pruner;
+
+	// collects the metrics of a parse, null if there are none to collect
+	private ParseMetrics metrics;
+
 	// our goal item
 	private CYKItem goal;
 
+	// whether unary items are derived by a chain of unary clauses, see doParse()
+	private boolean unaryClosure;
+
 	// the input words, mapped to integers
 	private int[] words;
 
+	// the input, for the surface strings of the words
+	private ParserInput input;
+
 	// the input terminals, as nodes
 	private Node[] terminals;
 
@@ -100,6 +120,9 @@ public class CYKParser implements RCGParser {
 	// agenda type to get (fibonacci, etc.)
 	private String agendaType;
 
+	// agenda parameters (pruning), see PriorityAgendaPruning
+	private String agendaParams;
+
 	// our logger
 	private Logger logger;
 
@@ -123,6 +146,27 @@ public class CYKParser implements RCGParser {
 	 */
 	public CYKParser(ParserData pd, String agendaType, Numberer nb)
 			throws NoSuchElementException {
+		this(pd, agendaType, "", nb);
+	}
+
+	/**
+	 * Constructor with agenda parameters
+	 * 
+	 * @param pd
+	 *            A parser data object
+	 * @param agendaType
+	 *            The agenda type for data-driven parsing
+	 * @param agendaParams
+	 *            Parameters for pruning the agenda, see
+	 *            {@link PriorityAgendaPruning}. No pruning if empty.
+	 * @param nb
+	 *            The numberer for the parser data
+	 * @throws NoSuchElementException
+	 *             If any essential part of the parser data is not provided,
+	 *             i.e., is null, or if the agenda cannot be created.
+	 */
+	public CYKParser(ParserData pd, String agendaType, String agendaParams,
+			Numberer nb) throws NoSuchElementException {
 		// get the logger and the log level
 		logger = Logger.getLogger(CYKParser.class.getPackage().getName());
 		Logger getLevelLogger = logger;
@@ -156,13 +200,11 @@ public class CYKParser implements RCGParser {
 		} catch (UnknownFormatException e) {
 		}
 		this.agendaType = agendaType;
-		try {
-			agenda = PriorityAgendaFactory.getPriorityAgenda(agendaType, pd.nb);
-		} catch (UnknownFormatException e) {
-			throw new NoSuchElementException(
-					"Could not get a priority agenda of type " + agendaType);
-		}
+		this.agendaParams = agendaParams;
+		agenda = newAgenda();
 		chart = new CYKChart();
+		arena = new CYKItemArena();
+		transport = new ArrayList<CYKItem>();
 		goal = null;
 	}
 
@@ -170,24 +212,59 @@ public class CYKParser implements RCGParser {
 	public void reset() {
 		// agenda.clear();
 		// chart.clear();
+		agenda = newAgenda();
+		chart = new CYKChart();
+		// the items of the last sentence are not needed anymore, the result
+		// has been written
+		arena.reset();
+		transport.clear();
+		goal = null;
+		pd.yfcomp.reset();
+	}
+
+	/**
+	 * Get a new agenda of the configured type, for every sentence.
+	 * Subclasses can override this in order to watch the agenda.
+	 * 
+	 * @return The agenda
+	 * @throws NoSuchElementException
+	 *             If the agenda cannot be created
+	 */
+	protected PriorityAgenda newAgenda() throws NoSuchElementException {
 		try {
-			agenda = PriorityAgendaFactory.getPriorityAgenda(agendaType, pd.nb);
+			return PriorityAgendaFactory.getPriorityAgenda(agendaType, pd.nb,
+					agendaParams, pd.bg.startSymbol);
 		} catch (UnknownFormatException e) {
 			throw new NoSuchElementException(
 					"Could not get a priority agenda of type " + agendaType);
+		} catch (ParameterException e) {
+			throw new NoSuchElementException(
+					"Could not get a priority agenda with parameters "
+							+ agendaParams + ": " + e.getMessage());
 		}
-		agenda = new PriorityAgendaFibonacci(pd.nb);
-		chart = new CYKChart();
-		goal = null;
-		pd.yfcomp.reset();
-		// getting new instances and calling the garbage collector is faster
-		// than clearing.
-		System.gc();
+	}
+
+	/**
+	 * Prune the items of every sentence with a coarse-to-fine pass, see
+	 * {@link CoarseToFinePruner}.
+	 * 
+	 * @param pruner
+	 *            The pruner, null for no pruning
+	 */
+	public void setPruner(CoarseToFinePruner pruner) {
+		this.pruner = pruner;
+	}
+
+	@Override
+	public void setMetrics(ParseMetrics metrics) {
+		this.metrics = metrics;
 	}
 
 	@Override
 	public String getStats() {
 		return agenda.getStats() + "\n" + "Chart size: " + chart.size() + "\n"
+				+ arena.getStats() + "\n"
+				+ (pruner != null ? pruner.getStats() + "\n" : "")
 				+ "Composer stats: " + pd.yfcomp.stats();
 	}
 
@@ -208,21 +285,26 @@ public class CYKParser implements RCGParser {
 	 * Build a tree from the goal item.
 	 */
 	private Node buildTree(CYKItem it) {
-		NodeLabel plabel = new NodeLabel();
-		String tag = (String) pd.nb.getObjectWithId(GrammarConstants.PREDLABEL,
-				it.pl);
-		plabel.setTag(Utilities.removeArity(tag));
+		NodeLabel plabel = newLabel(it.pl);
 		Node ret = new Node(plabel);
 		if (it.olc != null) {
 			Node lcn = buildTree(it.olc);
+			if (unaryClosure && it.orc == null) {
+				// expand the chain of unary clauses
+				int[] path = pd.bg.freeze().unaryPath(it.olc.pl, it.pl);
+				for (int i = path.length - 1; i >= 0; --i) {
+					Node chn = new Node(newLabel(path[i]));
+					chn.appendChild(lcn);
+					lcn = chn;
+				}
+			}
 			ret.appendChild(lcn);
 		} else {
 			// determine term position
 			int i = 0;
 			for (; i < words.length && !it.rvec.get(i); ++i)
 				;
-			plabel.setWord((String) pd.nb.getObjectWithId(
-					LexiconConstants.INPUTWORD, words[i]));
+			plabel.setWord(input.getWord(i, pd.nb));
 			terminals[i] = ret;
 			plabel.setNum(i + 1);
 		}
@@ -230,8 +312,19 @@ public class CYKParser implements RCGParser {
 			Node rcn = buildTree(it.orc);
 			ret.appendChild(rcn);
 		}
-		plabel.setEdge("--");
-		plabel.setMorph("--");
+		return ret;
+	}
+
+	/*
+	 * A node label for a predicate
+	 */
+	private NodeLabel newLabel(int pl) {
+		NodeLabel ret = new NodeLabel();
+		String tag = (String) pd.nb.getObjectWithId(GrammarConstants.PREDLABEL,
+				pl);
+		ret.setTag(Utilities.removeArity(tag));
+		ret.setEdge("--");
+		ret.setMorph("--");
 		return ret;
 	}
 
@@ -247,21 +340,149 @@ public class CYKParser implements RCGParser {
 	@Override
 	public boolean parseWithTimeout(ParserInput pi, int timeout)
 			throws TimeoutException {
+		this.input = pi;
 		this.words = pi.getWords();
+		long starttime = 0;
+		long decreaseKeys = 0;
+		if (metrics != null) {
+			metrics.clear();
+			metrics.length = words.length;
+			starttime = System.nanoTime();
+			decreaseKeys = agenda.getDecreaseKeyCount();
+		}
+		if (pruner != null)
+			pruner.prepare(pi.getTags());
 		try {
 			if (deterministicBinarization && pd.doFilter)
 				doParseDeterministicFilters(words, pi.getTags(),
 						pi.tagsAsSet(), timeout);
 			else
 				doParse(words, pi.getTags(), timeout);
+		} catch (TimeoutException e) {
+			if (metrics != null)
+				metrics.timeout = true;
+			throw e;
 		} finally {
 			if (goal != null)
-				System.err.println(goal);
-			System.err.println("chart size: " + chart.values().size());
+				logger.fine("goal: " + goal.print(pd.nb));
+			logger.fine("chart size: " + chart.size());
+			if (metrics != null) {
+				metrics.totalNanos = System.nanoTime() - starttime;
+				metrics.decreaseKeys = agenda.getDecreaseKeyCount()
+						- decreaseKeys;
+				metrics.parsed = goal != null;
+				if (goal != null)
+					metrics.gapDegree = gapDegree(goal);
+			}
 		}
 		return goal != null;
 	}
 
+	// The following methods access agenda, chart, estimate and composer.
+	// They count and time the accesses if metrics are collected.
+
+	private CYKItem poll() {
+		if (metrics == null)
+			return agenda.poll();
+		long t = System.nanoTime();
+		CYKItem ret = agenda.poll();
+		metrics.agendaNanos += System.nanoTime() - t;
+		++metrics.popped;
+		return ret;
+	}
+
+	private void push(CYKItem it) {
+		if (metrics == null) {
+			agenda.push(it);
+			return;
+		}
+		long t = System.nanoTime();
+		agenda.push(it);
+		metrics.agendaNanos += System.nanoTime() - t;
+		++metrics.pushed;
+		metrics.peakAgenda = Math.max(metrics.peakAgenda, agenda.size());
+	}
+
+	private void addToChart(CYKItem it) {
+		if (metrics == null) {
+			chart.add(it);
+			return;
+		}
+		long t = System.nanoTime();
+		chart.add(it);
+		metrics.chartNanos += System.nanoTime() - t;
+		metrics.addChartItem(fanout(it.rvec));
+	}
+
+	private boolean inChart(CYKItem it) {
+		if (metrics == null)
+			return chart.contains(it);
+		long t = System.nanoTime();
+		boolean ret = chart.contains(it);
+		metrics.chartNanos += System.nanoTime() - t;
+		return ret;
+	}
+
+	private double estimate(int slen, CYKItem it, int[] tags) {
+		if (metrics == null)
+			return pd.est.get(slen, it.pl, it.rvec, tags);
+		long t = System.nanoTime();
+		double ret = pd.est.get(slen, it.pl, it.rvec, tags);
+		metrics.estimateNanos += System.nanoTime() - t;
+		++metrics.estimateLookups;
+		return ret;
+	}
+
+	private BitSet compose(CYKItem lit, CYKItem rit, BinaryClause bc,
+			IntegerContainer start, IntegerContainer end) {
+		if (metrics == null)
+			return pd.yfcomp.composeYields(lit, rit, bc, start, end);
+		long t = System.nanoTime();
+		BitSet ret = pd.yfcomp.composeYields(lit, rit, bc, start, end);
+		metrics.compositionNanos += System.nanoTime() - t;
+		++metrics.compositions;
+		if (ret != null)
+			++metrics.compositionSuccesses;
+		return ret;
+	}
+
+	/**
+	 * The number of blocks of a range vector.
+	 * 
+	 * @param rvec
+	 *            The range vector
+	 * @return The fan-out
+	 */
+	public static int fanout(BitSet rvec) {
+		int ret = 0;
+		for (int i = rvec.nextSetBit(0); i >= 0; i = rvec.nextSetBit(rvec
+				.nextClearBit(i)))
+			++ret;
+		return ret;
+	}
+
+	// the maximal number of gaps of an item in the derivation of an item
+	private static int gapDegree(CYKItem it) {
+		int ret = fanout(it.rvec) - 1;
+		if (it.olc != null)
+			ret = Math.max(ret, gapDegree(it.olc));
+		if (it.orc != null)
+			ret = Math.max(ret, gapDegree(it.orc));
+		return ret;
+	}
+
+	/*
+	 * Restrict the grammar to the clauses which can be used for the tags of
+	 * the sentence.
+	 */
+	private FrozenBinaryRCG.Restriction restrict(FrozenBinaryRCG fg,
+			int[] tags, boolean[] allowed) {
+		FrozenBinaryRCG.Restriction ret = fg.restrict(tags,
+				pd.bg.startSymbol, allowed);
+		logger.fine("usable clauses: " + ret.clauseCount() + " of " + fg.size);
+		return ret;
+	}
+
 	/**
 	 * Do weighted deductive parsing
 	 * 
@@ -279,17 +500,20 @@ public class CYKParser implements RCGParser {
 
 		CYKItem item;
 		for (int i = 0; i < tags.length; ++i) {
-			BitSet rv = new BitSet();
-			rv.set(0, tags.length, false);
-			rv.set(i);
-			item = new CYKItem(tags[i], 0.0, rv, null, null, words.length,
-					true, i, i);
-			item.oscore = pd.est.get(words.length, tags[i], item.rvec, tags);
-			agenda.push(item);
+			item = arena.obtain();
+			item.rvec.set(i);
+			item.init(tags[i], 0.0, null, null, words.length, true, i, i);
+			item.oscore = estimate(words.length, item, tags);
+			push(item);
 		}
 
 		BitSet yp = null;
-		ArrayList<CYKItem> transport = new ArrayList<CYKItem>();
+		FrozenBinaryRCG fg = pd.bg.freeze();
+		FrozenBinaryRCG.Restriction rs = restrict(fg, tags, null);
+		// pushing all targets of a chain at once changes the order in which
+		// items are popped, which only leaves the parse unchanged if the
+		// estimate is consistent
+		unaryClosure = pd.est.isConsistent();
 		IntegerContainer start = new IntegerContainer(-1);
 		IntegerContainer end = new IntegerContainer(-1);
 		CYKItem nit = null;
@@ -302,8 +526,8 @@ public class CYKParser implements RCGParser {
 				throw new TimeoutException();
 			}
 
-			item = agenda.poll();
-			chart.add(item);
+			item = poll();
+			addToChart(item);
 
 			if (logLevel.equals(Level.FINEST)) {
 				String lstring = "";
@@ -327,41 +551,63 @@ public class CYKParser implements RCGParser {
 
 			logger.fine("Processing " + item.print(pd.nb));
 
+			// the best chains of unary clauses on top of the item, in one step;
+			// an item which was itself derived by such a chain has nothing to add
+			if (unaryClosure && (item.olc == null || item.orc != null)) {
+				int ue = fg.unaryEnd(item.pl);
+				for (int ui = fg.unaryBegin(item.pl); ui < ue; ++ui) {
+					if (!rs.usesLabel(fg.unaryLhs[ui]))
+						continue;
+					nit = arena.obtain();
+					nit.rvec.or(item.rvec);
+					nit.init(fg.unaryLhs[ui], item.iscore + fg.unaryScore[ui],
+							item, null, words.length, item.iscf, item.start,
+							item.end);
+					transport.add(nit);
+				}
+			}
+
 			// item is left child
-			if (pd.bg.clByLc.containsKey(item.pl)) {
-				for (BinaryClause bc : pd.bg.clByLc.get(item.pl)) {
-
-					// do we have unary clause?
-					if (bc.rc == -1) {
-						nit = new CYKItem(bc.lhs, item.iscore + bc.score,
-								(BitSet) item.rvec.clone(), item, null,
-								words.length, item.iscf, item.start, item.end);
+			int ce = fg.lcEnd(item.pl);
+			for (int ci = fg.lcBegin(item.pl); ci < ce; ++ci) {
+				BinaryClause bc = fg.clause[ci];
+
+				if (fg.rc[ci] == -1) {
+					// unary clause, unless covered by the closure
+					if (!unaryClosure && rs.usesClause(ci)) {
+						nit = arena.obtain();
+						nit.rvec.or(item.rvec);
+						nit.init(fg.lhs[ci], item.iscore + fg.score[ci], item,
+								null, words.length, item.iscf, item.start,
+								item.end);
 						transport.add(nit);
-					} else {
-						if (chart.containsKey(bc.rc)) {
-							for (BitSet candvec : chart.get(bc.rc).keySet()) {
-								CYKItem candit = chart.get(bc.rc).get(candvec);
-								if (bc.iscf && item.iscf && candit.iscf) {
-									if (item.end + 1 == candit.start) {
-										yp = (BitSet) item.rvec.clone();
-										yp.xor(candit.rvec);
-										nit = new CYKItem(bc.lhs, item.iscore
-												+ candit.iscore + bc.score, yp,
-												item, candit, words.length,
-												true, item.start, candit.end);
-										transport.add(nit);
-									}
-								} else {
-									yp = pd.yfcomp.composeYields(item, candit,
-											bc.yf, start, end);
-									if (yp != null) {
-										// start/end fields
-										nit = new CYKItem(bc.lhs, item.iscore
-												+ candit.iscore + bc.score, yp,
-												item, candit, words.length,
-												false, start.i, end.i);
-										transport.add(nit);
-									}
+					}
+				} else if (rs.usesClause(ci)) {
+					CYKChart.ItemList cands = rightCandidates(bc, item);
+					if (cands != null) {
+						for (int c = 0; c < cands.size(); ++c) {
+							CYKItem candit = cands.get(c);
+							if (fg.iscf[ci] && item.iscf && candit.iscf) {
+								if (item.end + 1 == candit.start) {
+									nit = arena.obtain();
+									nit.rvec.or(item.rvec);
+									nit.rvec.xor(candit.rvec);
+									nit.init(fg.lhs[ci], item.iscore + candit.iscore
+											+ fg.score[ci], item, candit, words.length, true,
+											item.start, candit.end);
+									transport.add(nit);
+								}
+							} else {
+								yp = compose(item, candit,
+										bc, start, end);
+								if (yp != null) {
+									// start/end fields
+									nit = arena.obtain();
+									nit.rvec.or(yp);
+									nit.init(fg.lhs[ci], item.iscore + candit.iscore
+											+ fg.score[ci], item, candit, words.length, false,
+											item.start, Math.max(item.end, candit.end));
+									transport.add(nit);
 								}
 							}
 						}
@@ -370,32 +616,37 @@ public class CYKParser implements RCGParser {
 			}
 
 			// item is right child
-			if (pd.bg.clByRc.containsKey(item.pl)) {
-				for (BinaryClause bc : pd.bg.clByRc.get(item.pl)) {
-
-					if (chart.containsKey(bc.lc)) {
-						for (BitSet candvec : chart.get(bc.lc).keySet()) {
-							CYKItem candit = chart.get(bc.lc).get(candvec);
-							if (bc.iscf && item.iscf && candit.iscf) {
-								if (candit.end + 1 == item.start) {
-									yp = (BitSet) item.rvec.clone();
-									yp.xor(candit.rvec);
-									nit = new CYKItem(bc.lhs, item.iscore
-											+ candit.iscore + bc.score, yp,
-											candit, item, words.length, true,
-											candit.start, item.end);
-									transport.add(nit);
-								}
-							} else {
-								yp = pd.yfcomp.composeYields(candit, item,
-										bc.yf, start, end);
-								if (yp != null) {
-									nit = new CYKItem(bc.lhs, item.iscore
-											+ candit.iscore + bc.score, yp,
-											candit, item, words.length, false,
-											start.i, end.i);
-									transport.add(nit);
-								}
+			int re = fg.rcEnd(item.pl);
+			for (int ri = fg.rcBegin(item.pl); ri < re; ++ri) {
+				int ci = fg.byRc[ri];
+				if (!rs.usesClause(ci))
+					continue;
+				BinaryClause bc = fg.clause[ci];
+
+				CYKChart.ItemList cands = leftCandidates(bc, item);
+				if (cands != null) {
+					for (int c = 0; c < cands.size(); ++c) {
+						CYKItem candit = cands.get(c);
+						if (fg.iscf[ci] && item.iscf && candit.iscf) {
+							if (candit.end + 1 == item.start) {
+								nit = arena.obtain();
+								nit.rvec.or(item.rvec);
+								nit.rvec.xor(candit.rvec);
+								nit.init(fg.lhs[ci], item.iscore + candit.iscore
+										+ fg.score[ci], candit, item, words.length, true,
+										candit.start, item.end);
+								transport.add(nit);
+							}
+						} else {
+							yp = compose(candit, item,
+									bc, start, end);
+							if (yp != null) {
+								nit = arena.obtain();
+								nit.rvec.or(yp);
+								nit.init(fg.lhs[ci], item.iscore + candit.iscore
+										+ fg.score[ci], candit, item, words.length, false,
+										candit.start, Math.max(item.end, candit.end));
+								transport.add(nit);
 							}
 						}
 					}
@@ -403,8 +654,9 @@ public class CYKParser implements RCGParser {
 			}
 
 			for (CYKItem it : transport) {
-				if (!chart.hasScore(it.pl, it.rvec)) {
-					it.oscore = pd.est.get(words.length, it.pl, it.rvec, tags);
+				if (!inChart(it)
+						&& (pruner == null || pruner.allows(it))) {
+					it.oscore = estimate(words.length, it, tags);
 					// if (it.oscore > Double.NEGATIVE_INFINITY) {
 					if (logLevel.equals(Level.FINEST)) {
 						String lstring = "";
@@ -417,17 +669,50 @@ public class CYKParser implements RCGParser {
 						logger.finest("--> agenda item: " + it.print(pd.nb)
 								+ " # " + lstring + "|" + rstring);
 					}
-					agenda.push(it);
+					push(it);
 					// }
+				} else {
+					// never referenced, use it again
+					arena.release(it);
 				}
 			}
-			transport = new ArrayList<CYKItem>();
+			transport.clear();
 
 		}
 
 		return goal != null;
 	}
 
+	/*
+	 * Get the items from the chart which can be the right child of a clause
+	 * whose left child is the given item. If the clause requires a block of
+	 * the right child to be adjacent to a block of the item, only items
+	 * starting resp. ending at the corresponding position are returned.
+	 */
+	private CYKChart.ItemList rightCandidates(BinaryClause bc, CYKItem item) {
+		CYKChart.ItemTable table = chart.getItems(bc.rc);
+		if (table == null)
+			return null;
+		if (bc.lcBlockBeforeRc != -1)
+			return table.getStartingAt(item.blockEnd(bc.lcBlockBeforeRc) + 1);
+		if (bc.lcBlockAfterRc != -1)
+			return table.getEndingAt(item.blockStart(bc.lcBlockAfterRc) - 1);
+		return table;
+	}
+
+	/*
+	 * Get the items from the chart which can be the left child of a clause
+	 * whose right child is the given item, see above.
+	 */
+	private CYKChart.ItemList leftCandidates(BinaryClause bc, CYKItem item) {
+		CYKChart.ItemTable table = chart.getItems(bc.lc);
+		if (table == null)
+			return null;
+		if (bc.rcBlockAfterLc != -1)
+			return table.getEndingAt(item.blockStart(bc.rcBlockAfterLc) - 1);
+		return table;
+	}
+
 	@Override
 	public void writeResult(Writer w, int scnt, ProcessingTask<Tree> task)
 			throws IOException, TreebankException {
@@ -465,13 +750,11 @@ public class CYKParser implements RCGParser {
 		CYKItem item;
 		// scan: One item for every input word, resp. tag.
 		for (int i = 0; i < tags.length; ++i) {
-			BitSet rv = new BitSet();
-			rv.set(0, tags.length, false);
-			rv.set(i);
-			item = new CYKItem(tags[i], 0.0, rv, null, null, words.length,
-					true, i, i);
-			item.oscore = pd.est.get(words.length, tags[i], item.rvec, tags);
-			agenda.push(item);
+			item = arena.obtain();
+			item.rvec.set(i);
+			item.init(tags[i], 0.0, null, null, words.length, true, i, i);
+			item.oscore = estimate(words.length, item, tags);
+			push(item);
 		}
 
 		// Holds the resulting range vector after applying a deduction rule
@@ -481,11 +764,26 @@ public class CYKParser implements RCGParser {
 		// Holds all items which can be created from another one. After all of
 		// them
 		// have been created, the get added in bulk to the agenda.
-		ArrayList<CYKItem> transport = new ArrayList<CYKItem>();
+		FrozenBinaryRCG fg = pd.bg.freeze();
+		// filter: this only works with deterministic binarization
+		boolean[] allowed = new boolean[fg.size];
+		for (int ci = 0; ci < fg.size; ++ci) {
+			BinaryClause bc = fg.clause[ci];
+			allowed[ci] = true;
+			if (bc.unbinarizedTopRhspterm != null) {
+				for (int i = 0; i < bc.unbinarizedTopRhspterm.length
+						&& allowed[ci]; ++i) {
+					if (bc.unbinarizedTopRhspterm[i])
+						allowed[ci] = tagset
+								.contains(bc.unbinarizedTopRhsnames[i]);
+				}
+			}
+		}
+		FrozenBinaryRCG.Restriction rs = restrict(fg, tags, allowed);
+		unaryClosure = false;
 		// Shortcuts for items which are continuous constituents
 		IntegerContainer start = new IntegerContainer(-1);
 		IntegerContainer end = new IntegerContainer(-1);
-		boolean cont = false;
 
 		// Weighted Deductive Parsing
 		long starttime = System.nanoTime();
@@ -496,8 +794,8 @@ public class CYKParser implements RCGParser {
 			}
 
 			// get an item and put in the agenda.
-			item = agenda.poll();
-			chart.add(item);
+			item = poll();
+			addToChart(item);
 
 			if (logLevel.equals(Level.FINEST)) {
 				String lstring = "";
@@ -521,54 +819,46 @@ public class CYKParser implements RCGParser {
 			logger.fine("Processing " + item.print(pd.nb));
 
 			// item is left child
-			if (pd.bg.clByLc.containsKey(item.pl)) {
-				for (BinaryClause bc : pd.bg.clByLc.get(item.pl)) {
-
-					// filter: this only works with deterministic binarization
-					cont = false;
-					if (bc.unbinarizedTopRhspterm != null) {
-						for (int i = 0; i < bc.unbinarizedTopRhspterm.length
-								&& !cont; ++i) {
-							if (bc.unbinarizedTopRhspterm[i]) {
-								cont = !(tagset
-										.contains(bc.unbinarizedTopRhsnames[i]));
-							}
-						}
-					}
-					if (cont)
-						continue;
-
-					// do we have unary clause?
-					if (bc.rc == -1) {
-						nit = new CYKItem(bc.lhs, item.iscore + bc.score,
-								(BitSet) item.rvec.clone(), item, null,
-								words.length, item.iscf, item.start, item.end);
-						transport.add(nit);
-					} else {
-						if (chart.containsKey(bc.rc)) {
-							for (BitSet candvec : chart.get(bc.rc).keySet()) {
-								CYKItem candit = chart.get(bc.rc).get(candvec);
-								if (bc.iscf && item.iscf && candit.iscf) {
-									if (item.end + 1 == candit.start) {
-										yp = (BitSet) item.rvec.clone();
-										yp.xor(candit.rvec);
-										nit = new CYKItem(bc.lhs, item.iscore
-												+ candit.iscore + bc.score, yp,
-												item, candit, words.length,
-												true, item.start, candit.end);
-										transport.add(nit);
-									}
-								} else {
-									yp = pd.yfcomp.composeYields(item, candit,
-											bc.yf, start, end);
-									if (yp != null) {
-										// start/end fields
-										nit = new CYKItem(bc.lhs, item.iscore
-												+ candit.iscore + bc.score, yp,
-												item, candit, words.length,
-												false, start.i, end.i);
-										transport.add(nit);
-									}
+			int ce = fg.lcEnd(item.pl);
+			for (int ci = fg.lcBegin(item.pl); ci < ce; ++ci) {
+				BinaryClause bc = fg.clause[ci];
+
+				if (!rs.usesClause(ci))
+					continue;
+
+				// do we have unary clause?
+				if (fg.rc[ci] == -1) {
+					nit = arena.obtain();
+					nit.rvec.or(item.rvec);
+					nit.init(fg.lhs[ci], item.iscore + fg.score[ci], item, null,
+							words.length, item.iscf, item.start, item.end);
+					transport.add(nit);
+				} else {
+					CYKChart.ItemList cands = rightCandidates(bc, item);
+					if (cands != null) {
+						for (int c = 0; c < cands.size(); ++c) {
+							CYKItem candit = cands.get(c);
+							if (fg.iscf[ci] && item.iscf && candit.iscf) {
+								if (item.end + 1 == candit.start) {
+									nit = arena.obtain();
+									nit.rvec.or(item.rvec);
+									nit.rvec.xor(candit.rvec);
+									nit.init(fg.lhs[ci], item.iscore + candit.iscore
+											+ fg.score[ci], item, candit, words.length, true,
+											item.start, candit.end);
+									transport.add(nit);
+								}
+							} else {
+								yp = compose(item, candit,
+										bc, start, end);
+								if (yp != null) {
+									// start/end fields
+									nit = arena.obtain();
+									nit.rvec.or(yp);
+									nit.init(fg.lhs[ci], item.iscore + candit.iscore
+											+ fg.score[ci], item, candit, words.length, false,
+											item.start, Math.max(item.end, candit.end));
+									transport.add(nit);
 								}
 							}
 						}
@@ -577,45 +867,38 @@ public class CYKParser implements RCGParser {
 			}
 
 			// item is right child
-			if (pd.bg.clByRc.containsKey(item.pl)) {
-				for (BinaryClause bc : pd.bg.clByRc.get(item.pl)) {
-
-					// filter
-					cont = false;
-					if (bc.unbinarizedTopRhspterm != null) {
-						for (int i = 0; i < bc.unbinarizedTopRhspterm.length
-								&& !cont; ++i) {
-							if (bc.unbinarizedTopRhspterm[i])
-								cont = !(tagset
-										.contains(bc.unbinarizedTopRhsnames[i]));
-						}
-					}
-					if (cont)
-						continue;
-
-					if (chart.containsKey(bc.lc)) {
-						for (BitSet candvec : chart.get(bc.lc).keySet()) {
-							CYKItem candit = chart.get(bc.lc).get(candvec);
-							if (bc.iscf && item.iscf && candit.iscf) {
-								if (candit.end + 1 == item.start) {
-									yp = (BitSet) item.rvec.clone();
-									yp.xor(candit.rvec);
-									nit = new CYKItem(bc.lhs, item.iscore
-											+ candit.iscore + bc.score, yp,
-											candit, item, words.length, true,
-											candit.start, item.end);
-									transport.add(nit);
-								}
-							} else {
-								yp = pd.yfcomp.composeYields(candit, item,
-										bc.yf, start, end);
-								if (yp != null) {
-									nit = new CYKItem(bc.lhs, item.iscore
-											+ candit.iscore + bc.score, yp,
-											candit, item, words.length, false,
-											start.i, end.i);
-									transport.add(nit);
-								}
+			int re = fg.rcEnd(item.pl);
+			for (int ri = fg.rcBegin(item.pl); ri < re; ++ri) {
+				int ci = fg.byRc[ri];
+				BinaryClause bc = fg.clause[ci];
+
+				if (!rs.usesClause(ci))
+					continue;
+
+				CYKChart.ItemList cands = leftCandidates(bc, item);
+				if (cands != null) {
+					for (int c = 0; c < cands.size(); ++c) {
+						CYKItem candit = cands.get(c);
+						if (fg.iscf[ci] && item.iscf && candit.iscf) {
+							if (candit.end + 1 == item.start) {
+								nit = arena.obtain();
+								nit.rvec.or(item.rvec);
+								nit.rvec.xor(candit.rvec);
+								nit.init(fg.lhs[ci], item.iscore + candit.iscore
+										+ fg.score[ci], candit, item, words.length, true,
+										candit.start, item.end);
+								transport.add(nit);
+							}
+						} else {
+							yp = compose(candit, item,
+									bc, start, end);
+							if (yp != null) {
+								nit = arena.obtain();
+								nit.rvec.or(yp);
+								nit.init(fg.lhs[ci], item.iscore + candit.iscore
+										+ fg.score[ci], candit, item, words.length, false,
+										candit.start, Math.max(item.end, candit.end));
+								transport.add(nit);
 							}
 						}
 					}
@@ -623,8 +906,9 @@ public class CYKParser implements RCGParser {
 			}
 
 			for (CYKItem it : transport) {
-				if (!chart.hasScore(it.pl, it.rvec)) {
-					it.oscore = pd.est.get(words.length, it.pl, it.rvec, tags);
+				if (!inChart(it)
+						&& (pruner == null || pruner.allows(it))) {
+					it.oscore = estimate(words.length, it, tags);
 					if (logLevel.equals(Level.FINEST)) {
 						String lstring = "";
 						if (item.olc != null)
@@ -636,10 +920,13 @@ public class CYKParser implements RCGParser {
 						logger.finest("--> agenda item: " + it.print(pd.nb)
 								+ " # " + lstring + "|" + rstring);
 					}
-					agenda.push(it);
+					push(it);
+				} else {
+					// never referenced, use it again
+					arena.release(it);
 				}
 			}
-			transport = new ArrayList<CYKItem>();
+			transport.clear();
 
 		}
 
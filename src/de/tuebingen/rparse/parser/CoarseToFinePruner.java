@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * File CoarseToFinePruner.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import de.tuebingen.rparse.grammar.FrozenBinaryRCG;
+
+/**
+ * Coarse-to-fine pruning for the CYK parser. The binary LCFRS is projected to a PCFG in which every component of a
+ * label is a symbol of its own and spans a contiguous part of the sentence (a split-PCFG): a clause A(x_1,...,x_f) -->
+ * B C gives one rule per argument x_i of A, which rewrites the i-th component of A to the components of B and C in
+ * x_i (binarized with intermediate symbols). The score of the clause goes to the rule of the first argument, such
+ * that the projection of an LCFRS derivation has exactly the score of the derivation.
+ * 
+ * Before a sentence gets parsed, the PCFG is parsed with CYK, and Viterbi inside and outside scores are computed for
+ * every symbol and span. An LCFRS item is then only allowed if for every block of its range vector, the best
+ * derivation of the sentence through the corresponding component and span is at most {@code threshold} worse than
+ * the best derivation of the PCFG. Since the PCFG is a relaxation of the LCFRS, the best LCFRS derivation survives as
+ * long as its score is within the threshold of the best PCFG derivation. If the PCFG has no parse, nothing is pruned.
+ * The pruning is not exact: if the best LCFRS derivation is further away from the best PCFG derivation than the
+ * threshold, the parser returns a worse parse (or none), but never a better one than exact search.
+ * 
+ * Per sentence, a cell only stores the symbols with a finite inside score, such that memory grows with the symbols
+ * which are actually derived over a span, not with all symbols of the PCFG.
+ * 
+ * @author wmaier
+ */
+public class CoarseToFinePruner {
+
+    /**
+     * Default threshold (a score difference, i.e., a negative log probability)
+     */
+    public static final double DEFAULT_THRESHOLD = 10.0;
+
+    private final FrozenBinaryRCG fg;
+
+    private final double          threshold;
+
+    // dense label id -> first symbol of its components, and number of components
+    private final int[]           compBase;
+
+    private final int[]           compCount;
+
+    // number of symbols (components and intermediate symbols)
+    private final int             symbols;
+
+    // the symbol of the start label
+    private final int             root;
+
+    // binary rules, ordered by left child, see byLeft
+    private final int[]           bParent;
+
+    private final int[]           bLeft;
+
+    private final int[]           bRight;
+
+    private final double[]        bCost;
+
+    private final int[]           byLeft;
+
+    // unary rules, ordered by child, see byChild
+    private final int[]           uParent;
+
+    private final int[]           uChild;
+
+    private final double[]        uCost;
+
+    private final int[]           byChild;
+
+    // per sentence: the cells are spans (i,j), see cell(). A cell only holds the symbols with a finite inside score,
+    // sorted, at the positions cellStart[c] ... cellStart[c] + cellSize[c] - 1 of sym, inside and outside. All of
+    // them are reused across sentences.
+    private int                   n;
+
+    private int[]                 cellStart;
+
+    private int[]                 cellSize;
+
+    // cells which have got an outside score
+    private boolean[]             reached;
+
+    private int                   used;
+
+    private int[]                 sym;
+
+    private double[]              inside;
+
+    private double[]              outside;
+
+    // indexed by symbol: the inside scores of the cell which is being built (infinite if not reached yet) and its
+    // symbols so far, and the positions of the symbols of the current parent and right child cell (-1 if absent)
+    private final double[]        work;
+
+    private int[]                 touched;
+
+    private int                   touchedCount;
+
+    private final int[]           pslot;
+
+    private final int[]           rslot;
+
+    // the score of the best PCFG derivation, infinite if there is none
+    private double                best;
+
+    private long                  pruned;
+
+    private long                  allowed;
+
+    /**
+     * Build the projection.
+     * 
+     * @param fg
+     *            The binary grammar
+     * @param startSymbol
+     *            The start label of the grammar
+     * @param threshold
+     *            The pruning threshold
+     */
+    public CoarseToFinePruner(FrozenBinaryRCG fg, int startSymbol,
+            double threshold) {
+        this.fg = fg;
+        this.threshold = threshold;
+        int labels = fg.labelCount();
+        compBase = new int[labels];
+        compCount = new int[labels];
+        int sym = 0;
+        for (int id = 0; id < labels; ++id) {
+            compBase[id] = sym;
+            compCount[id] = Math.max(1, fg.getArity(fg.labelOf(id)));
+            sym += compCount[id];
+        }
+
+        List<double[]> binary = new ArrayList<double[]>();
+        List<double[]> unary = new ArrayList<double[]>();
+        for (int c = 0; c < fg.size; ++c) {
+            int lhs = fg.denseId(fg.lhs[c]);
+            int lc = fg.denseId(fg.lc[c]);
+            boolean[][] yf = fg.yfs[fg.yfId[c]];
+            if (fg.rc[c] == -1) {
+                for (int i = 0; i < yf.length && i < compCount[lhs]
+                        && i < compCount[lc]; ++i) {
+                    unary.add(new double[] { compBase[lhs] + i,
+                            compBase[lc] + i, i == 0 ? fg.score[c] : 0.0 });
+                }
+                continue;
+            }
+            int rc = fg.denseId(fg.rc[c]);
+            int nextLc = 0;
+            int nextRc = 0;
+            for (int i = 0; i < yf.length && i < compCount[lhs]; ++i) {
+                int[] rhs = new int[yf[i].length];
+                for (int j = 0; j < yf[i].length; ++j) {
+                    if (yf[i][j])
+                        rhs[j] = compBase[rc] + Math.min(nextRc++, compCount[rc] - 1);
+                    else
+                        rhs[j] = compBase[lc] + Math.min(nextLc++, compCount[lc] - 1);
+                }
+                double cost = i == 0 ? fg.score[c] : 0.0;
+                int parent = compBase[lhs] + i;
+                if (rhs.length == 1) {
+                    unary.add(new double[] { parent, rhs[0], cost });
+                    continue;
+                }
+                // binarize to the right
+                for (int j = 0; j < rhs.length - 2; ++j) {
+                    int inter = sym++;
+                    binary.add(new double[] { parent, rhs[j], inter, cost });
+                    cost = 0.0;
+                    parent = inter;
+                }
+                binary.add(new double[] { parent, rhs[rhs.length - 2],
+                        rhs[rhs.length - 1], cost });
+            }
+        }
+        symbols = sym;
+        int startId = fg.denseId(startSymbol);
+        root = startId == -1 ? -1 : compBase[startId];
+
+        bParent = new int[binary.size()];
+        bLeft = new int[binary.size()];
+        bRight = new int[binary.size()];
+        bCost = new double[binary.size()];
+        byLeft = new int[symbols + 1];
+        for (double[] r : binary)
+            ++byLeft[(int) r[1] + 1];
+        for (int s = 0; s < symbols; ++s)
+            byLeft[s + 1] += byLeft[s];
+        int[] pos = Arrays.copyOf(byLeft, symbols);
+        for (double[] r : binary) {
+            int p = pos[(int) r[1]]++;
+            bParent[p] = (int) r[0];
+            bLeft[p] = (int) r[1];
+            bRight[p] = (int) r[2];
+            bCost[p] = r[3];
+        }
+
+        uParent = new int[unary.size()];
+        uChild = new int[unary.size()];
+        uCost = new double[unary.size()];
+        byChild = new int[symbols + 1];
+        for (double[] r : unary)
+            ++byChild[(int) r[1] + 1];
+        for (int s = 0; s < symbols; ++s)
+            byChild[s + 1] += byChild[s];
+        pos = Arrays.copyOf(byChild, symbols);
+        for (double[] r : unary) {
+            int p = pos[(int) r[1]]++;
+            uParent[p] = (int) r[0];
+            uChild[p] = (int) r[1];
+            uCost[p] = r[2];
+        }
+        work = new double[symbols];
+        Arrays.fill(work, Double.POSITIVE_INFINITY);
+        pslot = new int[symbols];
+        Arrays.fill(pslot, -1);
+        rslot = new int[symbols];
+        Arrays.fill(rslot, -1);
+        touched = new int[8];
+        cellStart = new int[0];
+        cellSize = new int[0];
+        reached = new boolean[0];
+        this.sym = new int[64];
+        inside = new double[64];
+        outside = new double[64];
+        best = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Parse a sentence with the PCFG and compute the mask for the items.
+     * 
+     * @param tags
+     *            The tags of the sentence
+     * @return True if the PCFG has a parse, i.e., if items get pruned
+     */
+    public boolean prepare(int[] tags) {
+        n = tags.length;
+        int cells = n * (n + 1) / 2;
+        if (cellStart.length < cells) {
+            cellStart = new int[cells];
+            cellSize = new int[cells];
+            reached = new boolean[cells];
+        }
+        Arrays.fill(cellSize, 0, cells, 0);
+        Arrays.fill(reached, 0, cells, false);
+        used = 0;
+        pruned = 0;
+        allowed = 0;
+        best = Double.POSITIVE_INFINITY;
+        if (root == -1 || n == 0)
+            return false;
+
+        // inside
+        for (int i = 0; i < n; ++i) {
+            int id = fg.denseId(tags[i]);
+            if (id != -1)
+                improveInside(compBase[id], 0.0);
+            closeInside();
+            store(cell(i, i));
+        }
+        for (int len = 2; len <= n; ++len) {
+            for (int i = 0; i + len - 1 < n; ++i) {
+                int j = i + len - 1;
+                for (int k = i; k < j; ++k) {
+                    int lcell = cell(i, k);
+                    int rcell = cell(k + 1, j);
+                    if (cellSize[lcell] == 0 || cellSize[rcell] == 0)
+                        continue;
+                    load(rslot, rcell);
+                    int le = cellStart[lcell] + cellSize[lcell];
+                    for (int p = cellStart[lcell]; p < le; ++p) {
+                        int ls = sym[p];
+                        double lscore = inside[p];
+                        for (int r = byLeft[ls]; r < byLeft[ls + 1]; ++r) {
+                            int q = rslot[bRight[r]];
+                            if (q != -1)
+                                improveInside(bParent[r], lscore + inside[q]
+                                        + bCost[r]);
+                        }
+                    }
+                    unload(rslot, rcell);
+                }
+                closeInside();
+                store(cell(i, j));
+            }
+        }
+        int top = cell(0, n - 1);
+        int rp = find(top, root);
+        if (rp == -1)
+            return false;
+        best = inside[rp];
+
+        // outside, top-down
+        outside[rp] = 0.0;
+        reached[top] = true;
+        for (int len = n; len >= 1; --len) {
+            for (int i = 0; i + len - 1 < n; ++i) {
+                int j = i + len - 1;
+                int pc = cell(i, j);
+                if (!reached[pc])
+                    continue;
+                load(pslot, pc);
+                closeOutside(pc);
+                for (int k = i; k < j; ++k) {
+                    int lcell = cell(i, k);
+                    int rcell = cell(k + 1, j);
+                    if (cellSize[lcell] == 0 || cellSize[rcell] == 0)
+                        continue;
+                    load(rslot, rcell);
+                    int le = cellStart[lcell] + cellSize[lcell];
+                    for (int p = cellStart[lcell]; p < le; ++p) {
+                        int ls = sym[p];
+                        for (int r = byLeft[ls]; r < byLeft[ls + 1]; ++r) {
+                            int pp = pslot[bParent[r]];
+                            int q = rslot[bRight[r]];
+                            if (pp == -1 || q == -1
+                                    || outside[pp] == Double.POSITIVE_INFINITY)
+                                continue;
+                            double po = outside[pp] + bCost[r];
+                            outside[p] = Math.min(outside[p], po + inside[q]);
+                            outside[q] = Math.min(outside[q], po + inside[p]);
+                            reached[lcell] = true;
+                            reached[rcell] = true;
+                        }
+                    }
+                    unload(rslot, rcell);
+                }
+                unload(pslot, pc);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ask if an item may be built.
+     * 
+     * @param it
+     *            The item
+     * @return False if a block of the item is pruned
+     */
+    public boolean allows(CYKItem it) {
+        if (best == Double.POSITIVE_INFINITY)
+            return true;
+        int id = fg.denseId(it.pl);
+        if (id == -1)
+            return true;
+        BitSet vec = it.rvec;
+        int k = 0;
+        for (int s = vec.nextSetBit(0); s >= 0 && k < compCount[id]; s = vec
+                .nextSetBit(s + 1)) {
+            int e = vec.nextClearBit(s) - 1;
+            int p = find(cell(s, e), compBase[id] + k);
+            if (p == -1 || inside[p] + outside[p] > best + threshold) {
+                ++pruned;
+                return false;
+            }
+            ++k;
+            s = e;
+        }
+        ++allowed;
+        return true;
+    }
+
+    /**
+     * Statistics about the last sentence.
+     * 
+     * @return The statistics as a string.
+     */
+    public String getStats() {
+        return "Coarse-to-fine stats: PCFG best: " + best + ", items allowed: "
+                + allowed + ", pruned: " + pruned;
+    }
+
+    // span (i,j), i <= j
+    private static int cell(int i, int j) {
+        return j * (j + 1) / 2 + i;
+    }
+
+    // the position of a symbol in a cell, -1 if it has no inside score there
+    private int find(int c, int s) {
+        int p = Arrays.binarySearch(sym, cellStart[c], cellStart[c]
+                + cellSize[c], s);
+        return p < 0 ? -1 : p;
+    }
+
+    // remember the positions of the symbols of a cell
+    private void load(int[] slot, int c) {
+        int e = cellStart[c] + cellSize[c];
+        for (int p = cellStart[c]; p < e; ++p)
+            slot[sym[p]] = p;
+    }
+
+    private void unload(int[] slot, int c) {
+        int e = cellStart[c] + cellSize[c];
+        for (int p = cellStart[c]; p < e; ++p)
+            slot[sym[p]] = -1;
+    }
+
+    private boolean improveInside(int s, double score) {
+        if (score >= work[s])
+            return false;
+        if (work[s] == Double.POSITIVE_INFINITY) {
+            if (touchedCount == touched.length)
+                touched = Arrays.copyOf(touched, 2 * touched.length);
+            touched[touchedCount++] = s;
+        }
+        work[s] = score;
+        return true;
+    }
+
+    // apply the unary rules until nothing changes anymore (the costs are not negative)
+    private void closeInside() {
+        int[] queue = Arrays.copyOf(touched, touchedCount);
+        int qsize = queue.length;
+        while (qsize > 0) {
+            int s = queue[--qsize];
+            for (int r = byChild[s]; r < byChild[s + 1]; ++r) {
+                if (improveInside(uParent[r], work[s] + uCost[r])) {
+                    if (qsize == queue.length)
+                        queue = Arrays.copyOf(queue, 2 * queue.length + 1);
+                    queue[qsize++] = uParent[r];
+                }
+            }
+        }
+    }
+
+    // move the cell which has been built from work to the end of sym and inside
+    private void store(int c) {
+        Arrays.sort(touched, 0, touchedCount);
+        if (used + touchedCount > sym.length) {
+            int size = Math.max(2 * sym.length, used + touchedCount);
+            sym = Arrays.copyOf(sym, size);
+            inside = Arrays.copyOf(inside, size);
+            outside = Arrays.copyOf(outside, size);
+        }
+        cellStart[c] = used;
+        cellSize[c] = touchedCount;
+        for (int t = 0; t < touchedCount; ++t) {
+            int s = touched[t];
+            sym[used] = s;
+            inside[used] = work[s];
+            outside[used] = Double.POSITIVE_INFINITY;
+            work[s] = Double.POSITIVE_INFINITY;
+            ++used;
+        }
+        touchedCount = 0;
+    }
+
+    // propagate outside scores from the parents of unary rules to their children, until nothing changes anymore; the
+    // positions of the symbols of the cell must be loaded into pslot
+    private void closeOutside(int c) {
+        int e = cellStart[c] + cellSize[c];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = cellStart[c]; p < e; ++p) {
+                int s = sym[p];
+                for (int r = byChild[s]; r < byChild[s + 1]; ++r) {
+                    int pp = pslot[uParent[r]];
+                    if (pp == -1)
+                        continue;
+                    double cand = outside[pp] + uCost[r];
+                    if (cand < outside[p]) {
+                        outside[p] = cand;
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * File HasParseMetrics.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+/**
+ * A parser which can collect {@link ParseMetrics}.
+ * 
+ * @author wmaier
+ */
+public interface HasParseMetrics {
+
+    /**
+     * Collect metrics during the following parses. The metrics are cleared at the beginning of every parse and are
+     * complete when the parse has returned (or has thrown a timeout).
+     * 
+     * @param metrics
+     *            Where to collect the metrics, null to stop collecting
+     */
+    public void setMetrics(ParseMetrics metrics);
+
+}
@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * File MappedModel.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import de.tuebingen.rparse.grammar.BinaryRCG;
+import de.tuebingen.rparse.grammar.estimates.Estimate;
+import de.tuebingen.rparse.grammar.estimates.EstimatesFactory;
+import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.treebank.UnknownTaskException;
+import de.tuebingen.rparse.treebank.lex.Lexicon;
+
+/**
+ * A flat binary model format which is opened via memory mapping. In contrast
+ * to the serialized models of {@link ParserData}, there is no object graph to
+ * be deserialized. The numberer, the lexicon and the binary grammar are
+ * rebuilt from flat tables (which takes time linear in their size), and the
+ * score tables of the estimate (which make up the bulk of a model) are mapped
+ * and used in place, if the estimate supports it (see
+ * {@link Estimate#writeTables}). Other estimates are stored serialized. The
+ * unbinarized grammar is not stored, it is only needed for training.
+ * 
+ * The file starts with a header: the magic number, the format version, the
+ * number of sections and a table which gives type, offset and length of every
+ * section. Sections start at offsets which are multiples of eight. All values
+ * are big-endian.
+ * 
+ * @author wmaier
+ */
+public class MappedModel {
+
+	/**
+	 * The magic number at the start of every model file ("RPMF")
+	 */
+	public static final int MAGIC = 0x52504d46;
+
+	/**
+	 * The current version of the format. Files with a different version are
+	 * rejected.
+	 */
+	public static final int VERSION = 2;
+
+	private static final int MAX_SECTIONS = 16;
+
+	// magic, version, section count, padding, then the section table
+	private static final int HEADER_SIZE = 16 + MAX_SECTIONS * 24;
+
+	// section types
+	private static final int NUMBERER = 0x4e554d42; // NUMB
+	private static final int LEXICON = 0x4c455849; // LEXI
+	private static final int GRAMMAR = 0x4752414d; // GRAM
+	private static final int FLAGS = 0x464c4147; // FLAG
+	private static final int ESTIMATE_HEADER = 0x45535448; // ESTH
+	private static final int ESTIMATE_TABLES = 0x45535454; // ESTT
+	private static final int ESTIMATE_SERIALIZED = 0x45535453; // ESTS
+
+	/**
+	 * Check if a file is a model in this format.
+	 * 
+	 * @param filename
+	 *            The file
+	 * @return true if the file starts with the magic number
+	 * @throws IOException
+	 *             If the file cannot be read
+	 */
+	public static boolean isMappedModel(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(filename));
+		try {
+			return in.readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Write a model in this format.
+	 * 
+	 * @param pd
+	 *            The model
+	 * @param filename
+	 *            The file to write to
+	 * @throws IOException
+	 *             If something goes wrong during writing
+	 */
+	public static void write(ParserData pd, String filename) throws IOException {
+		if (pd.bg == null)
+			throw new IOException("Model has no binary grammar");
+		RandomAccessFile raf = new RandomAccessFile(filename, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel ch = raf.getChannel();
+			ch.position(HEADER_SIZE);
+			SectionWriter w = new SectionWriter(Channels.newOutputStream(ch),
+					HEADER_SIZE);
+
+			w.begin(NUMBERER);
+			pd.nb.writeTables(w.out);
+			w.end();
+
+			w.begin(LEXICON);
+			pd.l.writeTables(w.out);
+			w.end();
+
+			w.begin(GRAMMAR);
+			pd.bg.writeTables(w.out);
+			w.end();
+
+			w.begin(FLAGS);
+			w.out.writeBoolean(pd.doFilter);
+			w.end();
+
+			if (pd.est != null) {
+				ByteArrayOutputStream header = new ByteArrayOutputStream();
+				DataOutputStream headerOut = new DataOutputStream(header);
+				headerOut.writeUTF(pd.est.getClass().getName());
+				w.begin(ESTIMATE_TABLES);
+				boolean flat = pd.est.writeTables(headerOut, w.out);
+				w.end();
+				if (flat) {
+					headerOut.flush();
+					w.begin(ESTIMATE_HEADER);
+					w.out.write(header.toByteArray());
+					w.end();
+				} else {
+					// nothing has been written
+					w.discard();
+					w.begin(ESTIMATE_SERIALIZED);
+					ObjectOutputStream oos = new ObjectOutputStream(w.out);
+					oos.writeObject(pd.est);
+					oos.flush();
+					w.end();
+				}
+			}
+			w.out.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(w.types.size());
+			header.putInt(0);
+			for (int i = 0; i < w.types.size(); ++i) {
+				header.putInt(w.types.get(i));
+				header.putInt(0);
+				header.putLong(w.offsets.get(i));
+				header.putLong(w.lengths.get(i));
+			}
+			header.rewind();
+			ch.write(header, 0);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Open a model in this format.
+	 * 
+	 * @param filename
+	 *            The model file
+	 * @return The model
+	 * @throws IOException
+	 *             If the file is no model of this version, or if something
+	 *             goes wrong during reading
+	 */
+	public static ParserData read(String filename) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			if (ch.size() < HEADER_SIZE)
+				throw new IOException(filename + " is no model file");
+			ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0,
+					HEADER_SIZE);
+			if (header.getInt() != MAGIC)
+				throw new IOException(filename + " is no model file");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("Model file version " + version
+						+ " not supported, expected " + VERSION);
+			int sections = header.getInt();
+			header.getInt();
+			if (sections < 0 || sections > MAX_SECTIONS)
+				throw new IOException("Corrupt model file " + filename);
+			long[] offset = new long[MAX_SECTIONS];
+			long[] length = new long[MAX_SECTIONS];
+			int[] types = new int[sections];
+			for (int i = 0; i < sections; ++i) {
+				types[i] = header.getInt();
+				header.getInt();
+				offset[i] = header.getLong();
+				length[i] = header.getLong();
+				if (offset[i] < HEADER_SIZE
+						|| offset[i] + length[i] > ch.size())
+					throw new IOException("Corrupt model file " + filename);
+			}
+
+			int s = find(types, NUMBERER, true);
+			Numberer nb = Numberer.readTables(open(ch, offset[s], length[s]));
+			s = find(types, LEXICON, true);
+			Lexicon l = Lexicon.readTables(open(ch, offset[s], length[s]), nb);
+			s = find(types, GRAMMAR, true);
+			BinaryRCG bg = BinaryRCG.readTables(open(ch, offset[s], length[s]),
+					nb);
+
+			ParserData ret = new ParserData(bg.getGrammar(), l, nb);
+			ret.bg = bg;
+			s = find(types, FLAGS, true);
+			ret.doFilter = open(ch, offset[s], length[s]).readBoolean();
+
+			s = find(types, ESTIMATE_HEADER, false);
+			if (s != -1) {
+				DataInputStream h = open(ch, offset[s], length[s]);
+				int t = find(types, ESTIMATE_TABLES, true);
+				try {
+					ret.est = EstimatesFactory.readTables(h.readUTF(), h, ch,
+							offset[t], nb);
+				} catch (UnknownTaskException e) {
+					throw new IOException(e.getMessage());
+				}
+			}
+			s = find(types, ESTIMATE_SERIALIZED, false);
+			if (s != -1) {
+				ObjectInputStream in = new ObjectInputStream(open(ch,
+						offset[s], length[s]));
+				try {
+					ret.est = (Estimate) in.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException("Cannot read estimate: "
+							+ e.getMessage());
+				}
+				ret.est.setLogger(Logger.getLogger(Estimate.class
+						.getPackage().getName()));
+			}
+			return ret;
+		} finally {
+			// mappings stay valid after closing
+			raf.close();
+		}
+	}
+
+	private static int find(int[] types, int type, boolean required)
+			throws IOException {
+		for (int i = 0; i < types.length; ++i)
+			if (types[i] == type)
+				return i;
+		if (required)
+			throw new IOException("Model file lacks section " + type);
+		return -1;
+	}
+
+	private static DataInputStream open(FileChannel ch, long offset,
+			long length) throws IOException {
+		return new DataInputStream(new ByteBufferInputStream(ch.map(
+				FileChannel.MapMode.READ_ONLY, offset, length)));
+	}
+
+	/*
+	 * Writes sections one after the other and remembers where they are.
+	 */
+	private static class SectionWriter {
+
+		final DataOutputStream out;
+
+		final List<Integer> types = new ArrayList<Integer>();
+
+		final List<Long> offsets = new ArrayList<Long>();
+
+		final List<Long> lengths = new ArrayList<Long>();
+
+		private final CountingOutputStream counter;
+
+		SectionWriter(OutputStream os, long position) {
+			counter = new CountingOutputStream(new BufferedOutputStream(os),
+					position);
+			out = new DataOutputStream(counter);
+		}
+
+		void begin(int type) throws IOException {
+			if (types.size() == MAX_SECTIONS)
+				throw new IOException("Too many sections");
+			out.flush();
+			types.add(type);
+			offsets.add(counter.count);
+		}
+
+		void end() throws IOException {
+			out.flush();
+			lengths.add(counter.count - offsets.get(offsets.size() - 1));
+			while (counter.count % 8 != 0)
+				out.write(0);
+		}
+
+		void discard() {
+			types.remove(types.size() - 1);
+			offsets.remove(offsets.size() - 1);
+			lengths.remove(lengths.size() - 1);
+		}
+
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		long count;
+
+		CountingOutputStream(OutputStream out, long count) {
+			super(out);
+			this.count = count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			++count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buf;
+
+		ByteBufferInputStream(ByteBuffer buf) {
+			this.buf = buf;
+		}
+
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? buf.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (!buf.hasRemaining())
+				return -1;
+			len = Math.min(len, buf.remaining());
+			buf.get(b, off, len);
+			return len;
+		}
+
+	}
+
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * File ModelConverter.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.io.IOException;
+
+/**
+ * Converts a serialized model (as written by
+ * {@link ParserData#serializeModel(String)}) into the format of
+ * {@link MappedModel}.
+ * 
+ * Usage: ModelConverter model.gz model.rpm
+ * 
+ * @author wmaier
+ */
+public class ModelConverter {
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: ModelConverter model.gz model.rpm");
+			System.exit(1);
+		}
+		try {
+			ParserData pd = ParserData.unserializeModel(args[0]);
+			MappedModel.write(pd, args[1]);
+		} catch (IOException e) {
+			System.err.println("IOException: " + e.getMessage());
+			System.exit(2);
+		} catch (ClassNotFoundException e) {
+			System.err.println("ClassNotFoundException: " + e.getMessage());
+			System.exit(3);
+		}
+	}
+
+}
@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * File ParallelParser.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.misc.Timer;
+import de.tuebingen.rparse.treebank.TreebankException;
+import de.tuebingen.rparse.treebank.lex.ParserInput;
+
+/**
+ * Parses sentences in parallel. Every worker thread owns its own parser
+ * instance (with its own chart and agenda), the parser data is shared. The
+ * results are written in input order: Sentences are submitted in order, and
+ * the output of a sentence is only written once the output of all previous
+ * sentences has been written.
+ * 
+ * @author wmaier
+ */
+public class ParallelParser {
+
+	/**
+	 * Writes the result of a successful parse, typically by calling
+	 * {@link RCGParser#writeResult} or
+	 * {@link RCGParser#writeDependencyResult} with the post-processing tasks
+	 * of the worker.
+	 */
+	public interface ResultWriter {
+
+		/**
+		 * Write the result of the last parse of the parser.
+		 * 
+		 * @param parser
+		 *            The parser which has found a parse
+		 * @param w
+		 *            Where to write the result
+		 * @param scnt
+		 *            The sentence identifier
+		 * @throws IOException
+		 *             If something goes wrong with writing
+		 * @throws TreebankException
+		 *             If something goes wrong with the post-processing
+		 */
+		public void write(RCGParser parser, Writer w, int scnt)
+				throws IOException, TreebankException;
+
+	}
+
+	/**
+	 * A worker: a parser together with the writer for its results. Neither of
+	 * them is shared with other workers.
+	 */
+	public static class Worker {
+
+		private final RCGParser parser;
+
+		private final ResultWriter writer;
+
+		// the metrics of the last parse, null if the parser does not collect
+		// any
+		private ParseMetrics metrics;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param parser
+		 *            The parser of this worker
+		 * @param writer
+		 *            The result writer of this worker
+		 */
+		public Worker(RCGParser parser, ResultWriter writer) {
+			this.parser = parser;
+			this.writer = writer;
+		}
+
+	}
+
+	// workers which are currently not busy
+	private final BlockingQueue<Worker> idle;
+
+	// the threads
+	private final ExecutorService executor;
+
+	// results which have not been written yet, in input order
+	private final Deque<Future<String>> pending;
+
+	// maximal number of pending results before we wait for the oldest one
+	private final int window;
+
+	// timeout in seconds, 0 means no timeout
+	private final int timeout;
+
+	// where the results go
+	private final Writer out;
+
+	private final Numberer nb;
+
+	private final Logger logger;
+
+	// the workers, for the configuration
+	private final List<Worker> workers;
+
+	// where the metrics go, null if there are none to collect
+	private ParseMetricsWriter metricsWriter;
+
+	/**
+	 * Constructor. Starts one thread per worker.
+	 * 
+	 * @param workers
+	 *            The workers
+	 * @param timeout
+	 *            The timeout per sentence in seconds, 0 for no timeout
+	 * @param out
+	 *            Where to write the results, can be null if only
+	 *            {@link #parse(ParserInput, int)} is used
+	 * @param nb
+	 *            The numberer (for logging)
+	 */
+	public ParallelParser(List<Worker> workers, int timeout, Writer out,
+			Numberer nb) {
+		if (workers.isEmpty())
+			throw new IllegalArgumentException("Need at least one worker");
+		logger = Logger.getLogger(ParallelParser.class.getPackage().getName());
+		idle = new LinkedBlockingQueue<Worker>(workers);
+		executor = Executors.newFixedThreadPool(workers.size());
+		pending = new ArrayDeque<Future<String>>();
+		window = 4 * workers.size();
+		this.timeout = timeout;
+		this.out = out;
+		this.nb = nb;
+		this.workers = workers;
+	}
+
+	/**
+	 * Collect per-sentence metrics with all parsers which support it, see
+	 * {@link HasParseMetrics}. Must be called before the first sentence is
+	 * submitted. The metrics are written in the order in which the parses
+	 * finish, not in input order.
+	 * 
+	 * @param metricsWriter
+	 *            Where to write the metrics
+	 */
+	public void setMetricsWriter(ParseMetricsWriter metricsWriter) {
+		this.metricsWriter = metricsWriter;
+		for (Worker worker : workers) {
+			if (worker.parser instanceof HasParseMetrics) {
+				worker.metrics = new ParseMetrics();
+				((HasParseMetrics) worker.parser).setMetrics(worker.metrics);
+			}
+		}
+	}
+
+	/**
+	 * Submit a sentence for parsing. If too many results are pending, blocks
+	 * until the oldest one has been written.
+	 * 
+	 * @param input
+	 *            The sentence
+	 * @param scnt
+	 *            The sentence identifier
+	 * @throws IOException
+	 *             If a result cannot be written
+	 * @throws ParserException
+	 *             If a worker fails
+	 */
+	public void submit(final ParserInput input, final int scnt)
+			throws IOException, ParserException {
+		pending.add(executor.submit(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				Worker worker = idle.take();
+				try {
+					return parse(worker, input, scnt);
+				} finally {
+					worker.parser.reset();
+					idle.add(worker);
+				}
+			}
+		}));
+		while (pending.size() > window) {
+			writeNext();
+		}
+	}
+
+	/**
+	 * Parse a sentence in the calling thread with the next idle worker and
+	 * return the output. Blocks until a worker is idle. Can be used from
+	 * several threads at once, e.g., by a {@link ParseServer}, but not
+	 * together with {@link #submit(ParserInput, int)}.
+	 * 
+	 * @param input
+	 *            The sentence
+	 * @param scnt
+	 *            The sentence identifier
+	 * @return The output for the sentence
+	 * @throws IOException
+	 *             If the result cannot be written
+	 * @throws ParserException
+	 *             If the post-processing fails or if we are interrupted
+	 */
+	public String parse(ParserInput input, int scnt) throws IOException,
+			ParserException {
+		Worker worker;
+		try {
+			worker = idle.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ParserException("Interrupted while waiting for parser");
+		}
+		try {
+			return parse(worker, input, scnt);
+		} catch (TreebankException e) {
+			throw new ParserException("Could not write parsing result: "
+					+ e.getMessage());
+		} finally {
+			worker.parser.reset();
+			idle.add(worker);
+		}
+	}
+
+	/**
+	 * Write all pending results and stop the threads.
+	 * 
+	 * @throws IOException
+	 *             If a result cannot be written
+	 * @throws ParserException
+	 *             If a worker fails
+	 */
+	public void finish() throws IOException, ParserException {
+		try {
+			while (!pending.isEmpty()) {
+				writeNext();
+			}
+			if (out != null)
+				out.flush();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Parse a single sentence and return the output as a string.
+	 */
+	private String parse(Worker worker, ParserInput input, int scnt)
+			throws IOException, TreebankException {
+		logger.info("Parsing " + scnt + ": " + input.parserInputPrint(nb)
+				+ "...");
+		Timer timer = new Timer();
+		timer.start();
+		StringWriter w = new StringWriter();
+		boolean result = false;
+		try {
+			result = worker.parser.parseWithTimeout(input, timeout);
+		} catch (TimeoutException e) {
+			logger.warning(" **** TIMEOUT **** (" + scnt + ")");
+		}
+		if (metricsWriter != null && worker.metrics != null) {
+			worker.metrics.sentence = scnt;
+			metricsWriter.write(worker.metrics);
+		}
+		if (result) {
+			worker.writer.write(worker.parser, w, scnt);
+			logger.info(worker.parser.getStats());
+		} else {
+			logger.info(worker.parser.getStats());
+			logger.info("\n ***************** No parse found (" + scnt + ")");
+			w.write("\n\n ***************** " + scnt + ": No parse found \n\n");
+		}
+		logger.info(scnt + " finished in " + timer.time());
+		return w.toString();
+	}
+
+	/*
+	 * Wait for the oldest pending result and write it.
+	 */
+	private void writeNext() throws IOException, ParserException {
+		Future<String> result = pending.poll();
+		try {
+			out.write(result.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ParserException("Interrupted while waiting for parser");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new ParserException("Parsing thread failed: " + e.getCause());
+		}
+	}
+
+}
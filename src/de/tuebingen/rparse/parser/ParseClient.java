@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * File ParseClient.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A minimal client for a {@link ParseServer}: Sends a file (or the standard
+ * input) to the server on the local machine and writes the results to the
+ * standard output. Input and output are passed through as bytes, they must be
+ * in the encoding of the server.
+ * 
+ * @author wmaier
+ */
+public class ParseClient {
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: ParseClient port [input]");
+			System.exit(1);
+		}
+		try {
+			InputStream in = args.length > 1 ? new FileInputStream(args[1])
+					: System.in;
+			Socket socket = new Socket(InetAddress.getByName(null),
+					Integer.parseInt(args[0]));
+			try {
+				send(in, socket);
+				copy(socket.getInputStream(), System.out);
+				System.out.flush();
+			} finally {
+				socket.close();
+				in.close();
+			}
+		} catch (IOException e) {
+			System.err.println("IOException: " + e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	/*
+	 * Send the input in a thread of its own, so that results can be read
+	 * while we are still sending. Closes our side of the connection when done.
+	 */
+	private static void send(final InputStream in, final Socket socket) {
+		Thread sender = new Thread() {
+			@Override
+			public void run() {
+				try {
+					copy(in, socket.getOutputStream());
+					socket.shutdownOutput();
+				} catch (IOException e) {
+					System.err.println("Could not send input: "
+							+ e.getMessage());
+				}
+			}
+		};
+		sender.setDaemon(true);
+		sender.start();
+	}
+
+	private static void copy(InputStream in, OutputStream out)
+			throws IOException {
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) != -1) {
+			out.write(buf, 0, n);
+			out.flush();
+		}
+	}
+
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * File ParseMetrics.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.util.Arrays;
+
+/**
+ * Counters and timers for the parse of a single sentence. A parser which implements {@link HasParseMetrics} fills
+ * them in during the parse, the fields are public such that this costs no more than an increment. The times are in
+ * nanoseconds and only measured while metrics are collected. See {@link ParseMetricsWriter} for the output.
+ * 
+ * @author wmaier
+ */
+public class ParseMetrics {
+
+    /**
+     * The sentence number
+     */
+    public int    sentence;
+
+    /**
+     * The sentence length
+     */
+    public int    length;
+
+    /**
+     * True if a parse has been found
+     */
+    public boolean parsed;
+
+    /**
+     * True if the parse has been stopped by the timeout
+     */
+    public boolean timeout;
+
+    /**
+     * Gap degree of the parse (maximal number of gaps of a constituent), -1 if there is no parse
+     */
+    public int    gapDegree;
+
+    /**
+     * Items pushed on the agenda, including pushes of items which were already on it
+     */
+    public long   pushed;
+
+    /**
+     * Items polled from the agenda
+     */
+    public long   popped;
+
+    /**
+     * Pushes which improved the score of an item on the agenda
+     */
+    public long   decreaseKeys;
+
+    /**
+     * Maximal agenda size
+     */
+    public long   peakAgenda;
+
+    /**
+     * Calls of the yield function composer
+     */
+    public long   compositions;
+
+    /**
+     * Calls of the yield function composer which gave a range vector
+     */
+    public long   compositionSuccesses;
+
+    /**
+     * Outside estimate lookups
+     */
+    public long   estimateLookups;
+
+    /**
+     * Items in the chart, by fan-out (index 0 is unused)
+     */
+    public long[] chartByFanout = new long[4];
+
+    /**
+     * Time of the whole parse
+     */
+    public long   totalNanos;
+
+    /**
+     * Time spent in the agenda
+     */
+    public long   agendaNanos;
+
+    /**
+     * Time spent in the chart
+     */
+    public long   chartNanos;
+
+    /**
+     * Time spent in the yield function composer
+     */
+    public long   compositionNanos;
+
+    /**
+     * Time spent with outside estimate lookups
+     */
+    public long   estimateNanos;
+
+    /**
+     * Reset everything for the next sentence.
+     */
+    public void clear() {
+        sentence = 0;
+        length = 0;
+        parsed = false;
+        timeout = false;
+        gapDegree = -1;
+        pushed = 0;
+        popped = 0;
+        decreaseKeys = 0;
+        peakAgenda = 0;
+        compositions = 0;
+        compositionSuccesses = 0;
+        estimateLookups = 0;
+        Arrays.fill(chartByFanout, 0);
+        totalNanos = 0;
+        agendaNanos = 0;
+        chartNanos = 0;
+        compositionNanos = 0;
+        estimateNanos = 0;
+    }
+
+    /**
+     * Count an item in the chart.
+     * 
+     * @param fanout
+     *            The fan-out of the item
+     */
+    public void addChartItem(int fanout) {
+        if (fanout >= chartByFanout.length)
+            chartByFanout = Arrays.copyOf(chartByFanout, fanout + 1);
+        ++chartByFanout[fanout];
+    }
+
+    /**
+     * The total number of items in the chart.
+     * 
+     * @return The chart size
+     */
+    public long chartSize() {
+        long ret = 0;
+        for (long cnt : chartByFanout)
+            ret += cnt;
+        return ret;
+    }
+
+    /**
+     * The header of the CSV output, see {@link #toCsv()}.
+     * 
+     * @return The header line
+     */
+    public static String csvHeader() {
+        return "sentence,length,parsed,timeout,gap_degree,pushed,popped,decrease_keys,peak_agenda,"
+                + "compositions,composition_successes,estimate_lookups,chart_size,chart_by_fanout,"
+                + "total_ns,agenda_ns,chart_ns,composition_ns,estimate_ns";
+    }
+
+    /**
+     * The metrics as a CSV line. The chart sizes by fan-out are given as a single field, e.g., "1:120 2:30".
+     * 
+     * @return The line
+     */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(sentence).append(',').append(length).append(',').append(parsed).append(',').append(timeout)
+                .append(',').append(gapDegree).append(',').append(pushed).append(',').append(popped).append(',')
+                .append(decreaseKeys).append(',').append(peakAgenda).append(',').append(compositions).append(',')
+                .append(compositionSuccesses).append(',').append(estimateLookups).append(',').append(chartSize())
+                .append(',');
+        String sep = "";
+        for (int f = 1; f < chartByFanout.length; ++f) {
+            if (chartByFanout[f] > 0) {
+                sb.append(sep).append(f).append(':').append(chartByFanout[f]);
+                sep = " ";
+            }
+        }
+        sb.append(',').append(totalNanos).append(',').append(agendaNanos).append(',').append(chartNanos).append(',')
+                .append(compositionNanos).append(',').append(estimateNanos);
+        return sb.toString();
+    }
+
+    /**
+     * The metrics as a JSON object on a single line.
+     * 
+     * @return The JSON object
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"sentence\":").append(sentence).append(",\"length\":").append(length).append(",\"parsed\":")
+                .append(parsed).append(",\"timeout\":").append(timeout).append(",\"gap_degree\":").append(gapDegree)
+                .append(",\"pushed\":").append(pushed).append(",\"popped\":").append(popped)
+                .append(",\"decrease_keys\":").append(decreaseKeys).append(",\"peak_agenda\":").append(peakAgenda)
+                .append(",\"compositions\":").append(compositions).append(",\"composition_successes\":")
+                .append(compositionSuccesses).append(",\"estimate_lookups\":").append(estimateLookups)
+                .append(",\"chart_size\":").append(chartSize()).append(",\"chart_by_fanout\":{");
+        String sep = "";
+        for (int f = 1; f < chartByFanout.length; ++f) {
+            if (chartByFanout[f] > 0) {
+                sb.append(sep).append('"').append(f).append("\":").append(chartByFanout[f]);
+                sep = ",";
+            }
+        }
+        sb.append("},\"total_ns\":").append(totalNanos).append(",\"agenda_ns\":").append(agendaNanos)
+                .append(",\"chart_ns\":").append(chartNanos).append(",\"composition_ns\":").append(compositionNanos)
+                .append(",\"estimate_ns\":").append(estimateNanos).append('}');
+        return sb.toString();
+    }
+
+}
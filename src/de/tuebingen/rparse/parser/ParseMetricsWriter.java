@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * File ParseMetricsWriter.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes {@link ParseMetrics} to a file, one line per sentence. If the file name ends with ".csv", the output is CSV
+ * with a header line, otherwise every line is a JSON object (JSON lines). Can be shared by several threads.
+ * 
+ * @author wmaier
+ */
+public class ParseMetricsWriter {
+
+    private final Writer  w;
+
+    private final boolean csv;
+
+    /**
+     * Open the file.
+     * 
+     * @param filename
+     *            The file
+     * @throws IOException
+     *             If the file cannot be opened
+     */
+    public ParseMetricsWriter(String filename) throws IOException {
+        w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), "UTF-8"));
+        csv = filename.toLowerCase().endsWith(".csv");
+        if (csv) {
+            w.write(ParseMetrics.csvHeader());
+            w.write('\n');
+        }
+    }
+
+    /**
+     * Write the metrics of a sentence.
+     * 
+     * @param metrics
+     *            The metrics
+     * @throws IOException
+     *             If something goes wrong during writing
+     */
+    public synchronized void write(ParseMetrics metrics) throws IOException {
+        w.write(csv ? metrics.toCsv() : metrics.toJson());
+        w.write('\n');
+    }
+
+    /**
+     * Flush and close the file.
+     * 
+     * @throws IOException
+     *             If something goes wrong during closing
+     */
+    public synchronized void close() throws IOException {
+        w.close();
+    }
+
+}
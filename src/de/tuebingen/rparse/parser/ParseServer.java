@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * File ParseServer.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.treebank.IncrementalTreebankProcessor;
+import de.tuebingen.rparse.treebank.ProcessingTask;
+import de.tuebingen.rparse.treebank.TreebankException;
+import de.tuebingen.rparse.treebank.lex.ParserInput;
+import de.tuebingen.rparse.treebank.lex.ParserInputReaderFactory;
+
+/**
+ * Parses sentences which arrive over a socket on the local machine, such that
+ * the model only has to be loaded once. A client sends sentences in the input
+ * format of the parser (e.g., rparse-tagged), the results are written back as
+ * soon as a sentence is parsed, in the same format as they would be written
+ * to a file. The connection is closed when the client has closed its side.
+ * Every connection has its own thread, the sentences of all connections are
+ * parsed by the workers of a {@link ParallelParser}. Client words which the
+ * model does not know do not get numbers of their own, see
+ * {@link ParserInput#numberWord}. See {@link ParseClient} for a client.
+ * 
+ * @author wmaier
+ */
+public class ParseServer {
+
+	// parses the sentences
+	private final ParallelParser parser;
+
+	// the input format
+	private final String inputFormat;
+
+	// the encoding of input and output
+	private final String encoding;
+
+	// pre-processing of the parser input, shared between the connections
+	private final ProcessingTask<ParserInput> preprocessor;
+
+	// longer sentences are not parsed
+	private final int maxlen;
+
+	private final Numberer nb;
+
+	// the connection threads
+	private final ExecutorService connections;
+
+	private final Logger logger;
+
+	// the socket we are listening on
+	private volatile ServerSocket socket;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param parser
+	 *            Parses the sentences, see
+	 *            {@link ParallelParser#parse(ParserInput, int)}
+	 * @param inputFormat
+	 *            The input format, see {@link ParserInputReaderFactory}
+	 * @param encoding
+	 *            The encoding of input and output
+	 * @param preprocessor
+	 *            Pre-processing of the parser input
+	 * @param maxlen
+	 *            Longer sentences are not parsed
+	 * @param nb
+	 *            The numberer
+	 * @throws UnsupportedOperationException
+	 *             If the input format is unknown
+	 */
+	public ParseServer(ParallelParser parser, String inputFormat,
+			String encoding, ProcessingTask<ParserInput> preprocessor,
+			int maxlen, Numberer nb) {
+		logger = Logger.getLogger(ParseServer.class.getPackage().getName());
+		this.parser = parser;
+		this.inputFormat = inputFormat;
+		this.encoding = encoding;
+		this.preprocessor = preprocessor;
+		this.maxlen = maxlen;
+		this.nb = nb;
+		// fail early if the format is unknown
+		ParserInputReaderFactory.getParserInputReader(inputFormat, nb);
+		connections = Executors.newCachedThreadPool();
+	}
+
+	/**
+	 * Listen on a port of the loopback interface and handle connections
+	 * until {@link #close()} is called.
+	 * 
+	 * @param port
+	 *            The port, 0 for any free port
+	 * @throws IOException
+	 *             If we cannot listen on the port
+	 */
+	public void serve(int port) throws IOException {
+		serve(new ServerSocket(port, 50, InetAddress.getByName(null)));
+	}
+
+	/**
+	 * Handle connections on a socket until {@link #close()} is called.
+	 * 
+	 * @param socket
+	 *            The socket
+	 * @throws IOException
+	 *             If something goes wrong with the socket
+	 */
+	public void serve(ServerSocket socket) throws IOException {
+		this.socket = socket;
+		logger.info("Listening on " + socket.getLocalSocketAddress());
+		try {
+			while (!socket.isClosed()) {
+				final Socket client;
+				try {
+					client = socket.accept();
+				} catch (SocketException e) {
+					// closed
+					break;
+				}
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						handle(client);
+					}
+				});
+			}
+		} finally {
+			connections.shutdown();
+		}
+	}
+
+	/**
+	 * Stop listening. Connections which are open are finished.
+	 * 
+	 * @throws IOException
+	 *             If the socket cannot be closed
+	 */
+	public void close() throws IOException {
+		if (socket != null)
+			socket.close();
+	}
+
+	/*
+	 * Read the sentences of a client, parse them and write back the results.
+	 */
+	private void handle(Socket client) {
+		String name = String.valueOf(client.getRemoteSocketAddress());
+		logger.info("Connection from " + name);
+		int scnt = 0;
+		try {
+			IncrementalTreebankProcessor<? extends ParserInput> reader = ParserInputReaderFactory
+					.getParserInputReader(inputFormat, nb);
+			reader.initialize(new BufferedReader(new InputStreamReader(client
+					.getInputStream(), encoding)));
+			Writer w = new BufferedWriter(new OutputStreamWriter(client
+					.getOutputStream(), encoding));
+			while (reader.hasNext()) {
+				ParserInput input = reader.next();
+				++scnt;
+				synchronized (preprocessor) {
+					preprocessor.processSentence(input);
+				}
+				if (input.size() > maxlen) {
+					w.write("\n\n ***************** " + scnt
+							+ ": Sentence too long \n\n");
+				} else {
+					w.write(parser.parse(input, scnt));
+				}
+				w.flush();
+			}
+		} catch (IOException e) {
+			logger.warning("Connection " + name + " failed: " + e.getMessage());
+		} catch (TreebankException e) {
+			logger.warning("Could not process sentence " + scnt + " from "
+					+ name + ": " + e.getMessage());
+		} catch (ParserException e) {
+			logger.warning("Could not parse sentence " + scnt + " from "
+					+ name + ": " + e.getMessage());
+		} catch (RuntimeException e) {
+			logger.severe("Parser failed on sentence " + scnt + " from "
+					+ name + ": " + e);
+			e.printStackTrace();
+		} finally {
+			try {
+				client.close();
+			} catch (IOException e) {
+				// nothing left to do
+			}
+		}
+		logger.info("Connection from " + name + " closed after " + scnt
+				+ " sentences");
+	}
+
+}
@@ -132,15 +132,45 @@ public class ParserData implements Serializable {
 		this.doFilter = false;
 	}
 
+	/**
+	 * Get a shallow copy of this parser data for a parser running in its own
+	 * thread. Grammars, lexicon, estimate and numberer are shared and must be
+	 * treated as read-only, the yield function composer (which keeps
+	 * per-sentence counters) is copied.
+	 * 
+	 * @return The copy
+	 */
+	public ParserData copyForWorker() {
+		ParserData ret = new ParserData(this);
+		if (yfcomp != null)
+			ret.yfcomp = yfcomp.copy();
+		return ret;
+	}
+
+	/*
+	 * Copy constructor, copies all references.
+	 */
+	private ParserData(ParserData pd) {
+		this.g = pd.g;
+		this.bg = pd.bg;
+		this.l = pd.l;
+		this.yfcomp = pd.yfcomp;
+		this.est = pd.est;
+		this.nb = pd.nb;
+		this.doFilter = pd.doFilter;
+	}
+
 	/**
 	 * Compute the log probabilities of all clauses. Should only be called once
 	 * of course.
 	 */
 	public void computeLogprobs() {
-		if (bg != null)
+		if (bg != null) {
 			for (BinaryClause bc : bg.clauses) {
 				bc.score = Math.abs(Math.log(bc.score));
 			}
+			bg.thaw();
+		}
 	}
 
 	private static final long serialVersionUID = 9087498304785086841L;
@@ -163,7 +193,8 @@ public class ParserData implements Serializable {
 	}
 
 	/**
-	 * Deserialize a model from file
+	 * Deserialize a model from file. Files in the format of {@link MappedModel}
+	 * are recognized and opened as such.
 	 * 
 	 * @param filename
 	 *            The model file
@@ -176,6 +207,8 @@ public class ParserData implements Serializable {
 	 */
 	public static ParserData unserializeModel(String filename)
 			throws IOException, ClassNotFoundException {
+		if (MappedModel.isMappedModel(filename))
+			return MappedModel.read(filename);
 		FileInputStream fis = new FileInputStream(filename);
 		GZIPInputStream zipin = new GZIPInputStream(fis);
 		ObjectInputStream in = new ObjectInputStream(zipin);
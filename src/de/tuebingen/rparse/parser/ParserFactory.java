@@ -24,6 +24,8 @@
  ******************************************************************************/
 package de.tuebingen.rparse.parser;
 
+import java.util.NoSuchElementException;
+
 import de.tuebingen.rparse.grammar.GrammarException;
 import de.tuebingen.rparse.misc.Numberer;
 import de.tuebingen.rparse.parser.fanouttwo.CYKParserTwo;
@@ -39,22 +41,64 @@ public class ParserFactory {
      * @throws GrammarException If the grammar is not binarized or similar errors occur
      */
 	public static RCGParser getParser(String type, ParserData pd, Numberer nb) throws GrammarException {
+		return getParser(type, pd, nb, "");
+	}
+
+    /**
+     * Get an RCG parser with a pruned agenda
+     * @param type The type of parser, currently defined by the type of priority agenda used
+     * @param pd The parser data (grammars, etc.), see {@link ParserData}
+     * @param nb A numberer
+     * @param agendaParams Agenda pruning parameters, see {@link PriorityAgendaPruning}, no pruning if empty
+     * @return The parser
+     * @throws GrammarException If the grammar is not binarized or similar errors occur
+     */
+	public static RCGParser getParser(String type, ParserData pd, Numberer nb, String agendaParams) throws GrammarException {
+		return getParser(type, pd, nb, agendaParams, CoarseToFinePruner.DEFAULT_THRESHOLD);
+	}
+
+    /**
+     * Get an RCG parser with a pruned agenda and a threshold for coarse-to-fine pruning
+     * @param type The type of parser, currently defined by the type of priority agenda used
+     * @param pd The parser data (grammars, etc.), see {@link ParserData}
+     * @param nb A numberer
+     * @param agendaParams Agenda pruning parameters, see {@link PriorityAgendaPruning}, no pruning if empty
+     * @param c2fThreshold Threshold of the coarse pass, see {@link CoarseToFinePruner}, only used by {@link ParsingTypes#RCG_CYK_C2F}
+     * @return The parser
+     * @throws GrammarException If the grammar is not binarized or similar errors occur
+     * @throws NoSuchElementException If the agenda parameters are not valid or not supported by the parser type
+     */
+	public static RCGParser getParser(String type, ParserData pd, Numberer nb, String agendaParams, double c2fThreshold) throws GrammarException {
 		
 		System.err.println("type is " + type );
 		
 		// Uses PriorityQueue with remove+insert to simulate decreaseKey
         if (ParsingTypes.RCG_CYK_NAIVE.equals(type)) {
-            return new CYKParser(pd, PriorityAgendaTypes.NAIVE, nb);
+            return new CYKParser(pd, PriorityAgendaTypes.NAIVE, agendaParams, nb);
         }
 
         // Uses jgrapht FibonacciQueue
         if (ParsingTypes.RCG_CYK_FIBO.equals(type)) {
-            return new CYKParser(pd, PriorityAgendaTypes.FIBONACCI, nb);
+            return new CYKParser(pd, PriorityAgendaTypes.FIBONACCI, agendaParams, nb);
+        }
+
+        // Uses an array-based heap
+        if (ParsingTypes.RCG_CYK_HEAP.equals(type)) {
+            return new CYKParser(pd, PriorityAgendaTypes.HEAP, agendaParams, nb);
         }
         
+        // Uses jgrapht FibonacciQueue, prunes with a PCFG projection of the grammar
+        if (ParsingTypes.RCG_CYK_C2F.equals(type)) {
+            CYKParser parser = new CYKParser(pd, PriorityAgendaTypes.FIBONACCI, agendaParams, nb);
+            parser.setPruner(new CoarseToFinePruner(pd.bg.freeze(), pd.bg.startSymbol, c2fThreshold));
+            return parser;
+        }
+
         // Uses the parser for (2,2)-LCFRS
         if (ParsingTypes.RCGTWO_CYK.equals(type)) {
-        	return new CYKParserTwo(pd, PriorityAgendaTypes.FIBONACCI, nb);
+        	if (agendaParams != null && !agendaParams.isEmpty())
+        		throw new NoSuchElementException("Agenda pruning not supported by " + type);
+        	return new CYKParserTwo(pd, PriorityAgendaTypes.HEAP, nb);
         }
 		
 		throw new UnsupportedOperationException(type + " not known");
@@ -36,6 +36,16 @@ public abstract class ParsingTypes {
      */
     public static final String RCG_CYK_FIBO  = "cyk";
 
+    /**
+     * Uses an array-based heap with decreaseKey in place
+     */
+    public static final String RCG_CYK_HEAP  = "cykheap";
+
+    /**
+     * Uses JGraphT FibonacciHeap, prunes with a coarse PCFG pass
+     */
+    public static final String RCG_CYK_C2F   = "cykc2f";
+
     /**
      * The parser for (2,2) LCFRS 
      */
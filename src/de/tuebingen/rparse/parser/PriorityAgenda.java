@@ -54,6 +54,14 @@ public interface PriorityAgenda {
      */
     public String getStats();
 
+    /**
+     * The number of pushes which have improved the score of an item already on the agenda, since the agenda has been
+     * created.
+     * 
+     * @return The corresponding value.
+     */
+    public long getDecreaseKeyCount();
+
     /**
      * The current size of the agenda.
      * 
@@ -25,6 +25,7 @@
 package de.tuebingen.rparse.parser;
 
 import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.misc.ParameterException;
 import de.tuebingen.rparse.treebank.UnknownFormatException;
 
 /**
@@ -55,8 +56,43 @@ public class PriorityAgendaFactory {
             return new PriorityAgendaNaive(nb);
         }
 
+        if (PriorityAgendaTypes.HEAP.equals(type)) {
+            return new PriorityAgendaHeap(nb);
+        }
+
         throw new UnknownFormatException(type);
 
     }
 
+    /**
+     * Get a priority agenda with parameters. If the parameter string is not empty, the agenda is wrapped in a
+     * {@link PriorityAgendaPruning} to which the parameters are passed.
+     * 
+     * @param type
+     *            The type of it.
+     * @param nb
+     *            A numberer.
+     * @param params
+     *            The parameter string, may be empty
+     * @param goal
+     *            The label of the goal item, which is never pruned
+     * @return The agenda.
+     * @throws UnknownFormatException
+     * @throws ParameterException
+     *             If something is wrong with the parameters
+     */
+    public static PriorityAgenda getPriorityAgenda(String type, Numberer nb,
+            String params, int goal) throws UnknownFormatException,
+            ParameterException {
+
+        PriorityAgenda agenda = getPriorityAgenda(type, nb);
+
+        if (params != null && !params.isEmpty()) {
+            return new PriorityAgendaPruning(agenda, params, goal);
+        }
+
+        return agenda;
+
+    }
+
 }
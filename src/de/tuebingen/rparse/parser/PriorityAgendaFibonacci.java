@@ -53,6 +53,9 @@ public class PriorityAgendaFibonacci extends FibonacciHeap<CYKItem>
     // checks how often we perform the add operation
     private long       addCount;
 
+    // checks how often we perform the decrease-key operation
+    private long       decreaseKeyCount;
+
     // A numberer
     protected Numberer nb;
 
@@ -98,6 +101,7 @@ public class PriorityAgendaFibonacci extends FibonacciHeap<CYKItem>
             // update? also update backpointers
             if (oit.iscore + oit.oscore > it.iscore + it.oscore) {
                 super.decreaseKey(onode, it.iscore + it.oscore);
+                ++decreaseKeyCount;
                 oit.olc = it.olc;
                 oit.orc = it.orc;
                 oit.iscore = it.iscore;
@@ -122,6 +126,11 @@ public class PriorityAgendaFibonacci extends FibonacciHeap<CYKItem>
         agendaMaxSize = Math.max(super.size(), agendaMaxSize);
     }
 
+    @Override
+    public long getDecreaseKeyCount() {
+        return decreaseKeyCount;
+    }
+
     @Override
     public String getStats() {
         return "Agenda stats: Max size: " + agendaMaxSize + ", adds: "
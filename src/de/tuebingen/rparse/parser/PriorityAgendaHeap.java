@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * File PriorityAgendaHeap.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import de.tuebingen.rparse.misc.Numberer;
+
+/**
+ * Priority agenda as an array-based 4-ary heap with decrease-key in place. Every item knows its position on the heap
+ * ({@link CYKItem#heapPos}), so decrease-key needs no search and no heap nodes are allocated. The priorities are kept
+ * in an array parallel to the items. Items already on the agenda are found through a {@link CYKItemIndex}. An item is
+ * either on the agenda or in the chart, so both indexes together hold every item once.
+ * 
+ * @author wmaier
+ */
+public class PriorityAgendaHeap implements PriorityAgenda {
+
+    // number of children of a heap node
+    private static final int ARITY = 4;
+
+    // the heap, items and priorities (inside plus outside score)
+    private CYKItem[]        heap;
+
+    private double[]         prio;
+
+    private int              size;
+
+    // the index, label and packed range vector -> item
+    private CYKItemIndex     index;
+
+    // watches the agenda grow
+    private long             agendaMaxSize;
+
+    // checks how often we perform the add operation
+    private long             addCount;
+
+    protected int            decreaseKeyCount;
+
+    // A numberer
+    protected Numberer       nb;
+
+    /**
+     * Constructor.
+     * 
+     * @param nb
+     *            A numberer
+     */
+    public PriorityAgendaHeap(Numberer nb) {
+        heap = new CYKItem[64];
+        prio = new double[64];
+        size = 0;
+        index = new CYKItemIndex(128);
+        agendaMaxSize = 0;
+        addCount = 0;
+        decreaseKeyCount = 0;
+        this.nb = nb;
+    }
+
+    @Override
+    public CYKItem poll() {
+        CYKItem it = heap[0];
+        --size;
+        if (size > 0) {
+            heap[0] = heap[size];
+            prio[0] = prio[size];
+            heap[0].heapPos = 0;
+            siftDown(0);
+        }
+        heap[size] = null;
+        it.heapPos = -1;
+        index.remove(it);
+        return it;
+    }
+
+    @Override
+    public void push(CYKItem it) {
+        double p = it.iscore + it.oscore;
+        CYKItem oit = index.find(it);
+        if (oit != null) {
+            // update? also update backpointers
+            if (prio[oit.heapPos] > p) {
+                oit.olc = it.olc;
+                oit.orc = it.orc;
+                oit.iscore = it.iscore;
+                oit.oscore = it.oscore;
+                oit.iscf = it.iscf;
+                oit.start = it.start;
+                oit.end = it.end;
+                prio[oit.heapPos] = p;
+                siftUp(oit.heapPos);
+                ++decreaseKeyCount;
+            }
+        } else {
+            if (size == heap.length) {
+                CYKItem[] nheap = new CYKItem[2 * heap.length];
+                System.arraycopy(heap, 0, nheap, 0, size);
+                heap = nheap;
+                double[] nprio = new double[2 * prio.length];
+                System.arraycopy(prio, 0, nprio, 0, size);
+                prio = nprio;
+            }
+            heap[size] = it;
+            prio[size] = p;
+            it.heapPos = size;
+            ++size;
+            siftUp(it.heapPos);
+            index.insert(it);
+            ++addCount;
+        }
+        agendaMaxSize = Math.max(size, agendaMaxSize);
+    }
+
+    @Override
+    public long getDecreaseKeyCount() {
+        return decreaseKeyCount;
+    }
+
+    @Override
+    public String getStats() {
+        return "Agenda stats: Max size: " + agendaMaxSize + ", adds: "
+                + addCount + ", decrease-key: " + decreaseKeyCount;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void siftUp(int pos) {
+        CYKItem it = heap[pos];
+        double p = prio[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) / ARITY;
+            if (prio[parent] <= p)
+                break;
+            heap[pos] = heap[parent];
+            prio[pos] = prio[parent];
+            heap[pos].heapPos = pos;
+            pos = parent;
+        }
+        heap[pos] = it;
+        prio[pos] = p;
+        it.heapPos = pos;
+    }
+
+    private void siftDown(int pos) {
+        CYKItem it = heap[pos];
+        double p = prio[pos];
+        while (true) {
+            int first = pos * ARITY + 1;
+            if (first >= size)
+                break;
+            int last = Math.min(first + ARITY, size);
+            int min = first;
+            for (int c = first + 1; c < last; ++c) {
+                if (prio[c] < prio[min])
+                    min = c;
+            }
+            if (prio[min] >= p)
+                break;
+            heap[pos] = heap[min];
+            prio[pos] = prio[min];
+            heap[pos].heapPos = pos;
+            pos = min;
+        }
+        heap[pos] = it;
+        prio[pos] = p;
+        it.heapPos = pos;
+    }
+
+}
@@ -24,8 +24,6 @@
  ******************************************************************************/
 package de.tuebingen.rparse.parser;
 
-import java.util.BitSet;
-import java.util.HashMap;
 import java.util.PriorityQueue;
 
 import de.tuebingen.rparse.misc.Numberer;
@@ -42,8 +40,9 @@ public class PriorityAgendaNaive extends PriorityQueue<CYKItem>
 
     private static final long serialVersionUID = 3418341024980090886L;
 
-    // chart structure helps us finding the right instances in the agenda
-    private CYKChart          chart;
+    // helps us finding the right instances in the agenda (items are equal if label and range vector are equal). Not a
+    // hash map, since its tree bins would order the items by score, which is inconsistent with equals.
+    private CYKItemIndex      index;
 
     private long              agendaMaxSize;
 
@@ -62,13 +61,14 @@ public class PriorityAgendaNaive extends PriorityQueue<CYKItem>
     public PriorityAgendaNaive(Numberer nb) {
         agendaMaxSize = 0;
         addCount = 0;
-        chart = new CYKChart();
+        index = new CYKItemIndex(128);
         this.nb = nb;
     }
 
     @Override
     public void clear() {
         super.clear();
+        index.clear();
         agendaMaxSize = 0;
         addCount = 0;
     }
@@ -76,36 +76,39 @@ public class PriorityAgendaNaive extends PriorityQueue<CYKItem>
     @Override
     public CYKItem poll() {
         CYKItem it = super.poll();
-        chart.get(it.pl).remove(it.rvec);
-        if (chart.get(it.pl).isEmpty())
-            chart.remove(it.pl);
+        index.remove(it);
         return it;
     }
 
     @Override
     public void push(CYKItem it) {
         // check if we have that item already
-        CYKItem oit = chart.getItem(it);
+        CYKItem oit = index.find(it);
         if (oit != null) {
             // is old
             if (oit.iscore + oit.oscore > it.iscore + oit.oscore) {
                 // decrease-key
                 // no updating of backpointers necessary
                 super.remove(oit);
+                index.remove(oit);
                 super.offer(it);
+                index.insert(it);
                 decreaseKeyCount++;
             }
         } else {
             // is new
-            if (!chart.containsKey(it.pl))
-                chart.put(it.pl, new HashMap<BitSet, CYKItem>());
-            chart.get(it.pl).put(it.rvec, it);
+            index.insert(it);
             super.offer(it);
             ++addCount;
         }
         agendaMaxSize = Math.max(super.size(), agendaMaxSize);
     }
 
+    @Override
+    public long getDecreaseKeyCount() {
+        return decreaseKeyCount;
+    }
+
     @Override
     public String getStats() {
         return "Agenda stats: Max size: " + agendaMaxSize + ", adds: "
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * File PriorityAgendaPruning.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.tuebingen.rparse.misc.ClassParameters;
+import de.tuebingen.rparse.misc.HasParameters;
+import de.tuebingen.rparse.misc.ParameterException;
+
+/**
+ * An agenda which prunes the items pushed to another agenda, such that long sentences degrade gracefully instead of
+ * running into the timeout. The search is not exact anymore. Items which are not pushed never reach the chart. There
+ * are three criteria, each of which is optional:
+ * <ul>
+ * <li>beam: For a range vector, only the items whose labels are among the n best labels pushed for it so far are
+ * accepted. Pushing a label again which is already in the beam does not use up another slot, and neither do items
+ * built by unary clauses on top of an item for the same range vector.</li>
+ * <li>threshold: Only the items whose score (inside plus outside) is at most the given value worse than the best item
+ * pushed so far for the same number of terminals are accepted.</li>
+ * <li>cap: Once the agenda holds the given number of items, no more items are accepted, not even better ones. The
+ * cap is a hard memory bound; if it is too low, a sentence may not get a parse.</li>
+ * </ul>
+ * Items with the label of the goal item are exempt from all three criteria, since without them there is no parse.
+ * Accepted items are not removed from the agenda later on, even if better items come along.
+ * 
+ * @author wmaier
+ */
+public class PriorityAgendaPruning implements PriorityAgenda, HasParameters {
+
+    // the agenda which holds the items
+    private PriorityAgenda              agenda;
+
+    private ClassParameters             params;
+
+    // the label of the goal item
+    private int                         goal;
+
+    // number of labels per range vector, 0 if off
+    private int                         beam;
+
+    // threshold relative to the best item with the same length
+    private double                      threshold;
+
+    // maximal agenda size, 0 if off
+    private int                         cap;
+
+    // range vector -> best labels pushed for it
+    private Map<BitSet, SpanBeam>       spans;
+
+    // length -> best score pushed for it
+    private double[]                    bestByLength;
+
+    private long                        prunedBeam;
+
+    private long                        prunedThreshold;
+
+    private long                        prunedCap;
+
+    /**
+     * Constructor. Understands the parameters "beam" (integer), "threshold" (a score difference, i.e., a negative log
+     * probability) and "cap" (integer).
+     * 
+     * @param agenda
+     *            The agenda which holds the items
+     * @param paramstring
+     *            The parameter string
+     * @param goal
+     *            The label of the goal item
+     * @throws ParameterException
+     *             If there is an error in the parameter string
+     */
+    public PriorityAgendaPruning(PriorityAgenda agenda, String paramstring,
+            int goal) throws ParameterException {
+        this.agenda = agenda;
+        this.goal = goal;
+        params = new ClassParameters();
+        params.add("beam", "Maximal number of labels per range vector");
+        params.add("threshold",
+                "Maximal score difference to the best item of the same length");
+        params.add("cap",
+                "Maximal number of items on the agenda, further items are rejected");
+        params.parse(paramstring);
+        beam = 0;
+        threshold = Double.POSITIVE_INFINITY;
+        cap = 0;
+        try {
+            if (params.check("beam"))
+                beam = Integer.valueOf(params.getVal("beam"));
+            if (params.check("threshold"))
+                threshold = Double.valueOf(params.getVal("threshold"));
+            if (params.check("cap"))
+                cap = Integer.valueOf(params.getVal("cap"));
+        } catch (NumberFormatException e) {
+            throw new ParameterException("Agenda pruning parameters need numeric values: "
+                    + paramstring);
+        }
+        spans = new HashMap<BitSet, SpanBeam>();
+        bestByLength = new double[0];
+        prunedBeam = 0;
+        prunedThreshold = 0;
+        prunedCap = 0;
+    }
+
+    @Override
+    public CYKItem poll() {
+        return agenda.poll();
+    }
+
+    @Override
+    public void push(CYKItem it) {
+        if (it.pl == goal) {
+            agenda.push(it);
+            return;
+        }
+        if (cap > 0 && agenda.size() >= cap) {
+            ++prunedCap;
+            return;
+        }
+        double score = it.iscore + it.oscore;
+        if (threshold < Double.POSITIVE_INFINITY) {
+            int len = it.rvec.cardinality();
+            if (len >= bestByLength.length) {
+                double[] grown = new double[len + 1];
+                System.arraycopy(bestByLength, 0, grown, 0, bestByLength.length);
+                for (int i = bestByLength.length; i < grown.length; ++i)
+                    grown[i] = Double.POSITIVE_INFINITY;
+                bestByLength = grown;
+            }
+            if (score > bestByLength[len] + threshold) {
+                ++prunedThreshold;
+                return;
+            }
+            bestByLength[len] = Math.min(bestByLength[len], score);
+        }
+        // an item built by a unary clause has the range vector of its child, which has already passed the beam
+        if (beam > 0 && !(it.olc != null && it.orc == null)) {
+            SpanBeam sb = spans.get(it.rvec);
+            if (sb == null) {
+                sb = new SpanBeam(beam);
+                spans.put(it.rvec, sb);
+            }
+            if (!sb.add(it.pl, score)) {
+                ++prunedBeam;
+                return;
+            }
+        }
+        agenda.push(it);
+    }
+
+    @Override
+    public long getDecreaseKeyCount() {
+        return agenda.getDecreaseKeyCount();
+    }
+
+    @Override
+    public String getStats() {
+        return agenda.getStats() + ", pruned (beam/threshold/cap): "
+                + prunedBeam + "/" + prunedThreshold + "/" + prunedCap;
+    }
+
+    @Override
+    public int size() {
+        return agenda.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return agenda.isEmpty();
+    }
+
+    @Override
+    public ClassParameters getParameters() throws ParameterException {
+        return params;
+    }
+
+    /*
+     * The labels pushed for a range vector together with the best score pushed for each of them
+     */
+    private static class SpanBeam {
+
+        private int[]    labels;
+
+        private double[] scores;
+
+        private int      size;
+
+        public SpanBeam(int width) {
+            labels = new int[width];
+            scores = new double[width];
+            size = 0;
+        }
+
+        // record the label with the score if it is among the best ones, return false if not. A label which is
+        // already in the beam does not take another slot, only its score is updated if it has improved.
+        public boolean add(int label, double score) {
+            int worst = 0;
+            for (int i = 0; i < size; ++i) {
+                if (labels[i] == label) {
+                    scores[i] = Math.min(scores[i], score);
+                    return true;
+                }
+                if (scores[i] > scores[worst])
+                    worst = i;
+            }
+            if (size < labels.length) {
+                labels[size] = label;
+                scores[size] = score;
+                ++size;
+                return true;
+            }
+            if (score >= scores[worst])
+                return false;
+            labels[worst] = label;
+            scores[worst] = score;
+            return true;
+        }
+
+    }
+
+}
@@ -41,4 +41,9 @@ public interface PriorityAgendaTypes {
      */
     public final static String NAIVE     = "naive";
 
+    /**
+     * Array-based 4-ary heap with decrease-key in place
+     */
+    public final static String HEAP      = "heap";
+
 }
@@ -28,6 +28,7 @@ import java.io.Serializable;
 import java.util.BitSet;
 import java.util.logging.Logger;
 
+import de.tuebingen.rparse.grammar.BinaryClause;
 import de.tuebingen.rparse.misc.IntegerContainer;
 
 
@@ -36,7 +37,7 @@ import de.tuebingen.rparse.misc.IntegerContainer;
  * 
  * @author wmaier
  */
-public abstract class YieldFunctionComposer implements Serializable {
+public abstract class YieldFunctionComposer implements Serializable, Cloneable {
 
     private static final long serialVersionUID = -3344346159814832536L;
 
@@ -59,6 +60,22 @@ public abstract class YieldFunctionComposer implements Serializable {
         compositionCount = 0;
     }
 
+    /**
+     * Get a fresh copy of this composer with the same configuration and reset counters, e.g., for a parser which runs
+     * in its own thread. Configuration fields are shared, therefore they must not be modified during composition.
+     * 
+     * @return The copy
+     */
+    public YieldFunctionComposer copy() {
+        try {
+            YieldFunctionComposer ret = (YieldFunctionComposer) super.clone();
+            ret.reset();
+            return ret;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Returns the counter. Subclasses can do more elaborate things.
      * 
@@ -89,6 +106,49 @@ public abstract class YieldFunctionComposer implements Serializable {
         return doComposition(lit, rit, yf, s, e);
     }
 
+    /**
+     * Same as above, but with the clause instead of only its yield function, so that subclasses can use information
+     * which has been precomputed on the clause.
+     * 
+     * @param lit
+     *            Left range vector
+     * @param rit
+     *            Right range vector
+     * @param bc
+     *            The clause
+     * @param s
+     *            In case yield function is CF, start of yield
+     * @param e
+     *            In case yield function is CF, end of yield
+     * @return The composed range vectors
+     */
+    public final BitSet composeYields(CYKItem lit, CYKItem rit,
+            BinaryClause bc, IntegerContainer s, IntegerContainer e) {
+        ++compositionCount;
+        return doComposition(lit, rit, bc, s, e);
+    }
+
+    /**
+     * Does the actual composition for a clause. This implementation just uses the yield function of the clause,
+     * subclasses can do better.
+     * 
+     * @param lit
+     *            Left range vector
+     * @param rit
+     *            Right range vector
+     * @param bc
+     *            The clause
+     * @param s
+     *            In case yield function is CF, start of yield
+     * @param e
+     *            In case yield function is CF, end of yield
+     * @return The composed range vectors
+     */
+    public BitSet doComposition(CYKItem lit, CYKItem rit, BinaryClause bc,
+            IntegerContainer s, IntegerContainer e) {
+        return doComposition(lit, rit, bc.yf, s, e);
+    }
+
     /**
      * Does the actual composition. Must be provided by subclasses.
      * 
@@ -59,6 +59,10 @@ public class YieldFunctionComposerFactory {
             return new FastYFComposer();
         }
 
+        if (YieldFunctionComposerTypes.BITPARALLEL.equals(type)) {
+            return new BitParallelYFComposer();
+        }
+
         if (YieldFunctionComposerTypes.GAPS.equals(type)) {
             return new GapfilterYFComposer(params);
         }
@@ -34,21 +34,26 @@ public class YieldFunctionComposerTypes {
     /**
      * First implementation of yield function composition, takes linear time in the length of the vectors
      */
-    public final static String CLASSIC = "old";
+    public final static String CLASSIC     = "old";
 
     /**
      * More efficient implementation, uses BitSet capabilities
      */
-    public final static String FAST    = "fast";
+    public final static String FAST        = "fast";
+
+    /**
+     * Bit-parallel implementation on packed range vectors, falls back to "fast" for sentences longer than 64
+     */
+    public final static String BITPARALLEL = "bitparallel";
 
     /**
      * Filtering of gaps, i.e., longer gaps get excluded
      */
-    public final static String GAPS    = "gaps";
+    public final static String GAPS        = "gaps";
 
     /**
      * Filtering of ill-nested constructions
      */
-    public final static String WELL    = "wellnested";
+    public final static String WELL        = "wellnested";
 
 }
@@ -24,89 +24,260 @@
  ******************************************************************************/
 package de.tuebingen.rparse.parser.fanouttwo;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import de.tuebingen.rparse.grammar.fanouttwo.BinaryRCGTwo;
+import de.tuebingen.rparse.parser.CYKChart;
 
+/**
+ * The chart of the parser for fan-out two. All items are kept in an open-addressing hash table keyed by label and
+ * span boundaries, packed into a long. Furthermore, for every label, every number of spans and every boundary (left
+ * or right end of the first or the second span), there is a list of the items which have a given value at this
+ * boundary. The parser finds the candidates for a combination by looking up the list for a boundary which must be
+ * adjacent to a boundary of the item it has just taken from the agenda.
+ * 
+ * @author wmaier
+ */
+public class CYKChartTwo {
 
+    /**
+     * Boundary index of the left end of the first span
+     */
+    public static final int      LL    = 0;
 
-public class CYKChartTwo {
+    /**
+     * Boundary index of the right end of the first span
+     */
+    public static final int      LR    = 1;
+
+    /**
+     * Boundary index of the left end of the second span
+     */
+    public static final int      RL    = 2;
+
+    /**
+     * Boundary index of the right end of the second span
+     */
+    public static final int      RR    = 3;
+
+    // returned if there are no items
+    private static final ItemList EMPTY = new ItemList();
+
+    // label -> slot, -1 if there is no item with the label yet
+    private int[]                slotOf;
+
+    // slot -> (onetwo - 1) * 4 + boundary index -> boundary -> items
+    private ItemList[][][]       lists;
 
-    // label -> l1 -> r1 -> l2 -> r2
-    Map<Integer,Map<Integer,Map<Integer,Map<Integer,Map<Integer,CYKItemTwo>>>>> charttwo;
-    // label -> l1 -> r1 
-    Map<Integer,Map<Integer,Map<Integer,CYKItemTwo>>> chartone;
+    private int                  slots;
 
+    // the largest boundary seen so far
+    private int                  maxBoundary;
+
+    // all items, by key
+    private long[]               keys;
+
+    private CYKItemTwo[]         table;
+
+    private int                  size;
+
+    /**
+     * Constructor.
+     * 
+     * @param bg
+     *            The grammar
+     */
     public CYKChartTwo(BinaryRCGTwo bg) {
-        chartone = new HashMap<Integer,Map<Integer,Map<Integer,CYKItemTwo>>>();
-        charttwo = new HashMap<Integer,Map<Integer,Map<Integer,Map<Integer,Map<Integer,CYKItemTwo>>>>>();
+        slotOf = new int[64];
+        Arrays.fill(slotOf, -1);
+        lists = new ItemList[16][][];
+        slots = 0;
+        maxBoundary = 0;
+        keys = new long[1024];
+        table = new CYKItemTwo[1024];
+        size = 0;
     }
-    
+
+    /**
+     * Add an item to the chart. The item must not be in the chart yet.
+     * 
+     * @param item
+     *            The item
+     */
     public void add(CYKItemTwo item) {
-        if (item.onetwo == 1) {
-            if (!chartone.containsKey(item.label)) {
-                chartone.put(item.label, new HashMap<Integer,Map<Integer,CYKItemTwo>>());
-            }
-            if (!chartone.get(item.label).containsKey(item.ll)) {
-                chartone.get(item.label).put( item.ll, new HashMap<Integer,CYKItemTwo>());
-            }
-            chartone.get(item.label).get( item.ll).put( item.lr, item);
-        } else if (item.onetwo == 2) {
-            if (!charttwo.containsKey(item.label)) {
-                charttwo.put(item.label, new HashMap<Integer,Map<Integer,Map<Integer,Map<Integer,CYKItemTwo>>>>());
-            }
-            if (!charttwo.get(item.label).containsKey(item.ll)) {
-                charttwo.get(item.label).put( item.ll, new HashMap<Integer,Map<Integer,Map<Integer,CYKItemTwo>>>());
-            }
-            if (!charttwo.get(item.label).get(item.ll).containsKey(item.lr)) {
-                charttwo.get(item.label).get(item.ll).put( item.lr, new HashMap<Integer,Map<Integer,CYKItemTwo>>());
-            }
-            if (!charttwo.get(item.label).get(item.ll).get(item.lr).containsKey(item.rl)) {
-                charttwo.get(item.label).get(item.ll).get(item.lr).put( item.rl, new HashMap<Integer,CYKItemTwo>());
-            }
-            charttwo.get(item.label).get(item.ll).get(item.lr).get(item.rl).put(item.rr,item);
-        } else {
+        if (item.onetwo != 1 && item.onetwo != 2) {
             throw new IllegalStateException("Only one or two spans allowed");
         }
-        
+        insert(item);
+        int slot = slot(item.label);
+        int base = (item.onetwo - 1) * 4;
+        listFor(slot, base + LL, item.ll).add(item);
+        listFor(slot, base + LR, item.lr).add(item);
+        if (item.onetwo == 2) {
+            listFor(slot, base + RL, item.rl).add(item);
+            listFor(slot, base + RR, item.rr).add(item);
+        }
+        maxBoundary = Math.max(maxBoundary, item.onetwo == 1 ? item.lr
+                : item.rr);
     }
-    
-    public boolean hasLabelOne(int label) {
-        return chartone.containsKey(label);
+
+    /**
+     * Get the items with a certain label and a certain number of spans which have a certain value at one of their
+     * boundaries. The list must not be modified.
+     * 
+     * @param label
+     *            The label
+     * @param onetwo
+     *            The number of spans
+     * @param boundary
+     *            The boundary index, one of {@link #LL}, {@link #LR}, {@link #RL}, {@link #RR}
+     * @param value
+     *            The value of the boundary
+     * @return The items, possibly an empty list
+     */
+    public ItemList get(int label, int onetwo, int boundary, int value) {
+        if (label < 0 || label >= slotOf.length || slotOf[label] == -1)
+            return EMPTY;
+        ItemList[] byValue = lists[slotOf[label]][(onetwo - 1) * 4 + boundary];
+        if (byValue == null || value < 0 || value >= byValue.length
+                || byValue[value] == null)
+            return EMPTY;
+        return byValue[value];
     }
-    
-    private boolean hasScoreOne(CYKItemTwo item) {
-        return chartone.containsKey(item.label)
-                && chartone.get(item.label).containsKey(item.ll)
-                && chartone.get(item.label).get(item.ll).containsKey(item.lr);
+
+    /**
+     * The largest boundary of an item in the chart.
+     * 
+     * @return The boundary
+     */
+    public int maxBoundary() {
+        return maxBoundary;
+    }
+
+    public boolean hasLabelOne(int label) {
+        return hasLabel(label, 1);
     }
-    
+
     public boolean hasLabelTwo(int label) {
-        return charttwo.containsKey(label);
-    }
-    
-    private boolean hasScoreTwo(CYKItemTwo item) {
-        return charttwo.containsKey(item.label)
-                && charttwo.get(item.label).containsKey(item.ll)
-                && charttwo.get(item.label).get(item.ll).containsKey(item.lr)
-                && charttwo.get(item.label).get(item.ll).get(item.lr).containsKey(item.rl)
-                && charttwo.get(item.label).get(item.ll).get(item.lr).get(item.rl).containsKey(item.rr);
-    }    
-    
+        return hasLabel(label, 2);
+    }
+
     public int size() {
-        return 0; // TODO
+        return size;
     }
 
     public boolean hasScore(CYKItemTwo it) {
-        if (it.onetwo == 1) {
-            return hasScoreOne(it);
-        } else if (it.onetwo == 2) {
-            return hasScoreTwo(it);
-        } else {
+        if (it.onetwo != 1 && it.onetwo != 2) {
             throw new IllegalStateException("Wrong type of item");
         }
+        long key = key(it);
+        int mask = table.length - 1;
+        int i = CYKChart.hash(key) & mask;
+        while (table[i] != null) {
+            if (keys[i] == key && same(table[i], it))
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /*
+     * Key of an item for the hash tables of chart and agenda. Boundaries larger than 254 collide, which is fine since
+     * the items themselves are compared, see same().
+     */
+    static long key(CYKItemTwo it) {
+        return ((long) it.label << 32) | ((long) (it.ll & 0xff) << 24)
+                | ((it.lr & 0xff) << 16) | ((it.rl & 0xff) << 8)
+                | (it.rr & 0xff);
+    }
+
+    // true if both items have the same label and spans
+    static boolean same(CYKItemTwo a, CYKItemTwo b) {
+        return a.label == b.label && a.onetwo == b.onetwo && a.ll == b.ll
+                && a.lr == b.lr && a.rl == b.rl && a.rr == b.rr;
+    }
+
+    private boolean hasLabel(int label, int onetwo) {
+        if (label < 0 || label >= slotOf.length || slotOf[label] == -1)
+            return false;
+        return lists[slotOf[label]][(onetwo - 1) * 4 + LL] != null;
+    }
+
+    private int slot(int label) {
+        if (label >= slotOf.length) {
+            int olen = slotOf.length;
+            slotOf = Arrays.copyOf(slotOf, Math.max(2 * olen, label + 1));
+            Arrays.fill(slotOf, olen, slotOf.length, -1);
+        }
+        if (slotOf[label] == -1) {
+            if (slots == lists.length)
+                lists = Arrays.copyOf(lists, 2 * slots);
+            lists[slots] = new ItemList[8][];
+            slotOf[label] = slots++;
+        }
+        return slotOf[label];
+    }
+
+    private ItemList listFor(int slot, int kind, int value) {
+        ItemList[] byValue = lists[slot][kind];
+        if (byValue == null || value >= byValue.length) {
+            int len = Math.max(value + 1, byValue == null ? 16
+                    : 2 * byValue.length);
+            byValue = byValue == null ? new ItemList[len] : Arrays.copyOf(
+                    byValue, len);
+            lists[slot][kind] = byValue;
+        }
+        if (byValue[value] == null)
+            byValue[value] = new ItemList();
+        return byValue[value];
     }
-    
-    
+
+    private void insert(CYKItemTwo it) {
+        // keep the load factor below 1/2
+        if (2 * (size + 1) > table.length) {
+            CYKItemTwo[] otable = table;
+            keys = new long[2 * otable.length];
+            table = new CYKItemTwo[2 * otable.length];
+            for (CYKItemTwo oit : otable) {
+                if (oit != null)
+                    place(oit);
+            }
+        }
+        place(it);
+        ++size;
+    }
+
+    private void place(CYKItemTwo it) {
+        long key = key(it);
+        int mask = table.length - 1;
+        int i = CYKChart.hash(key) & mask;
+        while (table[i] != null)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        table[i] = it;
+    }
+
+    /**
+     * A list of items, to be read through the public fields.
+     */
+    public static final class ItemList {
+
+        /**
+         * The items, valid up to {@link #size}
+         */
+        public CYKItemTwo[] items = new CYKItemTwo[4];
+
+        /**
+         * The number of items
+         */
+        public int          size  = 0;
+
+        private void add(CYKItemTwo it) {
+            if (size == items.length)
+                items = Arrays.copyOf(items, 2 * size);
+            items[size++] = it;
+        }
+
+    }
+
 }
@@ -57,6 +57,11 @@ public class CYKItemTwo {
     public CYKItemTwo orc;
     
     public final int onetwo;
+
+    /**
+     * position on the heap of {@link PriorityAgendaTwoHeap}, -1 if not on it
+     */
+    public int heapPos = -1;
     
     public CYKItemTwo(int label, int onetwo, double iscore, CYKItemTwo olc, CYKItemTwo orc, 
             int ll, int lr, int rl, int rr, String st) {
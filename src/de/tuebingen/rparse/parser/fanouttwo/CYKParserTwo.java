@@ -57,7 +57,6 @@ import de.tuebingen.rparse.treebank.dep.DependencyForest;
 import de.tuebingen.rparse.treebank.dep.DependencyForestNodeLabel;
 import de.tuebingen.rparse.treebank.dep.DependencyInputFormats;
 import de.tuebingen.rparse.treebank.dep.DependencySentenceWriterFactory;
-import de.tuebingen.rparse.treebank.lex.LexiconConstants;
 import de.tuebingen.rparse.treebank.lex.ParserInput;
 
 /**
@@ -77,12 +76,24 @@ public class CYKParserTwo implements RCGParser {
 	// the agenda
 	private PriorityAgendaTwo agenda;
 
+	// the items created from the item taken from the agenda, before they
+	// get pushed
+	private ArrayList<CYKItemTwo> transport;
+
+	// boundaries of the children during a combination: left end and right
+	// end of the first and the second span of the left child, then the same
+	// for the right child
+	private final int[] bnd = new int[8];
+
 	// our goal item
 	private CYKItemTwo goal;
 
 	// the input words, mapped to integers
 	private int[] words;
 
+	// the input, for the surface strings of the words
+	private ParserInput input;
+
 	// the input terminals, as nodes
 	private Node[] terminals;
 
@@ -143,6 +154,7 @@ public class CYKParserTwo implements RCGParser {
 		} catch (UnknownFormatException e) {
 		}
 		chart = new CYKChartTwo(bgg);
+		transport = new ArrayList<CYKItemTwo>();
 		goal = null;
 		this.agendaType = agendaType;
 		try {
@@ -166,6 +178,7 @@ public class CYKParserTwo implements RCGParser {
 	@Override
 	public boolean parseWithTimeout(ParserInput pi, int timeout)
 			throws TimeoutException {
+		this.input = pi;
 		this.words = pi.getWords();
 		try {
 			doParse(words, pi.getTags(), timeout);
@@ -200,7 +213,6 @@ public class CYKParserTwo implements RCGParser {
 			agenda.push(item);
 		}
 
-		ArrayList<CYKItemTwo> transport = new ArrayList<CYKItemTwo>();
 		CYKItemTwo nit = null;
 
 		// boolean cont = false;
@@ -244,772 +256,17 @@ public class CYKParserTwo implements RCGParser {
 						nit = new CYKItemTwo(bc.lhs, item.onetwo, item.iscore
 								+ bc.score, item, null, item, item.st);
 						transport.add(nit);
-					}
-					// not unary: we have do get something matching from the
-					// chart
-					// right child has one span
-					if (chart.hasLabelOne(bc.rc)) {
-						// chartone: label -> l -> r
-						if (bc.type == 3) {
-							// 3 A(XY) -> B(X) C(Y)
-							// X.r = Y.l
-							if (item.isOne()) {
-								if (chart.chartone.get(bc.rc).containsKey(
-										item.lr)) {
-									for (int yr : chart.chartone.get(bc.rc)
-											.get(item.lr).keySet()) {
-										CYKItemTwo candit = chart.chartone
-												.get(bc.rc).get(item.lr)
-												.get(yr);
-										nit = new CYKItemTwo(bc.lhs, 1,
-												item.iscore + candit.iscore
-														+ bc.score, item,
-												candit, item.ll, candit.lr,
-												UNSET, UNSET, "l3");
-										transport.add(nit);
-									}
-								}
-							}
-						} else if (bc.type == 4) {
-							// 4 A(X,Y) -> B(X) C(Y)
-							// Y.l > X.r
-							if (item.isOne()) {
-								for (int yl : chart.chartone.get(bc.rc)
-										.keySet()) {
-									if (yl > item.lr) {
-										for (int yr : chart.chartone.get(bc.rc)
-												.get(yl).keySet()) {
-											CYKItemTwo candit = chart.chartone
-													.get(bc.rc).get(yl).get(yr);
-											nit = new CYKItemTwo(bc.lhs, 2,
-													item.iscore + candit.iscore
-															+ bc.score, item,
-													candit, item.ll, item.lr,
-													candit.ll, candit.lr, "l4");
-											transport.add(nit);
-										}
-									}
-								}
-							}
-						} else if (bc.type == 5) {
-							// 5 A(XYZ) -> B(X,Z) C(Y)
-							// Y.l = X.r
-							// Y.r = Z.l
-							if (!item.isOne()) {
-								if (chart.chartone.get(bc.rc).containsKey(
-										item.lr)) {
-									if (chart.chartone.get(bc.rc).get(item.lr)
-											.containsKey(item.rl)) {
-										CYKItemTwo candit = chart.chartone
-												.get(bc.rc).get(item.lr)
-												.get(item.rl);
-										nit = new CYKItemTwo(bc.lhs, 1,
-												item.iscore + candit.iscore
-														+ bc.score, item,
-												candit, item.ll, item.rr,
-												UNSET, UNSET, "l5");
-										transport.add(nit);
-									}
-								}
-							}
-						} else if (bc.type == 6) {
-							// 6 A(X,YZ) -> B(X,Y) C(Z)
-							// Z.l = Y.r
-							if (!item.isOne()) {
-								if (chart.chartone.get(bc.rc).containsKey(
-										item.rr)) {
-									for (int zr : chart.chartone.get(bc.rc)
-											.get(item.rr).keySet()) {
-										CYKItemTwo candit = chart.chartone
-												.get(bc.rc).get(item.rr)
-												.get(zr);
-										nit = new CYKItemTwo(bc.lhs, 2,
-												item.iscore + candit.iscore
-														+ bc.score, item,
-												candit, item.ll, item.lr,
-												item.rl, candit.lr, "l6");
-										transport.add(nit);
-									}
-								}
-							}
-						} else if (bc.type == 7) {
-							// 7 A(X,YZ) -> B(X,Z) C(Y)
-							// Y.l > X.r
-							// Y.r = Z.l
-							if (!item.isOne()) {
-								for (int yl : chart.chartone.get(bc.rc)
-										.keySet()) {
-									if (yl > item.lr) {
-										if (chart.chartone.get(bc.rc).get(yl)
-												.containsKey(item.rl)) {
-											CYKItemTwo candit = chart.chartone
-													.get(bc.rc).get(yl)
-													.get(item.rl);
-											nit = new CYKItemTwo(bc.lhs, 2,
-													item.iscore + candit.iscore
-															+ bc.score, item,
-													candit, item.ll, item.lr,
-													candit.ll, item.rr, "l7");
-											transport.add(nit);
-										}
-									}
-								}
-							}
-						} else if (bc.type == 8) {
-							// 8 A(XY,Z) -> B(X,Z) C(Y)
-							// Y.l = X.r
-							// Y.r < Z.l
-							if (!item.isOne()) {
-								if (chart.chartone.get(bc.rc).containsKey(
-										item.lr)) {
-									for (int yr : chart.chartone.get(bc.rc)
-											.get(item.lr).keySet()) {
-										if (yr < item.rl) {
-											CYKItemTwo candit = chart.chartone
-													.get(bc.rc).get(item.lr)
-													.get(yr);
-											nit = new CYKItemTwo(bc.lhs, 2,
-													item.iscore + candit.iscore
-															+ bc.score, item,
-													candit, item.ll, candit.lr,
-													item.rl, item.rr, "l8");
-											transport.add(nit);
-										}
-									}
-								}
-							}
-						}
-					}
-					// right child has two spans
-					if (chart.hasLabelTwo(bc.rc)) {
-						if (bc.type == 9) {
-							// 9 A(XY,Z) -> B(X) C(Y,Z)
-							// Y.l = X.r
-							if (item.isOne()) {
-								if (chart.charttwo.get(bc.rc).containsKey(
-										item.lr)) {
-									for (int yr : chart.charttwo.get(bc.rc)
-											.get(item.lr).keySet()) {
-										for (int zl : chart.charttwo.get(bc.rc)
-												.get(item.lr).get(yr).keySet()) {
-											for (int zr : chart.charttwo
-													.get(bc.rc).get(item.lr)
-													.get(yr).get(zl).keySet()) {
-												CYKItemTwo candit = chart.charttwo
-														.get(bc.rc)
-														.get(item.lr).get(yr)
-														.get(zl).get(zr);
-												nit = new CYKItemTwo(bc.lhs, 2,
-														item.iscore
-																+ candit.iscore
-																+ bc.score,
-														item, candit, item.ll,
-														candit.lr, candit.rl,
-														candit.rr, "l9");
-												transport.add(nit);
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 10) {
-							// 10 A(XY,ZU) -> B(X,Z) C(Y,U)
-							// ill-nested
-							// Y.l = X.r (item.lr)
-							// Y.r < Z.l (item.rl)
-							// U.l = Z.r (item.rr)
-							if (!item.isOne()) {
-								if (chart.charttwo.get(bc.rc).containsKey(
-										item.lr)) {
-									for (int yl : chart.charttwo.get(bc.rc)
-											.get(item.lr).keySet()) {
-										if (yl < item.rl) {
-											if (chart.charttwo.get(bc.rc)
-													.get(item.lr).get(yl)
-													.containsKey(item.rr)) {
-												for (int ur : chart.charttwo
-														.get(bc.rc)
-														.get(item.lr).get(yl)
-														.get(item.rr).keySet()) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.rc)
-															.get(item.lr)
-															.get(yl)
-															.get(item.rr)
-															.get(ur);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															item, candit,
-															item.ll, candit.lr,
-															item.rl, candit.rr,
-															"l10");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 11) {
-							// 11 A(XY,ZU) -> B(X,U) C(Y,Z)
-							// Y.l = X.r (item.lr)
-							// Z.r = U.l (item.rl)
-							if (!item.isOne()) {
-								if (chart.charttwo.get(bc.rc).containsKey(
-										item.lr)) {
-									for (int yr : chart.charttwo.get(bc.rc)
-											.get(item.lr).keySet()) {
-										for (int zl : chart.charttwo.get(bc.rc)
-												.get(item.lr).get(yr).keySet()) {
-											if (chart.charttwo.get(bc.rc)
-													.get(item.lr).get(yr)
-													.get(zl)
-													.containsKey(item.rl)) {
-												CYKItemTwo candit = chart.charttwo
-														.get(bc.rc)
-														.get(item.lr).get(yr)
-														.get(zl).get(item.rl);
-												nit = new CYKItemTwo(bc.lhs, 2,
-														item.iscore
-																+ candit.iscore
-																+ bc.score,
-														item, candit, item.ll,
-														candit.lr, candit.rl,
-														item.rr, "l11");
-												transport.add(nit);
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 12) {
-							// 12 A(X,YZU) -> B(X,Z) C(Y,U)
-							// Y.l > X.r
-							// Y.r = Z.l
-							// U.l = Z.r
-							if (!item.isOne()) {
-								for (int yl : chart.charttwo.get(bc.rc)
-										.keySet()) {
-									if (yl > item.lr) {
-										if (chart.charttwo.get(bc.rc).get(yl)
-												.containsKey(item.rl)) {
-											if (chart.charttwo.get(bc.rc)
-													.get(yl).get(item.rl)
-													.containsKey(item.rr)) {
-												for (int ur : chart.charttwo
-														.get(bc.rc).get(yl)
-														.get(item.rl)
-														.get(item.rr).keySet()) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.rc).get(yl)
-															.get(item.rl)
-															.get(item.rr)
-															.get(ur);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															item, candit,
-															item.ll, item.lr,
-															candit.rl,
-															candit.rr, "l12");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 13) {
-							// 13 A(XYZ,U) -> B(X,Z) C(Y,U)
-							// Y.l = X.r
-							// Y.r = Z.l
-							// U.l > Z.r
-							if (!item.isOne()) {
-								if (chart.charttwo.get(bc.rc).containsKey(
-										item.lr)) {
-									if (chart.charttwo.get(bc.rc).get(item.lr)
-											.containsKey(item.rl)) {
-										for (int ul : chart.charttwo.get(bc.rc)
-												.get(item.lr).get(item.rl)
-												.keySet()) {
-											if (ul > item.rr) {
-												for (int ur : chart.charttwo
-														.get(bc.rc)
-														.get(item.lr)
-														.get(item.rl).get(ul)
-														.keySet()) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.rc)
-															.get(item.lr)
-															.get(item.rl)
-															.get(ul).get(ur);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															item, candit,
-															item.ll, item.rr,
-															candit.rl,
-															candit.rr, "l13");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 14) {
-							// 14 A(XYZU) -> B(X,Z) C(Y,U)
-							if (!item.isOne()) {
-								if (chart.charttwo.get(bc.rc).containsKey(
-										item.lr)) {
-									if (chart.charttwo.get(bc.rc).get(item.lr)
-											.containsKey(item.rl)) {
-										if (chart.charttwo.get(bc.rc)
-												.get(item.lr).get(item.rl)
-												.containsKey(item.rr)) {
-											for (int ur : chart.charttwo
-													.get(bc.rc).get(item.lr)
-													.get(item.rl).get(item.rr)
-													.keySet()) {
-												CYKItemTwo candit = chart.charttwo
-														.get(bc.rc)
-														.get(item.lr)
-														.get(item.rl)
-														.get(item.rr).get(ur);
-												nit = new CYKItemTwo(bc.lhs, 1,
-														item.iscore
-																+ candit.iscore
-																+ bc.score,
-														item, candit, item.ll,
-														candit.rr, UNSET,
-														UNSET, "l14");
-												transport.add(nit);
-											}
-										}
-									}
-								}
-							}
-						}
+					} else {
+						// not unary: we have do get something matching from
+						// the chart
+						combine(bc, item, true);
 					}
 				}
 			}
-
 			// item is right child
 			if (bgg.twoClByRc.containsKey(item.label)) {
 				for (BinaryClauseTwo bc : bgg.twoClByRc.get(item.label)) {
-					// not unary: we have do get something matching from the
-					// chart
-					// left child has one span
-					if (chart.hasLabelOne(bc.lc)) {
-						// chartone: label -> l -> r
-						if (bc.type == 3) {
-							// 3 A(XY) -> B(X) C(Y)
-							// X.r = Y.l
-							if (item.isOne()) {
-								for (int xl : chart.chartone.get(bc.lc)
-										.keySet()) {
-									if (chart.chartone.get(bc.lc).get(xl)
-											.containsKey(item.ll)) {
-										CYKItemTwo candit = chart.chartone
-												.get(bc.lc).get(xl)
-												.get(item.ll);
-										nit = new CYKItemTwo(bc.lhs, 1,
-												item.iscore + candit.iscore
-														+ bc.score, candit,
-												item, candit.ll, item.lr,
-												UNSET, UNSET, "r3");
-										transport.add(nit);
-									}
-								}
-							}
-						} else if (bc.type == 4) {
-							// 4 A(X,Y) -> B(X) C(Y)
-							// X.r < Y.l
-							if (item.isOne()) {
-								for (int xl : chart.chartone.get(bc.lc)
-										.keySet()) {
-									for (int xr : chart.chartone.get(bc.lc)
-											.get(xl).keySet()) {
-										int yl = item.ll;
-										if (xr < yl) {
-											CYKItemTwo candit = chart.chartone
-													.get(bc.lc).get(xl).get(xr);
-											nit = new CYKItemTwo(bc.lhs, 2,
-													item.iscore + candit.iscore
-															+ bc.score, candit,
-													item, candit.ll, candit.lr,
-													item.ll, item.lr, "r4");
-											transport.add(nit);
-										}
-									}
-								}
-							}
-						} else if (bc.type == 9) {
-							// 9 A(XY,Z) -> B(X) C(Y,Z)
-							// Y.l = X.r
-							if (!item.isOne()) {
-								for (int xl : chart.chartone.get(bc.lc)
-										.keySet()) {
-									if (chart.chartone.get(bc.lc).get(xl)
-											.containsKey(item.ll)) {
-										CYKItemTwo candit = chart.chartone
-												.get(bc.lc).get(xl)
-												.get(item.ll);
-										nit = new CYKItemTwo(bc.lhs, 2,
-												item.iscore + candit.iscore
-														+ bc.score, candit,
-												item, candit.ll, item.lr,
-												item.rl, item.rr, "r9");
-										transport.add(nit);
-									}
-								}
-							}
-						}
-					}
-					// left child has two spans
-					if (chart.hasLabelTwo(bc.lc)) {
-						if (bc.type == 5) {
-							// 5 A(XYZ) -> B(X,Z) C(Y)
-							// X.r = Y.l
-							// Z.l = Y.r
-							if (item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									if (chart.charttwo.get(bc.lc).get(xl)
-											.containsKey(item.ll)) {
-										if (chart.charttwo.get(bc.lc).get(xl)
-												.get(item.ll)
-												.containsKey(item.lr)) {
-											for (int zr : chart.charttwo
-													.get(bc.lc).get(xl)
-													.get(item.ll).get(item.lr)
-													.keySet()) {
-												CYKItemTwo candit = chart.charttwo
-														.get(bc.lc).get(xl)
-														.get(item.ll)
-														.get(item.lr).get(zr);
-												nit = new CYKItemTwo(bc.lhs, 1,
-														item.iscore
-																+ candit.iscore
-																+ bc.score,
-														candit, item,
-														candit.ll, candit.rr,
-														UNSET, UNSET, "r5");
-												transport.add(nit);
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 6) {
-							// 6 A(X,YZ) -> B(X,Y) C(Z)
-							// Y.r = Z.l
-							if (item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									for (int xr : chart.charttwo.get(bc.lc)
-											.get(xl).keySet()) {
-										for (int yl : chart.charttwo.get(bc.lc)
-												.get(xl).get(xr).keySet()) {
-											if (chart.charttwo.get(bc.lc)
-													.get(xl).get(xr).get(yl)
-													.containsKey(item.ll)) {
-												CYKItemTwo candit = chart.charttwo
-														.get(bc.lc).get(xl)
-														.get(xr).get(yl)
-														.get(item.ll);
-												nit = new CYKItemTwo(bc.lhs, 2,
-														item.iscore
-																+ candit.iscore
-																+ bc.score,
-														candit, item,
-														candit.ll, candit.lr,
-														candit.rl, item.lr,
-														"r6");
-												transport.add(nit);
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 7) {
-							// 7 A(X,YZ) -> B(X,Z) C(Y)
-							// Y.l > X.r
-							// Y.r = Z.l
-							if (item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									for (int xr : chart.charttwo.get(bc.lc)
-											.get(xl).keySet()) {
-										if (xr < item.ll) {
-											if (chart.charttwo.get(bc.lc)
-													.get(xl).get(xr)
-													.containsKey(item.lr)) {
-												for (int zr : chart.charttwo
-														.get(bc.lc).get(xl)
-														.get(xr).get(item.lr)
-														.keySet()) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.lc).get(xl)
-															.get(xr)
-															.get(item.lr)
-															.get(zr);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															candit, item,
-															candit.ll,
-															candit.lr, item.ll,
-															candit.rr, "r7");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 8) {
-							// 8 A(XY,Z) -> B(X,Z) C(Y)
-							// Y.l = X.r
-							// Y.r < Z.l
-							if (item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									if (chart.charttwo.get(bc.lc).get(xl)
-											.containsKey(item.ll)) {
-										for (int zl : chart.charttwo.get(bc.lc)
-												.get(xl).get(item.ll).keySet()) {
-											if (zl > item.lr) {
-												for (int zr : chart.charttwo
-														.get(bc.lc).get(xl)
-														.get(item.ll).get(zl)
-														.keySet()) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.lc).get(xl)
-															.get(item.ll)
-															.get(zl).get(zr);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															candit, item,
-															candit.ll, item.lr,
-															candit.rl,
-															candit.rr, "r8");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 10) {
-							// 10 A(XY,ZU) -> B(X,Z) C(Y,U)
-							// ill-nested
-							// Y.l = X.r (item.lr)
-							// Y.r < Z.l (item.rl)
-							// U.l = Z.r (item.rr)
-							if (!item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									if (chart.charttwo.get(bc.lc).get(xl)
-											.containsKey(item.ll)) {
-										int xr = item.ll;
-										for (int zl : chart.charttwo.get(bc.lc)
-												.get(xl).get(xr).keySet()) {
-											if (zl > item.lr) {
-												int zr = item.rl;
-												if (chart.charttwo.get(bc.lc)
-														.get(xl).get(xr)
-														.get(zl)
-														.containsKey(zr)) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.lc).get(xl)
-															.get(xr).get(zl)
-															.get(zr);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															candit, item,
-															candit.ll, item.lr,
-															candit.rl, item.rr,
-															"r10");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 11) {
-							// 11 A(XY,ZU) -> B(X,U) C(Y,Z)
-							// X.r = Y.l
-							// U.l = Z.r
-							if (!item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									int xr = item.ll; // because item.ll is Y.l
-														// and Y.l = X.r
-									if (chart.charttwo.get(bc.lc).get(xl)
-											.containsKey(xr)) {
-										int ul = item.rr; // because item.rr is
-															// Z.r and Z.r = U.l
-										if (chart.charttwo.get(bc.lc).get(xl)
-												.get(xr).containsKey(ul)) {
-											for (int ur : chart.charttwo
-													.get(bc.lc).get(xl).get(xr)
-													.get(ul).keySet()) {
-												CYKItemTwo candit = chart.charttwo
-														.get(bc.lc).get(xl)
-														.get(xr).get(ul)
-														.get(ur);
-												nit = new CYKItemTwo(bc.lhs, 2,
-														item.iscore
-																+ candit.iscore
-																+ bc.score,
-														candit, item,
-														candit.ll, item.lr,
-														item.rl, candit.rr,
-														"r11");
-												transport.add(nit);
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 12) {
-							// 12 A(X,YZU) -> B(X,Z) C(Y,U)
-							// Y.l > X.r
-							// Y.r = Z.l
-							// U.l = Z.r
-							if (!item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									for (int xr : chart.charttwo.get(bc.lc)
-											.get(xl).keySet()) {
-										if (xr < item.ll) {
-											if (chart.charttwo.get(bc.lc)
-													.get(xl).get(xr)
-													.containsKey(item.lr)) {
-												if (chart.charttwo.get(bc.lc)
-														.get(xl).get(xr)
-														.get(item.lr)
-														.containsKey(item.rl)) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.lc).get(xl)
-															.get(xr)
-															.get(item.lr)
-															.get(item.rl);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															candit, item,
-															candit.ll,
-															candit.lr, item.ll,
-															item.rr, "r12");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 13) {
-							// 13 A(XYZ,U) -> B(X,Z) C(Y,U)
-							// X.r = Y.l
-							// Z.l = Y.r
-							// Z.r < U.l
-							if (!item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									if (chart.charttwo.get(bc.lc).get(xl)
-											.containsKey(item.ll)) {
-										if (chart.charttwo.get(bc.lc).get(xl)
-												.get(item.ll)
-												.containsKey(item.lr)) {
-											for (int zr : chart.charttwo
-													.get(bc.lc).get(xl)
-													.get(item.ll).get(item.lr)
-													.keySet()) {
-												if (zr < item.rl) {
-													CYKItemTwo candit = chart.charttwo
-															.get(bc.lc).get(xl)
-															.get(item.ll)
-															.get(item.lr)
-															.get(zr);
-													nit = new CYKItemTwo(
-															bc.lhs,
-															2,
-															item.iscore
-																	+ candit.iscore
-																	+ bc.score,
-															candit, item,
-															candit.ll,
-															candit.lr, item.rl,
-															item.rr, "r13");
-													transport.add(nit);
-												}
-											}
-										}
-									}
-								}
-							}
-						} else if (bc.type == 14) {
-							// 14 A(XYZU) -> B(X,Z) C(Y,U)
-							// item is C
-							if (!item.isOne()) {
-								for (int xl : chart.charttwo.get(bc.lc)
-										.keySet()) {
-									if (chart.charttwo.get(bc.lc).get(xl)
-											.containsKey(item.ll)) {
-										if (chart.charttwo.get(bc.lc).get(xl)
-												.get(item.ll)
-												.containsKey(item.lr)) {
-											if (chart.charttwo.get(bc.lc)
-													.get(xl).get(item.ll)
-													.get(item.lr)
-													.containsKey(item.rl)) {
-												CYKItemTwo candit = chart.charttwo
-														.get(bc.lc).get(xl)
-														.get(item.ll)
-														.get(item.lr)
-														.get(item.rl);
-												nit = new CYKItemTwo(bc.lhs, 1,
-														item.iscore
-																+ candit.iscore
-																+ bc.score,
-														candit, item,
-														candit.ll, item.rr,
-														UNSET, UNSET, "r14");
-												transport.add(nit);
-											}
-										}
-									}
-								}
-							}
-						}
-					}
+					combine(bc, item, false);
 				}
 			}
 
@@ -1036,13 +293,167 @@ public class CYKParserTwo implements RCGParser {
 					}
 				}
 			}
-			transport = new ArrayList<CYKItemTwo>();
+			transport.clear();
 
 		}
 
 		return goal != null;
 	}
 
+	/*
+	 * The yield functions of the clause types of BinaryClauseTwo: for every
+	 * argument of the left-hand side, the spans of the children it consists
+	 * of, from left to right. 0 and 1 are the first and the second span of
+	 * the left child, 2 and 3 the ones of the right child.
+	 */
+	private static final int[][][] YIELD = { null, // no type 0
+			{ { 0 } }, // 1 A(X) -> B(X)
+			{ { 0 }, { 1 } }, // 2 A(X,Y) -> B(X,Y)
+			{ { 0, 2 } }, // 3 A(XY) -> B(X) C(Y)
+			{ { 0 }, { 2 } }, // 4 A(X,Y) -> B(X) C(Y)
+			{ { 0, 2, 1 } }, // 5 A(XYZ) -> B(X,Z) C(Y)
+			{ { 0 }, { 1, 2 } }, // 6 A(X,YZ) -> B(X,Y) C(Z)
+			{ { 0 }, { 2, 1 } }, // 7 A(X,YZ) -> B(X,Z) C(Y)
+			{ { 0, 2 }, { 1 } }, // 8 A(XY,Z) -> B(X,Z) C(Y)
+			{ { 0, 2 }, { 3 } }, // 9 A(XY,Z) -> B(X) C(Y,Z)
+			{ { 0, 2 }, { 1, 3 } }, // 10 A(XY,ZU) -> B(X,Z) C(Y,U)
+			{ { 0, 2 }, { 3, 1 } }, // 11 A(XY,ZU) -> B(X,U) C(Y,Z)
+			{ { 0 }, { 2, 1, 3 } }, // 12 A(X,YZU) -> B(X,Z) C(Y,U)
+			{ { 0, 2, 1 }, { 3 } }, // 13 A(XYZ,U) -> B(X,Z) C(Y,U)
+			{ { 0, 2, 1, 3 } } // 14 A(XYZU) -> B(X,Z) C(Y,U)
+	};
+
+	// per type: the number of spans of the left and the right child
+	private static final int[][] SPANS = new int[YIELD.length][2];
+
+	// per type and per child which is taken from the agenda (0 left, 1
+	// right): the boundary of this child and the boundary of the other child
+	// which must be equal, see CYKChartTwo.LL etc., -1 if there is none
+	private static final int[][] ANCHOR = new int[YIELD.length][2];
+
+	private static final int[][] ANCHOR_OTHER = new int[YIELD.length][2];
+
+	// item descriptions, per type and child taken from the agenda
+	private static final String[][] ST = new String[YIELD.length][2];
+
+	static {
+		for (int type = 1; type < YIELD.length; ++type) {
+			Arrays.fill(ANCHOR[type], -1);
+			Arrays.fill(ANCHOR_OTHER[type], -1);
+			ST[type][0] = "l" + type;
+			ST[type][1] = "r" + type;
+			for (int[] arg : YIELD[type]) {
+				for (int i = 0; i < arg.length; ++i) {
+					++SPANS[type][arg[i] / 2];
+					if (i == 0 || ANCHOR[type][0] != -1)
+						continue;
+					// right end of the span before equals left end of this
+					// one
+					int before = 2 * arg[i - 1] + 1;
+					int here = 2 * arg[i];
+					if (before < 4 && here >= 4) {
+						setAnchor(type, before, here - 4);
+					} else if (before >= 4 && here < 4) {
+						setAnchor(type, here, before - 4);
+					}
+				}
+			}
+		}
+	}
+
+	// the boundary l of the left child must equal the boundary r of the
+	// right child
+	private static void setAnchor(int type, int l, int r) {
+		ANCHOR[type][0] = l;
+		ANCHOR_OTHER[type][0] = r;
+		ANCHOR[type][1] = r;
+		ANCHOR_OTHER[type][1] = l;
+	}
+
+	/*
+	 * Combine an item with all matching items from the chart, using a binary
+	 * clause. The candidates are found through one pair of adjacent spans of
+	 * the two children, all other constraints are checked afterwards.
+	 */
+	private void combine(BinaryClauseTwo bc, CYKItemTwo item, boolean isLeft) {
+		int side = isLeft ? 0 : 1;
+		if (item.onetwo != SPANS[bc.type][side])
+			return;
+		int otherLabel = isLeft ? bc.rc : bc.lc;
+		int otherSpans = SPANS[bc.type][1 - side];
+		int anchor = ANCHOR[bc.type][side];
+		if (anchor != -1) {
+			CYKChartTwo.ItemList cands = chart.get(otherLabel, otherSpans,
+					ANCHOR_OTHER[bc.type][side], boundary(item, anchor));
+			for (int c = 0; c < cands.size; ++c) {
+				if (isLeft)
+					combine(bc, item, cands.items[c], ST[bc.type][side]);
+				else
+					combine(bc, cands.items[c], item, ST[bc.type][side]);
+			}
+		} else {
+			// no adjacent spans (type 4), try all candidates
+			for (int value = 0; value <= chart.maxBoundary(); ++value) {
+				CYKChartTwo.ItemList cands = chart.get(otherLabel, otherSpans,
+						CYKChartTwo.LL, value);
+				for (int c = 0; c < cands.size; ++c) {
+					if (isLeft)
+						combine(bc, item, cands.items[c], ST[bc.type][side]);
+					else
+						combine(bc, cands.items[c], item, ST[bc.type][side]);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Combine two items if their spans fit the yield function of the clause:
+	 * spans in the same argument must be adjacent, the arguments must not.
+	 */
+	private void combine(BinaryClauseTwo bc, CYKItemTwo lc, CYKItemTwo rc,
+			String st) {
+		bnd[0] = lc.ll;
+		bnd[1] = lc.lr;
+		bnd[2] = lc.rl;
+		bnd[3] = lc.rr;
+		bnd[4] = rc.ll;
+		bnd[5] = rc.lr;
+		bnd[6] = rc.rl;
+		bnd[7] = rc.rr;
+		int[][] yield = YIELD[bc.type];
+		int prev = -1;
+		for (int[] arg : yield) {
+			if (bnd[2 * arg[0]] <= prev)
+				return;
+			for (int i = 1; i < arg.length; ++i) {
+				if (bnd[2 * arg[i - 1] + 1] != bnd[2 * arg[i]])
+					return;
+			}
+			prev = bnd[2 * arg[arg.length - 1] + 1];
+		}
+		int[] first = yield[0];
+		int[] last = yield[yield.length - 1];
+		transport.add(new CYKItemTwo(bc.lhs, yield.length, lc.iscore
+				+ rc.iscore + bc.score, lc, rc, bnd[2 * first[0]],
+				bnd[2 * first[first.length - 1] + 1],
+				yield.length == 2 ? bnd[2 * last[0]] : UNSET,
+				yield.length == 2 ? bnd[2 * last[last.length - 1] + 1] : UNSET,
+				st));
+	}
+
+	private static int boundary(CYKItemTwo it, int boundary) {
+		switch (boundary) {
+		case CYKChartTwo.LL:
+			return it.ll;
+		case CYKChartTwo.LR:
+			return it.lr;
+		case CYKChartTwo.RL:
+			return it.rl;
+		default:
+			return it.rr;
+		}
+	}
+
 	@Override
 	public void reset() {
 		try {
@@ -1053,11 +464,8 @@ public class CYKParserTwo implements RCGParser {
 					"Could not get a priority agenda of type " + agendaType);
 		}
 		chart = new CYKChartTwo(bgg);
+		transport.clear();
 		goal = null;
-
-		// getting new instances and calling the garbage collector is faster
-		// than clearing.
-		System.gc();
 	}
 
 	@Override
@@ -1091,8 +499,7 @@ public class CYKParserTwo implements RCGParser {
 			// int i = 0;
 			// for (; i < words.length && !it.rvec.get(i); ++i);
 			int i = it.lr - 1;
-			plabel.setWord((String) pd.nb.getObjectWithId(
-					LexiconConstants.INPUTWORD, words[i]));
+			plabel.setWord(input.getWord(i, pd.nb));
 			terminals[i] = ret;
 			plabel.setNum(i + 1);
 		}
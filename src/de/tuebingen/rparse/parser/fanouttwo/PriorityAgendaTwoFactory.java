@@ -51,6 +51,10 @@ public class PriorityAgendaTwoFactory {
         if (PriorityAgendaTypes.FIBONACCI.equals(type)) {
             return new PriorityAgendaTwoFibonacci(nb);
         }
+
+        if (PriorityAgendaTypes.HEAP.equals(type)) {
+            return new PriorityAgendaTwoHeap(nb);
+        }
         
         throw new UnknownFormatException(type);
 
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * File PriorityAgendaTwoHeap.java
+ * 
+ * Authors:
+ *    Wolfgang Maier
+ *    
+ * Copyright:
+ *    Wolfgang Maier, 2012
+ * 
+ * This file is part of rparse, see <www.wolfgang-maier.net/rparse>.
+ * 
+ * rparse is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free 
+ * Software Foundation; either version 2 of the License, or (at your option) 
+ * any later version.
+ * 
+ * rparse is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the  GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along 
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package de.tuebingen.rparse.parser.fanouttwo;
+
+import de.tuebingen.rparse.misc.Numberer;
+import de.tuebingen.rparse.parser.CYKChart;
+
+/**
+ * Priority agenda for the parser for fan-out two, an array-based 4-ary heap with decrease-key in place, as
+ * {@link de.tuebingen.rparse.parser.PriorityAgendaHeap}. Items already on the agenda are found through an
+ * open-addressing hash table over label and span boundaries, with the same keys as in {@link CYKChartTwo}.
+ * 
+ * @author wmaier
+ */
+public class PriorityAgendaTwoHeap implements PriorityAgendaTwo {
+
+    // number of children of a heap node
+    private static final int ARITY = 4;
+
+    // the heap, items and priorities (inside plus outside score)
+    private CYKItemTwo[]     heap;
+
+    private double[]         prio;
+
+    private int              size;
+
+    // the index, label and packed span boundaries -> item
+    private long[]           keys;
+
+    private CYKItemTwo[]     slots;
+
+    // watches the agenda grow
+    private long             agendaMaxSize;
+
+    // checks how often we perform the add operation
+    private long             addCount;
+
+    protected int            decreaseKeyCount;
+
+    // A numberer
+    protected Numberer       nb;
+
+    /**
+     * Constructor.
+     * 
+     * @param nb
+     *            A numberer
+     */
+    public PriorityAgendaTwoHeap(Numberer nb) {
+        heap = new CYKItemTwo[64];
+        prio = new double[64];
+        size = 0;
+        keys = new long[128];
+        slots = new CYKItemTwo[128];
+        agendaMaxSize = 0;
+        addCount = 0;
+        decreaseKeyCount = 0;
+        this.nb = nb;
+    }
+
+    @Override
+    public CYKItemTwo poll() {
+        CYKItemTwo it = heap[0];
+        --size;
+        if (size > 0) {
+            heap[0] = heap[size];
+            prio[0] = prio[size];
+            heap[0].heapPos = 0;
+            siftDown(0);
+        }
+        heap[size] = null;
+        it.heapPos = -1;
+        remove(it);
+        return it;
+    }
+
+    @Override
+    public void push(CYKItemTwo it) {
+        double p = it.iscore + it.oscore;
+        CYKItemTwo oit = find(it);
+        if (oit != null) {
+            // update? also update backpointers
+            if (prio[oit.heapPos] > p) {
+                oit.olc = it.olc;
+                oit.orc = it.orc;
+                oit.iscore = it.iscore;
+                oit.oscore = it.oscore;
+                prio[oit.heapPos] = p;
+                siftUp(oit.heapPos);
+                ++decreaseKeyCount;
+            }
+        } else {
+            if (size == heap.length) {
+                CYKItemTwo[] nheap = new CYKItemTwo[2 * heap.length];
+                System.arraycopy(heap, 0, nheap, 0, size);
+                heap = nheap;
+                double[] nprio = new double[2 * prio.length];
+                System.arraycopy(prio, 0, nprio, 0, size);
+                prio = nprio;
+            }
+            heap[size] = it;
+            prio[size] = p;
+            it.heapPos = size;
+            ++size;
+            siftUp(it.heapPos);
+            insert(it);
+            ++addCount;
+        }
+        agendaMaxSize = Math.max(size, agendaMaxSize);
+    }
+
+    @Override
+    public String getStats() {
+        return "Agenda stats: Max size: " + agendaMaxSize + ", adds: "
+                + addCount + ", decrease-key: " + decreaseKeyCount;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void siftUp(int pos) {
+        CYKItemTwo it = heap[pos];
+        double p = prio[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) / ARITY;
+            if (prio[parent] <= p)
+                break;
+            heap[pos] = heap[parent];
+            prio[pos] = prio[parent];
+            heap[pos].heapPos = pos;
+            pos = parent;
+        }
+        heap[pos] = it;
+        prio[pos] = p;
+        it.heapPos = pos;
+    }
+
+    private void siftDown(int pos) {
+        CYKItemTwo it = heap[pos];
+        double p = prio[pos];
+        while (true) {
+            int first = pos * ARITY + 1;
+            if (first >= size)
+                break;
+            int last = Math.min(first + ARITY, size);
+            int min = first;
+            for (int c = first + 1; c < last; ++c) {
+                if (prio[c] < prio[min])
+                    min = c;
+            }
+            if (prio[min] >= p)
+                break;
+            heap[pos] = heap[min];
+            prio[pos] = prio[min];
+            heap[pos].heapPos = pos;
+            pos = min;
+        }
+        heap[pos] = it;
+        prio[pos] = p;
+        it.heapPos = pos;
+    }
+
+    private CYKItemTwo find(CYKItemTwo it) {
+        long key = CYKChartTwo.key(it);
+        int mask = slots.length - 1;
+        int i = CYKChart.hash(key) & mask;
+        while (slots[i] != null) {
+            if (keys[i] == key && CYKChartTwo.same(slots[i], it))
+                return slots[i];
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    private void insert(CYKItemTwo it) {
+        // keep the load factor below 1/2, size already counts the new item
+        if (2 * size > slots.length) {
+            CYKItemTwo[] oslots = slots;
+            keys = new long[2 * oslots.length];
+            slots = new CYKItemTwo[2 * oslots.length];
+            for (CYKItemTwo oit : oslots) {
+                if (oit != null)
+                    place(oit);
+            }
+        }
+        place(it);
+    }
+
+    private void place(CYKItemTwo it) {
+        long key = CYKChartTwo.key(it);
+        int mask = slots.length - 1;
+        int i = CYKChart.hash(key) & mask;
+        while (slots[i] != null)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        slots[i] = it;
+    }
+
+    // remove with backward shift, such that no probe sequence gets interrupted
+    private void remove(CYKItemTwo it) {
+        int mask = slots.length - 1;
+        int i = CYKChart.hash(CYKChartTwo.key(it)) & mask;
+        while (slots[i] != it)
+            i = (i + 1) & mask;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == null)
+                break;
+            int k = CYKChart.hash(keys[j]) & mask;
+            // move the entry at j to i unless its home slot k lies cyclically in (i, j]
+            if (i <= j ? (i < k && k <= j) : (i < k || k <= j))
+                continue;
+            keys[i] = keys[j];
+            slots[i] = slots[j];
+            i = j;
+        }
+        slots[i] = null;
+    }
+
+}
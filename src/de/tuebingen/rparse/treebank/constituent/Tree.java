@@ -333,6 +333,16 @@ public class Tree extends ParserInput implements HasSize, HasID, HasGapDegree {
                 .setWord((String) nb.getObjectWithId(LexiconConstants.INPUTWORD, word));
     }
 
+    @Override
+    public void setWord(int index, String word, Numberer nb) {
+        getOrderedTerminals().get(index).getLabel().setWord(word);
+    }
+
+    @Override
+    public String getWord(int index, Numberer nb) {
+        return getOrderedTerminals().get(index).getLabel().getWord();
+    }
+
     @Override
     public void setTag(int index, Integer tag) {
         getOrderedTerminals().get(index).getLabel()
@@ -346,8 +356,7 @@ public class Tree extends ParserInput implements HasSize, HasID, HasGapDegree {
         int i = 0;
 
         for (Node terminal : terminals) {
-            result[i++] = nb.number(LexiconConstants.INPUTWORD, terminal.getLabel()
-                    .getWord());
+            result[i++] = numberWord(nb, terminal.getLabel().getWord());
         }
 
         return result;
@@ -24,6 +24,9 @@
  ******************************************************************************/
 package de.tuebingen.rparse.treebank.lex;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
@@ -86,15 +89,25 @@ public class Lexicon implements Serializable {
      * @param tag The tag.
      */
     public void addPair(String word, String tag) {
+        addPair(word, tag, 1);
+    }
+
+    /**
+     * Add a word/tag pair which has been seen a certain number of times to the lexicon.
+     * @param word The word.
+     * @param tag The tag.
+     * @param count The number of occurrences of the pair.
+     */
+    public void addPair(String word, String tag, int count) {
         int wnum = nb.number(LexiconConstants.LEXWORD, word);
         int tnum = tag.endsWith("1") ? nb.number(GrammarConstants.PREDLABEL, tag) : nb.number(GrammarConstants.PREDLABEL, tag + "1");
         if (!tagCounts.containsKey(tnum))
             tagCounts.put(tnum, 0);
-        tagCounts.put(tnum, tagCounts.get(tnum) + 1);
+        tagCounts.put(tnum, tagCounts.get(tnum) + count);
 
 	if (!wordCounts.containsKey(wnum))
 	    wordCounts.put(wnum, 0);
-	wordCounts.put(wnum, wordCounts.get(wnum) + 1);
+	wordCounts.put(wnum, wordCounts.get(wnum) + count);
 
 	if (!wordTagCounts.containsKey(wnum)) {
 	    wordTagCounts.put(wnum, new HashMap<Integer,Integer>());
@@ -102,13 +115,13 @@ public class Lexicon implements Serializable {
 	if (!wordTagCounts.get(wnum).containsKey(tnum)) {
 	    wordTagCounts.get(wnum).put(tnum, 0);
 	}
-	wordTagCounts.get(wnum).put(tnum, wordTagCounts.get(wnum).get(tnum) + 1);
+	wordTagCounts.get(wnum).put(tnum, wordTagCounts.get(wnum).get(tnum) + count);
 
         if (!wordToTag.containsKey(wnum))
             wordToTag.put(wnum, new HashMap<Integer,Integer>());
         if (!wordToTag.get(wnum).containsKey(tnum))
 	    wordToTag.get(wnum).put(tnum, 0);
-        wordToTag.get(wnum).put(tnum, wordToTag.get(wnum).get(tnum) + 1);
+        wordToTag.get(wnum).put(tnum, wordToTag.get(wnum).get(tnum) + count);
 
 	if (!tagToWord.containsKey(tnum))
 	    tagToWord.put(tnum, new HashSet<Integer>());
@@ -117,18 +130,60 @@ public class Lexicon implements Serializable {
         if (Character.isUpperCase(word.charAt(0))) {
 	    if (!openClassUpper.containsKey(tnum)) 
 		openClassUpper.put(tnum, 0);
-	    openClassUpper.put(tnum, openClassUpper.get(tnum) + 1);
+	    openClassUpper.put(tnum, openClassUpper.get(tnum) + count);
         } else {
 	    if (!openClassLower.containsKey(tnum))
 		openClassLower.put(tnum, 0);
-	    openClassLower.put(tnum, openClassLower.get(tnum) + 1);
+	    openClassLower.put(tnum, openClassLower.get(tnum) + count);
         }
     	if (!openClassAll.containsKey(tnum))
 	    openClassAll.put(tnum, 0);
-    	openClassAll.put(tnum, openClassAll.get(tnum) + 1);
+    	openClassAll.put(tnum, openClassAll.get(tnum) + count);
         preterminals.add(tnum);
     }
     
+    /**
+     * Add all counts of another lexicon.
+     * @param other The other lexicon.
+     * @param map Maps the numbers of the numberer of the other lexicon to the numbers of this one, see {@link Numberer#addAll(Numberer)}.
+     */
+    public void addAll(Lexicon other, int[] map) {
+        addCounts(tagCounts, other.tagCounts, map);
+        addCounts(wordCounts, other.wordCounts, map);
+        addCounts(openClassLower, other.openClassLower, map);
+        addCounts(openClassUpper, other.openClassUpper, map);
+        addCounts(openClassAll, other.openClassAll, map);
+        for (Map.Entry<Integer, Map<Integer, Integer>> e : other.wordTagCounts.entrySet()) {
+            int wnum = map[e.getKey()];
+            if (!wordTagCounts.containsKey(wnum))
+                wordTagCounts.put(wnum, new HashMap<Integer, Integer>());
+            addCounts(wordTagCounts.get(wnum), e.getValue(), map);
+        }
+        for (Map.Entry<Integer, Map<Integer, Integer>> e : other.wordToTag.entrySet()) {
+            int wnum = map[e.getKey()];
+            if (!wordToTag.containsKey(wnum))
+                wordToTag.put(wnum, new HashMap<Integer, Integer>());
+            addCounts(wordToTag.get(wnum), e.getValue(), map);
+        }
+        for (Map.Entry<Integer, Set<Integer>> e : other.tagToWord.entrySet()) {
+            int tnum = map[e.getKey()];
+            if (!tagToWord.containsKey(tnum))
+                tagToWord.put(tnum, new HashSet<Integer>());
+            for (int wnum : e.getValue())
+                tagToWord.get(tnum).add(map[wnum]);
+        }
+        for (int tnum : other.preterminals)
+            preterminals.add(map[tnum]);
+    }
+
+    private static void addCounts(Map<Integer, Integer> to, Map<Integer, Integer> from, int[] map) {
+        for (Map.Entry<Integer, Integer> e : from.entrySet()) {
+            int num = map[e.getKey()];
+            Integer count = to.get(num);
+            to.put(num, count == null ? e.getValue() : count + e.getValue());
+        }
+    }
+
     /**
      * Get the numbers of all POS tags in this lexicon.
      * @return An unmodifiable set of integers.
@@ -242,4 +297,44 @@ public class Lexicon implements Serializable {
 	}
     }
 
+    /**
+     * Write the word/tag counts of this lexicon, from which it can be rebuilt.
+     * @param out Where to write the counts.
+     * @throws IOException If something goes wrong during writing.
+     */
+    public void writeTables(DataOutput out) throws IOException {
+        int size = 0;
+        for (Map<Integer, Integer> tags : wordTagCounts.values())
+            size += tags.size();
+        out.writeInt(size);
+        for (Map.Entry<Integer, Map<Integer, Integer>> e : wordTagCounts.entrySet()) {
+            for (Map.Entry<Integer, Integer> t : e.getValue().entrySet()) {
+                out.writeInt(e.getKey());
+                out.writeInt(t.getKey());
+                out.writeInt(t.getValue());
+            }
+        }
+    }
+
+    /**
+     * Rebuild a lexicon from word/tag counts written with {@link #writeTables(DataOutput)}.
+     * @param in Where to read the counts from.
+     * @param nb The numberer which holds the words and tags.
+     * @return The lexicon.
+     * @throws IOException If something goes wrong during reading.
+     */
+    public static Lexicon readTables(DataInput in, Numberer nb) throws IOException {
+        Lexicon ret = new Lexicon(nb);
+        int size = in.readInt();
+        for (int i = 0; i < size; ++i) {
+            String word = (String) nb.getObjectWithId(LexiconConstants.LEXWORD, in.readInt());
+            String tag = (String) nb.getObjectWithId(GrammarConstants.PREDLABEL, in.readInt());
+            int count = in.readInt();
+            if (word == null || tag == null)
+                throw new IOException("Lexicon refers to unknown word or tag");
+            ret.addPair(word, tag, count);
+        }
+        return ret;
+    }
+
 }
@@ -35,6 +35,12 @@ public interface LexiconConstants {
      * To be used in a numberer which numbers the words in a parser input string 
      */
     public static final String INPUTWORD = "inputword";
+
+    /**
+     * The input word which stands for all words that cannot be numbered anymore because {@link #INPUTWORD} has been
+     * frozen, see {@link ParserInput#getWord(int, de.tuebingen.rparse.misc.Numberer)}
+     */
+    public static final String UNKNOWNWORD = "<unknown>";
     
     /**
      * To be used in a numberer for numbering the words in a lexicon
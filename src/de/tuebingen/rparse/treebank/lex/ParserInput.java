@@ -73,7 +73,7 @@ public abstract class ParserInput implements HasSize {
         int[] tags = getTags();
         for (int i = 0; i < words.length; i++) {
             String word = "";
-            String mw = (String) nb.getObjectWithId(LexiconConstants.INPUTWORD, words[i]);
+            String mw = getWord(i, nb);
             String mt = (String) nb.getObjectWithId(GrammarConstants.PREDLABEL, tags[i]);
             if (mw != null && mt != null)
                 word = mw + " / " + mt;
@@ -94,6 +94,54 @@ public abstract class ParserInput implements HasSize {
      */
     public abstract void setWord(int i, Integer number);
 
+    /**
+     * Set a word in the sentence by its surface string. The word is numbered, see {@link #numberWord(Numberer, String)};
+     * parser inputs which can keep the surface strings of unknown words override this.
+     * 
+     * @param i
+     *            The index of the word to set.
+     * @param word
+     *            The word.
+     * @param nb
+     *            The numberer.
+     */
+    public void setWord(int i, String word, Numberer nb) {
+        setWord(i, numberWord(nb, word));
+    }
+
+    /**
+     * Get the surface string of a word in the sentence.
+     * 
+     * @param i
+     *            The index of the word.
+     * @param nb
+     *            The numberer which backs the word numbers.
+     * @return The word, null if it is not known.
+     */
+    public String getWord(int i, Numberer nb) {
+        return (String) nb.getObjectWithId(LexiconConstants.INPUTWORD, getWords()[i]);
+    }
+
+    /**
+     * Get the number of an input word. Once the input words have been frozen (see {@link Numberer#freeze(String...)}),
+     * a word without a number gets the number of {@link LexiconConstants#UNKNOWNWORD}, such that parsing does not
+     * change the numberer of the model.
+     * 
+     * @param nb
+     *            The numberer.
+     * @param word
+     *            The word.
+     * @return The number of the word.
+     */
+    public static int numberWord(Numberer nb, String word) {
+        Integer ret = nb.getIntWithId(LexiconConstants.INPUTWORD, word);
+        if (ret != null)
+            return ret;
+        if (nb.isOpen(LexiconConstants.INPUTWORD))
+            return nb.number(LexiconConstants.INPUTWORD, word);
+        return nb.number(LexiconConstants.INPUTWORD, LexiconConstants.UNKNOWNWORD);
+    }
+
     /**
      * Set a pos tag in the sentence.
      * 
@@ -127,7 +127,7 @@ public class RparseParserInputReader
                 throw new LexiconException(
                         "All words must be tagged. Unknown word model not yet implemented.");
             String word = line.substring(0, spind);
-            ret.setWord(i, nb.number(LexiconConstants.INPUTWORD, word));
+            ret.setWord(i, word, nb);
             String tag = line.substring(spind + 1);
             Integer tagn = nb.getIntWithId(GrammarConstants.PREDLABEL, tag
                     + "1");
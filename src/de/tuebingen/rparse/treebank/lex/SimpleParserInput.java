@@ -27,6 +27,8 @@ package de.tuebingen.rparse.treebank.lex;
 import java.util.HashSet;
 import java.util.Set;
 
+import de.tuebingen.rparse.misc.Numberer;
+
 /**
  * Standard rparse parser input format: words and pos-tags, separated by a slash.
  * @author wmaier
@@ -40,6 +42,10 @@ public class SimpleParserInput extends ParserInput {
 	
 	private int[] tags;
 	
+	// the surface strings of the words, null for the words which have been
+	// set by number only
+	private String[] surface;
+	
 	private HashSet<Integer> tagset;
 
 	/**
@@ -50,6 +56,7 @@ public class SimpleParserInput extends ParserInput {
 		this.size = size;
 		words = new int[size];
 		tags = new int[size];
+		surface = new String[size];
 		tagset = new HashSet<Integer>();
 	}
 
@@ -71,6 +78,20 @@ public class SimpleParserInput extends ParserInput {
 	@Override
 	public void setWord(int i, Integer wordn) {
 		words[i] = wordn;
+		surface[i] = null;
+	}
+
+	@Override
+	public void setWord(int i, String word, Numberer nb) {
+		words[i] = numberWord(nb, word);
+		surface[i] = word;
+	}
+
+	@Override
+	public String getWord(int i, Numberer nb) {
+		if (surface[i] != null)
+			return surface[i];
+		return super.getWord(i, nb);
 	}
 
 	@Override
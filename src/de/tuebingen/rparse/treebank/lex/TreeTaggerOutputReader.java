@@ -109,7 +109,7 @@ public class TreeTaggerOutputReader
         int i = 0;
 
         for (String word : words) {
-            result.setWord(i, nb.number(LexiconConstants.INPUTWORD, word));
+            result.setWord(i, word, nb);
             result.setTag(i,
                     nb.number(GrammarConstants.PREDLABEL, tags.get(i) + "1"));
             i++;
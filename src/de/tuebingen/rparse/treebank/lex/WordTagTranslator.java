@@ -52,15 +52,11 @@ public abstract class WordTagTranslator extends ProcessingTask<ParserInput> {
 
     @Override
     public void processSentence(ParserInput sentence) {
-        int i = 0;
-
-        for (int word : sentence.getWords()) {
-            sentence.setWord(i++, nb.number(LexiconConstants.INPUTWORD,
-                    translate((String) nb.getObjectWithId(
-                            LexiconConstants.INPUTWORD, word))));
+        for (int i = 0; i < sentence.size(); ++i) {
+            sentence.setWord(i, translate(sentence.getWord(i, nb)), nb);
         }
 
-        i = 0;
+        int i = 0;
 
         for (int tag : sentence.getTags()) {
             sentence.setTag(i++, nb.number(GrammarConstants.PREDLABEL,
@@ -62,6 +62,7 @@ import de.tuebingen.rparse.grammar.binarize.BinarizerTypes;
 import de.tuebingen.rparse.grammar.estimates.Estimate;
 import de.tuebingen.rparse.grammar.estimates.EstimateTypes;
 import de.tuebingen.rparse.grammar.estimates.EstimatesFactory;
+import de.tuebingen.rparse.grammar.read.ParallelRCGExtractor;
 import de.tuebingen.rparse.grammar.read.RCGExtractor;
 import de.tuebingen.rparse.grammar.read.RCGReader;
 import de.tuebingen.rparse.grammar.write.GrammarFormats;
@@ -80,10 +81,17 @@ import de.tuebingen.rparse.misc.Test;
 import de.tuebingen.rparse.misc.Timer;
 import de.tuebingen.rparse.misc.Utilities;
 import de.tuebingen.rparse.misc.VerySimpleFormatter;
+import de.tuebingen.rparse.parser.CoarseToFinePruner;
+import de.tuebingen.rparse.parser.HasParseMetrics;
+import de.tuebingen.rparse.parser.ParallelParser;
+import de.tuebingen.rparse.parser.ParseMetrics;
+import de.tuebingen.rparse.parser.ParseMetricsWriter;
+import de.tuebingen.rparse.parser.ParseServer;
 import de.tuebingen.rparse.parser.ParserData;
 import de.tuebingen.rparse.parser.ParserDataFormats;
 import de.tuebingen.rparse.parser.ParserDataWriter;
 import de.tuebingen.rparse.parser.ParserDataWriterFactory;
+import de.tuebingen.rparse.parser.ParserException;
 import de.tuebingen.rparse.parser.ParserFactory;
 import de.tuebingen.rparse.parser.ParsingTypes;
 import de.tuebingen.rparse.parser.RCGParser;
@@ -118,6 +126,7 @@ import de.tuebingen.rparse.treebank.dep.DependencyTreebankProcessorFactory;
 import de.tuebingen.rparse.treebank.dep.DirectoryDependencyTreebankProcessor;
 import de.tuebingen.rparse.treebank.lex.Lexicon;
 import de.tuebingen.rparse.treebank.lex.LexiconException;
+import de.tuebingen.rparse.treebank.lex.LexiconConstants;
 import de.tuebingen.rparse.treebank.lex.LexiconReader;
 import de.tuebingen.rparse.treebank.lex.LexiconWriter;
 import de.tuebingen.rparse.treebank.lex.ParserInput;
@@ -168,7 +177,7 @@ public class Rparse {
 
 		op.add(CommandLineOption.Prefix.DASH, "parserType",
 				CommandLineOption.Separator.BLANK, true,
-				"Parser type [cyk*|cyknaive|cyktwo]");
+				"Parser type [cyk*|cyknaive|cykheap|cykc2f|cyktwo]");
 
 		// Training mode
 		// *********************************************************
@@ -267,6 +276,9 @@ public class Rparse {
 		op.add(CommandLineOption.Prefix.DASH, "estMaxlen",
 				CommandLineOption.Separator.BLANK, true,
 				"Outside estimate max sentence length [trainMaxlen*]");
+		op.add(CommandLineOption.Prefix.DASH, "estParams",
+				CommandLineOption.Separator.BLANK, true,
+				"Outside estimate parameters, e.g. float:offheap:threads=4 for sxsimple []");
 		op.add(CommandLineOption.Prefix.DASH, "readEstimate",
 				CommandLineOption.Separator.BLANK, true,
 				"Read serialized estimate from file []");
@@ -285,15 +297,25 @@ public class Rparse {
 		op.add(CommandLineOption.Prefix.DASH, "timeout",
 				CommandLineOption.Separator.BLANK, true,
 				"Timeout in seconds until the parsing thread is killed [0*, 1-...]");
+		op.add(CommandLineOption.Prefix.DASH, "threads",
+				CommandLineOption.Separator.BLANK, true,
+				"Number of sentences to parse in parallel, each with its own parser; also the number of threads for grammar extraction during training [1*, 2-...]");
 		op.add(CommandLineOption.Prefix.DASH, "yfComp",
 				CommandLineOption.Separator.BLANK, true,
-				"Yield function composer [classic|fast*|gaps]");
+				"Yield function composer [classic|fast*|bitparallel|gaps|wellnested]");
 		op.add(CommandLineOption.Prefix.DASH, "yfCompParams",
 				CommandLineOption.Separator.BLANK, true,
 				"Parameters passed to yield function composer []");
+		op.add(CommandLineOption.Prefix.DASH, "agendaParams",
+				CommandLineOption.Separator.BLANK, true,
+				"Agenda pruning, e.g. beam=20:threshold=15:cap=200000 (not exact anymore; once the cap is reached, all further items are rejected) []");
+		op.add(CommandLineOption.Prefix.DASH, "c2fThreshold",
+				CommandLineOption.Separator.BLANK, true,
+				"Pruning threshold of the coarse pass of the cykc2f parser (not exact: the best parse is lost if it scores worse than the best coarse parse plus the threshold, the result is never better than exact search) ["
+						+ CoarseToFinePruner.DEFAULT_THRESHOLD + "*]");
 		op.add(CommandLineOption.Prefix.DASH, "readModel",
 				CommandLineOption.Separator.BLANK, true,
-				"Read trained model (serialized) from file []");
+				"Read trained model (serialized or mapped, see ModelConverter) from file []");
 		op.add(CommandLineOption.Prefix.DASH, "readBinary",
 				CommandLineOption.Separator.BLANK, true,
 				"Read binary grammar from file []");
@@ -331,6 +353,12 @@ public class Rparse {
 		op.add(CommandLineOption.Prefix.DASH, "saveParses",
 				CommandLineOption.Separator.BLANK, true,
 				"Save parser output [stdout*]");
+		op.add(CommandLineOption.Prefix.DASH, "serve",
+				CommandLineOption.Separator.BLANK, true,
+				"Instead of parsing the test file, parse sentences sent to this port on the local machine (see ParseClient) []");
+		op.add(CommandLineOption.Prefix.DASH, "metricsOut",
+				CommandLineOption.Separator.BLANK, true,
+				"Save per-sentence parser metrics, CSV if the name ends with .csv, JSON lines otherwise []");
 		op.add(CommandLineOption.Prefix.DASH, "saveParsesEncoding",
 				CommandLineOption.Separator.BLANK, true,
 				"Parser output encoding [UTF-8*]");
@@ -660,6 +688,9 @@ public class Rparse {
 		int estMaxlen = trainMaxlen;
 		if (op.check("estMaxlen"))
 			estMaxlen = Integer.parseInt(op.getVal("estMaxlen"));
+		String estParams = "";
+		if (op.check("estParams"))
+			estParams = op.getVal("estParams");
 		String readEstimate = op.getVal("readEstimate");
 		String saveEstimate = op.getVal("saveEstimate");
 		String saveModel = op.getVal("saveModel");
@@ -667,6 +698,9 @@ public class Rparse {
 		int timeout = 0;
 		if (op.check("timeout"))
 			timeout = Integer.parseInt(op.getVal("timeout"));
+		int threads = 1;
+		if (op.check("threads"))
+			threads = Math.max(1, Integer.parseInt(op.getVal("threads")));
 		String parserType = ParsingTypes.RCG_CYK_FIBO;
 		if (op.check("parserType"))
 			parserType = op.getVal("parserType");
@@ -676,6 +710,12 @@ public class Rparse {
 		String yfcompparams = "";
 		if (op.check("yfCompParams"))
 			yfcompparams = op.getVal("yfCompParams");
+		String agendaParams = "";
+		if (op.check("agendaParams"))
+			agendaParams = op.getVal("agendaParams");
+		double c2fThreshold = CoarseToFinePruner.DEFAULT_THRESHOLD;
+		if (op.check("c2fThreshold"))
+			c2fThreshold = Double.parseDouble(op.getVal("c2fThreshold"));
 		String test = op.getVal("test");
 		String readModel = op.getVal("readModel");
 		String readBinary = op.getVal("readBinary");
@@ -708,6 +748,10 @@ public class Rparse {
 		if (op.check("testPostprocessors"))
 			testPostprocessors = op.getVal("testPostprocessors");
 		String saveParses = op.getVal("saveParses");
+		String metricsOut = op.getVal("metricsOut");
+		int serve = -1;
+		if (op.check("serve"))
+			serve = Integer.parseInt(op.getVal("serve"));
 		String saveParsesEncoding = DEFAULT_ENCODING;
 		if (op.check("saveParsesEncoding"))
 			saveParsesEncoding = op.getVal("saveParsesEncoding");
@@ -812,6 +856,7 @@ public class Rparse {
 			logger.config("  binCutoff          : " + binCutoff);
 			logger.config("  estType            : " + estType);
 			logger.config("  estMaxlen          : " + estMaxlen);
+			logger.config("  estParams          : " + estParams);
 			logger.config("  readEstimate       : " + readEstimate);
 			logger.config("  saveEstimate       : " + saveEstimate);
 			logger.config("  saveModel          : " + saveModel);
@@ -820,12 +865,15 @@ public class Rparse {
 			logger.config("***** T e s t i n g ************");
 			logger.config("  test            : " + test);
 			logger.config("  timeout         : " + timeout);
+			logger.config("  threads         : " + threads);
 			logger.config("  readModel       : " + readModel);
 			logger.config("  readBinary      : " + readBinary);
 			logger.config("  readBinaryFormat: " + readBinaryFormat);
 			logger.config("  parserType      : " + parserType);
 			logger.config("  yfComp          : " + yfcomp);
 			logger.config("  yfCompParams    : " + yfcompparams);
+			logger.config("  agendaParams    : " + agendaParams);
+			logger.config("  c2fThreshold    : " + c2fThreshold);
 			logger.config("  testMaxlen      : " + testMaxlen);
 			logger.config("  testMinlen      : " + testMinlen);
 			logger.config("  testPreprocessors: " + testPreprocessors);
@@ -835,6 +883,8 @@ public class Rparse {
 			logger.config("  goalLabel       : " + goalLabel);
 			logger.config("  testPostprocessors: " + testPostprocessors);
 			logger.config("  saveParses      : " + saveParses);
+			logger.config("  metricsOut      : " + metricsOut);
+			logger.config("  serve           : " + serve);
 		}
 		if (doEval) {
 			logger.config("***** E v a l u a t i o n ******");
@@ -905,7 +955,8 @@ public class Rparse {
 						ConstituentParentAnnotator collinizer = new ConstituentParentAnnotator(
 								vMarkov, markovNoArities, pd.nb);
 						mt.addTask(collinizer);
-						mt.addTask(new RCGExtractor<Tree>(pd));
+						mt.addTask(threads > 1 ? new ParallelRCGExtractor<Tree>(
+								pd, threads, "") : new RCGExtractor<Tree>(pd));
 						TreebankProcessor<Tree> tp = ConstituentProcessorFactory
 								.getTreebankProcessor(trainFormat, nb);
 						timer.start();
@@ -920,8 +971,12 @@ public class Rparse {
 						DepParentAnnotator parentAnnotator = new DepParentAnnotator(
 								vMarkov, markovNoArities, pd.nb);
 						mt.addTask(parentAnnotator);
-						mt.addTask(new RCGExtractor<DependencyForest<DependencyForestNodeLabel, String>>(
-								pd));
+						if (threads > 1)
+							mt.addTask(new ParallelRCGExtractor<DependencyForest<DependencyForestNodeLabel, String>>(
+									pd, threads, ""));
+						else
+							mt.addTask(new RCGExtractor<DependencyForest<DependencyForestNodeLabel, String>>(
+									pd));
 						if (trainFromDir) {
 							DirectoryDependencyTreebankProcessor tp = DependencyTreebankProcessorFactory
 									.getDirectoryTreebankProcessor(trainFormat,
@@ -1267,7 +1322,7 @@ public class Rparse {
 					timer.start();
 					try {
 						pd.est = EstimatesFactory.getEstimates(estType, pd.bg,
-								nb, estMaxlen);
+								nb, estMaxlen, estParams);
 						pd.est.process();
 					} catch (UnknownTaskException e) {
 						logger.severe("Unknown Task Exception: "
@@ -1278,6 +1333,10 @@ public class Rparse {
 						logger.severe("Grammar Exception: " + e.getMessage());
 						e.printStackTrace();
 						System.exit(23);
+					} catch (ParameterException e) {
+						logger.severe("Could not parse estimate parameters: "
+								+ e.getMessage());
+						System.exit(24);
 					}
 					logger.info("finished in " + timer.time());
 
@@ -1313,6 +1372,12 @@ public class Rparse {
 				logger.severe("Either load pretrained model or load a binary grammar, not both.");
 				System.exit(8);
 			}
+			if (ParsingTypes.RCGTWO_CYK.equals(parserType)
+					&& !agendaParams.isEmpty()) {
+				logger.severe("Agenda pruning is not supported by the parser type "
+						+ parserType + ".");
+				System.exit(8);
+			}
 			if (readModel != null) {
 				// load model from file
 				logger.info("Reading model from " + readModel + "...");
@@ -1377,18 +1442,62 @@ public class Rparse {
 
 			RCGParser theParser = null;
 			try {
-				theParser = ParserFactory.getParser(parserType, pd, nb);
+				theParser = ParserFactory.getParser(parserType, pd, nb,
+						agendaParams, c2fThreshold);
 			} catch (GrammarException e) {
 				logger.severe("Could not create parser object: "
 						+ e.getMessage());
 				e.printStackTrace();
 				System.exit(104);
+			} catch (NoSuchElementException e) {
+				logger.severe("Could not create parser object: "
+						+ e.getMessage());
+				System.exit(104);
 			}
 
 			logger.info("We are using a "
 					+ theParser.getClass().getSimpleName() + " with a "
 					+ pd.yfcomp.getClass().getSimpleName() + ".");
 
+			// the grammar is complete, from now on only unknown tags get new
+			// numbers. Unknown input words share one number, their surface
+			// strings are kept by the parser input, such that a parse server
+			// does not grow the numberer with every client word.
+			pd.nb.number(LexiconConstants.INPUTWORD,
+					LexiconConstants.UNKNOWNWORD);
+			pd.nb.freeze(GrammarConstants.PREDLABEL);
+
+			if (serve >= 0) {
+				// server mode, runs until the process is killed
+				try {
+					ParallelParser pool = new ParallelParser(createWorkers(
+							threads, parserType, pd, nb, agendaParams,
+							c2fThreshold, mode, testPostprocessors), timeout,
+							null, pd.nb);
+					ParseServer server = new ParseServer(pool, testFormat,
+							testEncoding, createParserInputMultiTask(
+									testPreprocessors, nb), testMaxlen, pd.nb);
+					logger.info("Parsing with " + threads + " threads.");
+					server.serve(serve);
+				} catch (GrammarException e) {
+					logger.severe("Could not create parser object: "
+							+ e.getMessage());
+					e.printStackTrace();
+					System.exit(104);
+				} catch (TreebankException e) {
+					logger.severe("Could not create processors for pre- or postprocessing: "
+							+ e.getMessage());
+					e.printStackTrace();
+					System.exit(1);
+				} catch (IOException e) {
+					logger.severe("Could not listen on port " + serve + ": "
+							+ e.getMessage());
+					e.printStackTrace();
+					System.exit(106);
+				}
+				return;
+			}
+
 			IncrementalTreebankProcessor<? extends ParserInput> parserInputReader = null;
 			try {
 				parserInputReader = ParserInputReaderFactory
@@ -1425,6 +1534,27 @@ public class Rparse {
 				System.exit(1057);
 			}
 
+			// per-sentence metrics, if requested and supported by the parser
+			ParseMetricsWriter metricsWriter = null;
+			ParseMetrics metrics = null;
+			if (metricsOut != null) {
+				if (theParser instanceof HasParseMetrics) {
+					try {
+						metricsWriter = new ParseMetricsWriter(metricsOut);
+					} catch (IOException e) {
+						logger.severe("Could not get writer for parser metrics: "
+								+ e.getMessage());
+						e.printStackTrace();
+						System.exit(1056);
+					}
+					metrics = new ParseMetrics();
+					((HasParseMetrics) theParser).setMetrics(metrics);
+				} else {
+					logger.warning("A " + theParser.getClass().getSimpleName()
+							+ " does not collect metrics, ignoring -metricsOut");
+				}
+			}
+
 			theParser.reset();
 			logger.info("Ready to parse!");
 			int sentenceNumber = 1;
@@ -1467,6 +1597,33 @@ public class Rparse {
 				}
 			}
 
+			// With more than one thread, every worker gets its own parser and
+			// its own post-processing tasks, only the parser data is shared.
+			ParallelParser parallelParser = null;
+			if (threads > 1) {
+				logger.info("Parsing with " + threads + " threads.");
+				List<ParallelParser.Worker> workers = null;
+				try {
+					workers = createWorkers(threads, parserType, pd, nb,
+							agendaParams, c2fThreshold, mode,
+							testPostprocessors);
+				} catch (GrammarException e) {
+					logger.severe("Could not create parser object: "
+							+ e.getMessage());
+					e.printStackTrace();
+					System.exit(104);
+				} catch (TreebankException e) {
+					logger.severe("Could not create processors for postprocessing: "
+							+ e.getMessage());
+					e.printStackTrace();
+					System.exit(1);
+				}
+				parallelParser = new ParallelParser(workers, timeout,
+						parseResultWriter, pd.nb);
+				if (metricsWriter != null)
+					parallelParser.setMetricsWriter(metricsWriter);
+			}
+
 			// http://xkcd.com/292/
 			ranges: while (parseRanges.hasNext()) {
 				int next = parseRanges.next();
@@ -1519,7 +1676,18 @@ public class Rparse {
 				// Parse if not too long:
 				int size = input.size();
 
-				if (size <= testMaxlen && size >= testMinlen) {
+				if (parallelParser != null && size <= testMaxlen
+						&& size >= testMinlen) {
+					try {
+						parallelParser.submit(input, sentenceNumber);
+					} catch (IOException e) {
+						logger.warning("Could not write parsing result: "
+								+ e.getMessage());
+					} catch (ParserException e) {
+						logger.severe(e.getMessage());
+						System.exit(-1);
+					}
+				} else if (size <= testMaxlen && size >= testMinlen) {
 					logger.info("Parsing " + input.parserInputPrint(pd.nb)
 							+ "...");
 					timer.start();
@@ -1530,6 +1698,10 @@ public class Rparse {
 						} catch (TimeoutException e) {
 							logger.warning(" **** TIMEOUT **** ");
 						}
+						if (metricsWriter != null) {
+							metrics.sentence = sentenceNumber;
+							metricsWriter.write(metrics);
+						}
 
 						if (result) {
 							try {
@@ -1570,6 +1742,27 @@ public class Rparse {
 
 				sentenceNumber++;
 			}
+
+			if (parallelParser != null) {
+				try {
+					parallelParser.finish();
+				} catch (IOException e) {
+					logger.warning("Could not write parsing result: "
+							+ e.getMessage());
+				} catch (ParserException e) {
+					logger.severe(e.getMessage());
+					System.exit(-1);
+				}
+			}
+
+			if (metricsWriter != null) {
+				try {
+					metricsWriter.close();
+				} catch (IOException e) {
+					logger.warning("Could not write parser metrics: "
+							+ e.getMessage());
+				}
+			}
 		} // end parse
 
 		if (doEval) {
@@ -1622,6 +1815,85 @@ public class Rparse {
 		}
 	}
 
+	/**
+	 * Create the workers for parallel parsing. Every worker has its own parser
+	 * and its own post-processing tasks, only the parser data is shared.
+	 * 
+	 * @param threads
+	 *            The number of workers
+	 * @param parserType
+	 *            The parser type
+	 * @param pd
+	 *            The parser data
+	 * @param nb
+	 *            The numberer
+	 * @param agendaParams
+	 *            The agenda parameters
+	 * @param c2fThreshold
+	 *            The threshold of the coarse-to-fine parser
+	 * @param mode
+	 *            Constituents or dependencies
+	 * @param testPostprocessors
+	 *            The post-processing task specifiers
+	 * @return The workers
+	 * @throws GrammarException
+	 *             If a parser cannot be created
+	 * @throws TreebankException
+	 *             If the post-processing tasks cannot be created
+	 */
+	private static List<ParallelParser.Worker> createWorkers(int threads,
+			String parserType, ParserData pd, Numberer nb,
+			String agendaParams, double c2fThreshold, String mode,
+			String testPostprocessors) throws GrammarException,
+			TreebankException {
+		List<ParallelParser.Worker> ret = new ArrayList<ParallelParser.Worker>();
+		for (int i = 0; i < threads; ++i) {
+			ret.add(new ParallelParser.Worker(ParserFactory.getParser(
+					parserType, pd.copyForWorker(), nb, agendaParams,
+					c2fThreshold), createResultWriter(mode,
+					testPostprocessors, nb)));
+		}
+		return ret;
+	}
+
+	/**
+	 * Create a result writer for parallel parsing which has its own
+	 * post-processing tasks.
+	 * 
+	 * @param mode
+	 *            Constituents or dependencies
+	 * @param testPostprocessors
+	 *            The post-processing task specifiers
+	 * @param nb
+	 *            The numberer
+	 * @return The result writer
+	 * @throws TreebankException
+	 *             If the post-processing tasks cannot be created
+	 */
+	private static ParallelParser.ResultWriter createResultWriter(String mode,
+			String testPostprocessors, Numberer nb) throws TreebankException {
+		if (Constants.DEPENDENCIES.equals(mode)) {
+			final ProcessingTask<DependencyForest<DependencyForestNodeLabel, String>> tasks = createDependencyMultiTask(
+					testPostprocessors, nb);
+			return new ParallelParser.ResultWriter() {
+				@Override
+				public void write(RCGParser parser, Writer w, int scnt)
+						throws IOException, TreebankException {
+					parser.writeDependencyResult(w, scnt, tasks);
+				}
+			};
+		}
+		final ProcessingTask<Tree> tasks = createConstituentMultiTask(
+				testPostprocessors, nb);
+		return new ParallelParser.ResultWriter() {
+			@Override
+			public void write(RCGParser parser, Writer w, int scnt)
+					throws IOException, TreebankException {
+				parser.writeResult(w, scnt, tasks);
+			}
+		};
+	}
+
 	public static void doProcess(CommandLineParameters op, Logger logger)
 			throws TreebankException, UnknownFormatException, IOException,
 			ParameterException, UnknownTaskException {